@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.aws.eventbridge
+
+import org.apache.pekko.util.JavaDurationConverters._
+
+import scala.concurrent.duration._
+
+/**
+ * Settings for publishing entries in batched PutEvents requests.
+ *
+ * A batch is put when it holds `maxBatchSize` entries, when the next entry would take it over `maxBatchBytes`, or
+ * `maxBatchWait` after its first entry arrived. Up to `concurrency` batches are put at the same time. Entries
+ * EventBridge failed because of throttling or an internal failure are put again up to `maxRetries` times, with a
+ * backoff doubling from `minBackoff` up to `maxBackoff`.
+ */
+final class EventBridgePublishBatchSettings private (val maxBatchSize: Int,
+    val maxBatchBytes: Long,
+    val maxBatchWait: FiniteDuration,
+    val concurrency: Int,
+    val maxRetries: Int,
+    val minBackoff: FiniteDuration,
+    val maxBackoff: FiniteDuration) {
+
+  require(
+    maxBatchSize > 0 && maxBatchSize <= 10,
+    s"Invalid value for maxBatchSize: $maxBatchSize. It should be 0 < maxBatchSize <= 10, due to the PutEvents requirements.")
+  require(
+    maxBatchBytes > 0 && maxBatchBytes <= EventBridgePublishBatchSettings.MaxBatchBytes,
+    s"Invalid value for maxBatchBytes: $maxBatchBytes. It should be 0 < maxBatchBytes <= 262144, due to the PutEvents requirements.")
+  require(concurrency > 0, "concurrency must be positive")
+  require(maxRetries >= 0, "maxRetries must not be negative")
+  require(minBackoff > Duration.Zero, "minBackoff must be positive")
+  require(maxBackoff >= minBackoff, "maxBackoff must not be shorter than minBackoff")
+
+  def withMaxBatchSize(maxBatchSize: Int): EventBridgePublishBatchSettings = copy(maxBatchSize = maxBatchSize)
+
+  def withMaxBatchBytes(maxBatchBytes: Long): EventBridgePublishBatchSettings = copy(maxBatchBytes = maxBatchBytes)
+
+  /** Scala API */
+  def withMaxBatchWait(maxBatchWait: FiniteDuration): EventBridgePublishBatchSettings =
+    copy(maxBatchWait = maxBatchWait)
+
+  /** Java API */
+  def withMaxBatchWait(maxBatchWait: java.time.Duration): EventBridgePublishBatchSettings =
+    copy(maxBatchWait = maxBatchWait.asScala)
+
+  def withConcurrency(concurrency: Int): EventBridgePublishBatchSettings = copy(concurrency = concurrency)
+
+  def withMaxRetries(maxRetries: Int): EventBridgePublishBatchSettings = copy(maxRetries = maxRetries)
+
+  /** Scala API */
+  def withMinBackoff(minBackoff: FiniteDuration): EventBridgePublishBatchSettings = copy(minBackoff = minBackoff)
+
+  /** Java API */
+  def withMinBackoff(minBackoff: java.time.Duration): EventBridgePublishBatchSettings =
+    copy(minBackoff = minBackoff.asScala)
+
+  /** Scala API */
+  def withMaxBackoff(maxBackoff: FiniteDuration): EventBridgePublishBatchSettings = copy(maxBackoff = maxBackoff)
+
+  /** Java API */
+  def withMaxBackoff(maxBackoff: java.time.Duration): EventBridgePublishBatchSettings =
+    copy(maxBackoff = maxBackoff.asScala)
+
+  /**
+   * The backoff before the given retry, counting from 1.
+   */
+  def backoff(retry: Int): FiniteDuration = {
+    val exponential = minBackoff * math.pow(2, math.min(retry - 1, 30)).toLong
+    if (exponential > maxBackoff || exponential <= Duration.Zero) maxBackoff else exponential
+  }
+
+  private def copy(maxBatchSize: Int = maxBatchSize,
+      maxBatchBytes: Long = maxBatchBytes,
+      maxBatchWait: FiniteDuration = maxBatchWait,
+      concurrency: Int = concurrency,
+      maxRetries: Int = maxRetries,
+      minBackoff: FiniteDuration = minBackoff,
+      maxBackoff: FiniteDuration = maxBackoff) =
+    new EventBridgePublishBatchSettings(maxBatchSize,
+      maxBatchBytes,
+      maxBatchWait,
+      concurrency,
+      maxRetries,
+      minBackoff,
+      maxBackoff)
+
+  override def toString: String =
+    "EventBridgePublishBatchSettings(" +
+    s"maxBatchSize=$maxBatchSize," +
+    s"maxBatchBytes=$maxBatchBytes," +
+    s"maxBatchWait=$maxBatchWait," +
+    s"concurrency=$concurrency," +
+    s"maxRetries=$maxRetries," +
+    s"minBackoff=$minBackoff," +
+    s"maxBackoff=$maxBackoff" +
+    ")"
+}
+
+object EventBridgePublishBatchSettings {
+
+  /**
+   * The maximum total size of the entries of a PutEvents request, 256 KiB.
+   */
+  val MaxBatchBytes: Long = 256 * 1024
+
+  val Defaults: EventBridgePublishBatchSettings = new EventBridgePublishBatchSettings(
+    maxBatchSize = 10,
+    maxBatchBytes = MaxBatchBytes,
+    maxBatchWait = 500.millis,
+    concurrency = 10,
+    maxRetries = 3,
+    minBackoff = 100.millis,
+    maxBackoff = 10.seconds)
+
+  /** Scala API */
+  def apply(): EventBridgePublishBatchSettings = Defaults
+
+  /** Java API */
+  def create(): EventBridgePublishBatchSettings = Defaults
+}
@@ -0,0 +1,33 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.aws.eventbridge
+
+import org.apache.pekko.annotation.InternalApi
+import software.amazon.awssdk.services.eventbridge.model.{ PutEventsRequestEntry, PutEventsResultEntry }
+
+/**
+ * The outcome of putting an entry with a batched PutEvents request: the result entry of its last attempt, carrying
+ * either the event id or the error code and message.
+ */
+final class EventBridgePublishResult @InternalApi private[eventbridge] (
+    val entry: PutEventsRequestEntry,
+    val result: PutEventsResultEntry) {
+
+  def isSuccess: Boolean = result.errorCode == null
+
+  /** Java API */
+  def getEntry: PutEventsRequestEntry = entry
+
+  /** Java API */
+  def getResult: PutEventsResultEntry = result
+
+  override def toString: String =
+    s"EventBridgePublishResult(entry=$entry,result=$result)"
+}
@@ -16,7 +16,11 @@ package org.apache.pekko.stream.connectors.aws.eventbridge.javadsl
 import java.util.concurrent.CompletionStage
 
 import org.apache.pekko
-import pekko.stream.connectors.aws.eventbridge.EventBridgePublishSettings
+import pekko.stream.connectors.aws.eventbridge.{
+  EventBridgePublishBatchSettings,
+  EventBridgePublishResult,
+  EventBridgePublishSettings
+}
 import pekko.stream.javadsl.{ Flow, Keep, Sink }
 import pekko.{ Done, NotUsed }
 import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient
@@ -49,6 +53,18 @@ object EventBridgePublisher {
       .flow(EventBridgePublishSettings())(eventBridgeClient)
       .asJava
 
+  /**
+   * Creates a [[pekko.stream.javadsl.Flow Flow]] to publish entries to an EventBridge in batched PutEvents requests,
+   * putting only the failed entries again. Every entry is emitted once, in order, with the result of its last attempt.
+   *
+   * @param settings [[pekko.stream.connectors.aws.eventbridge.EventBridgePublishBatchSettings]] settings for batching and retrying
+   * @param eventBridgeClient [[software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient EventBridgeAsyncClient]] client for publishing
+   */
+  def batchFlow(settings: EventBridgePublishBatchSettings,
+      eventBridgeClient: EventBridgeAsyncClient): Flow[PutEventsRequestEntry, EventBridgePublishResult, NotUsed] =
+    pekko.stream.connectors.aws.eventbridge.scaladsl.EventBridgePublisher.batchFlow(settings)(
+      eventBridgeClient).asJava
+
   /**
    * Creates a [[pekko.stream.javadsl.Flow Flow]] to publish messages to an EventBridge.
    *
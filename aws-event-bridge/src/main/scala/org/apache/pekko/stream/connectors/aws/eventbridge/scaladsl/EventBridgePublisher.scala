@@ -13,14 +13,22 @@
 
 package org.apache.pekko.stream.connectors.aws.eventbridge.scaladsl
 
+import java.nio.charset.StandardCharsets
+
 import org.apache.pekko
-import pekko.stream.connectors.aws.eventbridge.EventBridgePublishSettings
+import pekko.actor.Scheduler
+import pekko.stream.connectors.aws.eventbridge.{
+  EventBridgePublishBatchSettings,
+  EventBridgePublishResult,
+  EventBridgePublishSettings
+}
 import pekko.stream.scaladsl.{ Flow, Keep, Sink }
 import pekko.{ Done, NotUsed }
 import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient
 import software.amazon.awssdk.services.eventbridge.model._
 
-import scala.concurrent.Future
+import scala.collection.JavaConverters._
+import scala.concurrent.{ ExecutionContext, Future }
 import scala.compat.java8.FutureConverters._
 
 /**
@@ -54,6 +62,75 @@ object EventBridgePublisher {
       .fromFunction((messages: Seq[PutEventsRequestEntry]) => PutEventsRequest.builder().entries(messages: _*).build())
       .via(publishFlow(settings))
 
+  /**
+   * Creates a [[pekko.stream.scaladsl.Flow Flow]] to publish entries to an EventBridge in batched PutEvents requests.
+   *
+   * Entries are grouped by count, by their total size as calculated by EventBridge and by time, see
+   * [[pekko.stream.connectors.aws.eventbridge.EventBridgePublishBatchSettings]]. Only the entries EventBridge failed
+   * with `ThrottlingException` or `InternalFailure` are put again, after a backoff. Every entry is emitted once, in the
+   * order the entries came in, with the result entry of its last attempt carrying the event id or the error. A failing
+   * PutEvents request fails the flow.
+   *
+   * @param settings [[pekko.stream.connectors.aws.eventbridge.EventBridgePublishBatchSettings]] settings for batching and retrying
+   * @param eventBridgeClient [[software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient EventBridgeAsyncClient]] client for publishing
+   */
+  def batchFlow(settings: EventBridgePublishBatchSettings = EventBridgePublishBatchSettings())(
+      implicit eventBridgeClient: EventBridgeAsyncClient)
+      : Flow[PutEventsRequestEntry, EventBridgePublishResult, NotUsed] = {
+    Flow
+      .fromMaterializer { (mat, _) =>
+        Flow[PutEventsRequestEntry]
+          .groupedWeightedWithin(settings.maxBatchBytes, settings.maxBatchSize, settings.maxBatchWait)(entrySize)
+          .mapAsync(settings.concurrency)(batch =>
+            putEventsWithRetries(batch.toVector, settings, retry = 0)(eventBridgeClient,
+              mat.system.scheduler,
+              mat.executionContext))
+          .mapConcat(identity)
+      }
+      .mapMaterializedValue(_ => NotUsed)
+  }
+
+  private def putEventsWithRetries(
+      entries: Vector[PutEventsRequestEntry],
+      settings: EventBridgePublishBatchSettings,
+      retry: Int)(
+      implicit eventBridgeClient: EventBridgeAsyncClient,
+      scheduler: Scheduler,
+      ec: ExecutionContext): Future[Vector[EventBridgePublishResult]] =
+    eventBridgeClient
+      .putEvents(PutEventsRequest.builder().entries(entries.asJava).build())
+      .toScala
+      .flatMap { response =>
+        // result entries are in the order of the request entries
+        val results = entries.zip(response.entries.asScala).map {
+          case (entry, result) => new EventBridgePublishResult(entry, result)
+        }
+        // other errors, e.g. of a malformed entry or a missing permission, will occur again
+        val retryable = results.indices.filter(i => RetryableErrorCodes(results(i).result.errorCode)).toVector
+        if (retryable.isEmpty || retry >= settings.maxRetries) Future.successful(results)
+        else
+          pekko.pattern
+            .after(settings.backoff(retry + 1), scheduler)(
+              putEventsWithRetries(retryable.map(entries), settings, retry + 1))
+            .map { retried =>
+              retryable.zip(retried).foldLeft(results) { case (acc, (index, result)) => acc.updated(index, result) }
+            }
+      }
+
+  // https://docs.aws.amazon.com/eventbridge/latest/APIReference/API_PutEventsResultEntry.html
+  private val RetryableErrorCodes = Set("InternalFailure", "ThrottlingException")
+
+  // the size EventBridge counts against the PutEvents limit, see
+  // https://docs.aws.amazon.com/eventbridge/latest/userguide/eb-putevent-size.html
+  private def entrySize(entry: PutEventsRequestEntry): Long =
+    (if (entry.time != null) 14L else 0L) +
+    utf8Length(entry.source) +
+    utf8Length(entry.detailType) +
+    utf8Length(entry.detail) +
+    entry.resources.asScala.iterator.map(utf8Length).sum
+
+  private def utf8Length(s: String): Long = if (s == null) 0L else s.getBytes(StandardCharsets.UTF_8).length.toLong
+
   /**
    * Creates a [[pekko.stream.scaladsl.Flow Flow]] to publish messages to an EventBridge.
    *
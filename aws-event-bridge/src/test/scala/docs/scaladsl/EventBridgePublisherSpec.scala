@@ -15,7 +15,7 @@ package docs.scaladsl
 
 import org.apache.pekko
 import pekko.Done
-import pekko.stream.connectors.aws.eventbridge.IntegrationTestContext
+import pekko.stream.connectors.aws.eventbridge.{ EventBridgePublishBatchSettings, IntegrationTestContext }
 import pekko.stream.connectors.aws.eventbridge.scaladsl.EventBridgePublisher
 import pekko.stream.scaladsl.{ Sink, Source }
 import org.scalatest.concurrent.ScalaFutures
@@ -75,4 +75,16 @@ class EventBridgePublisherSpec extends AnyFlatSpec with Matchers with ScalaFutur
     published.futureValue should be(Done)
   }
 
+  it should "put entries in batches" in {
+    val published =
+      // #flow-events-batch
+      Source(1 to 25)
+        .map(i => PutEventsRequestEntry.builder().detail(s"""{"count":$i}""").build())
+        .via(EventBridgePublisher.batchFlow(EventBridgePublishBatchSettings().withMaxRetries(5)))
+        .runWith(Sink.seq)
+    // #flow-events-batch
+    published.futureValue should have size 25
+    published.futureValue.forall(_.isSuccess) shouldBe true
+  }
+
 }
@@ -17,14 +17,18 @@ import java.util.concurrent.CompletableFuture
 
 import org.apache.pekko
 import pekko.stream.connectors.aws.eventbridge.scaladsl.EventBridgePublisher
-import pekko.stream.scaladsl.{ Keep, Sink }
+import pekko.stream.scaladsl.{ Keep, Sink, Source }
 import pekko.stream.testkit.scaladsl.TestSource
+import org.mockito.ArgumentCaptor
 import org.mockito.ArgumentMatchers.{ any, eq => meq }
 import org.mockito.Mockito._
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
 import org.scalatest.flatspec._
 import org.scalatest.matchers.must.Matchers
 import software.amazon.awssdk.services.eventbridge.model._
 
+import scala.collection.JavaConverters._
 import scala.concurrent.Await
 import scala.concurrent.duration._
 
@@ -142,4 +146,82 @@ class EventBridgePublishMockSpec extends AnyFlatSpec with DefaultTestContext wit
     verify(eventBridgeClient, never()).putEvents(any[PutEventsRequest]())
   }
 
+  it should "put entries in batches by count and size" in {
+    val putAll = new Answer[CompletableFuture[PutEventsResponse]] {
+      override def answer(invocation: InvocationOnMock): CompletableFuture[PutEventsResponse] = {
+        val request = invocation.getArgument[PutEventsRequest](0)
+        val results = request.entries.asScala.map(entry => PutEventsResultEntry.builder().eventId(entry.detail).build())
+        CompletableFuture.completedFuture(PutEventsResponse.builder().entries(results.asJava).build())
+      }
+    }
+    when(eventBridgeClient.putEvents(any[PutEventsRequest]())).thenAnswer(putAll)
+
+    val large = "x" * (100 * 1024)
+    val entries = (1 to 10).map(i => entryDetail(s"eb-message-$i")) ++ (1 to 3).map(i => entryDetail(s"$i$large"))
+    val future = Source(entries).via(EventBridgePublisher.batchFlow()).runWith(Sink.seq)
+
+    val results = Await.result(future, 1.second)
+    results.map(_.entry) mustBe entries
+    results.map(_.result.eventId) mustBe entries.map(_.detail)
+
+    val requests = ArgumentCaptor.forClass(classOf[PutEventsRequest])
+    verify(eventBridgeClient, times(3)).putEvents(requests.capture())
+    requests.getAllValues.asScala.map(_.entries.size) mustBe Seq(10, 2, 1)
+  }
+
+  it should "put only the failed entries of a batch again" in {
+    val failed = PutEventsResultEntry.builder().errorCode("InternalFailure").errorMessage("try again").build()
+    when(eventBridgeClient.putEvents(any[PutEventsRequest]()))
+      .thenReturn(
+        CompletableFuture.completedFuture(
+          PutEventsResponse
+            .builder()
+            .failedEntryCount(2)
+            .entries(PutEventsResultEntry.builder().eventId("event-1").build(), failed, failed)
+            .build()))
+      .thenReturn(
+        CompletableFuture.completedFuture(
+          PutEventsResponse
+            .builder()
+            .failedEntryCount(1)
+            .entries(PutEventsResultEntry.builder().eventId("event-2").build(), failed)
+            .build()))
+
+    val entries = (1 to 3).map(i => entryDetail(s"eb-message-$i"))
+    val settings = EventBridgePublishBatchSettings().withMaxRetries(1).withMinBackoff(10.millis)
+    val future = Source(entries).via(EventBridgePublisher.batchFlow(settings)).runWith(Sink.seq)
+
+    val results = Await.result(future, 1.second)
+    results.map(_.result.eventId) mustBe Seq("event-1", "event-2", null)
+    results.map(_.isSuccess) mustBe Seq(true, true, false)
+
+    val requests = ArgumentCaptor.forClass(classOf[PutEventsRequest])
+    verify(eventBridgeClient, times(2)).putEvents(requests.capture())
+    requests.getAllValues.get(1).entries.asScala.map(_.detail) mustBe Seq("eb-message-2", "eb-message-3")
+  }
+
+  it should "not put entries failed by a non-retryable error again" in {
+    val throttled = PutEventsResultEntry.builder().errorCode("ThrottlingException").errorMessage("slow down").build()
+    val denied = PutEventsResultEntry.builder().errorCode("AccessDeniedException").errorMessage("denied").build()
+    when(eventBridgeClient.putEvents(any[PutEventsRequest]()))
+      .thenReturn(
+        CompletableFuture.completedFuture(
+          PutEventsResponse.builder().failedEntryCount(2).entries(denied, throttled).build()))
+      .thenReturn(
+        CompletableFuture.completedFuture(
+          PutEventsResponse.builder().entries(PutEventsResultEntry.builder().eventId("event-2").build()).build()))
+
+    val entries = (1 to 2).map(i => entryDetail(s"eb-message-$i"))
+    val settings = EventBridgePublishBatchSettings().withMaxRetries(3).withMinBackoff(10.millis)
+    val future = Source(entries).via(EventBridgePublisher.batchFlow(settings)).runWith(Sink.seq)
+
+    val results = Await.result(future, 1.second)
+    results.map(_.result.errorCode) mustBe Seq("AccessDeniedException", null)
+    results.map(_.result.eventId) mustBe Seq(null, "event-2")
+
+    val requests = ArgumentCaptor.forClass(classOf[PutEventsRequest])
+    verify(eventBridgeClient, times(2)).putEvents(requests.capture())
+    requests.getAllValues.get(1).entries.asScala.map(_.detail) mustBe Seq("eb-message-2")
+  }
+
 }
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.awslambda
+
+import java.util.concurrent.ThreadLocalRandom
+
+import org.apache.pekko.util.JavaDurationConverters._
+
+import scala.concurrent.duration._
+
+/**
+ * Settings for invoking a Lambda function with a concurrency limit adapting to throttling.
+ *
+ * The limit of concurrent invocations starts at `initialLimit` and grows by `additiveIncrease` for every `limit`
+ * successful invocations, up to `maxLimit`. When an invocation is throttled with a `TooManyRequestsException`, the
+ * limit is multiplied by `decreaseFactor`, down to `minLimit`, and the invocation is retried up to `maxRetries` times
+ * after a backoff doubling from `minBackoff` up to `maxBackoff`, stretched by a random jitter of up to `randomFactor`.
+ *
+ * `initialLimit` is kept between `minLimit` and `maxLimit`. That `minLimit` does not exceed `maxLimit` and
+ * `minBackoff` does not exceed `maxBackoff` is checked when the flow is created, so the settings can be changed in
+ * any order.
+ */
+final class AwsLambdaAdaptiveSettings private (val initialLimit: Int,
+    val minLimit: Int,
+    val maxLimit: Int,
+    val additiveIncrease: Int,
+    val decreaseFactor: Double,
+    val maxRetries: Int,
+    val minBackoff: FiniteDuration,
+    val maxBackoff: FiniteDuration,
+    val randomFactor: Double) {
+
+  require(minLimit > 0, "minLimit must be positive")
+  require(maxLimit > 0, "maxLimit must be positive")
+  require(initialLimit > 0, "initialLimit must be positive")
+  require(additiveIncrease > 0, "additiveIncrease must be positive")
+  require(decreaseFactor > 0.0 && decreaseFactor < 1.0, "decreaseFactor must be between 0 and 1")
+  require(maxRetries >= 0, "maxRetries must not be negative")
+  require(minBackoff > Duration.Zero, "minBackoff must be positive")
+  require(maxBackoff > Duration.Zero, "maxBackoff must be positive")
+  require(randomFactor >= 0.0, "randomFactor must not be negative")
+
+  def withInitialLimit(value: Int): AwsLambdaAdaptiveSettings = copy(initialLimit = value)
+
+  def withMinLimit(value: Int): AwsLambdaAdaptiveSettings = copy(minLimit = value)
+
+  def withMaxLimit(value: Int): AwsLambdaAdaptiveSettings = copy(maxLimit = value)
+
+  def withAdditiveIncrease(value: Int): AwsLambdaAdaptiveSettings = copy(additiveIncrease = value)
+
+  def withDecreaseFactor(value: Double): AwsLambdaAdaptiveSettings = copy(decreaseFactor = value)
+
+  def withMaxRetries(value: Int): AwsLambdaAdaptiveSettings = copy(maxRetries = value)
+
+  /** Scala API */
+  def withMinBackoff(value: FiniteDuration): AwsLambdaAdaptiveSettings = copy(minBackoff = value)
+
+  /** Java API */
+  def withMinBackoff(value: java.time.Duration): AwsLambdaAdaptiveSettings = copy(minBackoff = value.asScala)
+
+  /** Scala API */
+  def withMaxBackoff(value: FiniteDuration): AwsLambdaAdaptiveSettings = copy(maxBackoff = value)
+
+  /** Java API */
+  def withMaxBackoff(value: java.time.Duration): AwsLambdaAdaptiveSettings = copy(maxBackoff = value.asScala)
+
+  def withRandomFactor(value: Double): AwsLambdaAdaptiveSettings = copy(randomFactor = value)
+
+  /**
+   * The backoff before the given retry, counting from 1.
+   */
+  def backoff(retry: Int): FiniteDuration = {
+    val exponential = minBackoff * math.pow(2, math.min(retry - 1, 30)).toLong
+    val capped = if (exponential > maxBackoff || exponential <= Duration.Zero) maxBackoff else exponential
+    val jitter = 1.0 + ThreadLocalRandom.current().nextDouble() * randomFactor
+    (capped * jitter) match {
+      case f: FiniteDuration => f
+      case _                 => maxBackoff
+    }
+  }
+
+  private def copy(
+      initialLimit: Int = initialLimit,
+      minLimit: Int = minLimit,
+      maxLimit: Int = maxLimit,
+      additiveIncrease: Int = additiveIncrease,
+      decreaseFactor: Double = decreaseFactor,
+      maxRetries: Int = maxRetries,
+      minBackoff: FiniteDuration = minBackoff,
+      maxBackoff: FiniteDuration = maxBackoff,
+      randomFactor: Double = randomFactor): AwsLambdaAdaptiveSettings =
+    new AwsLambdaAdaptiveSettings(
+      initialLimit = initialLimit,
+      minLimit = minLimit,
+      maxLimit = maxLimit,
+      additiveIncrease = additiveIncrease,
+      decreaseFactor = decreaseFactor,
+      maxRetries = maxRetries,
+      minBackoff = minBackoff,
+      maxBackoff = maxBackoff,
+      randomFactor = randomFactor)
+
+  override def toString: String =
+    "AwsLambdaAdaptiveSettings(" +
+    s"initialLimit=$initialLimit," +
+    s"minLimit=$minLimit," +
+    s"maxLimit=$maxLimit," +
+    s"additiveIncrease=$additiveIncrease," +
+    s"decreaseFactor=$decreaseFactor," +
+    s"maxRetries=$maxRetries," +
+    s"minBackoff=$minBackoff," +
+    s"maxBackoff=$maxBackoff," +
+    s"randomFactor=$randomFactor" +
+    ")"
+}
+
+object AwsLambdaAdaptiveSettings {
+
+  val Defaults: AwsLambdaAdaptiveSettings = new AwsLambdaAdaptiveSettings(
+    initialLimit = 4,
+    minLimit = 1,
+    maxLimit = 1000,
+    additiveIncrease = 1,
+    decreaseFactor = 0.5,
+    maxRetries = 10,
+    minBackoff = 100.millis,
+    maxBackoff = 10.seconds,
+    randomFactor = 0.2)
+
+  /** Scala API */
+  def apply(): AwsLambdaAdaptiveSettings = Defaults
+
+  /** Java API */
+  def create(): AwsLambdaAdaptiveSettings = Defaults
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.awslambda
+
+import org.apache.pekko.annotation.InternalApi
+
+/**
+ * Materialized by the adaptive `AwsLambdaFlow` to observe its concurrency, e.g. to report it as a metric.
+ */
+final class AwsLambdaConcurrency @InternalApi private[awslambda] () {
+
+  @volatile private var currentLimit = 0
+  @volatile private var currentInFlight = 0
+
+  /**
+   * The current limit of concurrent invocations.
+   */
+  def limit: Int = currentLimit
+
+  /**
+   * The number of invocations currently running or waiting to be retried.
+   */
+  def inFlight: Int = currentInFlight
+
+  /** Java API */
+  def getLimit: Int = limit
+
+  /** Java API */
+  def getInFlight: Int = inFlight
+
+  @InternalApi private[awslambda] def update(limit: Int, inFlight: Int): Unit = {
+    currentLimit = limit
+    currentInFlight = inFlight
+  }
+
+  override def toString: String = s"AwsLambdaConcurrency(limit=$limit,inFlight=$inFlight)"
+}
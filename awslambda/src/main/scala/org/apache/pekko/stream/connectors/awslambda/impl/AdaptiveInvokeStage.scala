@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.awslambda.impl
+
+import java.util.concurrent.CompletionException
+
+import org.apache.pekko
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts.parasitic
+import pekko.stream.{ Attributes, FlowShape, Inlet, Outlet }
+import pekko.stream.connectors.awslambda.{ AwsLambdaAdaptiveSettings, AwsLambdaConcurrency }
+import pekko.stream.stage.{
+  GraphStageLogic,
+  GraphStageWithMaterializedValue,
+  InHandler,
+  OutHandler,
+  TimerGraphStageLogic
+}
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient
+import software.amazon.awssdk.services.lambda.model.{ InvokeRequest, InvokeResponse, TooManyRequestsException }
+
+import scala.collection.mutable
+import scala.compat.java8.FutureConverters._
+import scala.util.{ Failure, Success, Try }
+
+/**
+ * Internal API
+ *
+ * Invokes a Lambda function like `mapAsyncUnordered`, with a parallelism adjusted by additive increase and
+ * multiplicative decrease: every successful invocation raises the limit by `additiveIncrease / limit`, so it grows by
+ * `additiveIncrease` per round of `limit` invocations, and a throttled invocation cuts it by `decreaseFactor`.
+ * Throttled invocations are retried after a backoff, and count against the limit while they wait.
+ *
+ * Only the first throttle of invocations started under the same limit cuts it, so that a burst of throttles caused by
+ * the same overload does not cut the limit to the minimum.
+ */
+@InternalApi
+private[awslambda] final class AdaptiveInvokeStage(settings: AwsLambdaAdaptiveSettings)(
+    implicit awsLambdaClient: LambdaAsyncClient)
+    extends GraphStageWithMaterializedValue[FlowShape[InvokeRequest, InvokeResponse], AwsLambdaConcurrency] {
+  import AdaptiveInvokeStage._
+
+  require(settings.maxLimit >= settings.minLimit,
+    s"maxLimit (${settings.maxLimit}) must not be less than minLimit (${settings.minLimit})")
+  require(settings.maxBackoff >= settings.minBackoff,
+    s"maxBackoff (${settings.maxBackoff}) must not be shorter than minBackoff (${settings.minBackoff})")
+
+  private val in = Inlet[InvokeRequest]("AdaptiveInvoke.in")
+  private val out = Outlet[InvokeResponse]("AdaptiveInvoke.out")
+
+  override val shape = FlowShape(in, out)
+
+  override protected def initialAttributes: Attributes = Attributes.name("AdaptiveInvoke")
+
+  override def createLogicAndMaterializedValue(
+      inheritedAttributes: Attributes): (GraphStageLogic, AwsLambdaConcurrency) = {
+    val concurrency = new AwsLambdaConcurrency()
+    val logic = new TimerGraphStageLogic(shape) with InHandler with OutHandler {
+      private var limit: Double =
+        math.min(math.max(settings.initialLimit, settings.minLimit), settings.maxLimit).toDouble
+      // incremented on every decrease, so that throttles of invocations started before are ignored
+      private var epoch = 0
+      private var inFlight = 0
+      private val results = mutable.Queue.empty[InvokeResponse]
+
+      private val completed = getAsyncCallback[(Attempt, Try[InvokeResponse])] {
+        case (_, Success(response)) =>
+          inFlight -= 1
+          limit = math.min(settings.maxLimit.toDouble, limit + settings.additiveIncrease / limit)
+          results.enqueue(response)
+          pushAndPull()
+        case (attempt, Failure(Throttled(ex))) =>
+          if (attempt.epoch == epoch) {
+            limit = math.max(settings.minLimit.toDouble, limit * settings.decreaseFactor)
+            epoch += 1
+          }
+          if (attempt.retry < settings.maxRetries) {
+            val retry = Attempt(attempt.request, attempt.retry + 1, epoch)
+            scheduleOnce(new RetryKey(retry), settings.backoff(retry.retry))
+            report()
+          } else failStage(ex)
+        case (_, Failure(ex)) =>
+          failStage(ex)
+      }
+
+      override def preStart(): Unit = {
+        report()
+        pull(in)
+      }
+
+      override def onPush(): Unit = {
+        invoke(Attempt(grab(in), retry = 0, epoch))
+        inFlight += 1
+        pushAndPull()
+      }
+
+      override def onPull(): Unit = pushAndPull()
+
+      override def onUpstreamFinish(): Unit = if (inFlight == 0 && results.isEmpty) completeStage()
+
+      override protected def onTimer(timerKey: Any): Unit = timerKey match {
+        case key: RetryKey => invoke(key.attempt.copy(epoch = epoch))
+        case _             => ()
+      }
+
+      private def invoke(attempt: Attempt): Unit =
+        awsLambdaClient
+          .invoke(attempt.request)
+          .toScala
+          .onComplete(result => completed.invoke(attempt -> result))(parasitic)
+
+      private def pushAndPull(): Unit = {
+        if (results.nonEmpty && isAvailable(out)) push(out, results.dequeue())
+        if (isClosed(in)) {
+          if (inFlight == 0 && results.isEmpty) completeStage()
+        } else if (inFlight + results.size < limit.toInt && !hasBeenPulled(in)) pull(in)
+        report()
+      }
+
+      private def report(): Unit = concurrency.update(limit.toInt, inFlight)
+
+      setHandlers(in, out, this)
+    }
+    (logic, concurrency)
+  }
+}
+
+/**
+ * Internal API
+ */
+@InternalApi
+private[awslambda] object AdaptiveInvokeStage {
+
+  private final case class Attempt(request: InvokeRequest, retry: Int, epoch: Int)
+
+  // compared by reference, so that retries of equal attempts get timers of their own
+  private final class RetryKey(val attempt: Attempt)
+
+  private object Throttled {
+    def unapply(ex: Throwable): Option[TooManyRequestsException] = ex match {
+      case e: TooManyRequestsException => Some(e)
+      case e: CompletionException      => unapply(e.getCause)
+      case _                           => None
+    }
+  }
+}
@@ -15,6 +15,7 @@ package org.apache.pekko.stream.connectors.awslambda.javadsl
 
 import org.apache.pekko
 import pekko.NotUsed
+import pekko.stream.connectors.awslambda.{ AwsLambdaAdaptiveSettings, AwsLambdaConcurrency }
 import pekko.stream.javadsl.Flow
 import software.amazon.awssdk.services.lambda.model.{ InvokeRequest, InvokeResponse }
 import software.amazon.awssdk.services.lambda.LambdaAsyncClient
@@ -27,4 +28,14 @@ object AwsLambdaFlow {
   def create(awsLambdaClient: LambdaAsyncClient, parallelism: Int): Flow[InvokeRequest, InvokeResponse, NotUsed] =
     pekko.stream.connectors.awslambda.scaladsl.AwsLambdaFlow.apply(parallelism)(awsLambdaClient).asJava
 
+  /**
+   * Java API: creates a flow for AWS Lambda function invocations using an [[LambdaAsyncClient]] whose parallelism
+   * adapts to throttling, see [[AwsLambdaAdaptiveSettings]].
+   *
+   * The materialized [[AwsLambdaConcurrency]] tells the current limit and number of invocations in flight.
+   */
+  def createAdaptive(awsLambdaClient: LambdaAsyncClient,
+      settings: AwsLambdaAdaptiveSettings): Flow[InvokeRequest, InvokeResponse, AwsLambdaConcurrency] =
+    pekko.stream.connectors.awslambda.scaladsl.AwsLambdaFlow.adaptive(settings)(awsLambdaClient).asJava
+
 }
@@ -15,6 +15,8 @@ package org.apache.pekko.stream.connectors.awslambda.scaladsl
 
 import org.apache.pekko
 import pekko.NotUsed
+import pekko.stream.connectors.awslambda.{ AwsLambdaAdaptiveSettings, AwsLambdaConcurrency }
+import pekko.stream.connectors.awslambda.impl.AdaptiveInvokeStage
 import pekko.stream.scaladsl.Flow
 import software.amazon.awssdk.services.lambda.model.{ InvokeRequest, InvokeResponse }
 import software.amazon.awssdk.services.lambda.LambdaAsyncClient
@@ -29,4 +31,16 @@ object AwsLambdaFlow {
       parallelism: Int)(implicit awsLambdaClient: LambdaAsyncClient): Flow[InvokeRequest, InvokeResponse, NotUsed] =
     Flow[InvokeRequest].mapAsyncUnordered(parallelism)(awsLambdaClient.invoke(_).toScala)
 
+  /**
+   * Scala API: creates a flow for AWS Lambda function invocations using [[LambdaAsyncClient]] whose parallelism adapts
+   * to throttling: it grows additively while invocations succeed and is cut multiplicatively when an invocation fails
+   * with a `TooManyRequestsException`, which is then retried after a backoff. Responses are emitted in the order the
+   * invocations complete.
+   *
+   * The materialized [[AwsLambdaConcurrency]] tells the current limit and number of invocations in flight.
+   */
+  def adaptive(settings: AwsLambdaAdaptiveSettings = AwsLambdaAdaptiveSettings())(
+      implicit awsLambdaClient: LambdaAsyncClient): Flow[InvokeRequest, InvokeResponse, AwsLambdaConcurrency] =
+    Flow.fromGraph(new AdaptiveInvokeStage(settings))
+
 }
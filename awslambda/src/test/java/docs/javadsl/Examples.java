@@ -17,7 +17,10 @@ import org.apache.pekko.NotUsed;
 // #init-sys
 import org.apache.pekko.actor.ActorSystem;
 // #init-sys
+import org.apache.pekko.stream.connectors.awslambda.AwsLambdaAdaptiveSettings;
+import org.apache.pekko.stream.connectors.awslambda.AwsLambdaConcurrency;
 import org.apache.pekko.stream.connectors.awslambda.javadsl.AwsLambdaFlow;
+import org.apache.pekko.stream.javadsl.Keep;
 import org.apache.pekko.stream.javadsl.Flow;
 import org.apache.pekko.stream.javadsl.Sink;
 import org.apache.pekko.stream.javadsl.Source;
@@ -33,6 +36,7 @@ import software.amazon.awssdk.services.lambda.model.InvokeResponse;
 import software.amazon.awssdk.core.SdkBytes;
 // #run
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletionStage;
 
@@ -76,4 +80,28 @@ public class Examples {
         Source.single(request).via(flow).runWith(Sink.seq(), system);
     // #run
   }
+
+  public void runAdaptive(LambdaAsyncClient awsLambdaClient, List<InvokeRequest> requests) {
+    // #adaptive
+    AwsLambdaAdaptiveSettings settings =
+        AwsLambdaAdaptiveSettings.create()
+            .withInitialLimit(4)
+            .withMaxLimit(100)
+            .withMaxRetries(10)
+            .withMinBackoff(Duration.ofMillis(100))
+            .withMaxBackoff(Duration.ofSeconds(10));
+    AwsLambdaConcurrency concurrency =
+        Source.from(requests)
+            .viaMat(AwsLambdaFlow.createAdaptive(awsLambdaClient, settings), Keep.right())
+            .to(Sink.ignore())
+            .run(system);
+    // e.g. report as metrics
+    system
+        .log()
+        .info(
+            "Lambda concurrency limit {}, in flight {}",
+            concurrency.getLimit(),
+            concurrency.getInFlight());
+    // #adaptive
+  }
 }
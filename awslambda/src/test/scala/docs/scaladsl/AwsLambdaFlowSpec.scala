@@ -17,9 +17,10 @@ import java.util.concurrent.CompletableFuture
 
 import org.apache.pekko
 import pekko.actor.ActorSystem
+import pekko.stream.connectors.awslambda.AwsLambdaAdaptiveSettings
 import pekko.stream.connectors.awslambda.scaladsl.AwsLambdaFlow
 import pekko.stream.connectors.testkit.scaladsl.LogCapturing
-import pekko.stream.scaladsl.{ Keep, Sink }
+import pekko.stream.scaladsl.{ Keep, Sink, Source }
 import pekko.stream.testkit.scaladsl.StreamTestKit.assertAllStagesStopped
 import pekko.stream.testkit.scaladsl.TestSource
 import pekko.testkit.TestKit
@@ -34,7 +35,7 @@ import org.scalatest.wordspec.AnyWordSpecLike
 import org.scalatestplus.mockito.MockitoSugar
 import software.amazon.awssdk.core.SdkBytes
 import software.amazon.awssdk.services.lambda.LambdaAsyncClient
-import software.amazon.awssdk.services.lambda.model.{ InvokeRequest, InvokeResponse }
+import software.amazon.awssdk.services.lambda.model.{ InvokeRequest, InvokeResponse, TooManyRequestsException }
 
 import scala.concurrent.Await
 import scala.concurrent.duration._
@@ -110,4 +111,78 @@ class AwsLambdaFlowSpec
     }
 
   }
+
+  "Adaptive AwsLambdaFlow" should {
+
+    val invokeRequest =
+      InvokeRequest.builder.functionName("test_function").payload(SdkBytes.fromUtf8String("test_payload")).build
+    val invokeResponse = InvokeResponse.builder.build
+    val settings = AwsLambdaAdaptiveSettings().withMinBackoff(10.millis).withRandomFactor(0.0)
+
+    def throttled(): CompletableFuture[InvokeResponse] = {
+      val future = new CompletableFuture[InvokeResponse]()
+      future.completeExceptionally(TooManyRequestsException.builder().message("Rate Exceeded.").build())
+      future
+    }
+
+    "raise the concurrency limit while invocations succeed" in assertAllStagesStopped {
+      when(awsLambdaClient.invoke(mockitoAny[InvokeRequest]()))
+        .thenReturn(CompletableFuture.completedFuture(invokeResponse))
+
+      val (concurrency, future) = Source(List.fill(20)(invokeRequest))
+        .viaMat(AwsLambdaFlow.adaptive(settings.withInitialLimit(1)))(Keep.right)
+        .toMat(Sink.seq)(Keep.both)
+        .run()
+
+      Await.result(future, 3.seconds) should have size 20
+      concurrency.limit should be > 1
+      verify(awsLambdaClient, times(20)).invoke(mockitoEq(invokeRequest))
+    }
+
+    "start within the limits, whatever order they were set in" in assertAllStagesStopped {
+      when(awsLambdaClient.invoke(mockitoAny[InvokeRequest]()))
+        .thenReturn(CompletableFuture.completedFuture(invokeResponse))
+
+      val (concurrency, future) = Source.single(invokeRequest)
+        .viaMat(AwsLambdaFlow.adaptive(settings.withMaxLimit(2)))(Keep.right)
+        .toMat(Sink.seq)(Keep.both)
+        .run()
+
+      Await.result(future, 3.seconds) should have size 1
+      concurrency.limit shouldBe 2
+      an[IllegalArgumentException] should be thrownBy AwsLambdaFlow.adaptive(settings.withMinLimit(5).withMaxLimit(2))
+    }
+
+    "retry throttled invocations and cut the concurrency limit" in assertAllStagesStopped {
+      when(awsLambdaClient.invoke(mockitoAny[InvokeRequest]()))
+        .thenReturn(throttled(), throttled())
+        .thenReturn(CompletableFuture.completedFuture(invokeResponse))
+
+      val (concurrency, future) = Source(List.fill(2)(invokeRequest))
+        .viaMat(AwsLambdaFlow.adaptive(settings.withInitialLimit(8)))(Keep.right)
+        .toMat(Sink.seq)(Keep.both)
+        .run()
+
+      Await.result(future, 3.seconds) should have size 2
+      // both invocations were throttled under the same limit, which is cut only once
+      concurrency.limit shouldBe 4
+      verify(awsLambdaClient, times(4)).invoke(mockitoEq(invokeRequest))
+    }
+
+    "fail when invocations stay throttled" in assertAllStagesStopped {
+      val alwaysThrottled = new Answer[CompletableFuture[InvokeResponse]] {
+        override def answer(invocation: InvocationOnMock): CompletableFuture[InvokeResponse] = throttled()
+      }
+      when(awsLambdaClient.invoke(mockitoAny[InvokeRequest]())).thenAnswer(alwaysThrottled)
+
+      val future = Source
+        .single(invokeRequest)
+        .via(AwsLambdaFlow.adaptive(settings.withMaxRetries(2)))
+        .runWith(Sink.seq)
+
+      Await.result(future.failed, 3.seconds) shouldBe a[TooManyRequestsException]
+      verify(awsLambdaClient, times(3)).invoke(mockitoEq(invokeRequest))
+    }
+
+  }
 }
@@ -14,9 +14,11 @@
 package docs.scaladsl
 
 import org.apache.pekko
+import pekko.stream.connectors.awslambda.AwsLambdaAdaptiveSettings
 import pekko.stream.connectors.awslambda.scaladsl.AwsLambdaFlow
-import pekko.stream.scaladsl.{ Sink, Source }
+import pekko.stream.scaladsl.{ Keep, Sink, Source }
 import software.amazon.awssdk.services.lambda.LambdaAsyncClient
+import software.amazon.awssdk.services.lambda.model.InvokeRequest
 
 object Examples {
 
@@ -61,4 +63,20 @@ object Examples {
     Source.single(request).via(AwsLambdaFlow(1)).runWith(Sink.seq)
     // #run
   }
+
+  def runAdaptive(requests: List[InvokeRequest])(implicit lambdaClient: LambdaAsyncClient): Unit = {
+    // #adaptive
+    import scala.concurrent.duration._
+
+    val settings = AwsLambdaAdaptiveSettings()
+      .withInitialLimit(4)
+      .withMaxLimit(100)
+      .withMaxRetries(10)
+      .withMinBackoff(100.millis)
+      .withMaxBackoff(10.seconds)
+    val concurrency = Source(requests).viaMat(AwsLambdaFlow.adaptive(settings))(Keep.right).to(Sink.ignore).run()
+    // e.g. report as metrics
+    system.log.info("Lambda concurrency limit {}, in flight {}", concurrency.limit, concurrency.inFlight)
+    // #adaptive
+  }
 }
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.dynamodb
+
+import org.apache.pekko
+import pekko.stream.connectors.dynamodb.impl.RetryBackoff
+import pekko.util.JavaDurationConverters._
+
+import scala.concurrent.duration._
+
+/**
+ * Settings for looking up items with the DynamoDB BatchGetItem API.
+ *
+ * Keys are collected into a batch until it holds `maxBatchSize` keys or for `maxBatchWait` after its first key
+ * arrived, and up to `parallelism` batches are looked up concurrently. Keys DynamoDB returns as unprocessed are looked
+ * up again up to `maxRetries` times, with a backoff doubling from `minBackoff` and capped at `maxBackoff`, also when
+ * that is shorter.
+ *
+ * With a `cacheMaxSize` above zero, up to that many looked up items, including items that were not found, are reused
+ * for `cacheTtl`, which must be positive, by later lookups of the same key.
+ */
+final class DynamoDbBatchGetSettings private (val maxBatchSize: Int,
+    val maxBatchWait: FiniteDuration,
+    val parallelism: Int,
+    val consistentRead: Boolean,
+    val maxRetries: Int,
+    val minBackoff: FiniteDuration,
+    val maxBackoff: FiniteDuration,
+    val cacheMaxSize: Int,
+    val cacheTtl: FiniteDuration) {
+
+  require(
+    maxBatchSize > 0 && maxBatchSize <= DynamoDbBatchGetSettings.MaxBatchSize,
+    s"Invalid value for maxBatchSize: $maxBatchSize. It should be 0 < maxBatchSize <= 100, due to the DynamoDB requirements.")
+  require(parallelism > 0, "parallelism must be positive")
+  require(maxRetries >= 0, "maxRetries must not be negative")
+  require(minBackoff > Duration.Zero, "minBackoff must be positive")
+  require(maxBackoff > Duration.Zero, "maxBackoff must be positive")
+  require(cacheMaxSize >= 0, "cacheMaxSize must not be negative")
+  require(cacheMaxSize == 0 || cacheTtl > Duration.Zero, "cacheTtl must be positive when caching")
+
+  def withMaxBatchSize(maxBatchSize: Int): DynamoDbBatchGetSettings = copy(maxBatchSize = maxBatchSize)
+
+  /** Scala API */
+  def withMaxBatchWait(maxBatchWait: FiniteDuration): DynamoDbBatchGetSettings = copy(maxBatchWait = maxBatchWait)
+
+  /** Java API */
+  def withMaxBatchWait(maxBatchWait: java.time.Duration): DynamoDbBatchGetSettings =
+    copy(maxBatchWait = maxBatchWait.asScala)
+
+  def withParallelism(parallelism: Int): DynamoDbBatchGetSettings = copy(parallelism = parallelism)
+
+  def withConsistentRead(consistentRead: Boolean): DynamoDbBatchGetSettings = copy(consistentRead = consistentRead)
+
+  def withMaxRetries(maxRetries: Int): DynamoDbBatchGetSettings = copy(maxRetries = maxRetries)
+
+  /** Scala API */
+  def withMinBackoff(minBackoff: FiniteDuration): DynamoDbBatchGetSettings = copy(minBackoff = minBackoff)
+
+  /** Java API */
+  def withMinBackoff(minBackoff: java.time.Duration): DynamoDbBatchGetSettings = copy(minBackoff = minBackoff.asScala)
+
+  /** Scala API */
+  def withMaxBackoff(maxBackoff: FiniteDuration): DynamoDbBatchGetSettings = copy(maxBackoff = maxBackoff)
+
+  /** Java API */
+  def withMaxBackoff(maxBackoff: java.time.Duration): DynamoDbBatchGetSettings = copy(maxBackoff = maxBackoff.asScala)
+
+  /** Scala API: caches up to `maxSize` looked up items for `ttl`. */
+  def withCache(maxSize: Int, ttl: FiniteDuration): DynamoDbBatchGetSettings =
+    copy(cacheMaxSize = maxSize, cacheTtl = ttl)
+
+  /** Java API: caches up to `maxSize` looked up items for `ttl`. */
+  def withCache(maxSize: Int, ttl: java.time.Duration): DynamoDbBatchGetSettings =
+    copy(cacheMaxSize = maxSize, cacheTtl = ttl.asScala)
+
+  /**
+   * The backoff before the given retry, counting from 1.
+   */
+  def backoff(retry: Int): FiniteDuration = RetryBackoff(minBackoff, maxBackoff, retry)
+
+  private def copy(maxBatchSize: Int = maxBatchSize,
+      maxBatchWait: FiniteDuration = maxBatchWait,
+      parallelism: Int = parallelism,
+      consistentRead: Boolean = consistentRead,
+      maxRetries: Int = maxRetries,
+      minBackoff: FiniteDuration = minBackoff,
+      maxBackoff: FiniteDuration = maxBackoff,
+      cacheMaxSize: Int = cacheMaxSize,
+      cacheTtl: FiniteDuration = cacheTtl) =
+    new DynamoDbBatchGetSettings(maxBatchSize,
+      maxBatchWait,
+      parallelism,
+      consistentRead,
+      maxRetries,
+      minBackoff,
+      maxBackoff,
+      cacheMaxSize,
+      cacheTtl)
+
+  override def toString: String =
+    "DynamoDbBatchGetSettings(" +
+    s"maxBatchSize=$maxBatchSize," +
+    s"maxBatchWait=$maxBatchWait," +
+    s"parallelism=$parallelism," +
+    s"consistentRead=$consistentRead," +
+    s"maxRetries=$maxRetries," +
+    s"minBackoff=$minBackoff," +
+    s"maxBackoff=$maxBackoff," +
+    s"cacheMaxSize=$cacheMaxSize," +
+    s"cacheTtl=$cacheTtl" +
+    ")"
+}
+
+object DynamoDbBatchGetSettings {
+
+  /**
+   * The maximum number of keys in a BatchGetItem request accepted by DynamoDB.
+   */
+  val MaxBatchSize: Int = 100
+
+  val Defaults: DynamoDbBatchGetSettings = new DynamoDbBatchGetSettings(
+    maxBatchSize = MaxBatchSize,
+    maxBatchWait = 10.millis,
+    parallelism = 4,
+    consistentRead = false,
+    maxRetries = 10,
+    minBackoff = 50.millis,
+    maxBackoff = 5.seconds,
+    cacheMaxSize = 0,
+    cacheTtl = Duration.Zero)
+
+  /** Scala API */
+  def apply(): DynamoDbBatchGetSettings = Defaults
+
+  /** Java API */
+  def create(): DynamoDbBatchGetSettings = Defaults
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.dynamodb
+
+import org.apache.pekko
+import pekko.stream.connectors.dynamodb.impl.RetryBackoff
+import pekko.util.JavaDurationConverters._
+
+import scala.concurrent.duration._
+
+/**
+ * Settings for writing items with the DynamoDB BatchWriteItem API.
+ *
+ * A batch is written when it holds `maxBatchSize` writes, when the next write would take it over `maxBatchBytes`, or
+ * `maxBatchWait` after its first write arrived. Up to `parallelism` batches are written concurrently. Writes DynamoDB
+ * returns as unprocessed are written again up to `maxRetries` times, with a backoff doubling from `minBackoff` and
+ * capped at `maxBackoff`, also when that is shorter.
+ */
+final class DynamoDbBatchWriteSettings private (val maxBatchSize: Int,
+    val maxBatchBytes: Long,
+    val maxBatchWait: FiniteDuration,
+    val parallelism: Int,
+    val maxRetries: Int,
+    val minBackoff: FiniteDuration,
+    val maxBackoff: FiniteDuration) {
+
+  require(
+    maxBatchSize > 0 && maxBatchSize <= DynamoDbBatchWriteSettings.MaxBatchSize,
+    s"Invalid value for maxBatchSize: $maxBatchSize. It should be 0 < maxBatchSize <= 25, due to the DynamoDB requirements.")
+  require(
+    maxBatchBytes > 0 && maxBatchBytes <= DynamoDbBatchWriteSettings.MaxBatchBytes,
+    s"Invalid value for maxBatchBytes: $maxBatchBytes. It should be 0 < maxBatchBytes <= 16777216, due to the DynamoDB requirements.")
+  require(parallelism > 0, "parallelism must be positive")
+  require(maxRetries >= 0, "maxRetries must not be negative")
+  require(minBackoff > Duration.Zero, "minBackoff must be positive")
+  require(maxBackoff > Duration.Zero, "maxBackoff must be positive")
+
+  def withMaxBatchSize(maxBatchSize: Int): DynamoDbBatchWriteSettings = copy(maxBatchSize = maxBatchSize)
+
+  def withMaxBatchBytes(maxBatchBytes: Long): DynamoDbBatchWriteSettings = copy(maxBatchBytes = maxBatchBytes)
+
+  /** Scala API */
+  def withMaxBatchWait(maxBatchWait: FiniteDuration): DynamoDbBatchWriteSettings = copy(maxBatchWait = maxBatchWait)
+
+  /** Java API */
+  def withMaxBatchWait(maxBatchWait: java.time.Duration): DynamoDbBatchWriteSettings =
+    copy(maxBatchWait = maxBatchWait.asScala)
+
+  def withParallelism(parallelism: Int): DynamoDbBatchWriteSettings = copy(parallelism = parallelism)
+
+  def withMaxRetries(maxRetries: Int): DynamoDbBatchWriteSettings = copy(maxRetries = maxRetries)
+
+  /** Scala API */
+  def withMinBackoff(minBackoff: FiniteDuration): DynamoDbBatchWriteSettings = copy(minBackoff = minBackoff)
+
+  /** Java API */
+  def withMinBackoff(minBackoff: java.time.Duration): DynamoDbBatchWriteSettings =
+    copy(minBackoff = minBackoff.asScala)
+
+  /** Scala API */
+  def withMaxBackoff(maxBackoff: FiniteDuration): DynamoDbBatchWriteSettings = copy(maxBackoff = maxBackoff)
+
+  /** Java API */
+  def withMaxBackoff(maxBackoff: java.time.Duration): DynamoDbBatchWriteSettings =
+    copy(maxBackoff = maxBackoff.asScala)
+
+  /**
+   * The backoff before the given retry, counting from 1.
+   */
+  def backoff(retry: Int): FiniteDuration = RetryBackoff(minBackoff, maxBackoff, retry)
+
+  private def copy(maxBatchSize: Int = maxBatchSize,
+      maxBatchBytes: Long = maxBatchBytes,
+      maxBatchWait: FiniteDuration = maxBatchWait,
+      parallelism: Int = parallelism,
+      maxRetries: Int = maxRetries,
+      minBackoff: FiniteDuration = minBackoff,
+      maxBackoff: FiniteDuration = maxBackoff) =
+    new DynamoDbBatchWriteSettings(maxBatchSize,
+      maxBatchBytes,
+      maxBatchWait,
+      parallelism,
+      maxRetries,
+      minBackoff,
+      maxBackoff)
+
+  override def toString: String =
+    "DynamoDbBatchWriteSettings(" +
+    s"maxBatchSize=$maxBatchSize," +
+    s"maxBatchBytes=$maxBatchBytes," +
+    s"maxBatchWait=$maxBatchWait," +
+    s"parallelism=$parallelism," +
+    s"maxRetries=$maxRetries," +
+    s"minBackoff=$minBackoff," +
+    s"maxBackoff=$maxBackoff" +
+    ")"
+}
+
+object DynamoDbBatchWriteSettings {
+
+  /**
+   * The maximum number of writes in a BatchWriteItem request accepted by DynamoDB.
+   */
+  val MaxBatchSize: Int = 25
+
+  /**
+   * The maximum size of a BatchWriteItem request accepted by DynamoDB, 16 MiB.
+   */
+  val MaxBatchBytes: Long = 16 * 1024 * 1024
+
+  val Defaults: DynamoDbBatchWriteSettings = new DynamoDbBatchWriteSettings(
+    maxBatchSize = MaxBatchSize,
+    maxBatchBytes = MaxBatchBytes,
+    maxBatchWait = 100.millis,
+    parallelism = 4,
+    maxRetries = 10,
+    minBackoff = 50.millis,
+    maxBackoff = 5.seconds)
+
+  /** Scala API */
+  def apply(): DynamoDbBatchWriteSettings = Defaults
+
+  /** Java API */
+  def create(): DynamoDbBatchWriteSettings = Defaults
+}
@@ -0,0 +1,15 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.dynamodb
+
+/**
+ * Fails a batching DynamoDB flow when DynamoDB still returned items or keys as unprocessed after all retries.
+ */
+final class DynamoDbUnprocessedException private[dynamodb] (message: String) extends RuntimeException(message)
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.dynamodb
+
+import software.amazon.awssdk.services.dynamodb.model.{ AttributeValue, DeleteRequest, PutRequest, WriteRequest }
+
+import scala.collection.JavaConverters._
+
+/**
+ * A single put or delete of an item in a table, written by the batching DynamoDB write flow.
+ */
+final class DynamoDbWrite private (val tableName: String, val writeRequest: WriteRequest) {
+
+  /** Java API */
+  def getTableName: String = tableName
+
+  /** Java API */
+  def getWriteRequest: WriteRequest = writeRequest
+
+  override def equals(other: Any): Boolean = other match {
+    case that: DynamoDbWrite => tableName == that.tableName && writeRequest == that.writeRequest
+    case _                   => false
+  }
+
+  override def hashCode: Int = java.util.Objects.hash(tableName, writeRequest)
+
+  override def toString: String = s"DynamoDbWrite(tableName=$tableName,writeRequest=$writeRequest)"
+}
+
+object DynamoDbWrite {
+
+  /** Scala API */
+  def apply(tableName: String, writeRequest: WriteRequest): DynamoDbWrite = new DynamoDbWrite(tableName, writeRequest)
+
+  /** Scala API: puts the item into the table. */
+  def put(tableName: String, item: Map[String, AttributeValue]): DynamoDbWrite = put(tableName, item.asJava)
+
+  /** Scala API: deletes the item with the key from the table. */
+  def delete(tableName: String, key: Map[String, AttributeValue]): DynamoDbWrite = delete(tableName, key.asJava)
+
+  /** Java API */
+  def create(tableName: String, writeRequest: WriteRequest): DynamoDbWrite = new DynamoDbWrite(tableName, writeRequest)
+
+  /** Java API: puts the item into the table. */
+  def put(tableName: String, item: java.util.Map[String, AttributeValue]): DynamoDbWrite =
+    new DynamoDbWrite(tableName, WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build())
+
+  /** Java API: deletes the item with the key from the table. */
+  def delete(tableName: String, key: java.util.Map[String, AttributeValue]): DynamoDbWrite =
+    new DynamoDbWrite(tableName, WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(key).build()).build())
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.dynamodb.impl
+
+import java.nio.charset.StandardCharsets.UTF_8
+
+import org.apache.pekko.annotation.InternalApi
+import software.amazon.awssdk.services.dynamodb.model.{ AttributeValue, WriteRequest }
+
+import scala.collection.JavaConverters._
+
+/**
+ * Internal API
+ *
+ * Estimates the size of items the way DynamoDB counts it: attribute names and values in bytes, with numbers counted by
+ * their digits and a small overhead for lists and maps.
+ */
+@InternalApi private[dynamodb] object ItemSize {
+
+  def apply(item: java.util.Map[String, AttributeValue]): Long =
+    item.asScala.iterator.map { case (name, value) => utf8(name) + valueSize(value) }.sum
+
+  def apply(write: WriteRequest): Long =
+    if (write.putRequest != null) apply(write.putRequest.item)
+    else if (write.deleteRequest != null) apply(write.deleteRequest.key)
+    else 0L
+
+  private def valueSize(value: AttributeValue): Long =
+    if (value.s != null) utf8(value.s)
+    else if (value.n != null) value.n.length.toLong
+    else if (value.b != null) value.b.asByteBuffer.remaining.toLong
+    else if (value.hasSs) value.ss.asScala.iterator.map(utf8).sum
+    else if (value.hasNs) value.ns.asScala.iterator.map(_.length.toLong).sum
+    else if (value.hasBs) value.bs.asScala.iterator.map(_.asByteBuffer.remaining.toLong).sum
+    else if (value.hasL) 3L + value.l.asScala.iterator.map(v => 1L + valueSize(v)).sum
+    else if (value.hasM) 3L + value.m.size + apply(value.m)
+    else 1L // BOOL or NULL
+
+  private def utf8(s: String): Long = s.getBytes(UTF_8).length.toLong
+}
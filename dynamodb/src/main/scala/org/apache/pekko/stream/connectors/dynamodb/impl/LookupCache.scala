@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.dynamodb.impl
+
+import org.apache.pekko.annotation.InternalApi
+
+import scala.concurrent.duration.FiniteDuration
+
+/**
+ * Internal API
+ *
+ * A thread-safe cache of at most `maxSize` entries, which evicts the least recently used entry when full and treats
+ * entries older than `ttl` as missing.
+ */
+@InternalApi private[dynamodb] final class LookupCache[K, V](maxSize: Int, ttl: FiniteDuration) {
+
+  private val ttlNanos = ttl.toNanos
+
+  // guarded by `this`
+  private val entries = new java.util.LinkedHashMap[K, (V, Long)](16, 0.75f, true) {
+    override def removeEldestEntry(eldest: java.util.Map.Entry[K, (V, Long)]): Boolean = size > maxSize
+  }
+
+  def get(key: K): Option[V] = synchronized {
+    val entry = entries.get(key)
+    if (entry == null) None
+    else if (System.nanoTime() - entry._2 > ttlNanos) {
+      entries.remove(key)
+      None
+    } else Some(entry._1)
+  }
+
+  def put(key: K, value: V): Unit = synchronized {
+    entries.put(key, (value, System.nanoTime()))
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.dynamodb.impl
+
+import org.apache.pekko.annotation.InternalApi
+
+import scala.concurrent.duration._
+
+/**
+ * Internal API
+ *
+ * The exponential backoff of the batching flows' retries, shared by their settings.
+ */
+@InternalApi private[dynamodb] object RetryBackoff {
+
+  /**
+   * The backoff before the given retry, counting from 1, doubling from `minBackoff` up to `maxBackoff`.
+   */
+  def apply(minBackoff: FiniteDuration, maxBackoff: FiniteDuration, retry: Int): FiniteDuration = {
+    val exponential = minBackoff * math.pow(2, math.min(retry - 1, 30)).toLong
+    if (exponential > maxBackoff || exponential <= Duration.Zero) maxBackoff else exponential
+  }
+}
@@ -13,6 +13,7 @@
 
 package org.apache.pekko.stream.connectors.dynamodb.javadsl
 
+import java.util.{ Map => JMap, Optional }
 import java.util.concurrent.CompletionStage
 
 import org.apache.pekko
@@ -20,12 +21,27 @@ import pekko.NotUsed
 import pekko.actor.ClassicActorSystemProvider
 import pekko.annotation.ApiMayChange
 import pekko.stream.Materializer
-import pekko.stream.connectors.dynamodb.{ scaladsl, DynamoDbOp, DynamoDbPaginatedOp }
+import pekko.stream.connectors.dynamodb.{
+  scaladsl,
+  DynamoDbBatchGetSettings,
+  DynamoDbBatchWriteSettings,
+  DynamoDbOp,
+  DynamoDbPaginatedOp,
+  DynamoDbWrite
+}
 import pekko.stream.javadsl.{ Flow, FlowWithContext, Sink, Source }
+import pekko.util.JavaDurationConverters._
 import software.amazon.awssdk.core.async.SdkPublisher
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient
-import software.amazon.awssdk.services.dynamodb.model.{ DynamoDbRequest, DynamoDbResponse }
+import software.amazon.awssdk.services.dynamodb.model.{
+  AttributeValue,
+  DynamoDbRequest,
+  DynamoDbResponse,
+  ScanRequest,
+  ScanResponse
+}
 
+import scala.compat.java8.OptionConverters._
 import scala.util.Try
 
 /**
@@ -60,6 +76,36 @@ object DynamoDb {
       parallelism: Int): FlowWithContext[In, Ctx, Try[Out], Ctx, NotUsed] =
     scaladsl.DynamoDb.flowWithContext[In, Out, Ctx](parallelism)(client, operation).asJava
 
+  /**
+   * Create a `FlowWithContext` that packs single puts and deletes into BatchWriteItem requests, and emits every write
+   * with its context once DynamoDB has written it.
+   *
+   * Writes DynamoDB returns as unprocessed are written again after a backoff, and the flow fails with a
+   * [[pekko.stream.connectors.dynamodb.DynamoDbUnprocessedException]] when writes are still unprocessed after
+   * `maxRetries` retries. Writes are emitted in the order they arrived.
+   *
+   * @tparam Ctx context (or pass-through)
+   */
+  def batchWriteFlow[Ctx](client: DynamoDbAsyncClient,
+      settings: DynamoDbBatchWriteSettings): FlowWithContext[DynamoDbWrite, Ctx, DynamoDbWrite, Ctx, NotUsed] =
+    scaladsl.DynamoDb.batchWriteFlow[Ctx](settings)(client).asJava
+
+  /**
+   * Create a `FlowWithContext` that looks up the item for every key in the table, and emits it with the key's context.
+   * Keys of items that do not exist are emitted as empty `Optional`s.
+   *
+   * Keys are collected into batches, de-duplicated and looked up with BatchGetItem requests. Keys DynamoDB returns as
+   * unprocessed are looked up again after a backoff, and the flow fails with a
+   * [[pekko.stream.connectors.dynamodb.DynamoDbUnprocessedException]] when keys are still unprocessed after
+   * `maxRetries` retries. Items are emitted in the order their keys arrived.
+   *
+   * @param tableName table to look up the keys in
+   * @tparam Ctx context (or pass-through)
+   */
+  def batchGetFlow[Ctx](client: DynamoDbAsyncClient, tableName: String, settings: DynamoDbBatchGetSettings)
+      : FlowWithContext[JMap[String, AttributeValue], Ctx, Optional[JMap[String, AttributeValue]], Ctx, NotUsed] =
+    scaladsl.DynamoDb.batchGetFlow[Ctx](tableName, settings)(client).map(_.asJava).asJava
+
   /**
    * Create a Source that will emit potentially multiple responses for a given request.
    */
@@ -79,6 +125,36 @@ object DynamoDb {
       operation: DynamoDbPaginatedOp[In, Out, _]): Flow[In, Out, NotUsed] =
     scaladsl.DynamoDb.flowPaginated()(client, operation).asJava
 
+  /**
+   * Create a Source that scans a table or index in `totalSegments` segments concurrently, and emits the paginated
+   * responses of all segments as they arrive.
+   *
+   * @param request scan request, its `Segment` and `TotalSegments` are set for every segment
+   * @param totalSegments number of segments to scan concurrently
+   */
+  def parallelScan(client: DynamoDbAsyncClient,
+      request: ScanRequest,
+      totalSegments: Int): Source[ScanResponse, NotUsed] =
+    scaladsl.DynamoDb.parallelScan(request, totalSegments)(client).asJava
+
+  /**
+   * Create a Source that scans a table or index in `totalSegments` segments concurrently, and emits the paginated
+   * responses of all segments as they arrive.
+   *
+   * Each segment consumes at most `maxCapacityUnits` read capacity units `per` time unit, measured by the consumed
+   * capacity DynamoDB returns with every page.
+   *
+   * @param request scan request, its `Segment` and `TotalSegments` are set for every segment
+   * @param totalSegments number of segments to scan concurrently
+   * @param maxCapacityUnits read capacity units each segment may consume `per` time unit
+   */
+  def parallelScan(client: DynamoDbAsyncClient,
+      request: ScanRequest,
+      totalSegments: Int,
+      maxCapacityUnits: Int,
+      per: java.time.Duration): Source[ScanResponse, NotUsed] =
+    scaladsl.DynamoDb.parallelScan(request, totalSegments, maxCapacityUnits, per.asScala)(client).asJava
+
   /**
    * Create a CompletionStage that will be completed with a response to a given request.
    * @deprecated pass in the actor system instead of the materializer, since 3.0.0
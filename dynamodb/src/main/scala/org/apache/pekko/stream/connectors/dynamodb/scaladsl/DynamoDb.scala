@@ -13,18 +13,32 @@
 
 package org.apache.pekko.stream.connectors.dynamodb.scaladsl
 
+import java.util.{ Map => JMap }
+
 import org.apache.pekko
-import pekko.NotUsed
-import pekko.actor.ClassicActorSystemProvider
+import pekko.{ Done, NotUsed }
+import pekko.actor.{ ClassicActorSystemProvider, Scheduler }
 import pekko.dispatch.ExecutionContexts
+import pekko.pattern.after
 
 import scala.annotation.implicitNotFound
-import pekko.stream.connectors.dynamodb.{ DynamoDbOp, DynamoDbPaginatedOp }
+import pekko.stream.connectors.dynamodb.{
+  DynamoDbBatchGetSettings,
+  DynamoDbBatchWriteSettings,
+  DynamoDbOp,
+  DynamoDbPaginatedOp,
+  DynamoDbUnprocessedException,
+  DynamoDbWrite
+}
+import pekko.stream.connectors.dynamodb.impl.{ ItemSize, LookupCache }
 import pekko.stream.scaladsl.{ Flow, FlowWithContext, Sink, Source }
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient
 import software.amazon.awssdk.services.dynamodb.model._
 
-import scala.concurrent.Future
+import scala.collection.JavaConverters._
+import scala.collection.{ immutable, mutable }
+import scala.concurrent.{ ExecutionContext, Future }
+import scala.concurrent.duration.FiniteDuration
 import scala.util.{ Failure, Success, Try }
 
 /**
@@ -64,6 +78,220 @@ object DynamoDb {
               .recover { case t => (Failure(t), ctx) }(ExecutionContexts.parasitic)
         })
 
+  /**
+   * Create a `FlowWithContext` that packs single puts and deletes into BatchWriteItem requests, and emits every write
+   * with its context once DynamoDB has written it.
+   *
+   * A batch may hold writes to several tables. Writes DynamoDB returns as unprocessed are written again after a
+   * backoff, and the flow fails with a [[DynamoDbUnprocessedException]] when writes are still unprocessed after
+   * `maxRetries` retries. Writes are emitted in the order they arrived.
+   *
+   * DynamoDB rejects requests writing the same item more than once, so further writes to an item in the same batch
+   * are sent in later requests, after the earlier writes to it completed. The key attributes of the tables are looked
+   * up with DescribeTable once per table.
+   *
+   * @tparam Ctx context (or pass-through)
+   */
+  def batchWriteFlow[Ctx](settings: DynamoDbBatchWriteSettings = DynamoDbBatchWriteSettings())(
+      implicit client: DynamoDbAsyncClient): FlowWithContext[DynamoDbWrite, Ctx, DynamoDbWrite, Ctx, NotUsed] =
+    FlowWithContext.fromTuples(
+      Flow
+        .fromMaterializer { (mat, _) =>
+          implicit val scheduler: Scheduler = mat.system.scheduler
+          implicit val ec: ExecutionContext = mat.executionContext
+          // only accessed from the `mapAsync` function
+          val keySchemas = mutable.Map.empty[String, Future[immutable.Seq[String]]]
+          def keyNames(tableName: String): Future[(String, immutable.Seq[String])] =
+            keySchemas
+              .getOrElseUpdate(tableName,
+                DynamoDbOp.describeTable
+                  .execute(DescribeTableRequest.builder().tableName(tableName).build())
+                  .map(_.table.keySchema.asScala.map(_.attributeName).toList))
+              .map(tableName -> _)
+          Flow[(DynamoDbWrite, Ctx)]
+            .groupedWeightedWithin(settings.maxBatchBytes, settings.maxBatchSize, settings.maxBatchWait) {
+              case (write, _) => writeSize(write)
+            }
+            .mapAsync(settings.parallelism) { batch =>
+              val writes = batch.map(_._1)
+              Future
+                .sequence(writes.map(_.tableName).distinct.map(keyNames))
+                .flatMap { keys =>
+                  separateWritesToSameItem(writes, keys.toMap).foldLeft(Future.successful[Done](Done)) {
+                    (written, requestWrites) =>
+                      written.flatMap(_ => batchWriteWithRetries(requestWrites, settings, retry = 0))
+                  }
+                }
+                .map(_ => batch)
+            }
+            .mapConcat(identity)
+        }
+        .mapMaterializedValue(_ => NotUsed))
+
+  // the n-th write to an item goes into the n-th request, so that no request writes an item twice
+  private def separateWritesToSameItem(
+      writes: immutable.Seq[DynamoDbWrite],
+      keyNames: Map[String, immutable.Seq[String]]): List[immutable.Seq[DynamoDbWrite]] = {
+    val writesToItem = mutable.Map.empty[(String, immutable.Seq[AttributeValue]), Int].withDefaultValue(0)
+    writes
+      .map { write =>
+        val attributes =
+          if (write.writeRequest.putRequest != null) write.writeRequest.putRequest.item
+          else if (write.writeRequest.deleteRequest != null) write.writeRequest.deleteRequest.key
+          else java.util.Collections.emptyMap[String, AttributeValue]()
+        val item = write.tableName -> keyNames(write.tableName).map(attributes.get)
+        val request = writesToItem(item)
+        writesToItem(item) = request + 1
+        request -> write
+      }
+      .groupBy(_._1)
+      .toList
+      .sortBy(_._1)
+      .map(_._2.map(_._2))
+  }
+
+  private def batchWriteWithRetries(
+      writes: immutable.Seq[DynamoDbWrite],
+      settings: DynamoDbBatchWriteSettings,
+      retry: Int)(
+      implicit client: DynamoDbAsyncClient,
+      scheduler: Scheduler,
+      ec: ExecutionContext): Future[Done] = {
+    val requestItems = writes.groupBy(_.tableName).map {
+      case (tableName, tableWrites) => tableName -> tableWrites.map(_.writeRequest).asJava
+    }
+    DynamoDbOp.batchWriteItem
+      .execute(BatchWriteItemRequest.builder().requestItems(requestItems.asJava).build())
+      .flatMap { response =>
+        val unprocessed = unprocessedWrites(writes, response)
+        if (unprocessed.isEmpty) Future.successful(Done)
+        else if (retry >= settings.maxRetries)
+          Future.failed(
+            new DynamoDbUnprocessedException(
+              s"${unprocessed.size} writes were still unprocessed after ${settings.maxRetries} retries"))
+        else
+          after(settings.backoff(retry + 1), scheduler)(batchWriteWithRetries(unprocessed, settings, retry + 1))
+      }
+  }
+
+  // finds the writes returned as unprocessed, which are equal but not identical to the requested writes
+  private def unprocessedWrites(writes: immutable.Seq[DynamoDbWrite],
+      response: BatchWriteItemResponse): immutable.Seq[DynamoDbWrite] =
+    if (response.unprocessedItems.isEmpty) Nil
+    else {
+      val counts = mutable.Map.empty[DynamoDbWrite, Int].withDefaultValue(0)
+      for {
+        (tableName, tableWrites) <- response.unprocessedItems.asScala
+        writeRequest <- tableWrites.asScala
+      } counts(DynamoDbWrite(tableName, writeRequest)) += 1
+      writes.filter { write =>
+        val count = counts(write)
+        if (count > 0) counts(write) = count - 1
+        count > 0
+      }
+    }
+
+  private def writeSize(write: DynamoDbWrite): Long =
+    write.tableName.length.toLong + ItemSize(write.writeRequest)
+
+  /**
+   * Create a `FlowWithContext` that looks up the item for every key in the table, and emits it with the key's context.
+   * Keys of items that do not exist are emitted as `None`.
+   *
+   * Keys are collected into batches, de-duplicated and looked up with BatchGetItem requests. Numbers in keys are
+   * compared by value, so `N("1.0")` and `N("1")` are the same key, as in DynamoDB. Keys DynamoDB returns as
+   * unprocessed are looked up again after a backoff, and the flow fails with a [[DynamoDbUnprocessedException]] when
+   * keys are still unprocessed after `maxRetries` retries. Items are emitted in the order their keys arrived.
+   *
+   * @param tableName table to look up the keys in
+   * @tparam Ctx context (or pass-through)
+   */
+  def batchGetFlow[Ctx](tableName: String, settings: DynamoDbBatchGetSettings = DynamoDbBatchGetSettings())(
+      implicit client: DynamoDbAsyncClient)
+      : FlowWithContext[JMap[String, AttributeValue], Ctx, Option[JMap[String, AttributeValue]], Ctx, NotUsed] =
+    FlowWithContext.fromTuples(
+      Flow
+        .fromMaterializer { (mat, _) =>
+          implicit val scheduler: Scheduler = mat.system.scheduler
+          implicit val ec: ExecutionContext = mat.executionContext
+          val cache =
+            if (settings.cacheMaxSize == 0) None
+            else Some(new LookupCache[Item, Option[Item]](settings.cacheMaxSize, settings.cacheTtl))
+          Flow[(Item, Ctx)]
+            .groupedWithin(settings.maxBatchSize, settings.maxBatchWait)
+            .mapAsync(settings.parallelism) { batch =>
+              val canonicalBatch = batch.map { case (key, ctx) => canonicalKey(key) -> ctx }
+              val keys = canonicalBatch.map(_._1).distinct
+              val cached = cache.fold(Map.empty[Item, Option[Item]]) { c =>
+                keys.flatMap(key => c.get(key).map(key -> _)).toMap
+              }
+              val missing = keys.filterNot(cached.contains)
+              val looked =
+                if (missing.isEmpty) Future.successful(Map.empty[Item, Item])
+                else batchGetWithRetries(tableName, missing, settings, retry = 0)
+              looked.map { found =>
+                val items = cached ++ missing.map(key => key -> found.get(key))
+                cache.foreach(c => missing.foreach(key => c.put(key, items(key))))
+                canonicalBatch.map { case (key, ctx) => items(key) -> ctx }
+              }
+            }
+            .mapConcat(identity)
+        }
+        .mapMaterializedValue(_ => NotUsed))
+
+  private type Item = JMap[String, AttributeValue]
+
+  /**
+   * The key with its numbers in the normalized form DynamoDB returns them in, so that keys can be compared.
+   */
+  private def canonicalKey(key: Item): Item =
+    if (!key.values.asScala.exists(_.n != null)) key
+    else {
+      val canonical = new java.util.HashMap[String, AttributeValue]()
+      key.asScala.foreach {
+        case (name, value) if value.n != null =>
+          val number = new java.math.BigDecimal(value.n).stripTrailingZeros.toPlainString
+          canonical.put(name, AttributeValue.builder().n(number).build())
+        case (name, value) => canonical.put(name, value)
+      }
+      canonical
+    }
+
+  private def batchGetWithRetries(
+      tableName: String,
+      keys: immutable.Seq[Item],
+      settings: DynamoDbBatchGetSettings,
+      retry: Int)(
+      implicit client: DynamoDbAsyncClient,
+      scheduler: Scheduler,
+      ec: ExecutionContext): Future[Map[Item, Item]] = {
+    val keysAndAttributes =
+      KeysAndAttributes.builder().keys(keys.asJava).consistentRead(settings.consistentRead).build()
+    DynamoDbOp.batchGetItem
+      .execute(BatchGetItemRequest.builder().requestItems(Map(tableName -> keysAndAttributes).asJava).build())
+      .flatMap { response =>
+        // items are matched to the requested keys by the key attributes, which all keys of a table share
+        val keyNames = keys.head.keySet.asScala
+        val found = Option(response.responses.get(tableName)).fold(Map.empty[Item, Item]) { items =>
+          items.asScala.iterator.map { item =>
+            val key = new java.util.HashMap[String, AttributeValue]()
+            keyNames.foreach(name => key.put(name, item.get(name)))
+            canonicalKey(key) -> item
+          }.toMap
+        }
+        val unprocessed =
+          Option(response.unprocessedKeys.get(tableName)).fold(immutable.Seq.empty[Item])(_.keys.asScala.toList)
+        if (unprocessed.isEmpty) Future.successful(found)
+        else if (retry >= settings.maxRetries)
+          Future.failed(
+            new DynamoDbUnprocessedException(
+              s"${unprocessed.size} keys were still unprocessed after ${settings.maxRetries} retries"))
+        else
+          after(settings.backoff(retry + 1), scheduler)(
+            batchGetWithRetries(tableName, unprocessed, settings, retry + 1)).map(found ++ _)
+      }
+  }
+
   /**
    * Create a Source that will emit potentially multiple responses for a given request.
    */
@@ -81,6 +309,69 @@ object DynamoDb {
       implicit client: DynamoDbAsyncClient,
       operation: DynamoDbPaginatedOp[In, Out, _]): Flow[In, Out, NotUsed] = Flow[In].flatMapConcat(source(_))
 
+  /**
+   * Create a Source that scans a table or index in `totalSegments` segments concurrently, and emits the paginated
+   * responses of all segments as they arrive.
+   *
+   * Each segment follows its `LastEvaluatedKey` on its own, so the responses of different segments interleave.
+   *
+   * @param request scan request, its `Segment` and `TotalSegments` are set for every segment
+   * @param totalSegments number of segments to scan concurrently
+   */
+  def parallelScan(request: ScanRequest, totalSegments: Int)(
+      implicit client: DynamoDbAsyncClient): Source[ScanResponse, NotUsed] =
+    scanSegments(request, totalSegments, identity)
+
+  /**
+   * Create a Source that scans a table or index in `totalSegments` segments concurrently, and emits the paginated
+   * responses of all segments as they arrive.
+   *
+   * Each segment consumes at most `maxCapacityUnits` read capacity units `per` time unit, measured by the consumed
+   * capacity DynamoDB returns with every page. Consumed capacity is requested as `TOTAL` unless the request already
+   * asks for it.
+   *
+   * @param request scan request, its `Segment` and `TotalSegments` are set for every segment
+   * @param totalSegments number of segments to scan concurrently
+   * @param maxCapacityUnits read capacity units each segment may consume `per` time unit
+   */
+  def parallelScan(request: ScanRequest, totalSegments: Int, maxCapacityUnits: Int, per: FiniteDuration)(
+      implicit client: DynamoDbAsyncClient): Source[ScanResponse, NotUsed] = {
+    val withConsumedCapacity =
+      if (request.returnConsumedCapacity == null || request.returnConsumedCapacity == ReturnConsumedCapacity.NONE)
+        request.toBuilder.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build()
+      else request
+    scanSegments(withConsumedCapacity, totalSegments, _.throttle(maxCapacityUnits, per, consumedCapacityUnits))
+  }
+
+  private def scanSegments(request: ScanRequest,
+      totalSegments: Int,
+      limitSegment: Source[ScanResponse, NotUsed] => Source[ScanResponse, NotUsed])(
+      implicit client: DynamoDbAsyncClient): Source[ScanResponse, NotUsed] = {
+    require(totalSegments > 0, "totalSegments must be positive")
+    Source(0 until totalSegments).flatMapMerge(totalSegments,
+      segment => limitSegment(scanSegment(request.toBuilder.segment(segment).totalSegments(totalSegments).build())))
+  }
+
+  // requests the next page only when the previous one has been taken downstream
+  private def scanSegment(request: ScanRequest)(
+      implicit client: DynamoDbAsyncClient): Source[ScanResponse, NotUsed] =
+    Source.unfoldAsync[Option[ScanRequest], ScanResponse](Some(request)) {
+      case None => Future.successful(None)
+      case Some(pageRequest) =>
+        DynamoDbOp.scan
+          .execute(pageRequest)
+          .map { response =>
+            val next =
+              if (response.hasLastEvaluatedKey && !response.lastEvaluatedKey.isEmpty)
+                Some(pageRequest.toBuilder.exclusiveStartKey(response.lastEvaluatedKey).build())
+              else None
+            Some(next -> response)
+          }(ExecutionContexts.parasitic)
+    }
+
+  private def consumedCapacityUnits(response: ScanResponse): Int =
+    Option(response.consumedCapacity).flatMap(c => Option(c.capacityUnits)).fold(0)(c => math.ceil(c).toInt)
+
   /**
    * Create a Future that will be completed with a response to a given request.
    */
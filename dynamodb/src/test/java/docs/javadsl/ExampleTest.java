@@ -19,7 +19,10 @@ import org.apache.pekko.actor.ActorSystem;
 import org.apache.pekko.japi.Pair;
 
 // #init-client
+import org.apache.pekko.stream.connectors.dynamodb.DynamoDbBatchGetSettings;
+import org.apache.pekko.stream.connectors.dynamodb.DynamoDbBatchWriteSettings;
 import org.apache.pekko.stream.connectors.dynamodb.DynamoDbOp;
+import org.apache.pekko.stream.connectors.dynamodb.DynamoDbWrite;
 import org.apache.pekko.stream.connectors.dynamodb.javadsl.DynamoDb;
 import org.apache.pekko.stream.connectors.testkit.javadsl.LogCapturingJunit4;
 import org.apache.pekko.stream.javadsl.FlowWithContext;
@@ -40,7 +43,11 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -154,6 +161,69 @@ public class ExampleTest {
     streamCompletion.toCompletableFuture().get(5, TimeUnit.SECONDS);
   }
 
+  @Test(expected = ExecutionException.class)
+  public void batchWriteFlow() throws Exception {
+    class SomeContext {}
+
+    // #batch-write
+    SourceWithContext<DynamoDbWrite, SomeContext, NotUsed> writes = // ???
+        // #batch-write
+        SourceWithContext.fromPairs(
+            Source.single(
+                Pair.create(
+                    DynamoDbWrite.put(
+                        "testTable",
+                        Collections.singletonMap("id", AttributeValue.builder().s("1").build())),
+                    new SomeContext())));
+
+    // #batch-write
+    DynamoDbBatchWriteSettings settings =
+        DynamoDbBatchWriteSettings.create()
+            .withMaxBatchWait(Duration.ofMillis(50))
+            .withParallelism(4)
+            .withMaxRetries(10);
+
+    SourceWithContext<DynamoDbWrite, SomeContext, NotUsed> written =
+        writes.via(DynamoDb.<SomeContext>batchWriteFlow(client, settings));
+    // #batch-write
+
+    CompletionStage<Pair<DynamoDbWrite, SomeContext>> streamCompletion =
+        written.runWith(Sink.head(), system);
+    // exception expected
+    streamCompletion.toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  @Test(expected = ExecutionException.class)
+  public void batchGetFlow() throws Exception {
+    class SomeContext {}
+
+    // #batch-get
+    SourceWithContext<Map<String, AttributeValue>, SomeContext, NotUsed> keys = // ???
+        // #batch-get
+        SourceWithContext.fromPairs(
+            Source.single(
+                Pair.create(
+                    Collections.singletonMap("id", AttributeValue.builder().s("1").build()),
+                    new SomeContext())));
+
+    // #batch-get
+    DynamoDbBatchGetSettings settings =
+        DynamoDbBatchGetSettings.create()
+            .withMaxBatchWait(Duration.ofMillis(10))
+            .withParallelism(4)
+            // reuse looked up items for a minute
+            .withCache(10000, Duration.ofMinutes(1));
+
+    SourceWithContext<Optional<Map<String, AttributeValue>>, SomeContext, NotUsed> items =
+        keys.via(DynamoDb.<SomeContext>batchGetFlow(client, "testTable", settings));
+    // #batch-get
+
+    CompletionStage<Pair<Optional<Map<String, AttributeValue>>, SomeContext>> streamCompletion =
+        items.runWith(Sink.head(), system);
+    // exception expected
+    streamCompletion.toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
   @Test(expected = ExecutionException.class)
   public void paginated() throws Exception {
     // #paginated
@@ -180,4 +250,20 @@ public class ExampleTest {
     // exception expected
     streamCompletion2.toCompletableFuture().get(1, TimeUnit.SECONDS);
   }
+
+  @Test(expected = ExecutionException.class)
+  public void parallelScan() throws Exception {
+    // #parallel-scan
+    ScanRequest scanRequest = ScanRequest.builder().tableName("testTable").build();
+
+    Source<ScanResponse, NotUsed> scanPages = DynamoDb.parallelScan(client, scanRequest, 8);
+
+    // limit each segment to 100 read capacity units per second
+    Source<ScanResponse, NotUsed> throttledScanPages =
+        DynamoDb.parallelScan(client, scanRequest, 8, 100, Duration.ofSeconds(1));
+    // #parallel-scan
+    CompletionStage<List<ScanResponse>> streamCompletion = scanPages.runWith(Sink.seq(), system);
+    // exception expected
+    streamCompletion.toCompletableFuture().get(1, TimeUnit.SECONDS);
+  }
 }
@@ -20,6 +20,7 @@ import pekko.NotUsed
 import pekko.stream.connectors.testkit.scaladsl.LogCapturing
 import pekko.stream.scaladsl.{ FlowWithContext, SourceWithContext }
 
+import scala.collection.JavaConverters._
 import scala.util.{ Failure, Success, Try }
 //#init-client
 import org.apache.pekko.actor.ActorSystem
@@ -27,6 +28,7 @@ import org.apache.pekko.actor.ActorSystem
 //#init-client
 import org.apache.pekko
 import pekko.stream.connectors.dynamodb.DynamoDbOp._
+import pekko.stream.connectors.dynamodb.{ DynamoDbBatchGetSettings, DynamoDbBatchWriteSettings, DynamoDbWrite }
 import pekko.stream.connectors.dynamodb.scaladsl._
 import pekko.stream.scaladsl.{ Sink, Source }
 import pekko.testkit.TestKit
@@ -134,6 +136,52 @@ class ExampleSpec
       writtenSource.runWith(Sink.ignore).failed.futureValue
     }
 
+    "batch single writes" in {
+      case class SomeContext()
+
+      // #batch-write
+      val writes: SourceWithContext[DynamoDbWrite, SomeContext, NotUsed] = // ???
+        // #batch-write
+        SourceWithContext.fromTuples(
+          Source.single(
+            DynamoDbWrite.put("testTable", Map("id" -> AttributeValue.builder().s("1").build())) -> SomeContext()))
+
+      // #batch-write
+      val settings = DynamoDbBatchWriteSettings()
+        .withMaxBatchWait(50.millis)
+        .withParallelism(4)
+        .withMaxRetries(10)
+
+      val written: SourceWithContext[DynamoDbWrite, SomeContext, NotUsed] =
+        writes.via(DynamoDb.batchWriteFlow[SomeContext](settings))
+      // #batch-write
+
+      written.runWith(Sink.ignore).failed.futureValue
+    }
+
+    "look up items in batches" in {
+      case class SomeContext()
+
+      // #batch-get
+      val keys: SourceWithContext[java.util.Map[String, AttributeValue], SomeContext, NotUsed] = // ???
+        // #batch-get
+        SourceWithContext.fromTuples(
+          Source.single(Map("id" -> AttributeValue.builder().s("1").build()).asJava -> SomeContext()))
+
+      // #batch-get
+      val settings = DynamoDbBatchGetSettings()
+        .withMaxBatchWait(10.millis)
+        .withParallelism(4)
+        // reuse looked up items for a minute
+        .withCache(maxSize = 10000, ttl = 1.minute)
+
+      val items: SourceWithContext[Option[java.util.Map[String, AttributeValue]], SomeContext, NotUsed] =
+        keys.via(DynamoDb.batchGetFlow[SomeContext]("testTable", settings))
+      // #batch-get
+
+      items.runWith(Sink.ignore).failed.futureValue
+    }
+
     "allow multiple requests - single source" in {
       (for {
         create <- DynamoDb.single(CreateTableRequest.builder().tableName("testTable").build())
@@ -163,5 +211,20 @@ class ExampleSpec
       // #paginated
       scanPageInFlow.runWith(Sink.ignore).failed.futureValue
     }
+
+    "provide a parallel scan source" in {
+      // #parallel-scan
+      val scanRequest = ScanRequest.builder().tableName("testTable").build()
+
+      val scanPages: Source[ScanResponse, NotUsed] =
+        DynamoDb.parallelScan(scanRequest, totalSegments = 8)
+
+      // limit each segment to 100 read capacity units per second
+      val throttledScanPages: Source[ScanResponse, NotUsed] =
+        DynamoDb.parallelScan(scanRequest, totalSegments = 8, maxCapacityUnits = 100, per = 1.second)
+      // #parallel-scan
+      scanPages.runWith(Sink.ignore).failed.futureValue
+      throttledScanPages.runWith(Sink.ignore).failed.futureValue
+    }
   }
 }
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.dynamodb
+
+import java.util.concurrent.CompletableFuture
+
+import org.apache.pekko
+import pekko.actor.ActorSystem
+import pekko.stream.connectors.dynamodb.scaladsl.DynamoDb
+import pekko.stream.scaladsl.{ Sink, Source }
+import pekko.testkit.TestKit
+import org.mockito.ArgumentCaptor
+import org.mockito.ArgumentMatchers.any
+import org.mockito.Mockito._
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.concurrent.ScalaFutures
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpecLike
+import org.scalatestplus.mockito.MockitoSugar.mock
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient
+import software.amazon.awssdk.services.dynamodb.model._
+
+import scala.collection.JavaConverters._
+import scala.concurrent.duration._
+
+class BatchFlowSpec
+    extends TestKit(ActorSystem("BatchFlowSpec"))
+    with AnyWordSpecLike
+    with Matchers
+    with ScalaFutures
+    with BeforeAndAfterAll {
+
+  implicit val defaultPatience: PatienceConfig = PatienceConfig(timeout = 5.seconds, interval = 50.millis)
+
+  override def afterAll(): Unit =
+    TestKit.shutdownActorSystem(system)
+
+  private val tableName = "table"
+
+  private def S(s: String) = AttributeValue.builder().s(s).build()
+
+  private def item(id: String, data: String) = Map("id" -> S(id), "data" -> S(data))
+
+  // rebuilt the way the SDK returns them, equal but not identical to the requested writes
+  private def unprocessed(writes: DynamoDbWrite*): BatchWriteItemResponse =
+    BatchWriteItemResponse
+      .builder()
+      .unprocessedItems(Map(tableName -> writes.map(w => w.writeRequest.toBuilder.build()).asJava).asJava)
+      .build()
+
+  private def mockClient(): DynamoDbAsyncClient = {
+    val client = mock[DynamoDbAsyncClient]
+    when(client.describeTable(any[DescribeTableRequest]))
+      .thenReturn(
+        CompletableFuture.completedFuture(
+          DescribeTableResponse
+            .builder()
+            .table(
+              TableDescription
+                .builder()
+                .tableName(tableName)
+                .keySchema(KeySchemaElement.builder().attributeName("id").keyType(KeyType.HASH).build())
+                .build())
+            .build()))
+    client
+  }
+
+  private def writeRequests(client: DynamoDbAsyncClient, count: Int): List[List[DynamoDbWrite]] = {
+    val requests = ArgumentCaptor.forClass(classOf[BatchWriteItemRequest])
+    verify(client, times(count)).batchWriteItem(requests.capture())
+    requests.getAllValues.asScala.toList.map { request =>
+      request.requestItems.asScala.toList.flatMap {
+        case (table, writes) => writes.asScala.map(DynamoDbWrite(table, _))
+      }
+    }
+  }
+
+  "DynamoDb.batchWriteFlow" should {
+
+    val settings = DynamoDbBatchWriteSettings().withMinBackoff(10.millis).withMaxBatchWait(50.millis)
+
+    "write the unprocessed writes of a batch again" in {
+      implicit val client: DynamoDbAsyncClient = mockClient()
+      val writes = (1 to 3).map(i => DynamoDbWrite.put(tableName, item(i.toString, "a")))
+      when(client.batchWriteItem(any[BatchWriteItemRequest]))
+        .thenReturn(
+          CompletableFuture.completedFuture(unprocessed(writes(1))),
+          CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()))
+
+      val written = Source(writes.zipWithIndex).via(DynamoDb.batchWriteFlow[Int](settings)).runWith(Sink.seq)
+
+      written.futureValue shouldBe writes.zipWithIndex
+      writeRequests(client, 2) shouldBe List(writes.toList, List(writes(1)))
+    }
+
+    "fail when writes are still unprocessed after all retries" in {
+      implicit val client: DynamoDbAsyncClient = mockClient()
+      val write = DynamoDbWrite.put(tableName, item("1", "a"))
+      when(client.batchWriteItem(any[BatchWriteItemRequest]))
+        .thenReturn(CompletableFuture.completedFuture(unprocessed(write)))
+
+      val written = Source
+        .single(write -> 1)
+        .via(DynamoDb.batchWriteFlow[Int](settings.withMaxRetries(2)))
+        .runWith(Sink.seq)
+
+      written.failed.futureValue shouldBe a[DynamoDbUnprocessedException]
+      verify(client, times(3)).batchWriteItem(any[BatchWriteItemRequest])
+    }
+
+    "write further writes to the same item in later requests" in {
+      implicit val client: DynamoDbAsyncClient = mockClient()
+      when(client.batchWriteItem(any[BatchWriteItemRequest]))
+        .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()))
+      val first = DynamoDbWrite.put(tableName, item("1", "a"))
+      val other = DynamoDbWrite.put(tableName, item("2", "a"))
+      val second = DynamoDbWrite.put(tableName, item("1", "b"))
+      val deleted = DynamoDbWrite.delete(tableName, Map("id" -> S("1")))
+      val writes = List(first, other, second, deleted).zipWithIndex
+
+      val written = Source(writes).via(DynamoDb.batchWriteFlow[Int](settings)).runWith(Sink.seq)
+
+      written.futureValue shouldBe writes
+      writeRequests(client, 3) shouldBe List(List(first, other), List(second), List(deleted))
+      verify(client, times(1)).describeTable(any[DescribeTableRequest])
+    }
+  }
+
+  "DynamoDb.batchGetFlow" should {
+
+    val settings = DynamoDbBatchGetSettings().withMinBackoff(10.millis).withMaxBatchWait(50.millis).withParallelism(1)
+
+    def key(id: String) = Map("id" -> S(id)).asJava
+
+    // finds the items of all requested keys but the ones in `missing`
+    def lookUp(missing: Set[String]) = new Answer[CompletableFuture[BatchGetItemResponse]] {
+      override def answer(invocation: InvocationOnMock): CompletableFuture[BatchGetItemResponse] = {
+        val keys = invocation.getArgument[BatchGetItemRequest](0).requestItems.get(tableName).keys.asScala
+        val items = keys.filterNot(k => missing(k.get("id").s)).map(k => item(k.get("id").s, "a").asJava)
+        CompletableFuture.completedFuture(
+          BatchGetItemResponse.builder().responses(Map(tableName -> items.asJava).asJava).build())
+      }
+    }
+
+    def requestedKeys(client: DynamoDbAsyncClient, count: Int): List[List[String]] = {
+      val requests = ArgumentCaptor.forClass(classOf[BatchGetItemRequest])
+      verify(client, times(count)).batchGetItem(requests.capture())
+      requests.getAllValues.asScala.toList.map(_.requestItems.get(tableName).keys.asScala.toList.map(_.get("id").s))
+    }
+
+    "look up every key of a batch once and reuse cached items in later batches" in {
+      implicit val client: DynamoDbAsyncClient = mockClient()
+      when(client.batchGetItem(any[BatchGetItemRequest])).thenAnswer(lookUp(missing = Set("3")))
+      val ids = List("1", "1", "2", "1", "3")
+
+      val found = Source(ids.map(id => key(id) -> id))
+        .via(DynamoDb.batchGetFlow[String](tableName, settings.withMaxBatchSize(3).withCache(10, 1.minute)))
+        .runWith(Sink.seq)
+
+      found.futureValue.map { case (item, id) => id -> item.map(_.get("id").s) } shouldBe
+      ids.map(id => id -> Some(id).filter(_ != "3"))
+      requestedKeys(client, 2) shouldBe List(List("1", "2"), List("3"))
+    }
+
+    "look up unprocessed keys again" in {
+      implicit val client: DynamoDbAsyncClient = mockClient()
+      when(client.batchGetItem(any[BatchGetItemRequest]))
+        .thenReturn(
+          CompletableFuture.completedFuture(
+            BatchGetItemResponse
+              .builder()
+              .responses(Map(tableName -> List(item("1", "a").asJava).asJava).asJava)
+              .unprocessedKeys(Map(tableName -> KeysAndAttributes.builder().keys(key("2")).build()).asJava)
+              .build()))
+        .thenAnswer(lookUp(missing = Set.empty))
+
+      val found = Source(List("1", "2").map(id => key(id) -> id))
+        .via(DynamoDb.batchGetFlow[String](tableName, settings))
+        .runWith(Sink.seq)
+
+      found.futureValue.map { case (item, id) => id -> item.map(_.get("id").s) } shouldBe
+      List("1" -> Some("1"), "2" -> Some("2"))
+      requestedKeys(client, 2) shouldBe List(List("1", "2"), List("2"))
+    }
+
+    "match numeric keys by value" in {
+      implicit val client: DynamoDbAsyncClient = mockClient()
+      def numericKey(n: String) = Map("id" -> AttributeValue.builder().n(n).build()).asJava
+      // DynamoDB returns numbers normalized
+      when(client.batchGetItem(any[BatchGetItemRequest])).thenReturn(
+        CompletableFuture.completedFuture(
+          BatchGetItemResponse
+            .builder()
+            .responses(Map(tableName -> List((numericKey("1").asScala + ("data" -> S("a"))).asJava).asJava).asJava)
+            .build()))
+      val numbers = List("1.0", "01", "1")
+
+      val found = Source(numbers.map(n => numericKey(n) -> n))
+        .via(DynamoDb.batchGetFlow[String](tableName, settings))
+        .runWith(Sink.seq)
+
+      found.futureValue.map { case (item, n) => n -> item.map(_.get("data").s) } shouldBe
+      numbers.map(_ -> Some("a"))
+      verify(client, times(1)).batchGetItem(any[BatchGetItemRequest])
+    }
+
+    "reject a cache without a time to live" in {
+      an[IllegalArgumentException] should be thrownBy DynamoDbBatchGetSettings().withCache(10, Duration.Zero)
+      DynamoDbBatchGetSettings().withMinBackoff(1.minute).backoff(1) shouldBe DynamoDbBatchGetSettings().maxBackoff
+    }
+  }
+}
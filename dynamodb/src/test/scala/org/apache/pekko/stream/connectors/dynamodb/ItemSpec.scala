@@ -17,7 +17,7 @@ import java.net.URI
 import org.apache.pekko
 import pekko.actor.ActorSystem
 import pekko.stream.connectors.dynamodb.scaladsl._
-import pekko.stream.scaladsl.Sink
+import pekko.stream.scaladsl.{ Sink, Source }
 import pekko.testkit.TestKit
 import com.github.pjfanning.pekkohttpspi.PekkoHttpClient
 import org.scalatest._
@@ -31,6 +31,7 @@ import software.amazon.awssdk.services.dynamodb.model.TableStatus
 import scala.annotation.nowarn
 import scala.collection.JavaConverters._
 import scala.concurrent.ExecutionContext
+import scala.concurrent.duration._
 
 class ItemSpec extends TestKit(ActorSystem("ItemSpec")) with AsyncWordSpecLike with Matchers with BeforeAndAfterAll {
 
@@ -93,6 +94,43 @@ class ItemSpec extends TestKit(ActorSystem("ItemSpec")) with AsyncWordSpecLike w
         }
     }
 
+    "6a) scan all items in parallel segments" in {
+      DynamoDb
+        .parallelScan(scanItemsRequest, totalSegments = 4)
+        .mapConcat(_.items.asScala.toList)
+        .runWith(Sink.seq)
+        .map { items =>
+          items.map(item => item.get(keyCol).s -> item.get(sortCol).n) should contain theSameElementsAs List(
+            "A" -> "0",
+            "B" -> "0",
+            "B" -> "1")
+        }
+    }
+
+    "6b) write items in batches" in {
+      val writes = (0 until 30).map(i => batchWrite("D", i) -> i)
+      for {
+        written <- Source(writes).via(DynamoDb.batchWriteFlow[Int]()).runWith(Sink.seq)
+        query <- DynamoDb.single(queryBatchWrittenItemsRequest("D"))
+      } yield {
+        written shouldBe writes
+        query.count shouldBe 30
+      }
+    }
+
+    "6c) look up items in batches" in {
+      val sorts = List(3, 1, 3, 100, 29, 1)
+      Source(sorts.map(sort => keyMap("D", sort).asJava -> sort))
+        .via(DynamoDb.batchGetFlow[Int](tableName, DynamoDbBatchGetSettings().withCache(10, 1.minute)))
+        .runWith(Sink.seq)
+        .map { results =>
+          results.map(_._2) shouldBe sorts
+          // there is no item with sort key 100
+          val found = sorts.map(sort => Some(sort.toString).filter(_ => sort != 100))
+          results.map { case (item, _) => item.map(_.get(sortCol).n) } shouldBe found
+        }
+    }
+
     "7) delete an item" in {
       for {
         _ <- DynamoDb.single(deleteItemRequest)
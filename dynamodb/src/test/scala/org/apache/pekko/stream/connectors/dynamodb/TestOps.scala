@@ -144,6 +144,13 @@ abstract class ItemSpecOps extends TestOps {
     .limit(1)
     .build()
 
+  val scanItemsRequest = ScanRequest.builder().tableName(tableName).limit(1).build()
+
+  def batchWrite(hash: String, sort: Int) = DynamoDbWrite.put(tableName, keyMap(hash, sort) + ("data" -> S(test5Data)))
+
+  def queryBatchWrittenItemsRequest(hash: String) =
+    QueryRequest.builder().tableName(tableName).keyConditions(keyEQ(hash).asJava).build()
+
   val deleteItemRequest = DeleteItemRequest.builder().tableName(tableName).key(keyMap("A", 0).asJava).build()
 
   def test7PutItemRequest(n: Int) =
@@ -24,26 +24,30 @@ final class ElasticsearchSourceSettings private (connection: ElasticsearchConnec
     bufferSize: Int,
     includeDocumentVersion: Boolean,
     scrollDuration: FiniteDuration,
-    apiVersion: ApiVersion)
+    apiVersion: ApiVersion,
+    slices: Int)
     extends SourceSettingsBase[ApiVersion, ElasticsearchSourceSettings](connection,
       bufferSize,
       includeDocumentVersion,
       scrollDuration,
-      apiVersion) {
+      apiVersion,
+      slices) {
 
   protected override def copy(connection: ElasticsearchConnectionSettings,
       bufferSize: Int,
       includeDocumentVersion: Boolean,
       scrollDuration: FiniteDuration,
-      apiVersion: ApiVersion): ElasticsearchSourceSettings =
+      apiVersion: ApiVersion,
+      slices: Int): ElasticsearchSourceSettings =
     new ElasticsearchSourceSettings(connection = connection,
       bufferSize = bufferSize,
       includeDocumentVersion = includeDocumentVersion,
       scrollDuration = scrollDuration,
-      apiVersion = apiVersion)
+      apiVersion = apiVersion,
+      slices = slices)
 
   override def toString =
-    s"""ElasticsearchSourceSettings(connection=$connection,bufferSize=$bufferSize,includeDocumentVersion=$includeDocumentVersion,scrollDuration=$scrollDuration,apiVersion=$apiVersion)"""
+    s"""ElasticsearchSourceSettings(connection=$connection,bufferSize=$bufferSize,includeDocumentVersion=$includeDocumentVersion,scrollDuration=$scrollDuration,apiVersion=$apiVersion,slices=$slices)"""
 
 }
 
@@ -55,7 +59,8 @@ object ElasticsearchSourceSettings {
       10,
       includeDocumentVersion = false,
       FiniteDuration(5, TimeUnit.MINUTES),
-      ApiVersion.V7)
+      ApiVersion.V7,
+      slices = 1)
 
   /** Java API */
   def create(connection: ElasticsearchConnectionSettings): ElasticsearchSourceSettings =
@@ -63,5 +68,6 @@ object ElasticsearchSourceSettings {
       10,
       includeDocumentVersion = false,
       FiniteDuration(5, TimeUnit.MINUTES),
-      ApiVersion.V7)
+      ApiVersion.V7,
+      slices = 1)
 }
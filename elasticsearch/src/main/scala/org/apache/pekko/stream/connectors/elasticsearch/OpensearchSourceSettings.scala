@@ -23,25 +23,29 @@ final class OpensearchSourceSettings private (connection: ElasticsearchConnectio
     bufferSize: Int,
     includeDocumentVersion: Boolean,
     scrollDuration: FiniteDuration,
-    apiVersion: OpensearchApiVersion)
+    apiVersion: OpensearchApiVersion,
+    slices: Int)
     extends SourceSettingsBase[OpensearchApiVersion, OpensearchSourceSettings](connection,
       bufferSize,
       includeDocumentVersion,
       scrollDuration,
-      apiVersion) {
+      apiVersion,
+      slices) {
   protected override def copy(connection: ElasticsearchConnectionSettings,
       bufferSize: Int,
       includeDocumentVersion: Boolean,
       scrollDuration: FiniteDuration,
-      apiVersion: OpensearchApiVersion): OpensearchSourceSettings =
+      apiVersion: OpensearchApiVersion,
+      slices: Int): OpensearchSourceSettings =
     new OpensearchSourceSettings(connection = connection,
       bufferSize = bufferSize,
       includeDocumentVersion = includeDocumentVersion,
       scrollDuration = scrollDuration,
-      apiVersion = apiVersion)
+      apiVersion = apiVersion,
+      slices = slices)
 
   override def toString =
-    s"""OpensearchSourceSettings(connection=$connection,bufferSize=$bufferSize,includeDocumentVersion=$includeDocumentVersion,scrollDuration=$scrollDuration,apiVersion=$apiVersion)"""
+    s"""OpensearchSourceSettings(connection=$connection,bufferSize=$bufferSize,includeDocumentVersion=$includeDocumentVersion,scrollDuration=$scrollDuration,apiVersion=$apiVersion,slices=$slices)"""
 
 }
 
@@ -53,7 +57,8 @@ object OpensearchSourceSettings {
       10,
       includeDocumentVersion = false,
       FiniteDuration(5, TimeUnit.MINUTES),
-      OpensearchApiVersion.V1)
+      OpensearchApiVersion.V1,
+      slices = 1)
 
   /** Java API */
   def create(connection: ElasticsearchConnectionSettings): OpensearchSourceSettings =
@@ -61,5 +66,6 @@ object OpensearchSourceSettings {
       10,
       includeDocumentVersion = false,
       FiniteDuration(5, TimeUnit.MINUTES),
-      OpensearchApiVersion.V1)
+      OpensearchApiVersion.V1,
+      slices = 1)
 }
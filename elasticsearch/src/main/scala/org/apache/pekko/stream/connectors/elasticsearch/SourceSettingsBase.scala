@@ -29,7 +29,10 @@ abstract class SourceSettingsBase[Version <: ApiVersionBase, S <: SourceSettings
     val bufferSize: Int,
     val includeDocumentVersion: Boolean,
     val scrollDuration: FiniteDuration,
-    val apiVersion: Version) { this: S =>
+    val apiVersion: Version,
+    val slices: Int) { this: S =>
+  require(slices > 0, "slices must be positive")
+
   def withConnection(value: ElasticsearchConnectionSettings): S = copy(connection = value)
 
   def withBufferSize(value: Int): S = copy(bufferSize = value)
@@ -49,6 +52,13 @@ abstract class SourceSettingsBase[Version <: ApiVersionBase, S <: SourceSettings
   def withApiVersion(value: Version): S =
     if (apiVersion == value) this else copy(apiVersion = value)
 
+  /**
+   * If slices is more than 1, the search is split into that many slices with a sliced scroll, which are read
+   * concurrently and merged into one source. Every slice clears its scroll when it completes or is cancelled.
+   */
+  def withSlices(value: Int): S =
+    if (slices == value) this else copy(slices = value)
+
   def scroll: String = {
     val scrollString = scrollDuration.unit match {
       case TimeUnit.DAYS         => "d"
@@ -67,6 +77,7 @@ abstract class SourceSettingsBase[Version <: ApiVersionBase, S <: SourceSettings
       bufferSize: Int = bufferSize,
       includeDocumentVersion: Boolean = includeDocumentVersion,
       scrollDuration: FiniteDuration = scrollDuration,
-      apiVersion: Version = apiVersion): S;
+      apiVersion: Version = apiVersion,
+      slices: Int = slices): S;
 
 }
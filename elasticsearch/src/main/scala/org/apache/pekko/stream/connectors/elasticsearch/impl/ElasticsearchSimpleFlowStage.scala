@@ -23,6 +23,7 @@ import pekko.stream.connectors.elasticsearch._
 import pekko.stream.stage._
 import pekko.stream._
 import pekko.stream.connectors.elasticsearch
+import pekko.util.ByteString
 
 import scala.collection.immutable
 import scala.concurrent.{ ExecutionContext, Future }
@@ -83,15 +84,17 @@ private[elasticsearch] final class ElasticsearchSimpleFlowStage[T, C](
       val endpoint = if (settings.allowExplicitIndex) "/_bulk" else s"/${elasticsearchParams.indexName}/_bulk"
       val (messages, resultsPassthrough) = grab(in)
       inflight = true
-      val json: String = restApi.toJson(messages)
+      val json: ByteString = restApi.toJson(messages)
 
-      log.debug("Posting data to Elasticsearch: {}", json)
+      if (log.isDebugEnabled) log.debug("Posting data to Elasticsearch: {}", json.utf8String)
 
       if (json.nonEmpty) {
-        val uri = baseUri.withPath(Path(endpoint))
+        val uri = baseUri
+          .withPath(Path(endpoint))
+          .withQuery(Uri.Query("filter_path" -> RestBulkApi.ResponseFilterPath))
         val request = HttpRequest(HttpMethods.POST)
           .withUri(uri)
-          .withEntity(HttpEntity(NDJsonProtocol.`application/x-ndjson`, json))
+          .withEntity(HttpEntity(NDJsonProtocol.ndJsonContentType, json))
           .withHeaders(settings.connection.headers)
 
         ElasticsearchApi
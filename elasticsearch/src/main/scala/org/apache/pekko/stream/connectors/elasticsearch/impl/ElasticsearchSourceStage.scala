@@ -14,6 +14,7 @@
 package org.apache.pekko.stream.connectors.elasticsearch.impl
 
 import org.apache.pekko
+import pekko.NotUsed
 import pekko.annotation.InternalApi
 import pekko.http.scaladsl.HttpExt
 import pekko.http.scaladsl.model.Uri.Path
@@ -26,6 +27,7 @@ import pekko.stream.connectors.elasticsearch.{
   ReadResult,
   SourceSettingsBase
 }
+import pekko.stream.scaladsl.Source
 import pekko.stream.stage.{ GraphStage, GraphStageLogic, OutHandler, StageLogging }
 import pekko.stream.{ Attributes, Materializer, Outlet, SourceShape }
 import spray.json.DefaultJsonProtocol._
@@ -77,6 +79,29 @@ object ElasticsearchSourceStage {
   def validate(indexName: String): Unit = {
     require(indexName != null, "You must define an index name")
   }
+
+  /**
+   * INTERNAL API
+   *
+   * Reads the search with a single scroll, or with one scroll per slice when [[SourceSettingsBase.slices]] is more
+   * than 1. The slices are read concurrently and merged in the order their pages arrive.
+   */
+  @InternalApi
+  private[elasticsearch] def source[T](
+      elasticsearchParams: ElasticsearchParams,
+      searchParams: Map[String, String],
+      settings: SourceSettingsBase[_, _],
+      reader: MessageReader[T])(
+      implicit http: HttpExt, mat: Materializer, ec: ExecutionContext): Source[ReadResult[T], NotUsed] = {
+    def scroll(params: Map[String, String]) =
+      Source.fromGraph(new ElasticsearchSourceStage(elasticsearchParams, params, settings, reader))
+    if (settings.slices == 1) scroll(searchParams)
+    else {
+      require(!searchParams.contains("slice"), "The search params must not contain a slice when reading slices")
+      Source(0 until settings.slices).flatMapMerge(settings.slices,
+        id => scroll(searchParams + ("slice" -> s"""{"id":$id,"max":${settings.slices}}""")))
+    }
+  }
 }
 
 /**
@@ -13,10 +13,15 @@
 
 package org.apache.pekko.stream.connectors.elasticsearch.impl
 
+import java.nio.charset.StandardCharsets
+
 import org.apache.pekko
 import pekko.annotation.InternalApi
 import pekko.stream.connectors.elasticsearch.Operation.{ Create, Delete, Index, Nop, Update, Upsert }
-import pekko.stream.connectors.elasticsearch.{ WriteMessage, WriteResult }
+import pekko.stream.connectors.elasticsearch.{ MessageWriter, WriteMessage, WriteResult }
+import pekko.util.{ ByteString, ByteStringBuilder }
+import com.fasterxml.jackson.core.{ JsonParser, JsonToken }
+import com.fasterxml.jackson.databind.{ JsonNode, ObjectMapper }
 import spray.json._
 
 import scala.collection.immutable
@@ -25,17 +30,70 @@ import scala.collection.immutable
  * Internal API.
  */
 @InternalApi
-private[impl] abstract class RestBulkApi[T, C] {
+private[impl] abstract class RestBulkApi[T, C](messageWriter: MessageWriter[T]) {
+  import RestBulkApi._
+
+  /**
+   * The action line of a message, or `None` for messages which are not sent to Elasticsearch.
+   */
+  protected def action(message: WriteMessage[T, C]): Option[JsObject]
+
+  /**
+   * Builds the NDJSON body of a bulk request, with an action line for every message followed by its document. The
+   * documents are written as the [[MessageWriter]] produces them, and wrapped for updates and upserts by writing the
+   * surrounding bytes instead of parsing them. Line breaks in a document, e.g. from a pretty-printing writer, are
+   * replaced by spaces to keep it on one line. Empty if all messages are NOPs.
+   */
+  def toJson(messages: immutable.Seq[WriteMessage[T, C]]): ByteString = {
+    val builder = ByteString.newBuilder
+    messages.foreach { message =>
+      action(message).foreach { actionLine =>
+        builder.append(ByteString(actionLine.compactPrint))
+        message.operation match {
+          case Index | Create => appendDocument(builder, message, ByteString.empty, ByteString.empty)
+          case Upsert         => appendDocument(builder, message, DocPrefix, DocAsUpsertSuffix)
+          case Update         => appendDocument(builder, message, DocPrefix, DocSuffix)
+          case Delete | Nop   => ()
+        }
+        builder.putByte(Newline)
+      }
+    }
+    builder.result()
+  }
 
-  def toJson(messages: immutable.Seq[WriteMessage[T, C]]): String
+  private def appendDocument(builder: ByteStringBuilder,
+      message: WriteMessage[T, C],
+      prefix: ByteString,
+      suffix: ByteString): Unit =
+    builder
+      .putByte(Newline)
+      .append(prefix)
+      .append(documentBytes(message))
+      .append(suffix)
 
+  /**
+   * The UTF-8 bytes of the document on a single line. JSON strings can't contain raw line breaks, so any line break
+   * is whitespace between tokens and may be replaced by a space. No multi-byte UTF-8 sequence contains these bytes.
+   */
+  private def documentBytes(message: WriteMessage[T, C]): ByteString = {
+    val bytes = message.source.fold("")(messageWriter.convert).getBytes(StandardCharsets.UTF_8)
+    var i = 0
+    while (i < bytes.length) {
+      if (bytes(i) == Newline || bytes(i) == CarriageReturn) bytes(i) = Space
+      i += 1
+    }
+    ByteString.fromArrayUnsafe(bytes)
+  }
+
+  /**
+   * Reads the results of a bulk request from its response, which is expected to be filtered by `ResponseFilterPath`.
+   * The items are only read if the top-level `errors` field is not `false`, and only their errors are kept.
+   */
   def toWriteResults(messages: immutable.Seq[WriteMessage[T, C]],
       jsonString: String): immutable.Seq[WriteResult[T, C]] = {
-    val responseJson = jsonString.parseJson
-
-    // If some commands in bulk request failed, pass failed messages to follows.
-    val items = responseJson.asJsObject.fields("items").asInstanceOf[JsArray]
-    buildMessageResults(items, messages)
+    val parser = Mapper.createParser(jsonString)
+    try buildMessageResults(itemErrors(parser, jsonString), messages)
+    finally parser.close()
   }
 
   def optionalString(fieldName: String, value: Option[String]): Option[(String, JsString)] =
@@ -44,39 +102,81 @@ private[impl] abstract class RestBulkApi[T, C] {
   def optionalNumber(fieldName: String, value: Option[Long]): Option[(String, JsNumber)] =
     value.map(v => fieldName -> JsNumber(v))
 
-  def messageToJson(message: WriteMessage[T, C], messageSource: String): String = message.operation match {
-    case Index | Create => "\n" + messageSource
-    case Upsert         => "\n" + JsObject("doc" -> messageSource.parseJson, "doc_as_upsert" -> JsTrue).toString
-    case Update         => "\n" + JsObject("doc" -> messageSource.parseJson).toString
-    case Delete         => ""
-    case Nop            => ""
+  def constructSharedFields(message: WriteMessage[T, C]): Seq[(String, JsString)]
+
+  /**
+   * The errors of the items in the order of the items, or none at all if the top-level `errors` field is `false`.
+   */
+  private def itemErrors(parser: JsonParser, jsonString: String): Iterator[Option[String]] = {
+    if (parser.nextToken() != JsonToken.START_OBJECT)
+      throw new IllegalArgumentException(s"Unexpected bulk response: $jsonString")
+    var errors: Option[Iterator[Option[String]]] = None
+    while (errors.isEmpty && parser.nextToken() == JsonToken.FIELD_NAME) {
+      val field = parser.getCurrentName
+      val token = parser.nextToken()
+      if (field == "errors" && token == JsonToken.VALUE_FALSE) errors = Some(Iterator.empty)
+      else if (field == "items" && token == JsonToken.START_ARRAY) errors = Some(readItemErrors(parser).iterator)
+      else parser.skipChildren()
+    }
+    errors.getOrElse(throw new IllegalArgumentException(s"Bulk response without items: $jsonString"))
   }
 
-  def constructSharedFields(message: WriteMessage[T, C]): Seq[(String, JsString)]
+  /** Every item is an object with the command as its only field, e.g. `{"index":{"status":201}}`. */
+  private def readItemErrors(parser: JsonParser): Vector[Option[String]] = {
+    val errors = Vector.newBuilder[Option[String]]
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      parser.nextToken() // command
+      parser.nextToken() // start of the command result
+      var error: Option[String] = None
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        val field = parser.getCurrentName
+        parser.nextToken()
+        if (field == "error") error = Some(parser.readValueAsTree[JsonNode]().toString)
+        else parser.skipChildren()
+      }
+      parser.nextToken() // end of the item
+      errors += error
+    }
+    errors.result()
+  }
 
   /** NOPs don't come back so slip them into the results like this: */
-  private def buildMessageResults(items: JsArray,
+  private def buildMessageResults(itemErrors: Iterator[Option[String]],
       messages: immutable.Seq[WriteMessage[T, C]]): immutable.Seq[WriteResult[T, C]] = {
     val ret = new immutable.VectorBuilder[WriteResult[T, C]]
     ret.sizeHint(messages)
-    val itemsIter = items.elements.iterator
     messages.foreach { message =>
       if (message.operation == Nop) {
         // client just wants to pass-through:
         ret += new WriteResult(message, None)
+      } else if (itemErrors.hasNext) {
+        ret += new WriteResult(message, itemErrors.next())
       } else {
-        if (itemsIter.hasNext) {
-          // good message
-          val command = message.operation.command
-          val res = itemsIter.next().asJsObject.fields(command).asJsObject
-          val error: Option[String] = res.fields.get("error").map(_.toString())
-          ret += new WriteResult(message, error)
-        } else {
-          // error?
-          ret += new WriteResult(message, None)
-        }
+        // no items are read if none failed
+        ret += new WriteResult(message, None)
       }
     }
     ret.result()
   }
 }
+
+/**
+ * Internal API.
+ */
+@InternalApi
+private[impl] object RestBulkApi {
+
+  /**
+   * Limits bulk responses to what `toWriteResults` reads. The status keeps an entry for every item, so
+   * that the errors can be matched to the messages by position.
+   */
+  val ResponseFilterPath = "errors,items.*.status,items.*.error"
+
+  private val Newline: Byte = '\n'.toByte
+  private val CarriageReturn: Byte = '\r'.toByte
+  private val Space: Byte = ' '.toByte
+  private val DocPrefix = ByteString("{\"doc\":")
+  private val DocSuffix = ByteString("}")
+  private val DocAsUpsertSuffix = ByteString(",\"doc_as_upsert\":true}")
+  private val Mapper = new ObjectMapper()
+}
@@ -19,8 +19,6 @@ import pekko.stream.connectors.elasticsearch.Operation._
 import pekko.stream.connectors.elasticsearch.{ MessageWriter, WriteMessage }
 import spray.json._
 
-import scala.collection.immutable
-
 /**
  * Internal API.
  *
@@ -32,38 +30,29 @@ private[impl] final class RestBulkApiV7[T, C](indexName: String,
     versionType: Option[String],
     allowExplicitIndex: Boolean,
     messageWriter: MessageWriter[T])
-    extends RestBulkApi[T, C] {
+    extends RestBulkApi[T, C](messageWriter) {
 
-  def toJson(messages: immutable.Seq[WriteMessage[T, C]]): String =
-    messages
-      .map { message =>
-        val sharedFields = constructSharedFields(message)
-        val tuple: (String, JsObject) = message.operation match {
-          case Index =>
-            val fields = Seq(
-              optionalNumber("version", message.version),
-              optionalString("version_type", versionType),
-              optionalString("_id", message.id)).flatten
-            "index" -> JsObject(sharedFields ++ fields: _*)
-          case Create          => "create" -> JsObject(sharedFields ++ optionalString("_id", message.id): _*)
-          case Update | Upsert => "update" -> JsObject(sharedFields :+ ("_id" -> JsString(message.id.get)): _*)
-          case Delete =>
-            val fields =
-              ("_id" -> JsString(message.id.get)) +: Seq(
-                optionalNumber("version", message.version),
-                optionalString("version_type", versionType)).flatten
-            "delete" -> JsObject(sharedFields ++ fields: _*)
-          case Nop => "" -> JsObject()
-        }
-        if (tuple._1.nonEmpty)
-          JsObject(tuple).compactPrint + messageToJson(message, message.source.fold("")(messageWriter.convert))
-        else
-          ""
-      }
-      .filter(_.nonEmpty) match {
-      case Nil => "" // if all NOPs
-      case x   => x.mkString("", "\n", "\n")
+  override protected def action(message: WriteMessage[T, C]): Option[JsObject] = {
+    val sharedFields = constructSharedFields(message)
+    val tuple: (String, JsObject) = message.operation match {
+      case Index =>
+        val fields = Seq(
+          optionalNumber("version", message.version),
+          optionalString("version_type", versionType),
+          optionalString("_id", message.id)).flatten
+        "index" -> JsObject(sharedFields ++ fields: _*)
+      case Create          => "create" -> JsObject(sharedFields ++ optionalString("_id", message.id): _*)
+      case Update | Upsert => "update" -> JsObject(sharedFields :+ ("_id" -> JsString(message.id.get)): _*)
+      case Delete =>
+        val fields =
+          ("_id" -> JsString(message.id.get)) +: Seq(
+            optionalNumber("version", message.version),
+            optionalString("version_type", versionType)).flatten
+        "delete" -> JsObject(sharedFields ++ fields: _*)
+      case Nop => "" -> JsObject()
     }
+    if (tuple._1.nonEmpty) Some(JsObject(tuple)) else None
+  }
 
   override def constructSharedFields(message: WriteMessage[T, C]): Seq[(String, JsString)] = {
     val operationFields = if (allowExplicitIndex) {
@@ -57,7 +57,7 @@ object ElasticsearchSource {
 
           Source
             .fromGraph(
-              new impl.ElasticsearchSourceStage(
+              impl.ElasticsearchSourceStage.source(
                 elasticsearchParams,
                 Map("query" -> query),
                 settings,
@@ -88,7 +88,7 @@ object ElasticsearchSource {
           implicit val ec: ExecutionContext = mat.executionContext
 
           Source.fromGraph(
-            new impl.ElasticsearchSourceStage(
+            impl.ElasticsearchSourceStage.source(
               elasticsearchParams,
               searchParams.asScala.toMap,
               settings,
@@ -124,7 +124,7 @@ object ElasticsearchSource {
           implicit val ec: ExecutionContext = mat.executionContext
 
           Source.fromGraph(
-            new impl.ElasticsearchSourceStage(
+            impl.ElasticsearchSourceStage.source(
               elasticsearchParams,
               Map("query" -> query),
               settings,
@@ -156,7 +156,7 @@ object ElasticsearchSource {
           implicit val ec: ExecutionContext = mat.executionContext
 
           Source.fromGraph(
-            new impl.ElasticsearchSourceStage(
+            impl.ElasticsearchSourceStage.source(
               elasticsearchParams,
               searchParams.asScala.toMap,
               settings,
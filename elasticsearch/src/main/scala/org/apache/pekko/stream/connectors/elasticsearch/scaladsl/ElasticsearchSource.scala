@@ -79,13 +79,11 @@ object ElasticsearchSource {
         implicit val http: HttpExt = Http()
         implicit val ec: ExecutionContextExecutor = mat.executionContext
 
-        val sourceStage = new impl.ElasticsearchSourceStage(
+        impl.ElasticsearchSourceStage.source(
           elasticsearchParams,
           searchParams,
           settings,
           new SprayJsonReader[JsObject]()(DefaultJsonProtocol.RootJsObjectFormat))
-
-        Source.fromGraph(sourceStage)
       }
       .mapMaterializedValue(_ => NotUsed)
 
@@ -115,11 +113,10 @@ object ElasticsearchSource {
         implicit val http: HttpExt = Http()
         implicit val ec: ExecutionContextExecutor = mat.executionContext
 
-        Source.fromGraph(
-          new impl.ElasticsearchSourceStage(elasticsearchParams,
-            searchParams,
-            settings,
-            new SprayJsonReader[T]()(sprayJsonReader)))
+        impl.ElasticsearchSourceStage.source(elasticsearchParams,
+          searchParams,
+          settings,
+          new SprayJsonReader[T]()(sprayJsonReader))
       }
       .mapMaterializedValue(_ => NotUsed)
 
@@ -636,6 +636,24 @@ trait ElasticsearchConnectorBehaviour {
           "Akka Concurrency"))
       }
 
+      "read all documents in slices" in {
+        val read = ElasticsearchSource
+          .typed[Book](
+            constructElasticsearchParams("source", "_doc", apiVersion),
+            query = """{"match_all": {}}""",
+            settings = baseSourceSettings.withBufferSize(2).withSlices(3))
+          .map(_.source.title)
+          .runWith(Sink.seq)
+
+        read.futureValue should contain theSameElementsAs List("Akka in Action",
+          "Programming in Scala",
+          "Learning Scala",
+          "Scala for Spark in Production",
+          "Scala Puzzlers",
+          "Effective Akka",
+          "Akka Concurrency")
+      }
+
       "sort by user defined field" in {
         val read = ElasticsearchSource
           .typed[Book](
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.elasticsearch.impl
+
+import org.apache.pekko
+import pekko.NotUsed
+import pekko.stream.connectors.elasticsearch.{ StringMessageWriter, WriteMessage }
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import scala.collection.immutable
+
+class RestBulkApiSpec extends AnyWordSpec with Matchers {
+
+  val restApi = new RestBulkApiV7[String, NotUsed]("index", None, false, StringMessageWriter.getInstance)
+
+  val messages: immutable.Seq[WriteMessage[String, NotUsed]] = immutable.Seq(
+    WriteMessage.createIndexMessage("1", """{"title":"a"}"""),
+    WriteMessage.createNopMessage[String](),
+    WriteMessage.createUpsertMessage("2", """{"title":"b"}"""),
+    WriteMessage.createDeleteMessage[String]("3"))
+
+  "RestBulkApi" should {
+    "write the documents of updates and upserts into the bulk body" in {
+      restApi.toJson(messages).utf8String shouldBe
+      """{"index":{"_id":"1"}}
+        |{"title":"a"}
+        |{"update":{"_id":"2"}}
+        |{"doc":{"title":"b"},"doc_as_upsert":true}
+        |{"delete":{"_id":"3"}}
+        |""".stripMargin
+    }
+
+    "keep multi-line documents on one line" in {
+      val messages = immutable.Seq(
+        WriteMessage.createIndexMessage("1", "{\r\n  \"title\" : \"a\\nb\"\r\n}"),
+        WriteMessage.createUpdateMessage("2", "{\n  \"title\" : \"ä\"\n}"))
+
+      val lines = restApi.toJson(messages).utf8String.split("\n", -1).toList
+
+      lines shouldBe List(
+        """{"index":{"_id":"1"}}""",
+        """{    "title" : "a\nb"  }""",
+        """{"update":{"_id":"2"}}""",
+        """{"doc":{   "title" : "ä" }}""",
+        "")
+    }
+
+    "leave out NOP messages" in {
+      restApi.toJson(immutable.Seq(WriteMessage.createNopMessage[String]())) shouldBe empty
+    }
+
+    "mark all messages successful if no item failed" in {
+      val results = restApi.toWriteResults(messages, """{"errors":false,"items":[{"index":{"status":201}}]}""")
+
+      results.map(_.message) shouldBe messages
+      results.forall(_.success) shouldBe true
+    }
+
+    "match the errors of failed items to their messages" in {
+      val response =
+        """{"errors":true,"items":[
+          |{"index":{"status":201}},
+          |{"update":{"status":400,"error":{"type":"mapper_parsing_exception","reason":"failed to parse"}}},
+          |{"delete":{"status":404}}]}""".stripMargin
+
+      val results = restApi.toWriteResults(messages, response)
+
+      results.map(_.message) shouldBe messages
+      results.map(_.success) shouldBe Seq(true, true, false, true)
+      results(2).errorReason shouldBe Some("failed to parse")
+    }
+
+    "keep the errors aligned with their messages around NOP messages" in {
+      val messages = immutable.Seq(
+        WriteMessage.createIndexMessage("1", """{"title":"a"}"""),
+        WriteMessage.createNopMessage[String](),
+        WriteMessage.createIndexMessage("2", """{"title":"b"}"""),
+        WriteMessage.createNopMessage[String](),
+        WriteMessage.createIndexMessage("3", """{"title":"c"}"""))
+      val response =
+        """{"errors":true,"items":[
+          |{"index":{"status":400,"error":{"type":"mapper_parsing_exception","reason":"first"}}},
+          |{"index":{"status":201}},
+          |{"index":{"status":400,"error":{"type":"mapper_parsing_exception","reason":"third"}}}]}""".stripMargin
+
+      val results = restApi.toWriteResults(messages, response)
+
+      results.map(_.message) shouldBe messages
+      results.map(_.errorReason) shouldBe Seq(Some("first"), None, None, None, Some("third"))
+    }
+  }
+}
@@ -15,8 +15,12 @@ package org.apache.pekko.stream.connectors.googlecloud.bigquery.storage.javadsl
 
 import org.apache.pekko
 import pekko.NotUsed
+import pekko.http.javadsl.model.HttpEntity
 import pekko.http.javadsl.unmarshalling.Unmarshaller
+import pekko.http.scaladsl.{ model => sm }
 import pekko.http.scaladsl.unmarshalling.FromByteStringUnmarshaller
+import pekko.stream.connectors.googlecloud.bigquery.model.{ QueryRequest, QueryResponse }
+import pekko.stream.connectors.googlecloud.bigquery.storage.BigQueryRecord
 import pekko.stream.connectors.googlecloud.bigquery.storage.ProtobufConverters._
 import pekko.stream.connectors.googlecloud.bigquery.storage.{ scaladsl => scstorage }
 import pekko.stream.javadsl.Source
@@ -218,4 +222,30 @@ object BigQueryStorage {
       .asJava
       .mapMaterializedValue(_.toJava)
 
+  /**
+   * Runs a BigQuery SQL query and reads its results, choosing the transport by the size of the result.
+   * Results of up to `rowThreshold` rows are paged through the BigQuery REST API. Larger results are read from the
+   * destination table of the query job over parallel BigQuery Storage read streams, so row order is not preserved.
+   *
+   * @param query         the [[pekko.stream.connectors.googlecloud.bigquery.model.QueryRequest]]
+   * @param dataFormat    the format in which the BigQuery Storage API transfers results larger than `rowThreshold`
+   * @param rowThreshold  results with more rows than this are read with the BigQuery Storage API
+   * @param maxNumStreams An optional max initial number of streams. If unset or zero, the server will provide a value of streams so as to produce reasonable throughput.
+   * @param rowReader     converts a row read with the BigQuery Storage API into an `Out`
+   * @param unmarshaller  [[pekko.http.javadsl.unmarshalling.Unmarshaller]] for [[pekko.stream.connectors.googlecloud.bigquery.model.QueryResponse]]
+   * @tparam Out the data model of the query results
+   */
+  def query[Out](query: QueryRequest,
+      dataFormat: DataFormat,
+      rowThreshold: Long,
+      maxNumStreams: Int,
+      rowReader: java.util.function.Function[BigQueryRecord, Out],
+      unmarshaller: Unmarshaller[HttpEntity, QueryResponse[Out]]): Source[Out, CompletionStage[QueryResponse[Out]]] = {
+    implicit val um = unmarshaller.asScalaCastInput[sm.HttpEntity]
+    scstorage.BigQueryStorage
+      .query[Out](query, dataFormat, rowThreshold, maxNumStreams)(rowReader.apply)
+      .asJava
+      .mapMaterializedValue(_.toJava)
+  }
+
 }
@@ -15,10 +15,15 @@ package org.apache.pekko.stream.connectors.googlecloud.bigquery.storage.scaladsl
 
 import org.apache.pekko
 import pekko.NotUsed
-import pekko.actor.ClassicActorSystemProvider
-import pekko.http.scaladsl.unmarshalling.FromByteStringUnmarshaller
-import pekko.stream.connectors.googlecloud.bigquery.storage.impl.SDKClientSource
-import pekko.stream.scaladsl.Source
+import pekko.annotation.InternalApi
+import pekko.actor.{ ActorSystem, ClassicActorSystemProvider }
+import pekko.http.scaladsl.unmarshalling.{ FromByteStringUnmarshaller, FromEntityUnmarshaller }
+import pekko.stream.connectors.google.{ GoogleAttributes, GoogleSettings }
+import pekko.stream.connectors.googlecloud.bigquery.model.{ Job, QueryRequest, QueryResponse, TableReference }
+import pekko.stream.connectors.googlecloud.bigquery.scaladsl.BigQuery
+import pekko.stream.connectors.googlecloud.bigquery.storage.BigQueryRecord
+import pekko.stream.connectors.googlecloud.bigquery.storage.impl.{ ArrowSource, AvroSource, SDKClientSource }
+import pekko.stream.scaladsl.{ Keep, Sink, Source }
 import pekko.stream.{ Attributes, Materializer }
 import pekko.util.ByteString
 import com.google.cloud.bigquery.storage.v1.DataFormat
@@ -86,6 +91,104 @@ object BigQueryStorage {
     }
   }
 
+  /**
+   * Runs a BigQuery SQL query and reads its results, choosing the transport by the size of the result.
+   * Results of up to `rowThreshold` rows are paged through the BigQuery REST API, exactly as
+   * [[pekko.stream.connectors.googlecloud.bigquery.scaladsl.BigQuery.query]] does. Larger results are read from the
+   * destination table of the query job (either the user-provided one or the anonymous table BigQuery writes the
+   * results to) over parallel BigQuery Storage read streams, so row order is not preserved.
+   *
+   * @param query the [[pekko.stream.connectors.googlecloud.bigquery.model.QueryRequest]]
+   * @param dataFormat the format in which the BigQuery Storage API transfers results larger than `rowThreshold`
+   * @param rowThreshold results with more rows than this are read with the BigQuery Storage API
+   * @param maxNumStreams An optional max initial number of streams. If unset or zero, the server will provide a value of streams so as to produce reasonable throughput.
+   * @param rowReader converts a row read with the BigQuery Storage API into an `Out`
+   * @tparam Out the data model of the query results
+   * @return a [[pekko.stream.scaladsl.Source]] that emits an `Out` for each row of the results and materializes
+   *         a [[scala.concurrent.Future]] containing the first complete [[pekko.stream.connectors.googlecloud.bigquery.model.QueryResponse]]
+   */
+  def query[Out](query: QueryRequest, dataFormat: DataFormat, rowThreshold: Long, maxNumStreams: Int = 0)(
+      rowReader: BigQueryRecord => Out)(
+      implicit um: FromEntityUnmarshaller[QueryResponse[Out]]): Source[Out, Future[QueryResponse[Out]]] =
+    Source
+      .fromMaterializer { (mat, attr) =>
+        implicit val system: ActorSystem = mat.system
+        implicit val settings: GoogleSettings = GoogleAttributes.resolveSettings(mat, attr)
+        queryRows(
+          BigQuery.queryPages[Out](query).addAttributes(attr),
+          (jobId, location) => BigQuery.job(jobId, location),
+          (jobId, location) =>
+            BigQuery
+              .queryResults[Out](jobId, None, query.maxResults, query.timeout, location)
+              .addAttributes(attr)
+              .mapMaterializedValue(_ => NotUsed),
+          reader(system, attr).client,
+          settings.projectId,
+          dataFormat,
+          rowThreshold,
+          maxNumStreams)(rowReader)(mat)
+      }
+      .mapMaterializedValue(_.flatten)
+
+  /**
+   * Internal API
+   *
+   * Routes the results of a query by their size: the complete first page decides whether the rows are taken from the
+   * REST pages or read from the destination table of the query job with the BigQuery Storage API.
+   *
+   * @param pages the complete pages of the query results, starting with the first complete response
+   * @param job looks up a query job by its id and location
+   * @param results pages through the results of a query job by its id and location
+   */
+  @InternalApi
+  private[storage] def queryRows[Out](pages: Source[QueryResponse[Out], _],
+      job: (String, Option[String]) => Future[Job],
+      results: (String, Option[String]) => Source[Out, NotUsed],
+      client: => BigQueryReadClient,
+      defaultProjectId: String,
+      dataFormat: DataFormat,
+      rowThreshold: Long,
+      maxNumStreams: Int)(rowReader: BigQueryRecord => Out)(
+      implicit mat: Materializer): Source[Out, Future[QueryResponse[Out]]] = {
+    def storageRows(table: TableReference, tableId: String): Source[Out, NotUsed] = {
+      val readClient = client
+      val projectId = table.projectId.getOrElse(defaultProjectId)
+      readSession(readClient, projectId, table.datasetId, tableId, dataFormat, None, maxNumStreams)
+        .flatMapConcat { session =>
+          val streams = dataFormat match {
+            case DataFormat.ARROW => ArrowSource.readRecords(readClient, session)
+            case DataFormat.AVRO  => AvroSource.readRecords(readClient, session)
+            case other            => throw new IllegalArgumentException(s"Unsupported data format: $other")
+          }
+          Source(streams.toList).flatMapMerge(math.max(streams.size, 1), identity)
+        }
+        .map(rowReader)
+    }
+
+    pages
+      .wireTapMat(Sink.head)(Keep.right)
+      .prefixAndTail(1)
+      .flatMapConcat {
+        case (Seq(first), tail) if first.totalRows.exists(_ > rowThreshold) && first.jobReference.jobId.isDefined =>
+          tail.runWith(Sink.cancelled)
+          val jobId = first.jobReference.jobId.get
+          val location = first.jobReference.location
+          Source
+            .future(job(jobId, location))
+            .flatMapConcat { queryJob =>
+              queryJob.configuration.flatMap(_.query).flatMap(_.destinationTable) match {
+                case Some(table @ TableReference(_, _, Some(tableId))) =>
+                  storageRows(table, tableId)
+                case _ =>
+                  // e.g. scripts have no single destination table, so page through them like smaller results
+                  results(jobId, location)
+              }
+            }
+        case (head, tail) =>
+          Source(head).concat(tail).mapConcat(_.rows.fold[List[Out]](Nil)(_.toList))
+      }
+  }
+
   private[scaladsl] def readSession(client: BigQueryReadClient,
       projectId: String,
       datasetId: String,
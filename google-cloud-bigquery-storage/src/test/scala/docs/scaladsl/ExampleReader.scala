@@ -15,7 +15,8 @@ package docs.scaladsl
 
 import org.apache.pekko
 import pekko.actor.ActorSystem
-import pekko.http.scaladsl.unmarshalling.FromByteStringUnmarshaller
+import pekko.http.scaladsl.unmarshalling.{ FromByteStringUnmarshaller, FromEntityUnmarshaller }
+import pekko.stream.connectors.googlecloud.bigquery.model.{ QueryRequest, QueryResponse }
 import pekko.stream.connectors.googlecloud.bigquery.storage.{ BigQueryRecord, BigQueryStorageSettings }
 import pekko.stream.connectors.googlecloud.bigquery.storage.scaladsl.{
   BigQueryArrowStorage,
@@ -81,6 +82,14 @@ class ExampleReader {
     BigQueryAvroStorage.readRecords("projectId", "datasetId", "tableId")
   // #read-avro-all
 
+  // #query
+  implicit val queryUnmarshaller: FromEntityUnmarshaller[QueryResponse[BigQueryRecord]] =
+    mock[FromEntityUnmarshaller[QueryResponse[BigQueryRecord]]]
+  val queryRequest = QueryRequest("SELECT * FROM datasetId.tableId", None, None, None, None, Some(false), None)
+  val queryResults: Source[BigQueryRecord, Future[QueryResponse[BigQueryRecord]]] =
+    BigQueryStorage.query[BigQueryRecord](queryRequest, DataFormat.ARROW, rowThreshold = 100000)(record => record)
+  // #query
+
   // #attributes
   val reader: GrpcBigQueryStorageReader = GrpcBigQueryStorageReader(BigQueryStorageSettings("localhost", 8000))
   val sourceForReader: Source[(ReadSession.Schema, Seq[Source[ReadRowsResponse.Rows, NotUsed]]), Future[NotUsed]] =
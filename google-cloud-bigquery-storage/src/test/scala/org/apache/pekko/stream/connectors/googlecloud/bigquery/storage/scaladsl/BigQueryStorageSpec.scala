@@ -20,8 +20,16 @@ import pekko.stream.connectors.googlecloud.bigquery.storage.{
   BigQueryStorageSettings,
   BigQueryStorageSpecBase
 }
+import pekko.stream.connectors.googlecloud.bigquery.model.{
+  Job,
+  JobConfiguration,
+  JobConfigurationQuery,
+  JobReference,
+  QueryResponse,
+  TableReference
+}
 import pekko.stream.connectors.testkit.scaladsl.LogCapturing
-import pekko.stream.scaladsl.Sink
+import pekko.stream.scaladsl.{ Keep, Sink, Source }
 import com.google.cloud.bigquery.storage.v1.arrow.{ ArrowRecordBatch, ArrowSchema }
 import com.google.cloud.bigquery.storage.v1.avro.AvroSchema
 import com.google.cloud.bigquery.storage.v1.DataFormat
@@ -31,6 +39,8 @@ import org.scalatest.BeforeAndAfterAll
 import org.scalatest.matchers.should.Matchers
 import org.scalatest.wordspec.AnyWordSpecLike
 
+import scala.concurrent.Future
+
 class BigQueryStorageSpec
     extends BigQueryStorageSpecBase(21001)
     with AnyWordSpecLike
@@ -185,6 +195,53 @@ class BigQueryStorageSpec
 
   }
 
+  "BigQueryStorage.query" should {
+    val jobReference = JobReference(Some(Project), Some("mock-job"), None)
+
+    def page(totalRows: Long, rows: String*) =
+      QueryResponse[String](None, jobReference, Some(totalRows), None, Some(rows.toList), None, true, None, None, None)
+
+    def queryJob(destinationTable: Option[TableReference]) =
+      Job(Some(JobConfiguration(None, None, Some(JobConfigurationQuery(None, destinationTable)))), None, None)
+
+    def queryRows(rowThreshold: Long, pages: QueryResponse[String]*)(job: Job) =
+      BigQueryStorage
+        .queryRows[String](
+          Source(pages.toList),
+          (_, _) => Future.successful(job),
+          (_, _) => Source.single("paged by job"),
+          GrpcBigQueryStorageReader(BigQueryStorageSettings(bqHost, bqPort)).client,
+          Project,
+          DataFormat.AVRO,
+          rowThreshold,
+          maxNumStreams = 0)(_.get(Col1).fold("")(_.toString))
+        .toMat(Sink.seq)(Keep.both)
+        .run()
+
+    val destinationTable = queryJob(Some(TableReference(Some(Project), Dataset, Some(Table))))
+
+    "page through results of up to rowThreshold rows" in {
+      val first = page(3, "a", "b")
+      val (firstPage, rows) = queryRows(rowThreshold = 3, first, page(3, "c"))(destinationTable)
+
+      rows.futureValue shouldBe Seq("a", "b", "c")
+      firstPage.futureValue shouldBe first
+    }
+
+    "read results of more than rowThreshold rows with the Storage API" in {
+      val (_, rows) = queryRows(rowThreshold = 3, page(TotalRecords, "a", "b"), page(TotalRecords, "c"))(
+        destinationTable)
+
+      rows.futureValue shouldBe Seq.fill(TotalRecords)("val1")
+    }
+
+    "page through large results of a query job without a destination table" in {
+      val (_, rows) = queryRows(rowThreshold = 3, page(TotalRecords, "a", "b"))(queryJob(None))
+
+      rows.futureValue shouldBe Seq("paged by job")
+    }
+  }
+
   def mockBQReader(host: String = bqHost, port: Int = bqPort) = {
     val reader = GrpcBigQueryStorageReader(BigQueryStorageSettings(host, port))
     BigQueryStorageAttributes.reader(reader)
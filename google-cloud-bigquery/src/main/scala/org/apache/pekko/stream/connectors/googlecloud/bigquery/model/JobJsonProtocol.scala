@@ -81,10 +81,14 @@ object Job {
  *
  * @param load configures a load job
  * @param labels the labels associated with this job
+ * @param query configures a query job
  */
-final case class JobConfiguration private (load: Option[JobConfigurationLoad], labels: Option[Map[String, String]]) {
+final case class JobConfiguration private (load: Option[JobConfigurationLoad],
+    labels: Option[Map[String, String]],
+    query: Option[JobConfigurationQuery]) {
   def getLoad = load.asJava
   def getLabels = labels.asJava
+  def getQuery = query.asJava
 
   def withLoad(load: Option[JobConfigurationLoad]) =
     copy(load = load)
@@ -95,6 +99,11 @@ final case class JobConfiguration private (load: Option[JobConfigurationLoad], l
     copy(labels = labels)
   def withLabels(labels: util.Optional[util.Map[String, String]]) =
     copy(labels = labels.asScala.map(_.asScala.toMap))
+
+  def withQuery(query: Option[JobConfigurationQuery]) =
+    copy(query = query)
+  def withQuery(query: util.Optional[JobConfigurationQuery]) =
+    copy(query = query.asScala)
 }
 
 object JobConfiguration {
@@ -109,6 +118,17 @@ object JobConfiguration {
   def apply(load: Option[JobConfigurationLoad]): JobConfiguration =
     apply(load, None)
 
+  /**
+   * JobConfiguration model
+   * @see [[https://cloud.google.com/bigquery/docs/reference/rest/v2/Job#jobconfiguration BigQuery reference]]
+   *
+   * @param load configures a load job
+   * @param labels the labels associated with this job
+   * @return a [[JobConfiguration]]
+   */
+  def apply(load: Option[JobConfigurationLoad], labels: Option[Map[String, String]]): JobConfiguration =
+    apply(load, labels, None)
+
   /**
    * Java API: JobConfiguration model
    * @see [[https://cloud.google.com/bigquery/docs/reference/rest/v2/Job#jobconfiguration BigQuery reference]]
@@ -130,7 +150,59 @@ object JobConfiguration {
   def create(load: util.Optional[JobConfigurationLoad], labels: util.Optional[util.Map[String, String]]) =
     JobConfiguration(load.asScala, labels.asScala.map(_.asScala.toMap))
 
-  implicit val format: JsonFormat[JobConfiguration] = jsonFormat2(apply)
+  /**
+   * Java API: JobConfiguration model
+   * @see [[https://cloud.google.com/bigquery/docs/reference/rest/v2/Job#jobconfiguration BigQuery reference]]
+   *
+   * @param load configures a load job
+   * @param labels the labels associated with this job
+   * @param query configures a query job
+   * @return a [[JobConfiguration]]
+   */
+  def create(load: util.Optional[JobConfigurationLoad],
+      labels: util.Optional[util.Map[String, String]],
+      query: util.Optional[JobConfigurationQuery]) =
+    JobConfiguration(load.asScala, labels.asScala.map(_.asScala.toMap), query.asScala)
+
+  implicit val format: JsonFormat[JobConfiguration] = jsonFormat3(apply)
+}
+
+/**
+ * JobConfigurationQuery model
+ * @see [[https://cloud.google.com/bigquery/docs/reference/rest/v2/Job#jobconfigurationquery BigQuery reference]]
+ *
+ * @param query SQL query text to execute
+ * @param destinationTable the table where the query results are written, either user-provided or the anonymous table created by BigQuery
+ */
+final case class JobConfigurationQuery private (query: Option[String], destinationTable: Option[TableReference]) {
+  def getQuery = query.asJava
+  def getDestinationTable = destinationTable.asJava
+
+  def withQuery(query: Option[String]) =
+    copy(query = query)
+  def withQuery(query: util.Optional[String]) =
+    copy(query = query.asScala)
+
+  def withDestinationTable(destinationTable: Option[TableReference]) =
+    copy(destinationTable = destinationTable)
+  def withDestinationTable(destinationTable: util.Optional[TableReference]) =
+    copy(destinationTable = destinationTable.asScala)
+}
+
+object JobConfigurationQuery {
+
+  /**
+   * Java API: JobConfigurationQuery model
+   * @see [[https://cloud.google.com/bigquery/docs/reference/rest/v2/Job#jobconfigurationquery BigQuery reference]]
+   *
+   * @param query SQL query text to execute
+   * @param destinationTable the table where the query results are written
+   * @return a [[JobConfigurationQuery]]
+   */
+  def create(query: util.Optional[String], destinationTable: util.Optional[TableReference]) =
+    JobConfigurationQuery(query.asScala, destinationTable.asScala)
+
+  implicit val format: JsonFormat[JobConfigurationQuery] = jsonFormat2(apply)
 }
 
 /**
@@ -15,6 +15,7 @@ package org.apache.pekko.stream.connectors.googlecloud.bigquery.scaladsl
 
 import org.apache.pekko
 import pekko.NotUsed
+import pekko.annotation.InternalApi
 import pekko.dispatch.ExecutionContexts
 import pekko.http.scaladsl.marshallers.sprayjson.SprayJsonSupport
 import pekko.http.scaladsl.marshalling.Marshal
@@ -66,6 +67,20 @@ private[scaladsl] trait BigQueryQueries { this: BigQueryRest =>
   def query[Out](query: QueryRequest)(
       implicit um: FromEntityUnmarshaller[QueryResponse[Out]])
       : Source[Out, (Future[JobReference], Future[QueryResponse[Out]])] =
+    queryPages(query)
+      .wireTapMat(Sink.head)(Keep.both)
+      .mapConcat(_.rows.fold[List[Out]](Nil)(_.toList))
+
+  /**
+   * INTERNAL API
+   *
+   * Runs a BigQuery SQL query and emits the [[pekko.stream.connectors.googlecloud.bigquery.model.QueryResponse]] pages
+   * once the job is complete. The first emitted page is the first complete response, which carries the schema and the
+   * total number of rows of the result.
+   */
+  @InternalApi
+  private[bigquery] def queryPages[Out](query: QueryRequest)(
+      implicit um: FromEntityUnmarshaller[QueryResponse[Out]]): Source[QueryResponse[Out], Future[JobReference]] =
     Source
       .fromMaterializer { (mat, attr) =>
         import BigQueryException._
@@ -121,8 +136,6 @@ private[scaladsl] trait BigQueryQueries { this: BigQueryRest =>
 
       }
       .mapMaterializedValue(_.flatten)
-      .wireTapMat(Sink.head)(Keep.both)
-      .mapConcat(_.rows.fold[List[Out]](Nil)(_.toList))
 
   /**
    * The results of a query job.
@@ -20,7 +20,7 @@ import pekko.http.scaladsl.marshallers.sprayjson.SprayJsonSupport._
 import pekko.stream.connectors.google.auth.NoCredentials
 import pekko.stream.connectors.google.{ GoogleAttributes, GoogleSettings }
 import pekko.stream.connectors.googlecloud.bigquery.model.JobReference
-import pekko.stream.connectors.googlecloud.bigquery.model.QueryResponse
+import pekko.stream.connectors.googlecloud.bigquery.model.{ QueryRequest, QueryResponse }
 import pekko.stream.connectors.googlecloud.bigquery.{ BigQueryEndpoints, HoverflySupport }
 import pekko.stream.scaladsl.Sink
 import pekko.testkit.TestKit
@@ -186,6 +186,34 @@ class BigQueryQueriesSpec
 
     }
 
+    "get query result pages" when {
+      import DefaultJsonProtocol._
+
+      "completes on 2nd attempt and has two pages" in {
+
+        hoverfly.reset()
+        hoverfly.simulate(
+          dsl(
+            service(BigQueryEndpoints.queries(settings.projectId).authority.host.address())
+              .post(BigQueryEndpoints.queries(settings.projectId).path.toString)
+              .queryParam("prettyPrint", "false")
+              .anyBody()
+              .willReturn(success(incompleteQuery.toJson.toString(), "application/json"))
+              .get(BigQueryEndpoints.query(settings.projectId, jobId).path.toString)
+              .queryParam("prettyPrint", "false")
+              .willReturn(success(completeQueryWith2ndPage.toJson.toString, "application/json"))
+              .get(BigQueryEndpoints.query(settings.projectId, jobId).path.toString)
+              .queryParam("pageToken", pageToken)
+              .queryParam("prettyPrint", "false")
+              .willReturn(success(query2ndPage.toJson.toString, "application/json"))))
+
+        queryPages[JsValue](QueryRequest("SQL", None, None, None, None, None, None))
+          .addAttributes(GoogleAttributes.settings(settings))
+          .runWith(Sink.seq[QueryResponse[JsValue]])
+          .map(_ shouldEqual Seq(completeQueryWith2ndPage, query2ndPage))
+      }
+    }
+
     "fail" when {
 
       "parser is broken" in {
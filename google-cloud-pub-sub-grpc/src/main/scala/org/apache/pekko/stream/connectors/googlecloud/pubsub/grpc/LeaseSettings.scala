@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc
+
+import org.apache.pekko
+import pekko.actor.ClassicActorSystemProvider
+import pekko.util.JavaDurationConverters._
+import com.typesafe.config.Config
+
+import scala.concurrent.duration.FiniteDuration
+
+/**
+ * Settings for the lease management of messages received from a subscription.
+ *
+ * Leases of outstanding messages are extended in batched ModifyAckDeadline calls until the messages are acknowledged,
+ * nacked or have been outstanding for `maxLeaseDuration`. Acknowledgements are coalesced into batched Acknowledge
+ * calls of up to `maxAckBatchSize` ack ids, sent at least every `ackFlushInterval`. No more messages are pulled while
+ * `maxOutstandingMessages` messages or `maxOutstandingBytes` bytes are outstanding.
+ */
+final class LeaseSettings private (
+    val ackDeadline: FiniteDuration,
+    val extensionMargin: FiniteDuration,
+    val maxLeaseDuration: FiniteDuration,
+    val maxAckBatchSize: Int,
+    val ackFlushInterval: FiniteDuration,
+    val maxOutstandingMessages: Long,
+    val maxOutstandingBytes: Long) {
+
+  require(ackDeadline.toSeconds >= 10 && ackDeadline.toSeconds <= 600,
+    "ackDeadline must be between 10 seconds and 10 minutes")
+  require(extensionMargin < ackDeadline, "extensionMargin must be shorter than ackDeadline")
+  require(maxAckBatchSize > 0, "maxAckBatchSize must be positive")
+  require(maxOutstandingMessages > 0, "maxOutstandingMessages must be positive")
+  require(maxOutstandingBytes > 0, "maxOutstandingBytes must be positive")
+
+  /**
+   * Ack deadline requested when opening the streaming pull and with every lease extension.
+   */
+  def withAckDeadline(ackDeadline: FiniteDuration): LeaseSettings = copy(ackDeadline = ackDeadline)
+
+  /**
+   * Java API: Ack deadline requested when opening the streaming pull and with every lease extension.
+   */
+  def withAckDeadline(ackDeadline: java.time.Duration): LeaseSettings = copy(ackDeadline = ackDeadline.asScala)
+
+  /**
+   * Leases of outstanding messages are extended this long before they expire.
+   */
+  def withExtensionMargin(extensionMargin: FiniteDuration): LeaseSettings = copy(extensionMargin = extensionMargin)
+
+  /**
+   * Java API: Leases of outstanding messages are extended this long before they expire.
+   */
+  def withExtensionMargin(extensionMargin: java.time.Duration): LeaseSettings =
+    copy(extensionMargin = extensionMargin.asScala)
+
+  /**
+   * Leases are no longer extended once a message has been outstanding for this long.
+   */
+  def withMaxLeaseDuration(maxLeaseDuration: FiniteDuration): LeaseSettings =
+    copy(maxLeaseDuration = maxLeaseDuration)
+
+  /**
+   * Java API: Leases are no longer extended once a message has been outstanding for this long.
+   */
+  def withMaxLeaseDuration(maxLeaseDuration: java.time.Duration): LeaseSettings =
+    copy(maxLeaseDuration = maxLeaseDuration.asScala)
+
+  /**
+   * Maximum number of ack ids sent in a single Acknowledge or ModifyAckDeadline request.
+   */
+  def withMaxAckBatchSize(maxAckBatchSize: Int): LeaseSettings = copy(maxAckBatchSize = maxAckBatchSize)
+
+  /**
+   * Acknowledgements are sent at least this often.
+   */
+  def withAckFlushInterval(ackFlushInterval: FiniteDuration): LeaseSettings =
+    copy(ackFlushInterval = ackFlushInterval)
+
+  /**
+   * Java API: Acknowledgements are sent at least this often.
+   */
+  def withAckFlushInterval(ackFlushInterval: java.time.Duration): LeaseSettings =
+    copy(ackFlushInterval = ackFlushInterval.asScala)
+
+  /**
+   * No more messages are pulled while this many messages are outstanding, across all parallel streams.
+   */
+  def withMaxOutstandingMessages(maxOutstandingMessages: Long): LeaseSettings =
+    copy(maxOutstandingMessages = maxOutstandingMessages)
+
+  /**
+   * No more messages are pulled while outstanding messages add up to this many bytes, across all parallel streams.
+   */
+  def withMaxOutstandingBytes(maxOutstandingBytes: Long): LeaseSettings =
+    copy(maxOutstandingBytes = maxOutstandingBytes)
+
+  /**
+   * Interval at which the leases of outstanding messages are extended.
+   */
+  def extensionInterval: FiniteDuration = ackDeadline - extensionMargin
+
+  private def copy(ackDeadline: FiniteDuration = ackDeadline,
+      extensionMargin: FiniteDuration = extensionMargin,
+      maxLeaseDuration: FiniteDuration = maxLeaseDuration,
+      maxAckBatchSize: Int = maxAckBatchSize,
+      ackFlushInterval: FiniteDuration = ackFlushInterval,
+      maxOutstandingMessages: Long = maxOutstandingMessages,
+      maxOutstandingBytes: Long = maxOutstandingBytes) =
+    new LeaseSettings(ackDeadline,
+      extensionMargin,
+      maxLeaseDuration,
+      maxAckBatchSize,
+      ackFlushInterval,
+      maxOutstandingMessages,
+      maxOutstandingBytes)
+
+  override def toString: String =
+    "LeaseSettings(" +
+    s"ackDeadline=$ackDeadline," +
+    s"extensionMargin=$extensionMargin," +
+    s"maxLeaseDuration=$maxLeaseDuration," +
+    s"maxAckBatchSize=$maxAckBatchSize," +
+    s"ackFlushInterval=$ackFlushInterval," +
+    s"maxOutstandingMessages=$maxOutstandingMessages," +
+    s"maxOutstandingBytes=$maxOutstandingBytes" +
+    ")"
+}
+
+object LeaseSettings {
+
+  val ConfigPath = "pekko.connectors.google.cloud.pubsub.grpc.lease"
+
+  /**
+   * Create settings from config instance.
+   */
+  def apply(config: Config): LeaseSettings =
+    new LeaseSettings(
+      config.getDuration("ack-deadline").asScala,
+      config.getDuration("extension-margin").asScala,
+      config.getDuration("max-lease-duration").asScala,
+      config.getInt("max-ack-batch-size"),
+      config.getDuration("ack-flush-interval").asScala,
+      config.getLong("max-outstanding-messages"),
+      config.getBytes("max-outstanding-bytes"))
+
+  /**
+   * Create settings from the new actor API's ActorSystem config.
+   */
+  def apply(system: ClassicActorSystemProvider): LeaseSettings =
+    LeaseSettings(system.classicSystem.settings.config.getConfig(ConfigPath))
+
+  /**
+   * Java API
+   *
+   * Create settings from config instance.
+   */
+  def create(config: Config): LeaseSettings = LeaseSettings(config)
+
+  /**
+   * Java API
+   *
+   * Create settings from ActorSystem's config.
+   */
+  def create(system: ClassicActorSystemProvider): LeaseSettings = LeaseSettings(system)
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc
+
+import org.apache.pekko
+import pekko.Done
+import pekko.stream.connectors.googlecloud.pubsub.grpc.impl.LeaseManager
+
+import java.util.concurrent.CompletionStage
+import scala.compat.java8.FutureConverters._
+import scala.concurrent.Future
+
+/**
+ * A received message whose lease is extended until it is acknowledged, nacked or has been outstanding for
+ * [[LeaseSettings.maxLeaseDuration]].
+ *
+ * @tparam T the received message type of the Scala or Java API
+ */
+final class LeasedMessage[T] private[grpc] (val message: T, val ackId: String, leases: LeaseManager) {
+
+  /**
+   * Java API
+   */
+  def getMessage: T = message
+
+  /**
+   * Java API
+   */
+  def getAckId: String = ackId
+
+  /**
+   * Stops extending the lease of the message and acknowledges it with the next batch of acknowledgements.
+   *
+   * @return completes when the batch has been sent, fails if it could not be sent or if too many replies are pending
+   */
+  def ack(): Future[Done] = leases.ack(ackId)
+
+  /**
+   * Stops extending the lease of the message and makes it available for redelivery with the next batch.
+   *
+   * @return completes when the batch has been sent, fails if it could not be sent or if too many replies are pending
+   */
+  def nack(): Future[Done] = leases.nack(ackId)
+
+  /**
+   * Java API: Stops extending the lease of the message and acknowledges it with the next batch of acknowledgements.
+   *
+   * @return completes when the batch has been sent, fails if it could not be sent or if too many replies are pending
+   */
+  def ackAsync(): CompletionStage[Done] = ack().toJava
+
+  /**
+   * Java API: Stops extending the lease of the message and makes it available for redelivery with the next batch.
+   *
+   * @return completes when the batch has been sent, fails if it could not be sent or if too many replies are pending
+   */
+  def nackAsync(): CompletionStage[Done] = nack().toJava
+
+  override def toString: String = s"LeasedMessage(ackId=$ackId,message=$message)"
+}
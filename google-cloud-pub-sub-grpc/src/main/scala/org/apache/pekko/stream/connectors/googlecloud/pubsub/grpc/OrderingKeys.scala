@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc
+
+import java.util.concurrent.ConcurrentHashMap
+import scala.collection.JavaConverters._
+
+/**
+ * Ordering keys paused by an ordered publisher after a failed publish.
+ *
+ * Messages with a paused ordering key are not published but emitted as failed, so that no message is published out
+ * of order. Publishing for the key continues after it is resumed.
+ */
+final class OrderingKeys private[grpc] () {
+
+  private val paused = ConcurrentHashMap.newKeySet[String]()
+
+  /**
+   * Continue publishing messages with the given ordering key.
+   */
+  def resume(orderingKey: String): Unit = paused.remove(orderingKey)
+
+  def isPaused(orderingKey: String): Boolean = paused.contains(orderingKey)
+
+  /**
+   * Scala API: the currently paused ordering keys
+   */
+  def pausedKeys: Set[String] = paused.asScala.toSet
+
+  /**
+   * Java API: the currently paused ordering keys
+   */
+  def getPausedKeys: java.util.Set[String] = java.util.Collections.unmodifiableSet(new java.util.HashSet(paused))
+
+  private[grpc] def pause(orderingKey: String): Unit = paused.add(orderingKey)
+
+  override def toString: String = s"OrderingKeys(paused=${paused.asScala.mkString(",")})"
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc
+
+import java.util.Optional
+import scala.compat.java8.OptionConverters._
+
+/**
+ * The outcome of publishing a single message: the message id assigned by Pub/Sub, or the failure.
+ *
+ * @tparam T the message type of the Scala or Java API
+ */
+final class PublishResult[T] private[grpc] (val message: T,
+    val messageId: Option[String],
+    val failure: Option[Throwable]) {
+
+  /**
+   * Java API
+   */
+  def getMessage: T = message
+
+  /**
+   * Java API
+   */
+  def getMessageId: Optional[String] = messageId.asJava
+
+  /**
+   * Java API
+   */
+  def getFailure: Optional[Throwable] = failure.asJava
+
+  def isSuccess: Boolean = messageId.isDefined
+
+  override def toString: String =
+    s"PublishResult(message=$message,messageId=$messageId,failure=$failure)"
+}
+
+object PublishResult {
+
+  private[grpc] def success[T](message: T, messageId: String): PublishResult[T] =
+    new PublishResult(message, Some(messageId), None)
+
+  private[grpc] def failure[T](message: T, failure: Throwable): PublishResult[T] =
+    new PublishResult(message, None, Some(failure))
+}
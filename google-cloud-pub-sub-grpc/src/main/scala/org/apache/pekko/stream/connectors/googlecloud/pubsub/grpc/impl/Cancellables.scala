@@ -0,0 +1,29 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc.impl
+
+import org.apache.pekko
+import pekko.actor.Cancellable
+import pekko.annotation.InternalApi
+
+import scala.collection.immutable
+
+/**
+ * Cancels the request ticks of all parallel streaming pulls at once.
+ */
+@InternalApi
+private[grpc] object Cancellables {
+
+  def all(cancellables: immutable.Seq[Cancellable]): Cancellable = new Cancellable {
+    override def cancel(): Boolean = cancellables.foldLeft(false)((cancelled, c) => c.cancel() || cancelled)
+    override def isCancelled: Boolean = cancellables.forall(_.isCancelled)
+  }
+
+}
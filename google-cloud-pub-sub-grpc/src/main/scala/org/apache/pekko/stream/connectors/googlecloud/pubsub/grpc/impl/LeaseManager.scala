@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc.impl
+
+import org.apache.pekko
+import pekko.{ Done, NotUsed }
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts
+import pekko.event.Logging
+import pekko.stream.{ BoundedSourceQueue, KillSwitches, Materializer, QueueOfferResult }
+import pekko.stream.connectors.googlecloud.pubsub.grpc.LeaseSettings
+import pekko.stream.scaladsl.{ Sink, Source }
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import scala.collection.JavaConverters._
+import scala.collection.immutable
+import scala.concurrent.{ Future, Promise }
+import scala.util.control.NonFatal
+
+/**
+ * Tracks the messages received from a subscription until they are acknowledged or nacked.
+ *
+ * The leases of outstanding messages are extended in batched ModifyAckDeadline calls every
+ * [[LeaseSettings.extensionInterval]], and acknowledgements and nacks are coalesced into batched calls.
+ * The background streams doing so run until [[shutdown]] is called, which flushes the pending replies. Replies are
+ * sent even after the lease of a message has ended, as the message may not have been redelivered yet.
+ *
+ * The number and size of outstanding messages are bounded by [[LeaseSettings.maxOutstandingMessages]] and
+ * [[LeaseSettings.maxOutstandingBytes]] across all streams sharing this lease manager, see [[awaitCapacity]].
+ */
+@InternalApi
+private[grpc] final class LeaseManager(
+    settings: LeaseSettings,
+    acknowledge: immutable.Seq[String] => Future[Done],
+    modifyAckDeadline: (immutable.Seq[String], Int) => Future[Done])(implicit mat: Materializer) {
+  import LeaseManager._
+
+  private val log = Logging(mat.system, classOf[LeaseManager])
+
+  private val outstanding = new ConcurrentHashMap[String, Lease]()
+  private val outstandingBytes = new AtomicLong()
+
+  // guarded by `this`
+  private var waiting = List.empty[Waiting]
+
+  private val killSwitch = KillSwitches.shared("lease-extension")
+
+  private val replies: BoundedSourceQueue[Reply] =
+    Source
+      .queue[Reply](settings.maxAckBatchSize * ReplyBatchesBuffered)
+      .groupedWithin(settings.maxAckBatchSize, settings.ackFlushInterval)
+      .mapAsync(1) { batch =>
+        val (acks, nacks) = batch.partition(_.ack)
+        val acknowledged = send(acks)(acknowledge, "acknowledge")
+        val nacked = send(nacks)(modifyAckDeadline(_, 0), "nack")
+        acknowledged.flatMap(_ => nacked)(ExecutionContexts.parasitic)
+      }
+      .to(Sink.ignore)
+      .run()
+
+  Source
+    .tick(settings.extensionInterval, settings.extensionInterval, NotUsed)
+    .via(killSwitch.flow)
+    .mapConcat(_ => leasesToExtend().grouped(settings.maxAckBatchSize).toList)
+    .mapAsync(1) { ackIds =>
+      recoverWithLog(modifyAckDeadline(ackIds, settings.ackDeadline.toSeconds.toInt), "extend the lease of", ackIds.size)
+    }
+    .runWith(Sink.ignore)
+
+  /**
+   * Starts extending the lease of a received message.
+   */
+  def track(ackId: String, bytes: Long): Unit =
+    if (outstanding.put(ackId, Lease(System.nanoTime(), bytes)) == null) outstandingBytes.addAndGet(bytes)
+
+  /**
+   * Completes once the outstanding messages, not counting the given number of most recently tracked messages and
+   * bytes, are within the flow control limits. Streams wait for this before pulling more messages.
+   */
+  def awaitCapacity(messages: Int, bytes: Long): Future[Done] = {
+    val waiter = Waiting(messages, bytes, Promise[Done]())
+    val hasCapacity = synchronized {
+      if (admits(waiter)) true
+      else {
+        waiting ::= waiter
+        false
+      }
+    }
+    if (hasCapacity) Future.successful(Done) else waiter.promise.future
+  }
+
+  /**
+   * Stops extending the lease of a message and acknowledges it with the next batch, see [[reply]].
+   */
+  def ack(ackId: String): Future[Done] = reply(ackId, ack = true)
+
+  /**
+   * Stops extending the lease of a message and makes it available for redelivery with the next batch, see [[reply]].
+   */
+  def nack(ackId: String): Future[Done] = reply(ackId, ack = false)
+
+  /**
+   * Stops extending leases and sends the pending acknowledgements and nacks.
+   */
+  def shutdown(): Unit = {
+    killSwitch.shutdown()
+    replies.complete()
+    val released = synchronized {
+      val w = waiting
+      waiting = Nil
+      w
+    }
+    released.foreach(_.promise.trySuccess(Done))
+  }
+
+  /**
+   * Queues the reply for the next batch, also when the lease of the message has already ended after
+   * [[LeaseSettings.maxLeaseDuration]]. The returned future completes when the batch has been sent, so waiting for it
+   * backpressures the replies. It fails if the batch could not be sent, or without sending the reply when more than
+   * `ReplyBatchesBuffered` batches are pending or the lease manager has been shut down. The lease is extended
+   * further when the reply was not queued.
+   */
+  private def reply(ackId: String, ack: Boolean): Future[Done] = {
+    val reply = Reply(ackId, ack, Promise[Done]())
+    replies.offer(reply) match {
+      case QueueOfferResult.Enqueued =>
+        release(ackId)
+        reply.promise.future
+      case QueueOfferResult.Dropped =>
+        Future.failed(
+          new IllegalStateException(
+            s"Too many pending acknowledgements and nacks, could not reply to message with ack id [$ackId]. " +
+            "Wait for the replies to complete before sending more."))
+      case QueueOfferResult.QueueClosed =>
+        Future.failed(
+          new IllegalStateException(s"The subscription was stopped, could not reply to message with ack id [$ackId]"))
+      case QueueOfferResult.Failure(cause) =>
+        Future.failed(cause)
+    }
+  }
+
+  private def release(ackId: String): Unit = {
+    val lease = outstanding.remove(ackId)
+    if (lease != null) {
+      outstandingBytes.addAndGet(-lease.bytes)
+      admitWaiting()
+    }
+  }
+
+  private def admitWaiting(): Unit = {
+    val admitted = synchronized {
+      if (waiting.isEmpty) Nil
+      else {
+        val (admitted, stillWaiting) = waiting.partition(admits)
+        waiting = stillWaiting
+        admitted
+      }
+    }
+    admitted.foreach(_.promise.trySuccess(Done))
+  }
+
+  private def admits(waiter: Waiting): Boolean =
+    outstanding.size - waiter.messages < settings.maxOutstandingMessages &&
+    outstandingBytes.get - waiter.bytes < settings.maxOutstandingBytes
+
+  private def leasesToExtend(): immutable.Seq[String] = {
+    val now = System.nanoTime()
+    val maxLeaseNanos = settings.maxLeaseDuration.toNanos
+    val ackIds = List.newBuilder[String]
+    outstanding.entrySet().iterator().asScala.foreach { entry =>
+      if (now - entry.getValue.receivedNanos > maxLeaseNanos) release(entry.getKey)
+      else ackIds += entry.getKey
+    }
+    ackIds.result()
+  }
+
+  private def send(replies: immutable.Seq[Reply])(
+      request: immutable.Seq[String] => Future[Done],
+      action: String): Future[Done] =
+    if (replies.isEmpty) Future.successful(Done)
+    else {
+      val sent = request(replies.map(_.ackId))
+      replies.foreach(_.promise.completeWith(sent))
+      recoverWithLog(sent, action, replies.size)
+    }
+
+  private def recoverWithLog(future: Future[Done], action: String, count: Int): Future[Done] =
+    future.recover {
+      case NonFatal(ex) =>
+        log.warning("Failed to {} {} messages: {}", action, count, ex.getMessage)
+        Done
+    }(ExecutionContexts.parasitic)
+
+}
+
+@InternalApi
+private[grpc] object LeaseManager {
+
+  private val ReplyBatchesBuffered = 4
+
+  private final case class Reply(ackId: String, ack: Boolean, promise: Promise[Done])
+
+  private final case class Lease(receivedNanos: Long, bytes: Long)
+
+  private final case class Waiting(messages: Int, bytes: Long, promise: Promise[Done])
+
+}
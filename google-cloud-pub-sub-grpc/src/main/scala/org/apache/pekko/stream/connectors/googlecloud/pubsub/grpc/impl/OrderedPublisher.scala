@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc.impl
+
+import org.apache.pekko
+import pekko.Done
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts
+import pekko.stream.connectors.googlecloud.pubsub.grpc.{ OrderingKeys, PublishResult }
+
+import java.util.concurrent.ConcurrentHashMap
+import scala.collection.immutable
+import scala.concurrent.Future
+import scala.util.control.NonFatal
+
+/**
+ * Publishes batches of messages so that at most one batch per ordering key is in flight.
+ *
+ * Every batch is sent in a single request for all its ordering keys, once the previous batches sharing one of its
+ * ordering keys completed. When a publish fails, the ordering keys of the batch are paused and the messages with those
+ * keys are failed without being sent until the keys are resumed. Messages without ordering key are never held back
+ * by a paused key.
+ */
+@InternalApi
+private[grpc] final class OrderedPublisher[T](
+    orderingKey: T => String,
+    publish: immutable.Seq[T] => Future[immutable.Seq[String]]) {
+
+  val orderingKeys = new OrderingKeys()
+
+  // ordering key -> completion of the last batch sent with that key
+  private val inFlight = new ConcurrentHashMap[String, Future[Done]]()
+
+  /**
+   * Publishes a batch of messages after the previous batches sharing an ordering key with it completed.
+   */
+  def apply(batch: immutable.Seq[T]): Future[immutable.Seq[PublishResult[T]]] = {
+    val keys = batch.map(orderingKey).filter(_.nonEmpty).distinct
+    val previous = keys.flatMap(key => Option(inFlight.get(key))).foldLeft(Future.successful(Done: Done)) {
+      (all, previousBatch) => all.flatMap(_ => previousBatch)(ExecutionContexts.parasitic)
+    }
+    val results = previous.flatMap(_ => send(batch))(ExecutionContexts.parasitic)
+    if (keys.nonEmpty) {
+      val completed = results.map(_ => Done: Done)(ExecutionContexts.parasitic)
+      keys.foreach(inFlight.put(_, completed))
+      completed.foreach(_ => keys.foreach(inFlight.remove(_, completed)))(ExecutionContexts.parasitic)
+    }
+    results
+  }
+
+  private def send(batch: immutable.Seq[T]): Future[immutable.Seq[PublishResult[T]]] = {
+    val held = batch.map(message => orderingKeys.isPaused(orderingKey(message)))
+    val toSend = batch.zip(held).collect { case (message, false) => message }
+    if (toSend.isEmpty) Future.successful(batch.map(failPaused))
+    else
+      publish(toSend)
+        .map { messageIds =>
+          val ids = messageIds.iterator
+          batch.zip(held).map {
+            case (message, true)  => failPaused(message)
+            case (message, false) => PublishResult.success(message, ids.next())
+          }
+        }(ExecutionContexts.parasitic)
+        .recover {
+          case NonFatal(ex) =>
+            toSend.map(orderingKey).filter(_.nonEmpty).foreach(orderingKeys.pause)
+            batch.zip(held).map {
+              case (message, true)  => failPaused(message)
+              case (message, false) => PublishResult.failure(message, ex)
+            }
+        }(ExecutionContexts.parasitic)
+  }
+
+  private def failPaused(message: T): PublishResult[T] = {
+    val key = orderingKey(message)
+    PublishResult.failure(
+      message,
+      new IllegalStateException(
+        s"Publishing with ordering key [$key] is paused after a failed publish, resume the key to continue"))
+  }
+
+}
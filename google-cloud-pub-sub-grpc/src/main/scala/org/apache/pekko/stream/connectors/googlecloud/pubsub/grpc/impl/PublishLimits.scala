@@ -0,0 +1,30 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc.impl
+
+import org.apache.pekko.annotation.InternalApi
+
+/**
+ * The limits Pub/Sub puts on a single publish request.
+ */
+@InternalApi
+private[grpc] object PublishLimits {
+
+  /**
+   * Maximum number of messages Pub/Sub accepts in a single publish request.
+   */
+  val MaxMessages: Int = 1000
+
+  /**
+   * Maximum size of a publish request Pub/Sub accepts.
+   */
+  val MaxBytes: Long = 10L * 1000 * 1000
+
+}
@@ -0,0 +1,28 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc.impl
+
+import org.apache.pekko.annotation.InternalApi
+import com.google.pubsub.v1.pubsub.PubsubMessage
+
+/**
+ * The number of bytes a message adds to a serialized publish request.
+ */
+@InternalApi
+private[grpc] object PublishMessageSize {
+
+  // field tag and length prefix of a message within the serialized publish request
+  private val MessageOverhead = 6
+
+  def apply(message: PubsubMessage): Long = message.serializedSize + MessageOverhead
+
+  def apply(message: com.google.pubsub.v1.PubsubMessage): Long = message.getSerializedSize + MessageOverhead
+
+}
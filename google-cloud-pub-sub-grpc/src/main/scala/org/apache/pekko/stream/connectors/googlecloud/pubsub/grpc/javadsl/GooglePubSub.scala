@@ -17,11 +17,24 @@ import java.time.Duration
 import java.util.concurrent.{ CompletableFuture, CompletionStage }
 import org.apache.pekko
 import pekko.actor.Cancellable
+import pekko.dispatch.ExecutionContexts
+import pekko.stream.connectors.googlecloud.pubsub.grpc.{ LeaseSettings, LeasedMessage, OrderingKeys, PublishResult }
+import pekko.stream.connectors.google.util.PublishBatching
+import pekko.stream.connectors.googlecloud.pubsub.grpc.impl.{
+  Cancellables,
+  LeaseManager,
+  OrderedPublisher,
+  PublishMessageSize
+}
 import pekko.stream.{ Attributes, Materializer }
 import pekko.stream.javadsl.{ Flow, Keep, Sink, Source }
+import pekko.util.JavaDurationConverters._
 import pekko.{ Done, NotUsed }
 import com.google.pubsub.v1._
 
+import scala.collection.JavaConverters._
+import scala.compat.java8.FutureConverters._
+
 /**
  * Google Pub/Sub Akka Stream operator factory.
  */
@@ -42,6 +55,76 @@ object GooglePubSub {
       }
       .mapMaterializedValue(_ => NotUsed)
 
+  /**
+   * Create a flow to publish single messages to a Google Cloud Pub/Sub topic. The flow emits the message id of each
+   * message, in the order the messages were received.
+   *
+   * Messages are batched into publish requests. A batch is sent as soon as it holds `maxMessages` messages, when
+   * adding the next message would make the request larger than `maxBytes`, or `maxDelay` after its first message
+   * arrived, whichever comes first.
+   *
+   * @param topic       the topic FQRS, e.g. `projects/my-project/topics/my-topic`
+   * @param maxMessages maximum number of messages per publish request, Pub/Sub accepts at most 1000
+   * @param maxBytes    maximum size in bytes of a publish request, Pub/Sub accepts at most 10 MB
+   * @param maxDelay    maximum time a message waits for its batch to fill up
+   * @param parallelism controls how many publish requests can be in-flight at any given time
+   */
+  def publishMessages(topic: String,
+      maxMessages: Int,
+      maxBytes: Long,
+      maxDelay: Duration,
+      parallelism: Int): Flow[PubsubMessage, String, NotUsed] =
+    Flow
+      .fromMaterializer { (mat, attr) =>
+        val client = publisher(mat, attr).client
+        PublishBatching[PubsubMessage](maxMessages, maxBytes, maxDelay.asScala)(PublishMessageSize(_))
+          .map(batch => PublishRequest.newBuilder().setTopic(topic).addAllMessages(batch.asJava).build())
+          .asJava
+          .mapAsync(parallelism, client.publish(_))
+          .mapConcat(_.getMessageIdsList)
+      }
+      .mapMaterializedValue(_ => NotUsed)
+
+  /**
+   * Create a flow to publish single messages with ordering keys to a Google Cloud Pub/Sub topic. The flow emits a
+   * [[PublishResult]] for every message, in the order of the messages per ordering key.
+   *
+   * Messages are batched as by `publishMessages` and every batch is published in one request for all its ordering
+   * keys. Batches are published concurrently, up to `parallelism` requests in flight, while at most one batch per
+   * ordering key is in flight at any time. When publishing a batch fails, its ordering keys are paused: the following
+   * messages with those keys are emitted as failed without being published until the keys are resumed through the
+   * materialized [[OrderingKeys]]. Messages without an ordering key are never paused.
+   *
+   * Message ordering needs to be enabled on the subscription, and the publisher should connect to a regional endpoint.
+   *
+   * @param topic       the topic FQRS, e.g. `projects/my-project/topics/my-topic`
+   * @param parallelism controls how many publish requests can be in-flight at any given time
+   * @param maxMessages maximum number of messages per publish request, Pub/Sub accepts at most 1000
+   * @param maxBytes    maximum size in bytes of a publish request, Pub/Sub accepts at most 10 MB
+   * @param maxDelay    maximum time a message waits for its batch to fill up
+   */
+  def publishOrdered(topic: String,
+      parallelism: Int,
+      maxMessages: Int,
+      maxBytes: Long,
+      maxDelay: Duration): Flow[PubsubMessage, PublishResult[PubsubMessage], CompletionStage[OrderingKeys]] =
+    Flow
+      .fromMaterializer { (mat, attr) =>
+        val client = publisher(mat, attr).client
+        val ordered = new OrderedPublisher[PubsubMessage](
+          _.getOrderingKey,
+          batch =>
+            client
+              .publish(PublishRequest.newBuilder().setTopic(topic).addAllMessages(batch.asJava).build())
+              .toScala
+              .map(_.getMessageIdsList.asScala.toList)(ExecutionContexts.parasitic))
+        PublishBatching[PubsubMessage](maxMessages, maxBytes, maxDelay.asScala)(PublishMessageSize(_))
+          .mapAsyncUnordered(parallelism)(ordered(_))
+          .mapConcat(identity)
+          .mapMaterializedValue(_ => ordered.orderingKeys)
+          .asJava
+      }
+
   /**
    * Create a source that emits messages for a given subscription using a StreamingPullRequest.
    *
@@ -56,25 +139,109 @@ object GooglePubSub {
       .fromMaterializer { (mat, attr) =>
         val cancellable = new CompletableFuture[Cancellable]()
 
-        val subsequentRequest = request.toBuilder
-          .setSubscription("")
-          .setStreamAckDeadlineSeconds(0)
-          .build()
-
-        subscriber(mat, attr).client
-          .streamingPull(
-            Source
-              .single(request)
-              .concat(
-                Source
-                  .tick(Duration.ZERO, pollInterval, subsequentRequest)
-                  .mapMaterializedValue(cancellable.complete(_))))
+        streamingPull(subscriber(mat, attr).client, request, pollInterval, cancellable)
           .mapConcat(_.getReceivedMessagesList)
           .mapMaterializedValue(_ => cancellable)
       }
       .mapMaterializedValue(flattenCs(_))
       .mapMaterializedValue(_.toCompletableFuture)
 
+  /**
+   * Create a source that emits messages for a given subscription using a StreamingPullRequest and manages their
+   * leases.
+   *
+   * The leases of emitted messages are extended in batched ModifyAckDeadline calls shortly before they expire, until
+   * the messages are acknowledged or nacked through [[LeasedMessage]]. Acknowledgements are coalesced into batched
+   * AcknowledgeRequests which are flushed when they are full or after an interval, see [[LeaseSettings]].
+   *
+   * The materialized value can be used to cancel the source.
+   *
+   * @param request       the subscription FQRS field is mandatory for the request, the ack deadline is taken from `leaseSettings`
+   * @param pollInterval  time between StreamingPullRequest messages are being sent
+   * @param leaseSettings lease extension, acknowledgement batching and flow control settings
+   */
+  def subscribe(request: StreamingPullRequest,
+      pollInterval: Duration,
+      leaseSettings: LeaseSettings): Source[LeasedMessage[ReceivedMessage], CompletableFuture[Cancellable]] =
+    subscribe(request, pollInterval, leaseSettings, parallelStreams = 1)
+
+  /**
+   * Create a source that emits messages for a given subscription using `parallelStreams` StreamingPull streams and
+   * manages their leases.
+   *
+   * The messages of all streams are merged. No more messages are pulled from any of the streams while the outstanding
+   * messages exceed the limits of `leaseSettings`, which are also requested as server-side flow control, divided
+   * between the streams. Leases are managed as by the `subscribe` overload without `parallelStreams`.
+   *
+   * The materialized value can be used to cancel the source.
+   *
+   * @param request         the subscription FQRS field is mandatory for the request, the ack deadline is taken from `leaseSettings`
+   * @param pollInterval    time between StreamingPullRequest messages are being sent
+   * @param leaseSettings   lease extension, acknowledgement batching and flow control settings
+   * @param parallelStreams number of StreamingPull streams to open
+   */
+  def subscribe(request: StreamingPullRequest,
+      pollInterval: Duration,
+      leaseSettings: LeaseSettings,
+      parallelStreams: Int): Source[LeasedMessage[ReceivedMessage], CompletableFuture[Cancellable]] =
+    Source
+      .fromMaterializer { (mat, attr) =>
+        require(parallelStreams > 0, "parallelStreams must be positive")
+        val client = subscriber(mat, attr).client
+        val subscription = request.getSubscription
+        val leases = new LeaseManager(
+          leaseSettings,
+          ackIds =>
+            client
+              .acknowledge(
+                AcknowledgeRequest.newBuilder().setSubscription(subscription).addAllAckIds(ackIds.asJava).build())
+              .toScala
+              .map(_ => Done)(ExecutionContexts.parasitic),
+          (ackIds, ackDeadlineSeconds) =>
+            client
+              .modifyAckDeadline(
+                ModifyAckDeadlineRequest
+                  .newBuilder()
+                  .setSubscription(subscription)
+                  .addAllAckIds(ackIds.asJava)
+                  .setAckDeadlineSeconds(ackDeadlineSeconds)
+                  .build())
+              .toScala
+              .map(_ => Done)(ExecutionContexts.parasitic))(mat)
+
+        val streamRequest = request.toBuilder
+          .setStreamAckDeadlineSeconds(leaseSettings.ackDeadline.toSeconds.toInt)
+          .setMaxOutstandingMessages(math.max(1L, leaseSettings.maxOutstandingMessages / parallelStreams))
+          .setMaxOutstandingBytes(math.max(1L, leaseSettings.maxOutstandingBytes / parallelStreams))
+          .build()
+
+        val cancellables = Vector.fill(parallelStreams)(new CompletableFuture[Cancellable]())
+        val streams = cancellables.map { cancellable =>
+          streamingPull(client, streamRequest, pollInterval, cancellable).asScala
+            .mapAsync(1) { response =>
+              val messages = response.getReceivedMessagesList.asScala.toVector
+              messages.foreach(message => leases.track(message.getAckId, message.getSerializedSize))
+              leases
+                .awaitCapacity(messages.size, messages.map(_.getSerializedSize.toLong).sum)
+                .map(_ => messages)(ExecutionContexts.parasitic)
+            }
+            .mapConcat(_.map(message => new LeasedMessage(message, message.getAckId, leases)))
+        }
+
+        pekko.stream.scaladsl
+          .Source(streams)
+          .flatMapMerge(parallelStreams, identity)
+          .watchTermination() { (_, done) =>
+            done.onComplete(_ => leases.shutdown())(ExecutionContexts.parasitic)
+            CompletableFuture
+              .allOf(cancellables: _*)
+              .thenApply[Cancellable](_ => Cancellables.all(cancellables.map(_.join())))
+          }
+          .asJava
+      }
+      .mapMaterializedValue(flattenCs(_))
+      .mapMaterializedValue(_.toCompletableFuture)
+
   /**
    * Create a source that emits messages for a given subscription using a synchronous PullRequest.
    *
@@ -133,6 +300,27 @@ object GooglePubSub {
       }
       .mapMaterializedValue(flattenCs(_))
 
+  private def streamingPull(client: SubscriberClient,
+      request: StreamingPullRequest,
+      pollInterval: Duration,
+      cancellable: CompletableFuture[Cancellable]): Source[StreamingPullResponse, NotUsed] = {
+    val subsequentRequest = request.toBuilder
+      .setSubscription("")
+      .setStreamAckDeadlineSeconds(0)
+      .setMaxOutstandingMessages(0)
+      .setMaxOutstandingBytes(0)
+      .build()
+
+    client
+      .streamingPull(
+        Source
+          .single(request)
+          .concat(
+            Source
+              .tick(Duration.ZERO, pollInterval, subsequentRequest)
+              .mapMaterializedValue(cancellable.complete(_))))
+  }
+
   private def flattenCs[T](f: CompletionStage[_ <: CompletionStage[T]]): CompletionStage[T] =
     f.thenCompose((t: CompletionStage[T]) => t)
 
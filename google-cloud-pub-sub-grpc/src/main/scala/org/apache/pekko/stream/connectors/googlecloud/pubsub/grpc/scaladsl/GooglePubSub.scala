@@ -16,6 +16,15 @@ package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc.scaladsl
 import org.apache.pekko
 import pekko.actor.Cancellable
 import pekko.dispatch.ExecutionContexts
+import pekko.stream.connectors.googlecloud.pubsub.grpc.{ LeaseSettings, LeasedMessage, OrderingKeys, PublishResult }
+import pekko.stream.connectors.google.util.PublishBatching
+import pekko.stream.connectors.googlecloud.pubsub.grpc.impl.{
+  Cancellables,
+  LeaseManager,
+  OrderedPublisher,
+  PublishLimits,
+  PublishMessageSize
+}
 import pekko.stream.{ Attributes, Materializer }
 import pekko.stream.scaladsl.{ Flow, Keep, Sink, Source }
 import pekko.{ Done, NotUsed }
@@ -43,6 +52,71 @@ object GooglePubSub {
       }
       .mapMaterializedValue(_ => NotUsed)
 
+  /**
+   * Create a flow to publish single messages to a Google Cloud Pub/Sub topic. The flow emits the message id of each
+   * message, in the order the messages were received.
+   *
+   * Messages are batched into publish requests. A batch is sent as soon as it holds `maxMessages` messages, when
+   * adding the next message would make the request larger than `maxBytes`, or `maxDelay` after its first message
+   * arrived, whichever comes first.
+   *
+   * @param topic the topic FQRS, e.g. `projects/my-project/topics/my-topic`
+   * @param maxMessages maximum number of messages per publish request, Pub/Sub accepts at most 1000
+   * @param maxBytes maximum size in bytes of a publish request, Pub/Sub accepts at most 10 MB
+   * @param maxDelay maximum time a message waits for its batch to fill up
+   * @param parallelism controls how many publish requests can be in-flight at any given time
+   */
+  def publishMessages(topic: String,
+      maxMessages: Int = PublishLimits.MaxMessages,
+      maxBytes: Long = PublishLimits.MaxBytes,
+      maxDelay: FiniteDuration = 10.millis,
+      parallelism: Int = 1): Flow[PubsubMessage, String, NotUsed] =
+    Flow
+      .fromMaterializer { (mat, attr) =>
+        val client = publisher(mat, attr).client
+        Flow[PubsubMessage]
+          .via(PublishBatching[PubsubMessage](maxMessages, maxBytes, maxDelay)(PublishMessageSize(_)))
+          .mapAsync(parallelism)(batch => client.publish(PublishRequest(topic, batch)))
+          .mapConcat(_.messageIds.toVector)
+      }
+      .mapMaterializedValue(_ => NotUsed)
+
+  /**
+   * Create a flow to publish single messages with ordering keys to a Google Cloud Pub/Sub topic. The flow emits a
+   * [[PublishResult]] for every message, in the order of the messages per ordering key.
+   *
+   * Messages are batched as by [[publishMessages]] and every batch is published in one request for all its ordering
+   * keys. Batches are published concurrently, up to `parallelism` requests in flight, while at most one batch per
+   * ordering key is in flight at any time. When publishing a batch fails, its ordering keys are paused: the following
+   * messages with those keys are emitted as failed without being published until the keys are resumed through the
+   * materialized [[OrderingKeys]]. Messages without an ordering key are never paused.
+   *
+   * Message ordering needs to be enabled on the subscription, and the publisher should connect to a regional endpoint.
+   *
+   * @param topic       the topic FQRS, e.g. `projects/my-project/topics/my-topic`
+   * @param parallelism controls how many publish requests can be in-flight at any given time
+   * @param maxMessages maximum number of messages per publish request, Pub/Sub accepts at most 1000
+   * @param maxBytes    maximum size in bytes of a publish request, Pub/Sub accepts at most 10 MB
+   * @param maxDelay    maximum time a message waits for its batch to fill up
+   */
+  def publishOrdered(topic: String,
+      parallelism: Int,
+      maxMessages: Int = PublishLimits.MaxMessages,
+      maxBytes: Long = PublishLimits.MaxBytes,
+      maxDelay: FiniteDuration = 10.millis): Flow[PubsubMessage, PublishResult[PubsubMessage], Future[OrderingKeys]] =
+    Flow
+      .fromMaterializer { (mat, attr) =>
+        val client = publisher(mat, attr).client
+        val ordered = new OrderedPublisher[PubsubMessage](
+          _.orderingKey,
+          batch => client.publish(PublishRequest(topic, batch)).map(_.messageIds.toList)(ExecutionContexts.parasitic))
+        Flow[PubsubMessage]
+          .via(PublishBatching[PubsubMessage](maxMessages, maxBytes, maxDelay)(PublishMessageSize(_)))
+          .mapAsyncUnordered(parallelism)(ordered(_))
+          .mapConcat(identity)
+          .mapMaterializedValue(_ => ordered.orderingKeys)
+      }
+
   /**
    * Create a source that emits messages for a given subscription using a StreamingPullRequest.
    *
@@ -56,23 +130,84 @@ object GooglePubSub {
       pollInterval: FiniteDuration): Source[ReceivedMessage, Future[Cancellable]] =
     Source
       .fromMaterializer { (mat, attr) =>
-        val cancellable = Promise[Cancellable]()
+        streamingPull(subscriber(mat, attr).client, request, pollInterval)
+          .mapConcat(_.receivedMessages.toVector)
+      }
+      .mapMaterializedValue(_.flatMap(identity)(ExecutionContexts.parasitic))
+
+  /**
+   * Create a source that emits messages for a given subscription using a StreamingPullRequest and manages their
+   * leases.
+   *
+   * The leases of emitted messages are extended in batched ModifyAckDeadline calls shortly before they expire, until
+   * the messages are acknowledged or nacked through [[LeasedMessage]]. Acknowledgements are coalesced into batched
+   * AcknowledgeRequests which are flushed when they are full or after an interval, see [[LeaseSettings]].
+   *
+   * With `parallelStreams` greater than one, that many StreamingPull streams are opened and their messages merged.
+   * No more messages are pulled from any of the streams while the outstanding messages exceed the limits of
+   * `leaseSettings`, which are also requested as server-side flow control, divided between the streams.
+   *
+   * The materialized value can be used to cancel the source.
+   *
+   * @param request the subscription FQRS field is mandatory for the request, the ack deadline is taken from `leaseSettings`
+   * @param pollInterval time between StreamingPullRequest messages are being sent
+   * @param leaseSettings lease extension, acknowledgement batching and flow control settings
+   * @param parallelStreams number of StreamingPull streams to open
+   */
+  def subscribe(
+      request: StreamingPullRequest,
+      pollInterval: FiniteDuration,
+      leaseSettings: LeaseSettings,
+      parallelStreams: Int = 1): Source[LeasedMessage[ReceivedMessage], Future[Cancellable]] =
+    Source
+      .fromMaterializer { (mat, attr) =>
+        require(parallelStreams > 0, "parallelStreams must be positive")
+        val client = subscriber(mat, attr).client
+        val subscription = request.subscription
+        val leases = new LeaseManager(
+          leaseSettings,
+          ackIds =>
+            client
+              .acknowledge(AcknowledgeRequest(subscription = subscription, ackIds = ackIds))
+              .map(_ => Done)(ExecutionContexts.parasitic),
+          (ackIds, ackDeadlineSeconds) =>
+            client
+              .modifyAckDeadline(
+                ModifyAckDeadlineRequest(subscription = subscription,
+                  ackIds = ackIds,
+                  ackDeadlineSeconds = ackDeadlineSeconds))
+              .map(_ => Done)(ExecutionContexts.parasitic))(mat)
 
-        val subsequentRequest = request
-          .withSubscription("")
-          .withStreamAckDeadlineSeconds(0)
+        val streamRequest = request
+          .withStreamAckDeadlineSeconds(leaseSettings.ackDeadline.toSeconds.toInt)
+          .withMaxOutstandingMessages(math.max(1L, leaseSettings.maxOutstandingMessages / parallelStreams))
+          .withMaxOutstandingBytes(math.max(1L, leaseSettings.maxOutstandingBytes / parallelStreams))
 
-        subscriber(mat, attr).client
-          .streamingPull(
-            Source
-              .single(request)
-              .concat(
-                Source
-                  .tick(0.seconds, pollInterval, ())
-                  .map(_ => subsequentRequest)
-                  .mapMaterializedValue(cancellable.success)))
-          .mapConcat(_.receivedMessages.toVector)
-          .mapMaterializedValue(_ => cancellable.future)
+        val cancellables = Vector.fill(parallelStreams)(Promise[Cancellable]())
+        val streams = cancellables.map { cancellable =>
+          streamingPull(client, streamRequest, pollInterval)
+            .mapAsync(1) { response =>
+              val messages = response.receivedMessages.toVector
+              messages.foreach(message => leases.track(message.ackId, message.serializedSize))
+              leases
+                .awaitCapacity(messages.size, messages.map(_.serializedSize.toLong).sum)
+                .map(_ => messages)(ExecutionContexts.parasitic)
+            }
+            .mapConcat(_.map(message => new LeasedMessage(message, message.ackId, leases)))
+            .mapMaterializedValue { c =>
+              cancellable.completeWith(c)
+              NotUsed
+            }
+        }
+
+        Source(streams)
+          .flatMapMerge(parallelStreams, identity)
+          .watchTermination() { (_, done) =>
+            done.onComplete(_ => leases.shutdown())(ExecutionContexts.parasitic)
+            Future
+              .sequence(cancellables.map(_.future))(implicitly, ExecutionContexts.parasitic)
+              .map(Cancellables.all)(ExecutionContexts.parasitic)
+          }
       }
       .mapMaterializedValue(_.flatMap(identity)(ExecutionContexts.parasitic))
 
@@ -131,6 +266,30 @@ object GooglePubSub {
       .mapMaterializedValue(_.flatMap(identity)(ExecutionContexts.parasitic))
   }
 
+  private def streamingPull(
+      client: SubscriberClient,
+      request: StreamingPullRequest,
+      pollInterval: FiniteDuration): Source[StreamingPullResponse, Future[Cancellable]] = {
+    val cancellable = Promise[Cancellable]()
+
+    val subsequentRequest = request
+      .withSubscription("")
+      .withStreamAckDeadlineSeconds(0)
+      .withMaxOutstandingMessages(0)
+      .withMaxOutstandingBytes(0)
+
+    client
+      .streamingPull(
+        Source
+          .single(request)
+          .concat(
+            Source
+              .tick(0.seconds, pollInterval, ())
+              .map(_ => subsequentRequest)
+              .mapMaterializedValue(cancellable.success)))
+      .mapMaterializedValue(_ => cancellable.future)
+  }
+
   private def publisher(mat: Materializer, attr: Attributes) =
     attr
       .get[PubSubAttributes.Publisher]
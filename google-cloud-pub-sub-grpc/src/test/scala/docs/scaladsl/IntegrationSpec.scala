@@ -16,7 +16,7 @@ package docs.scaladsl
 import org.apache.pekko
 import pekko.Done
 import pekko.actor.{ ActorSystem, Cancellable }
-import pekko.stream.connectors.googlecloud.pubsub.grpc.PubSubSettings
+import pekko.stream.connectors.googlecloud.pubsub.grpc.{ LeaseSettings, LeasedMessage, PubSubSettings }
 import pekko.stream.connectors.googlecloud.pubsub.grpc.scaladsl.{ GrpcPublisher, PubSubAttributes }
 import pekko.stream.connectors.testkit.scaladsl.LogCapturing
 import org.scalatest.OptionValues
@@ -106,6 +106,45 @@ class IntegrationSpec
       published.futureValue should not be empty
     }
 
+    "publish single messages with automatic batching" in {
+      // #publish-messages
+      val projectId = "alpakka"
+      val topic = "simpleTopic"
+
+      val messageSource: Source[PubsubMessage, NotUsed] =
+        Source(1 to 10).map(i => PubsubMessage().withData(ByteString.copyFromUtf8(s"Hello world $i!")))
+
+      val messageIds: Future[Seq[String]] = messageSource
+        .via(GooglePubSub.publishMessages(s"projects/$projectId/topics/$topic", maxMessages = 4, parallelism = 2))
+        .runWith(Sink.seq)
+      // #publish-messages
+
+      messageIds.futureValue should have size 10
+    }
+
+    "publish messages with ordering keys" in {
+      // #publish-ordered
+      val projectId = "alpakka"
+      val topic = "simpleTopic"
+
+      val messageSource: Source[PubsubMessage, NotUsed] =
+        Source(1 to 10).map { i =>
+          PubsubMessage()
+            .withData(ByteString.copyFromUtf8(s"Hello world $i!"))
+            .withOrderingKey(s"key-${i % 3}")
+        }
+
+      val (orderingKeys, results) = messageSource
+        .viaMat(GooglePubSub.publishOrdered(s"projects/$projectId/topics/$topic", parallelism = 3))(Keep.right)
+        .toMat(Sink.seq)(Keep.both)
+        .run()
+      // #publish-ordered
+
+      results.futureValue should have size 10
+      orderingKeys.futureValue.pausedKeys shouldBe empty
+      results.futureValue.map(_.message.orderingKey).distinct should have size 3
+    }
+
     "subscribe streaming" in {
       // #subscribe-stream
       val projectId = "alpakka"
@@ -137,6 +176,43 @@ class IntegrationSpec
       first.futureValue.message.value.data shouldBe msg
     }
 
+    "subscribe streaming with lease management" in {
+      // #subscribe-leased
+      val projectId = "alpakka"
+      val subscription = "simpleSubscription"
+
+      val request = StreamingPullRequest()
+        .withSubscription(s"projects/$projectId/subscriptions/$subscription")
+
+      val subscriptionSource: Source[LeasedMessage[ReceivedMessage], Future[Cancellable]] =
+        GooglePubSub.subscribe(
+          request,
+          pollInterval = 1.second,
+          LeaseSettings(system).withMaxOutstandingMessages(100),
+          parallelStreams = 2)
+
+      val processed: Future[ReceivedMessage] =
+        subscriptionSource
+          .mapAsync(1) { leased =>
+            // process leased.message, its lease is extended until it is acknowledged
+            leased.ack().map(_ => leased.message)(system.dispatcher)
+          }
+          .runWith(Sink.head)
+      // #subscribe-leased
+
+      val topic = "simpleTopic"
+      val msg = ByteString.copyFromUtf8("Hello world!")
+
+      val publishRequest: PublishRequest =
+        PublishRequest()
+          .withTopic(s"projects/$projectId/topics/$topic")
+          .addMessages(PubsubMessage().withData(msg))
+
+      Source.single(publishRequest).via(GooglePubSub.publish(parallelism = 1)).runWith(Sink.ignore)
+
+      processed.futureValue.message.value.data shouldBe msg
+    }
+
     "subscribe sync" in {
       // #subscribe-sync
       val projectId = "alpakka"
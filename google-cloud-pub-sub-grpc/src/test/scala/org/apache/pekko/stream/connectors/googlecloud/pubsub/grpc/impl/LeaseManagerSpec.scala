@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc.impl
+
+import org.apache.pekko
+import pekko.Done
+import pekko.actor.ActorSystem
+import pekko.stream.connectors.googlecloud.pubsub.grpc.LeaseSettings
+import pekko.stream.connectors.testkit.scaladsl.LogCapturing
+import pekko.testkit.TestKit
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.concurrent.ScalaFutures
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import scala.collection.JavaConverters._
+import scala.collection.immutable
+import scala.concurrent.{ ExecutionContext, Future, Promise }
+import scala.concurrent.duration._
+
+class LeaseManagerSpec
+    extends AnyWordSpec
+    with Matchers
+    with ScalaFutures
+    with BeforeAndAfterAll
+    with LogCapturing {
+
+  implicit val system: ActorSystem = ActorSystem("LeaseManagerSpec")
+  implicit val executionContext: ExecutionContext = system.dispatcher
+
+  implicit val defaultPatience: PatienceConfig = PatienceConfig(timeout = 5.seconds, interval = 50.millis)
+
+  private val settings = LeaseSettings(system).withAckFlushInterval(50.millis)
+
+  private class Requests(response: => Future[Done] = Future.successful(Done)) {
+    val acknowledged = new ConcurrentLinkedQueue[immutable.Seq[String]]()
+    val modified = new ConcurrentLinkedQueue[(immutable.Seq[String], Int)]()
+
+    def acknowledge(ackIds: immutable.Seq[String]): Future[Done] = {
+      acknowledged.add(ackIds)
+      response
+    }
+
+    def modifyAckDeadline(ackIds: immutable.Seq[String], seconds: Int): Future[Done] = {
+      modified.add(ackIds -> seconds)
+      response
+    }
+
+    def leaseManager(settings: LeaseSettings): LeaseManager =
+      new LeaseManager(settings, acknowledge, modifyAckDeadline)
+  }
+
+  "LeaseManager" should {
+
+    "batch acknowledgements and nacks" in {
+      val requests = new Requests()
+      val leases = requests.leaseManager(settings)
+      Seq("a", "b", "c").foreach(leases.track(_, 10))
+
+      val replies = Seq(leases.ack("a"), leases.ack("b"), leases.nack("c"))
+
+      Future.sequence(replies).futureValue shouldBe Seq(Done, Done, Done)
+      requests.acknowledged.asScala.flatten.toList shouldBe List("a", "b")
+      requests.modified.asScala.toList shouldBe List(List("c") -> 0)
+      leases.shutdown()
+    }
+
+    "acknowledge messages whose lease has ended" in {
+      val requests = new Requests()
+      val leases = requests.leaseManager(
+        settings
+          .withExtensionMargin(settings.ackDeadline - 100.millis)
+          .withMaxLeaseDuration(Duration.Zero)
+          .withMaxOutstandingMessages(1))
+      leases.track("a", 10)
+
+      // capacity is released when the lease ends at the first extension
+      leases.awaitCapacity(0, 0).futureValue shouldBe Done
+      requests.modified shouldBe empty
+
+      leases.ack("a").futureValue shouldBe Done
+      requests.acknowledged.asScala.toList shouldBe List(List("a"))
+      leases.shutdown()
+    }
+
+    "fail replies instead of dropping them when too many are pending" in {
+      val response = Promise[Done]()
+      val requests = new Requests(response.future)
+      val leases = requests.leaseManager(settings.withMaxAckBatchSize(1))
+      val ackIds = (1 to 20).map(_.toString)
+      ackIds.foreach(leases.track(_, 10))
+
+      val replies = ackIds.map(leases.ack)
+
+      val (rejected, accepted) = ackIds.zip(replies).partition(_._2.isCompleted)
+      rejected should not be empty
+      rejected.foreach(_._2.failed.futureValue shouldBe an[IllegalStateException])
+
+      response.success(Done)
+      Future.sequence(accepted.map(_._2)).futureValue
+      requests.acknowledged.asScala.flatten.toSet shouldBe accepted.map(_._1).toSet
+      leases.shutdown()
+    }
+
+    "fail replies whose request failed" in {
+      val requests = new Requests(Future.failed(new RuntimeException("unavailable")))
+      val leases = requests.leaseManager(settings)
+      leases.track("a", 10)
+
+      leases.ack("a").failed.futureValue.getMessage shouldBe "unavailable"
+      leases.shutdown()
+    }
+  }
+
+  override def afterAll(): Unit =
+    TestKit.shutdownActorSystem(system)
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.grpc.impl
+
+import org.apache.pekko.stream.connectors.testkit.scaladsl.LogCapturing
+import org.scalatest.concurrent.ScalaFutures
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import scala.collection.JavaConverters._
+import scala.collection.immutable
+import scala.concurrent.{ Future, Promise }
+
+class OrderedPublisherSpec extends AnyWordSpec with Matchers with ScalaFutures with LogCapturing {
+
+  private final case class Message(orderingKey: String, data: String)
+
+  private class Requests {
+    val sent = new ConcurrentLinkedQueue[immutable.Seq[Message]]()
+    @volatile var response: immutable.Seq[Message] => Future[immutable.Seq[String]] =
+      batch => Future.successful(batch.map(_.data))
+
+    val publisher = new OrderedPublisher[Message](_.orderingKey, batch => {
+        sent.add(batch)
+        response(batch)
+      })
+  }
+
+  private val a1 = Message("a", "a1")
+  private val a2 = Message("a", "a2")
+  private val b1 = Message("b", "b1")
+  private val none = Message("", "none")
+
+  "OrderedPublisher" should {
+
+    "publish all ordering keys of a batch in one request" in {
+      val requests = new Requests()
+
+      val results = requests.publisher(List(a1, b1, a2, none)).futureValue
+
+      requests.sent.asScala.toList shouldBe List(List(a1, b1, a2, none))
+      results.map(_.messageId) shouldBe List(Some("a1"), Some("b1"), Some("a2"), Some("none"))
+    }
+
+    "send a batch once the previous batch sharing an ordering key completed" in {
+      val requests = new Requests()
+      val first = Promise[immutable.Seq[String]]()
+      requests.response = _ => first.future
+      val firstResults = requests.publisher(List(a1))
+      requests.response = batch => Future.successful(batch.map(_.data))
+
+      val unrelated = requests.publisher(List(b1, none)).futureValue
+      val shared = requests.publisher(List(a2, b1))
+
+      unrelated.map(_.messageId) shouldBe List(Some("b1"), Some("none"))
+      requests.sent.asScala.toList shouldBe List(List(a1), List(b1, none))
+      shared.isCompleted shouldBe false
+
+      first.success(List("a1"))
+      firstResults.futureValue.map(_.messageId) shouldBe List(Some("a1"))
+      shared.futureValue.map(_.messageId) shouldBe List(Some("a2"), Some("b1"))
+      requests.sent.asScala.toList shouldBe List(List(a1), List(b1, none), List(a2, b1))
+    }
+
+    "fail later messages with a paused ordering key without sending them" in {
+      val requests = new Requests()
+      requests.response = _ => Future.failed(new RuntimeException("unavailable"))
+      val failed = requests.publisher(List(a1)).futureValue
+      requests.response = batch => Future.successful(batch.map(_.data))
+
+      val results = requests.publisher(List(a2, b1, none)).futureValue
+
+      failed.map(_.failure.map(_.getMessage)) shouldBe List(Some("unavailable"))
+      requests.publisher.orderingKeys.pausedKeys shouldBe Set("a")
+      results.head.messageId shouldBe None
+      results.head.failure.get shouldBe an[IllegalStateException]
+      results.tail.map(_.messageId) shouldBe List(Some("b1"), Some("none"))
+      requests.sent.asScala.toList shouldBe List(List(a1), List(b1, none))
+    }
+
+    "publish messages with an ordering key again after it was resumed" in {
+      val requests = new Requests()
+      requests.response = _ => Future.failed(new RuntimeException("unavailable"))
+      requests.publisher(List(a1)).futureValue
+      requests.response = batch => Future.successful(batch.map(_.data))
+
+      requests.publisher.orderingKeys.resume("a")
+      val results = requests.publisher(List(a2)).futureValue
+
+      requests.publisher.orderingKeys.pausedKeys shouldBe empty
+      results.map(_.messageId) shouldBe List(Some("a2"))
+      requests.sent.asScala.toList shouldBe List(List(a1), List(a2))
+    }
+  }
+}
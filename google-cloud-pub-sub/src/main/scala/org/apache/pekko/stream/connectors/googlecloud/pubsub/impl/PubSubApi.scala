@@ -260,6 +260,36 @@ private[pubsub] trait PubSubApi {
   def publish[T](topic: String, parallelism: Int): FlowWithContext[PublishRequest, T, PublishResponse, T, NotUsed] =
     publish(topic, parallelism, None)
 
+  /**
+   * Publishes every request as a single HTTP request, with up to `parallelism` requests in flight, and emits the
+   * responses in the order of the requests.
+   */
+  def publishRequests(topic: String, parallelism: Int): Flow[PublishRequest, PublishResponse, NotUsed] =
+    Flow
+      .fromMaterializer { (mat, attr) =>
+        import mat.executionContext
+        implicit val settings = GoogleAttributes.resolveSettings(mat, attr)
+        implicit val requestSettings = settings.requestSettings
+
+        val url: Uri = Uri.from(
+          scheme = scheme,
+          host = PubSubGoogleApisHost,
+          port = PubSubGoogleApisPort,
+          path = s"/v1/projects/${settings.projectId}/topics/$topic:publish")
+
+        Flow[PublishRequest].mapAsync(parallelism) { request =>
+          for {
+            entity <- Marshal(request).to[RequestEntity]
+            request = HttpRequest(POST, url, entity = entity)
+            response <- if (isEmulated)
+              GoogleHttp(mat.system).singleRequest[PublishResponse](request)
+            else
+              GoogleHttp(mat.system).singleAuthenticatedRequest[PublishResponse](request)
+          } yield response
+        }
+      }
+      .mapMaterializedValue(_ => NotUsed)
+
   private implicit val publishResponseUnmarshaller: FromResponseUnmarshaller[PublishResponse] =
     Unmarshaller.withMaterializer { implicit ec => implicit mat => response: HttpResponse =>
       response.status match {
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.googlecloud.pubsub.impl
+
+import org.apache.pekko
+import pekko.annotation.InternalApi
+import pekko.stream.connectors.googlecloud.pubsub.PublishMessage
+
+import java.nio.charset.StandardCharsets
+
+/**
+ * The number of bytes a message adds to the JSON body of a publish request.
+ */
+@InternalApi
+private[pubsub] object PublishMessageSize {
+
+  // JSON field names, quotes and separators around a message and around each attribute
+  private val MessageOverhead = 48
+  private val AttributeOverhead = 6
+
+  def apply(message: PublishMessage): Long =
+    MessageOverhead +
+    message.data.length +
+    message.orderingKey.fold(0)(utf8Length) +
+    message.attributes.fold(0) { attributes =>
+      attributes.foldLeft(0) {
+        case (sum, (key, value)) => sum + utf8Length(key) + utf8Length(value) + AttributeOverhead
+      }
+    }
+
+  private def utf8Length(s: String): Int = s.getBytes(StandardCharsets.UTF_8).length
+
+}
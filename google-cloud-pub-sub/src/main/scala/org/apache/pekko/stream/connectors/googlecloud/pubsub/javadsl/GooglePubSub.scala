@@ -16,10 +16,18 @@ package org.apache.pekko.stream.connectors.googlecloud.pubsub.javadsl
 import org.apache.pekko
 import pekko.actor.Cancellable
 import pekko.stream.connectors.googlecloud.pubsub.scaladsl.{ GooglePubSub => GPubSub }
-import pekko.stream.connectors.googlecloud.pubsub.{ AcknowledgeRequest, PubSubConfig, PublishRequest, ReceivedMessage }
+import pekko.stream.connectors.googlecloud.pubsub.{
+  AcknowledgeRequest,
+  PubSubConfig,
+  PublishMessage,
+  PublishRequest,
+  ReceivedMessage
+}
 import pekko.stream.javadsl.{ Flow, FlowWithContext, Sink, Source }
+import pekko.util.JavaDurationConverters._
 import pekko.{ Done, NotUsed }
 
+import java.time.Duration
 import java.util.concurrent.CompletionStage
 import scala.compat.java8.FutureConverters._
 import scala.concurrent.Future
@@ -84,6 +92,38 @@ object GooglePubSub {
       .map(response => response.asJava)
       .asJava
 
+  /**
+   * Creates a flow that publishes single messages to a topic and emits the message id of each message, in the order
+   * the messages were received.
+   *
+   * Messages are batched into publish requests. A batch is sent as soon as it holds `maxMessages` messages, when
+   * adding the next message would make the request larger than `maxBytes`, or `maxDelay` after its first message
+   * arrived, whichever comes first.
+   *
+   * @param maxMessages maximum number of messages per publish request, Pub/Sub accepts at most 1000
+   * @param maxBytes maximum size in bytes of a publish request, Pub/Sub accepts at most 10 MB
+   * @param maxDelay maximum time a message waits for its batch to fill up
+   * @param parallelism maximum number of publish requests in flight
+   */
+  def publishMessages(topic: String,
+      config: PubSubConfig,
+      maxMessages: Int,
+      maxBytes: Long,
+      maxDelay: Duration,
+      parallelism: Int): Flow[PublishMessage, String, NotUsed] =
+    GPubSub
+      .publishMessages(topic, config, maxMessages, maxBytes, maxDelay.asScala, parallelism)
+      .asJava
+
+  /**
+   * Creates a flow that publishes single messages to a topic in batches of up to 1000 messages or 10 MB, sent at
+   * most 10 milliseconds after their first message, and emits the message id of each message in order.
+   */
+  def publishMessages(topic: String, config: PubSubConfig, parallelism: Int): Flow[PublishMessage, String, NotUsed] =
+    GPubSub
+      .publishMessages(topic, config, parallelism = parallelism)
+      .asJava
+
   /**
    * Creates a source pulling messages from a subscription.
    */
@@ -17,6 +17,7 @@ import org.apache.pekko
 import pekko.actor.Cancellable
 import pekko.stream.Attributes
 import pekko.stream.connectors.google.GoogleAttributes
+import pekko.stream.connectors.google.util.PublishBatching
 import pekko.stream.connectors.googlecloud.pubsub._
 import pekko.stream.connectors.googlecloud.pubsub.impl._
 import pekko.stream.scaladsl.{ Flow, FlowWithContext, Keep, Sink, Source }
@@ -126,6 +127,32 @@ protected[pubsub] trait GooglePubSub {
       .fromTuples(flow(config)(httpApi.publish[C](topic, parallelism, overrideHost).asFlow))
       .map(_.messageIds)
 
+  /**
+   * Creates a flow that publishes single messages to a topic and emits the message id of each message, in the order
+   * the messages were received.
+   *
+   * Messages are batched into publish requests. A batch is sent as soon as it holds `maxMessages` messages, when
+   * adding the next message would make the request larger than `maxBytes`, or `maxDelay` after its first message
+   * arrived, whichever comes first.
+   *
+   * @param maxMessages maximum number of messages per publish request, Pub/Sub accepts at most 1000
+   * @param maxBytes maximum size in bytes of a publish request, Pub/Sub accepts at most 10 MB
+   * @param maxDelay maximum time a message waits for its batch to fill up
+   * @param parallelism maximum number of publish requests in flight
+   */
+  def publishMessages(topic: String,
+      config: PubSubConfig,
+      maxMessages: Int = PublishLimits.MaxMessages,
+      maxBytes: Long = PublishLimits.MaxBytes,
+      maxDelay: FiniteDuration = 10.millis,
+      parallelism: Int = 1): Flow[PublishMessage, String, NotUsed] =
+    flow(config)(
+      Flow[PublishMessage]
+        .via(PublishBatching[PublishMessage](maxMessages, maxBytes, maxDelay)(PublishMessageSize(_)))
+        .map(PublishRequest(_))
+        .via(httpApi.publishRequests(topic, parallelism))
+        .mapConcat(_.messageIds))
+
   /**
    * Creates a source pulling messages from a subscription.
    */
@@ -76,6 +76,12 @@ class ExampleUsage {
     .to(Sink.seq)
   // #publish-fast
 
+  // #publish-messages
+  val publishedIds: Future[Seq[String]] = messageSource
+    .via(GooglePubSub.publishMessages(topic, config, maxDelay = 50.millis, parallelism = 4))
+    .runWith(Sink.seq)
+  // #publish-messages
+
   // #publish with ordering key
   val publishToRegionalEndpointFlow: Flow[PublishRequest, Seq[String], NotUsed] =
     GooglePubSub.publish(topic, config, "europe-west1-pubsub.googleapis.com")
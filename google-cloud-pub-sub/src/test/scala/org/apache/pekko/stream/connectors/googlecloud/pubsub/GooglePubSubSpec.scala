@@ -126,6 +126,37 @@ class GooglePubSubSpec
     result.futureValue shouldBe Seq((Seq("id2"), ()))
   }
 
+  it should "batch single messages and emit their message ids in order" in new Fixtures {
+    val requests = new java.util.concurrent.ConcurrentLinkedQueue[PublishRequest]()
+
+    override lazy val mockHttpApi = new PubSubApi {
+      val PubSubGoogleApisHost: String = "..."
+      val PubSubGoogleApisPort = 80
+
+      override def isEmulated: Boolean = true
+
+      override def publishRequests(topic: String, parallelism: Int): Flow[PublishRequest, PublishResponse, NotUsed] =
+        Flow[PublishRequest].map { request =>
+          requests.add(request)
+          PublishResponse(request.messages.map(_.data))
+        }
+    }
+
+    val flow = googlePubSub.publishMessages(
+      topic = "topic1",
+      config = config,
+      maxMessages = 2,
+      maxDelay = 1.second,
+      parallelism = 2)
+
+    val messages = (1 to 5).map(i => PublishMessage(data = base64String(s"message $i")))
+    val result = Source(messages).via(flow).runWith(Sink.seq)
+
+    result.futureValue shouldBe messages.map(_.data)
+    requests.size shouldBe 3
+    requests.toArray(Array.empty[PublishRequest]).map(_.messages.size).max shouldBe 2
+  }
+
   it should "subscribe and pull a message" in new Fixtures {
     val publishTime = Instant.ofEpochMilli(111)
     val message =
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.google.util
+
+import org.apache.pekko
+import pekko.NotUsed
+import pekko.annotation.InternalApi
+import pekko.stream.scaladsl.Flow
+
+import scala.collection.immutable
+import scala.concurrent.duration.FiniteDuration
+
+/**
+ * Groups single messages into batches bounded by a number of messages and a number of bytes, as the Pub/Sub
+ * connectors over HTTP and gRPC do for their publish requests.
+ */
+@InternalApi
+private[connectors] object PublishBatching {
+
+  /**
+   * Emits a batch when it holds `maxMessages` messages, when adding the next message would exceed `maxBytes`,
+   * or `maxDelay` after the first message of the batch arrived.
+   *
+   * @param size the number of bytes a message adds to a publish request
+   */
+  def apply[T](maxMessages: Int, maxBytes: Long, maxDelay: FiniteDuration)(
+      size: T => Long): Flow[T, immutable.Seq[T], NotUsed] = {
+    require(maxMessages > 0, "maxMessages must be positive")
+    require(maxBytes > 0, "maxBytes must be positive")
+    Flow[T].groupedWeightedWithin(maxBytes, maxMessages, maxDelay)(size)
+  }
+}
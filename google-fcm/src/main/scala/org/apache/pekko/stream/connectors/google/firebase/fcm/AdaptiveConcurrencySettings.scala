@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.google.firebase.fcm
+
+import org.apache.pekko.util.JavaDurationConverters._
+
+import scala.concurrent.duration._
+
+/**
+ * Settings for sending with adaptive concurrency.
+ *
+ * The number of concurrent requests starts at `initialConcurrency`. It grows by one for every window of successful
+ * responses, up to `maxConcurrency`, and is multiplied by `decreaseFactor`, down to `minConcurrency`, when FCM
+ * answers with 429 or 5xx. Such a response also pauses all sending for the duration of its `Retry-After` header,
+ * or for an exponential backoff between `minBackoff` and `maxBackoff` when there is none. Such responses, connection
+ * failures and timeouts are retried up to `maxRetries` times.
+ *
+ * `initialConcurrency` is kept between `minConcurrency` and `maxConcurrency`, and `minConcurrency` must not exceed
+ * `maxConcurrency`, which is checked when the flow is materialized.
+ */
+final class AdaptiveConcurrencySettings private (
+    val initialConcurrency: Int,
+    val minConcurrency: Int,
+    val maxConcurrency: Int,
+    val decreaseFactor: Double,
+    val maxRetries: Int,
+    val minBackoff: FiniteDuration,
+    val maxBackoff: FiniteDuration) {
+
+  require(minConcurrency > 0, "minConcurrency must be positive")
+  require(initialConcurrency > 0, "initialConcurrency must be positive")
+  require(maxConcurrency > 0, "maxConcurrency must be positive")
+  require(decreaseFactor > 0 && decreaseFactor < 1, "decreaseFactor must be between 0 and 1")
+  require(maxRetries >= 0, "maxRetries must not be negative")
+
+  def withInitialConcurrency(value: Int): AdaptiveConcurrencySettings = copy(initialConcurrency = value)
+  def withMinConcurrency(value: Int): AdaptiveConcurrencySettings = copy(minConcurrency = value)
+  def withMaxConcurrency(value: Int): AdaptiveConcurrencySettings = copy(maxConcurrency = value)
+  def withDecreaseFactor(value: Double): AdaptiveConcurrencySettings = copy(decreaseFactor = value)
+  def withMaxRetries(value: Int): AdaptiveConcurrencySettings = copy(maxRetries = value)
+
+  /** Scala API */
+  def withMinBackoff(value: FiniteDuration): AdaptiveConcurrencySettings = copy(minBackoff = value)
+
+  /** Java API */
+  def withMinBackoff(value: java.time.Duration): AdaptiveConcurrencySettings = copy(minBackoff = value.asScala)
+
+  /** Scala API */
+  def withMaxBackoff(value: FiniteDuration): AdaptiveConcurrencySettings = copy(maxBackoff = value)
+
+  /** Java API */
+  def withMaxBackoff(value: java.time.Duration): AdaptiveConcurrencySettings = copy(maxBackoff = value.asScala)
+
+  private def copy(
+      initialConcurrency: Int = initialConcurrency,
+      minConcurrency: Int = minConcurrency,
+      maxConcurrency: Int = maxConcurrency,
+      decreaseFactor: Double = decreaseFactor,
+      maxRetries: Int = maxRetries,
+      minBackoff: FiniteDuration = minBackoff,
+      maxBackoff: FiniteDuration = maxBackoff): AdaptiveConcurrencySettings =
+    new AdaptiveConcurrencySettings(initialConcurrency,
+      minConcurrency,
+      maxConcurrency,
+      decreaseFactor,
+      maxRetries,
+      minBackoff,
+      maxBackoff)
+
+  override def toString =
+    "AdaptiveConcurrencySettings(" +
+    s"initialConcurrency=$initialConcurrency," +
+    s"minConcurrency=$minConcurrency," +
+    s"maxConcurrency=$maxConcurrency," +
+    s"decreaseFactor=$decreaseFactor," +
+    s"maxRetries=$maxRetries," +
+    s"minBackoff=$minBackoff," +
+    s"maxBackoff=$maxBackoff" +
+    ")"
+}
+
+object AdaptiveConcurrencySettings {
+
+  /** Scala API */
+  def apply(): AdaptiveConcurrencySettings =
+    new AdaptiveConcurrencySettings(
+      initialConcurrency = 10,
+      minConcurrency = 1,
+      maxConcurrency = 100,
+      decreaseFactor = 0.5,
+      maxRetries = 5,
+      minBackoff = 1.second,
+      maxBackoff = 1.minute)
+
+  /** Java API */
+  def create(): AdaptiveConcurrencySettings = apply()
+}
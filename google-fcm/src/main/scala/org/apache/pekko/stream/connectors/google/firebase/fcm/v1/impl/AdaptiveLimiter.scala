@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.google.firebase.fcm.v1.impl
+
+import org.apache.pekko
+import pekko.Done
+import pekko.actor.Scheduler
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts
+import pekko.stream.connectors.google.firebase.fcm.AdaptiveConcurrencySettings
+
+import scala.collection.mutable
+import scala.concurrent.duration._
+import scala.concurrent.{ Future, Promise }
+
+/**
+ * INTERNAL API
+ *
+ * Limits the number of concurrent requests with additive increase / multiplicative decrease, and pauses all requests
+ * while the server asked to back off.
+ */
+@InternalApi
+private[fcm] final class AdaptiveLimiter(settings: AdaptiveConcurrencySettings, scheduler: Scheduler) {
+  import AdaptiveLimiter._
+
+  require(settings.minConcurrency <= settings.maxConcurrency,
+    s"minConcurrency (${settings.minConcurrency}) must not exceed maxConcurrency (${settings.maxConcurrency})")
+
+  // all state is guarded by `this`
+  private var limit: Double =
+    math.min(math.max(settings.initialConcurrency, settings.minConcurrency), settings.maxConcurrency).toDouble
+  private var inFlight = 0
+  private var resumeAt = System.nanoTime()
+  private var resumeScheduled = false
+  private var consecutiveOverloads = 0
+  private val waiting = mutable.Queue.empty[Promise[Done]]
+
+  /**
+   * Completes when a request may be sent. Every acquired permit has to be released.
+   */
+  def acquire(): Future[Done] = {
+    val permit = Promise[Done]()
+    val granted = synchronized {
+      waiting.enqueue(permit)
+      grant()
+    }
+    granted.foreach(_.success(Done))
+    permit.future
+  }
+
+  /**
+   * Releases a permit after a successful request, growing the limit by one per window of requests.
+   */
+  def succeeded(): Unit = release {
+    consecutiveOverloads = 0
+    limit = math.min(settings.maxConcurrency.toDouble, limit + 1.0 / limit)
+  }
+
+  /**
+   * Releases a permit after the server was overloaded, shrinking the limit and pausing all requests for
+   * `retryAfter` or an exponential backoff.
+   */
+  def overloaded(retryAfter: Option[FiniteDuration]): Unit = release {
+    val now = System.nanoTime()
+    // responses to requests sent before the backoff started only count once
+    if (now >= resumeAt) {
+      limit = math.max(settings.minConcurrency.toDouble, limit * settings.decreaseFactor)
+      consecutiveOverloads += 1
+    }
+    val backoff = retryAfter.getOrElse(exponentialBackoff(consecutiveOverloads)).min(settings.maxBackoff)
+    resumeAt = math.max(resumeAt, now + backoff.toNanos)
+  }
+
+  /**
+   * Releases a permit after a request that failed for a reason unrelated to load, keeping the limit.
+   */
+  def failed(): Unit = release(())
+
+  /**
+   * The current concurrency limit.
+   */
+  def currentLimit: Int = synchronized(limit.toInt)
+
+  private def release(update: => Unit): Unit = {
+    val granted = synchronized {
+      inFlight -= 1
+      update
+      grant()
+    }
+    granted.foreach(_.success(Done))
+  }
+
+  private def resume(): Unit = {
+    val granted = synchronized {
+      resumeScheduled = false
+      grant()
+    }
+    granted.foreach(_.success(Done))
+  }
+
+  // must be called while holding the lock, the returned permits are completed outside of it
+  private def grant(): List[Promise[Done]] = {
+    val pause = resumeAt - System.nanoTime()
+    if (pause > 0) {
+      if (waiting.nonEmpty && !resumeScheduled) {
+        resumeScheduled = true
+        scheduler.scheduleOnce(pause.nanos)(resume())(ExecutionContexts.parasitic)
+      }
+      Nil
+    } else {
+      var granted = List.empty[Promise[Done]]
+      while (waiting.nonEmpty && inFlight < math.max(limit.toInt, 1)) {
+        inFlight += 1
+        granted ::= waiting.dequeue()
+      }
+      granted.reverse
+    }
+  }
+
+  private def exponentialBackoff(attempt: Int): FiniteDuration =
+    settings.minBackoff * math.pow(2, math.min(math.max(attempt - 1, 0), MaxBackoffExponent).toDouble).toLong
+
+}
+
+/**
+ * INTERNAL API
+ */
+@InternalApi
+private[fcm] object AdaptiveLimiter {
+  private val MaxBackoffExponent = 20
+}
@@ -16,13 +16,15 @@ package org.apache.pekko.stream.connectors.google.firebase.fcm.v1.impl
 import org.apache.pekko
 import pekko.NotUsed
 import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts
 import pekko.http.scaladsl.Http
-import pekko.stream.connectors.google.firebase.fcm.FcmSettings
-import pekko.stream.connectors.google.firebase.fcm.v1.models.{ FcmNotification, FcmResponse }
+import pekko.stream.connectors.google.firebase.fcm.{ AdaptiveConcurrencySettings, FcmSettings }
+import pekko.stream.connectors.google.firebase.fcm.v1.models.{ FcmErrorResponse, FcmNotification, FcmResponse }
 import pekko.stream.scaladsl.Flow
 import pekko.stream.connectors.google.GoogleAttributes
 
-import scala.concurrent.Future
+import scala.concurrent.{ ExecutionContext, Future }
+import scala.util.{ Failure, Success }
 
 /**
  * INTERNAL API
@@ -44,6 +46,56 @@ private[fcm] object FcmFlows {
       }
       .mapMaterializedValue(_ => NotUsed)
 
+  private[fcm] def fcmAdaptiveWithData[T](conf: FcmSettings,
+      adaptive: AdaptiveConcurrencySettings): Flow[(FcmNotification, T), (FcmResponse, T), NotUsed] =
+    Flow
+      .fromMaterializer { (mat, attr) =>
+        import mat.executionContext
+        implicit val settings = GoogleAttributes.resolveSettings(mat, attr)
+        implicit val materializer = mat
+        val sender = new FcmSender()
+        val limiter = new AdaptiveLimiter(adaptive, mat.system.scheduler)
+        val http = Http(mat.system)
+
+        Flow[(FcmNotification, T)].mapAsyncUnordered(adaptive.maxConcurrency) {
+          case (notification, data) =>
+            sendAdaptively(limiter, adaptive.maxRetries) { () =>
+              sender.sendAttempt(http, FcmSend(conf.isTest, notification))
+            }.map(_ -> data)(ExecutionContexts.parasitic)
+        }
+      }
+      .mapMaterializedValue(_ => NotUsed)
+
+  /**
+   * Sends once a permit is granted and retries overloaded attempts and transient failures up to `maxRetries` times.
+   * When no retries are left, the last error response is returned, or an error response describing the failure.
+   * Other failures are returned as an error response right away, without changing the limit.
+   */
+  private[impl] def sendAdaptively(limiter: AdaptiveLimiter, maxRetries: Int)(send: () => Future[FcmSender.Attempt])(
+      implicit ec: ExecutionContext): Future[FcmResponse] = {
+    def attempt(retries: Int): Future[FcmResponse] =
+      limiter
+        .acquire()
+        .flatMap(_ => send())
+        .transformWith {
+          case Success(FcmSender.Delivered(response)) =>
+            limiter.succeeded()
+            Future.successful(response)
+          case Success(FcmSender.Overloaded(error, retryAfter)) =>
+            limiter.overloaded(retryAfter)
+            if (retries < maxRetries) attempt(retries + 1)
+            else Future.successful(error)
+          case Failure(ex) if FcmSender.isTransient(ex) =>
+            limiter.overloaded(None)
+            if (retries < maxRetries) attempt(retries + 1)
+            else Future.successful(FcmErrorResponse(s"Sending failed after ${retries + 1} attempts: $ex"))
+          case Failure(ex) =>
+            limiter.failed()
+            Future.successful(FcmErrorResponse(s"Sending failed: $ex"))
+        }
+    attempt(0)
+  }
+
   private[fcm] def fcm(conf: FcmSettings): Flow[FcmNotification, FcmResponse, NotUsed] =
     Flow
       .fromMaterializer { (mat, attr) =>
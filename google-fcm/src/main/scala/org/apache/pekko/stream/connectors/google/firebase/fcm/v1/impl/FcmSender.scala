@@ -18,14 +18,19 @@ import pekko.annotation.InternalApi
 import pekko.http.scaladsl.HttpExt
 import pekko.http.scaladsl.marshalling.Marshal
 import pekko.http.scaladsl.model._
+import pekko.http.scaladsl.model.headers.{ `Retry-After`, RetryAfterDateTime, RetryAfterDuration }
 import pekko.http.scaladsl.unmarshalling.{ FromResponseUnmarshaller, Unmarshal, Unmarshaller }
-import pekko.stream.Materializer
+import pekko.stream.{ Materializer, StreamTcpException }
 import pekko.stream.connectors.google.firebase.fcm.v1.models.{ FcmErrorResponse, FcmResponse, FcmSuccessResponse }
 import pekko.stream.connectors.google.GoogleSettings
 import pekko.stream.connectors.google.http.GoogleHttp
 import pekko.stream.connectors.google.implicits._
 
+import java.io.IOException
+import java.util.concurrent.TimeoutException
+
 import scala.concurrent.Future
+import scala.concurrent.duration._
 
 /**
  * INTERNAL API
@@ -49,6 +54,35 @@ private[fcm] class FcmSender {
     }
   }
 
+  /**
+   * Sends without retrying and tells responses that are worth retrying apart from final ones.
+   */
+  def sendAttempt(http: HttpExt, fcmSend: FcmSend)(
+      implicit mat: Materializer,
+      settings: GoogleSettings): Future[FcmSender.Attempt] = {
+    import mat.executionContext
+    import settings.projectId
+    val url = s"https://fcm.googleapis.com/v1/projects/$projectId/messages:send"
+
+    Marshal(fcmSend).to[RequestEntity].flatMap { entity =>
+      GoogleHttp(http)
+        .singleAuthenticatedRequest[FcmSender.Attempt](HttpRequest(HttpMethods.POST, url, entity = entity))(settings,
+          attemptUnmarshaller)
+    }
+  }
+
+  private val attemptUnmarshaller: FromResponseUnmarshaller[FcmSender.Attempt] = Unmarshaller.withMaterializer {
+    implicit ec => implicit mat => response: HttpResponse =>
+      if (response.status.isSuccess) {
+        Unmarshal(response.entity).to[FcmSuccessResponse].map(FcmSender.Delivered)
+      } else {
+        Unmarshal(response.entity).to[FcmErrorResponse].map { error =>
+          if (FcmSender.isOverloaded(response.status)) FcmSender.Overloaded(error, FcmSender.retryAfter(response))
+          else FcmSender.Delivered(error)
+        }
+      }
+  }
+
   implicit private val unmarshaller: FromResponseUnmarshaller[FcmSuccessResponse] = Unmarshaller.withMaterializer {
     implicit ec => implicit mat => response: HttpResponse =>
       if (response.status.isSuccess) {
@@ -60,3 +94,43 @@ private[fcm] class FcmSender {
 
   private case class FcmErrorException(error: FcmErrorResponse) extends Exception
 }
+
+/**
+ * INTERNAL API
+ */
+@InternalApi
+private[fcm] object FcmSender {
+
+  sealed trait Attempt
+
+  /**
+   * A final response, successful or not.
+   */
+  final case class Delivered(response: FcmResponse) extends Attempt
+
+  /**
+   * FCM is throttling or unavailable, the request may be retried after `retryAfter` when given.
+   */
+  final case class Overloaded(error: FcmErrorResponse, retryAfter: Option[FiniteDuration]) extends Attempt
+
+  def isOverloaded(status: StatusCode): Boolean = status match {
+    case StatusCodes.TooManyRequests | StatusCodes.InternalServerError | StatusCodes.BadGateway |
+        StatusCodes.ServiceUnavailable | StatusCodes.GatewayTimeout =>
+      true
+    case _ => false
+  }
+
+  /**
+   * Connection failures and timeouts, which may be caused by load and are worth retrying.
+   */
+  def isTransient(ex: Throwable): Boolean = ex match {
+    case _: StreamTcpException | _: IOException | _: TimeoutException => true
+    case _                                                            => false
+  }
+
+  def retryAfter(response: HttpResponse): Option[FiniteDuration] =
+    response.header[`Retry-After`].map(_.delaySecondsOrDateTime match {
+      case RetryAfterDuration(seconds)  => seconds.seconds
+      case RetryAfterDateTime(dateTime) => math.max(dateTime.clicks - System.currentTimeMillis(), 0L).millis
+    })
+}
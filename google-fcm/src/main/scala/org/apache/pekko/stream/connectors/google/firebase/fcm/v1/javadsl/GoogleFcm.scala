@@ -15,7 +15,7 @@ package org.apache.pekko.stream.connectors.google.firebase.fcm.v1.javadsl
 
 import org.apache.pekko
 import pekko.japi.Pair
-import pekko.stream.connectors.google.firebase.fcm.FcmSettings
+import pekko.stream.connectors.google.firebase.fcm.{ AdaptiveConcurrencySettings, FcmSettings }
 import pekko.stream.connectors.google.firebase.fcm.v1.impl.FcmFlows
 import pekko.stream.connectors.google.firebase.fcm.v1.models._
 import pekko.stream.{ javadsl, scaladsl }
@@ -33,6 +33,21 @@ object GoogleFcm {
       .map(t => Pair(t._1, t._2))
       .asJava
 
+  /**
+   * Sends notifications with a concurrency that adapts to the responses of FCM, see [[AdaptiveConcurrencySettings]].
+   * Throttled and unavailable responses are retried after the backoff FCM asks for. When no retries are left, the last
+   * error response, or an `FcmErrorResponse` describing the failed request, is emitted instead of failing the
+   * stream. Results are emitted as they complete, together with the pass-through data of their notification.
+   */
+  def sendWithAdaptiveConcurrency[T](conf: FcmSettings,
+      adaptive: AdaptiveConcurrencySettings): javadsl.Flow[Pair[FcmNotification, T], Pair[FcmResponse, T], NotUsed] =
+    scaladsl
+      .Flow[Pair[FcmNotification, T]]
+      .map(_.toScala)
+      .via(FcmFlows.fcmAdaptiveWithData[T](conf, adaptive))
+      .map(t => Pair(t._1, t._2))
+      .asJava
+
   def send(conf: FcmSettings): javadsl.Flow[FcmNotification, FcmResponse, NotUsed] =
     FcmFlows.fcm(conf).asJava
 
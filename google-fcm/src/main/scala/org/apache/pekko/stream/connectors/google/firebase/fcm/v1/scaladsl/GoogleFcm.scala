@@ -14,7 +14,7 @@
 package org.apache.pekko.stream.connectors.google.firebase.fcm.v1.scaladsl
 
 import org.apache.pekko
-import pekko.stream.connectors.google.firebase.fcm.FcmSettings
+import pekko.stream.connectors.google.firebase.fcm.{ AdaptiveConcurrencySettings, FcmSettings }
 import pekko.stream.connectors.google.firebase.fcm.v1.impl.FcmFlows
 import pekko.stream.connectors.google.firebase.fcm.v1.models.{ FcmNotification, FcmResponse }
 import pekko.stream.scaladsl.{ Flow, Keep, Sink }
@@ -27,6 +27,17 @@ object GoogleFcm {
   def sendWithPassThrough[T](conf: FcmSettings): Flow[(FcmNotification, T), (FcmResponse, T), NotUsed] =
     FcmFlows.fcmWithData[T](conf)
 
+  /**
+   * Sends notifications with a concurrency that adapts to the responses of FCM, see [[AdaptiveConcurrencySettings]].
+   * Throttled and unavailable responses are retried after the backoff FCM asks for. When no retries are left, the last
+   * error response, or an `FcmErrorResponse` describing the failed request, is emitted instead of failing the
+   * stream. Results are emitted as they complete, together with the pass-through data of their notification.
+   */
+  def sendWithAdaptiveConcurrency[T](
+      conf: FcmSettings,
+      adaptive: AdaptiveConcurrencySettings): Flow[(FcmNotification, T), (FcmResponse, T), NotUsed] =
+    FcmFlows.fcmAdaptiveWithData[T](conf, adaptive)
+
   def send(conf: FcmSettings): Flow[FcmNotification, FcmResponse, NotUsed] =
     FcmFlows.fcm(conf)
 
@@ -16,7 +16,7 @@ package docs.scaladsl
 import org.apache.pekko.actor.ActorSystem
 //#imports
 import org.apache.pekko
-import pekko.stream.connectors.google.firebase.fcm.FcmSettings
+import pekko.stream.connectors.google.firebase.fcm.{ AdaptiveConcurrencySettings, FcmSettings }
 import pekko.stream.connectors.google.firebase.fcm.v1.models._
 import pekko.stream.connectors.google.firebase.fcm.v1.scaladsl.GoogleFcm
 
@@ -62,6 +62,18 @@ class FcmExamples {
       .runWith(Sink.seq)
   // #withData-send
 
+  // #adaptive-send
+  val adaptive = AdaptiveConcurrencySettings()
+    .withInitialConcurrency(50)
+    .withMaxConcurrency(500)
+
+  val result3: Future[immutable.Seq[(FcmResponse, String)]] =
+    Source
+      .single((notification, "superData"))
+      .via(GoogleFcm.sendWithAdaptiveConcurrency(fcmConfig, adaptive))
+      .runWith(Sink.seq)
+  // #adaptive-send
+
   // #noti-create
   val buildedNotification = FcmNotification.empty
     .withTarget(Topic("testers"))
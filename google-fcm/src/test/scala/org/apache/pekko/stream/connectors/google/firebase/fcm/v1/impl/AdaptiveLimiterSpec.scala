@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.google.firebase.fcm.v1.impl
+
+import org.apache.pekko
+import pekko.actor.ActorSystem
+import pekko.stream.connectors.google.firebase.fcm.AdaptiveConcurrencySettings
+import pekko.stream.connectors.testkit.scaladsl.LogCapturing
+import pekko.testkit.TestKit
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.concurrent.ScalaFutures
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpecLike
+
+import scala.concurrent.duration._
+
+class AdaptiveLimiterSpec
+    extends TestKit(ActorSystem())
+    with AnyWordSpecLike
+    with Matchers
+    with ScalaFutures
+    with BeforeAndAfterAll
+    with LogCapturing {
+
+  override def afterAll(): Unit =
+    TestKit.shutdownActorSystem(system)
+
+  private val settings = AdaptiveConcurrencySettings()
+    .withInitialConcurrency(2)
+    .withMaxConcurrency(4)
+    .withMinBackoff(100.millis)
+
+  "AdaptiveLimiter" should {
+
+    "grant permits up to the limit" in {
+      val limiter = new AdaptiveLimiter(settings, system.scheduler)
+      val permits = List.fill(3)(limiter.acquire())
+      permits.take(2).foreach(_.isCompleted shouldBe true)
+      permits(2).isCompleted shouldBe false
+
+      limiter.succeeded()
+      permits(2).isCompleted shouldBe true
+    }
+
+    "grow the limit additively on success" in {
+      val limiter = new AdaptiveLimiter(settings, system.scheduler)
+      (1 to 10).foreach { _ =>
+        limiter.acquire().futureValue
+        limiter.succeeded()
+      }
+      limiter.currentLimit shouldBe 4
+    }
+
+    "shrink the limit and pause when overloaded" in {
+      val limiter = new AdaptiveLimiter(settings, system.scheduler)
+      limiter.acquire().futureValue
+      limiter.overloaded(Some(300.millis))
+      limiter.currentLimit shouldBe 1
+
+      val next = limiter.acquire()
+      next.isCompleted shouldBe false
+      next.futureValue(timeout(1.second))
+    }
+
+    "start within the concurrency bounds, whatever order they were set in" in {
+      val lowerMax = AdaptiveConcurrencySettings().withMaxConcurrency(5)
+      new AdaptiveLimiter(lowerMax, system.scheduler).currentLimit shouldBe 5
+
+      val higherInitial = AdaptiveConcurrencySettings().withInitialConcurrency(200).withMaxConcurrency(500)
+      new AdaptiveLimiter(higherInitial, system.scheduler).currentLimit shouldBe 200
+
+      val minAboveMax = AdaptiveConcurrencySettings().withMinConcurrency(10).withMaxConcurrency(5)
+      an[IllegalArgumentException] should be thrownBy new AdaptiveLimiter(minAboveMax, system.scheduler)
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.google.firebase.fcm.v1.impl
+
+import org.apache.pekko
+import pekko.actor.ActorSystem
+import pekko.stream.connectors.google.firebase.fcm.AdaptiveConcurrencySettings
+import pekko.stream.connectors.google.firebase.fcm.v1.models.{ FcmErrorResponse, FcmSuccessResponse }
+import pekko.stream.connectors.testkit.scaladsl.LogCapturing
+import pekko.testkit.TestKit
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.concurrent.ScalaFutures
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpecLike
+
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicInteger
+import scala.concurrent.{ ExecutionContext, Future }
+import scala.concurrent.duration._
+
+class FcmFlowsSpec
+    extends TestKit(ActorSystem())
+    with AnyWordSpecLike
+    with Matchers
+    with ScalaFutures
+    with BeforeAndAfterAll
+    with LogCapturing {
+
+  override def afterAll(): Unit =
+    TestKit.shutdownActorSystem(system)
+
+  implicit val defaultPatience =
+    PatienceConfig(timeout = 2.seconds, interval = 50.millis)
+
+  implicit val executionContext: ExecutionContext = system.dispatcher
+
+  private val settings = AdaptiveConcurrencySettings()
+    .withMinBackoff(10.millis)
+    .withMaxBackoff(50.millis)
+    .withMaxRetries(2)
+
+  "FcmFlows.sendAdaptively" should {
+
+    "retry attempts that failed to connect" in {
+      val limiter = new AdaptiveLimiter(settings, system.scheduler)
+      val attempts = new AtomicInteger()
+
+      val response = FcmFlows.sendAdaptively(limiter, settings.maxRetries) { () =>
+        if (attempts.incrementAndGet() < 3) Future.failed(new IOException("connection reset"))
+        else Future.successful(FcmSender.Delivered(FcmSuccessResponse("sent")))
+      }
+
+      response.futureValue shouldBe FcmSuccessResponse("sent")
+      attempts.get shouldBe 3
+    }
+
+    "return the last error response when no retries are left" in {
+      val limiter = new AdaptiveLimiter(settings, system.scheduler)
+      val attempts = new AtomicInteger()
+
+      val response = FcmFlows.sendAdaptively(limiter, settings.maxRetries) { () =>
+        attempts.incrementAndGet()
+        Future.successful(FcmSender.Overloaded(FcmErrorResponse("throttled"), Some(10.millis)))
+      }
+
+      response.futureValue shouldBe FcmErrorResponse("throttled")
+      attempts.get shouldBe 3
+    }
+
+    "return an error response instead of failing when no retries are left" in {
+      val limiter = new AdaptiveLimiter(settings, system.scheduler)
+
+      val response = FcmFlows.sendAdaptively(limiter, settings.maxRetries) { () =>
+        Future.failed(new IOException("connection reset"))
+      }
+
+      response.futureValue.asInstanceOf[FcmErrorResponse].rawError should include("connection reset")
+    }
+
+    "return other failures right away without retrying or shrinking the limit" in {
+      val limiter = new AdaptiveLimiter(settings, system.scheduler)
+      val attempts = new AtomicInteger()
+
+      val response = FcmFlows.sendAdaptively(limiter, settings.maxRetries) { () =>
+        attempts.incrementAndGet()
+        Future.failed(new IllegalArgumentException("malformed notification"))
+      }
+
+      response.futureValue.asInstanceOf[FcmErrorResponse].rawError should include("malformed notification")
+      attempts.get shouldBe 1
+      limiter.currentLimit shouldBe settings.initialConcurrency
+    }
+  }
+}
@@ -122,5 +122,24 @@ class FcmSenderSpec
         """{"name":"test"}""")
     }
 
+    "tell throttled attempts apart and honor Retry-After" in {
+      val sender = new FcmSender
+      val http = mock[HttpExt]
+      when(
+        http.singleRequest(any[HttpRequest](),
+          any[HttpsConnectionContext](),
+          any[ConnectionPoolSettings](),
+          any[LoggingAdapter]())).thenReturn(
+        Future.successful(
+          HttpResponse(status = StatusCodes.TooManyRequests,
+            headers = List(headers.`Retry-After`(30)),
+            entity = HttpEntity(ContentTypes.`application/json`, """{"name":"test"}"""))))
+      doReturn(system, Nil: _*).when(http).system: @nowarn("msg=dead code")
+
+      sender
+        .sendAttempt(http, FcmSend(false, FcmNotification.empty))
+        .futureValue shouldBe FcmSender.Overloaded(FcmErrorResponse("""{"name":"test"}"""), Some(30.seconds))
+    }
+
   }
 }
@@ -18,8 +18,13 @@ import pekko.NotUsed
 import pekko.annotation.InternalApi
 import pekko.http.scaladsl.Http
 import pekko.stream.connectors.huawei.pushkit.HmsSettings
-import pekko.stream.connectors.huawei.pushkit.models.{ PushKitNotification, Response }
+import pekko.stream.connectors.huawei.pushkit.models.{ PushKitNotification, PushKitResponse, Response, Tokens }
 import pekko.stream.scaladsl.Flow
+import spray.json.{ JsArray, JsString, JsonParser }
+
+import scala.collection.immutable
+import scala.concurrent.duration.FiniteDuration
+import scala.util.Try
 
 /**
  * INTERNAL API
@@ -42,4 +47,87 @@ private[pushkit] object PushKitFlows {
             })
       }
       .mapMaterializedValue(_ => NotUsed)
+
+  /**
+   * Maximum number of tokens Push Kit accepts in a single message.
+   */
+  private[pushkit] val MaxTokensPerRequest = 1000
+
+  private val SuccessCode = "80000000"
+  private val PartialSuccessCode = "80100000"
+
+  private[pushkit] def pushKitToTokens(
+      conf: HmsSettings,
+      maxTokens: Int,
+      maxWait: FiniteDuration): Flow[(PushKitNotification, String), (Response, String), NotUsed] = {
+    require(maxTokens > 0 && maxTokens <= MaxTokensPerRequest,
+      s"maxTokens must be between 1 and $MaxTokensPerRequest")
+    Flow
+      .fromMaterializer { (materializer, _) =>
+        import materializer.executionContext
+        val http = Http()(materializer.system)
+        val session: HmsSession =
+          new HmsSession(conf, new HmsTokenApi(http, materializer.system, conf.forwardProxy))
+        val sender: PushKitSender = new PushKitSender()
+        Flow[(PushKitNotification, String)]
+          .groupedWithin(maxTokens, maxWait)
+          .mapConcat(mergeTokens)
+          .mapAsync(conf.maxConcurrentConnections) {
+            case (template, tokens) =>
+              session
+                .getToken()(materializer)
+                .flatMap { token =>
+                  sender.send(conf,
+                    token,
+                    http,
+                    PushKitSend(conf.test, template.withTarget(Tokens(tokens))),
+                    materializer.system)(materializer)
+                }
+                .map(splitResponse(_, tokens))
+          }
+          .mapConcat(identity)
+      }
+      .mapMaterializedValue(_ => NotUsed)
+  }
+
+  /**
+   * Merges the tokens of identical messages, keeping the order in which the messages first appeared.
+   */
+  private[pushkit] def mergeTokens(batch: immutable.Seq[(PushKitNotification, String)])
+      : immutable.Seq[(PushKitNotification, immutable.Seq[String])] = {
+    val byTemplate = batch.groupBy { case (template, _) => withoutTarget(template) }
+    batch
+      .map { case (template, _) => withoutTarget(template) }
+      .distinct
+      .map(template => template -> byTemplate(template).map(_._2))
+  }
+
+  /**
+   * Splits the response to a multi-token message into one response per token. On partial success the tokens Push Kit
+   * reports as illegal keep the original response, all other tokens get a success response. When the illegal tokens
+   * cannot be told, all tokens keep the original response.
+   */
+  private[pushkit] def splitResponse(response: Response,
+      tokens: immutable.Seq[String]): immutable.Seq[(Response, String)] =
+    response match {
+      case partial @ PushKitResponse(PartialSuccessCode, msg, requestId) =>
+        illegalTokens(msg) match {
+          case Some(illegal) =>
+            val success = PushKitResponse(SuccessCode, "Success", requestId)
+            tokens.map(token => (if (illegal(token)) partial else success) -> token)
+          case None =>
+            tokens.map(partial -> _)
+        }
+      case other =>
+        tokens.map(other -> _)
+    }
+
+  // the message of a partial success looks like {"success":1,"failure":1,"illegal_tokens":["..."]}
+  private def illegalTokens(msg: String): Option[Set[String]] =
+    Try(JsonParser(msg).asJsObject.fields.get("illegal_tokens")).toOption.flatten.collect {
+      case JsArray(tokens) => tokens.collect { case JsString(token) => token }.toSet
+    }
+
+  private def withoutTarget(notification: PushKitNotification): PushKitNotification =
+    notification.copy(token = None, topic = None, condition = None)
 }
@@ -17,9 +17,12 @@ import org.apache.pekko
 import pekko.stream.connectors.huawei.pushkit._
 import pekko.stream.connectors.huawei.pushkit.impl.PushKitFlows
 import pekko.stream.connectors.huawei.pushkit.models.{ PushKitNotification, Response }
-import pekko.stream.javadsl
+import pekko.japi.Pair
+import pekko.stream.{ javadsl, scaladsl }
+import pekko.util.JavaDurationConverters._
 import pekko.{ Done, NotUsed }
 
+import java.time.Duration
 import java.util.concurrent.CompletionStage
 
 object HmsPushKit {
@@ -27,6 +30,21 @@ object HmsPushKit {
   def send(conf: HmsSettings): javadsl.Flow[PushKitNotification, Response, NotUsed] =
     PushKitFlows.pushKit(conf).asJava
 
+  /**
+   * Sends a message to single tokens, merging identical messages into multi-token requests of up to `maxTokens`
+   * tokens. A request is sent when it is full or `maxWait` after its first token arrived. Emits the response for
+   * every token, in the order of the requests.
+   */
+  def sendToTokens(conf: HmsSettings,
+      maxWait: Duration,
+      maxTokens: Int): javadsl.Flow[Pair[PushKitNotification, String], Pair[Response, String], NotUsed] =
+    scaladsl
+      .Flow[Pair[PushKitNotification, String]]
+      .map(_.toScala)
+      .via(PushKitFlows.pushKitToTokens(conf, maxTokens, maxWait.asScala))
+      .map(t => Pair(t._1, t._2))
+      .asJava
+
   def fireAndForget(conf: HmsSettings): javadsl.Sink[PushKitNotification, CompletionStage[Done]] =
     send(conf)
       .toMat(javadsl.Sink.ignore(), javadsl.Keep.right[NotUsed, CompletionStage[Done]])
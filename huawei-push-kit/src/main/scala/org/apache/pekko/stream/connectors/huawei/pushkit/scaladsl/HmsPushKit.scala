@@ -21,12 +21,25 @@ import pekko.stream.scaladsl.{ Flow, Keep, Sink }
 import pekko.{ Done, NotUsed }
 
 import scala.concurrent.Future
+import scala.concurrent.duration.FiniteDuration
 
 object HmsPushKit {
 
   def send(conf: HmsSettings): Flow[PushKitNotification, Response, NotUsed] =
     PushKitFlows.pushKit(conf)
 
+  /**
+   * Sends a message to single tokens, merging identical messages into multi-token requests of up to `maxTokens`
+   * tokens. A request is sent when it is full or `maxWait` after its first token arrived. Emits the response for
+   * every token, in the order of the requests.
+   */
+  def sendToTokens(
+      conf: HmsSettings,
+      maxWait: FiniteDuration,
+      maxTokens: Int = PushKitFlows.MaxTokensPerRequest)
+      : Flow[(PushKitNotification, String), (Response, String), NotUsed] =
+    PushKitFlows.pushKitToTokens(conf, maxTokens, maxWait)
+
   def fireAndForget(conf: HmsSettings): Sink[PushKitNotification, Future[Done]] =
     send(conf).toMat(Sink.ignore)(Keep.right)
 
@@ -35,6 +35,7 @@ import pekko.stream.scaladsl.Sink
 
 import scala.collection.immutable
 import scala.concurrent.Future
+import scala.concurrent.duration._
 
 class PushKitExamples {
 
@@ -78,6 +79,15 @@ class PushKitExamples {
       .runWith(Sink.seq)
   // #asFlow-send
 
+  // #tokens-send
+  val tokens = List("token1", "token2", "token3")
+  val result2: Future[immutable.Seq[(Response, String)]] =
+    Source(tokens)
+      .map(token => notification -> token)
+      .via(HmsPushKit.sendToTokens(config, maxWait = 100.millis))
+      .runWith(Sink.seq)
+  // #tokens-send
+
   // #condition-builder
   import org.apache.pekko.stream.connectors.huawei.pushkit.models.Condition.{ Topic => CTopic }
   val condition = Condition(CTopic("TopicA") && (CTopic("TopicB") || (CTopic("TopicC") && !CTopic("TopicD"))))
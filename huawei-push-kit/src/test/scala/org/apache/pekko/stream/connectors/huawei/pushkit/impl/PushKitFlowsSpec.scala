@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.huawei.pushkit.impl
+
+import org.apache.pekko
+import pekko.stream.connectors.huawei.pushkit.models.{ ErrorResponse, PushKitNotification, PushKitResponse, Topic }
+import pekko.stream.connectors.testkit.scaladsl.LogCapturing
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class PushKitFlowsSpec extends AnyWordSpec with Matchers with LogCapturing {
+
+  private val hello = PushKitNotification.empty.withData("hello")
+  private val bye = PushKitNotification.empty.withData("bye")
+
+  "mergeTokens" should {
+
+    "merge the tokens of identical messages in order" in {
+      PushKitFlows.mergeTokens(
+        List(hello -> "t1", bye -> "t2", hello.withTarget(Topic("ignored")) -> "t3", hello -> "t4")) shouldBe List(
+        hello -> List("t1", "t3", "t4"),
+        bye -> List("t2"))
+    }
+  }
+
+  "splitResponse" should {
+
+    "give every token the response of a successful request" in {
+      val response = PushKitResponse("80000000", "Success", "id")
+      PushKitFlows.splitResponse(response, List("t1", "t2")) shouldBe List(response -> "t1", response -> "t2")
+    }
+
+    "give every token the error of a failed request" in {
+      val response = ErrorResponse("boom")
+      PushKitFlows.splitResponse(response, List("t1", "t2")) shouldBe List(response -> "t1", response -> "t2")
+    }
+
+    "tell illegal tokens apart on partial success" in {
+      val response =
+        PushKitResponse("80100000", """{"success":1,"failure":1,"illegal_tokens":["t2"]}""", "id")
+      PushKitFlows.splitResponse(response, List("t1", "t2")) shouldBe List(
+        PushKitResponse("80000000", "Success", "id") -> "t1",
+        response -> "t2")
+    }
+  }
+}
@@ -76,6 +76,19 @@ abstract class CommittableRecord @InternalApi private[kinesis] (
    */
   def forceCheckpoint(): Unit
 
+  /**
+   * Position of the record among the records handed to its shard processor, counting from 0, or -1 if unknown.
+   * Used to find the highest contiguous processed record when coalescing checkpoints.
+   */
+  @InternalApi
+  private[kinesis] def offset: Long = -1L
+
+  /**
+   * Whether this is the last record of a shard that has ended, which needs to be checkpointed to end the shard.
+   */
+  @InternalApi
+  private[kinesis] def isLastRecordOfShard: Boolean = false
+
 }
 
 object CommittableRecord {
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis
+
+import org.apache.pekko.util.JavaDurationConverters._
+
+import scala.concurrent.duration._
+
+/**
+ * Settings for packing user records into KPL aggregated records.
+ *
+ * User records predicted to go to the same shard are packed into one aggregated record until it reaches
+ * `maxAggregatedBytes`, or `maxBufferTime` after its first user record arrived. The shards of the stream are listed
+ * every `shardRefreshInterval` to predict the shard of a user record.
+ */
+final class KinesisAggregationSettings private (val maxAggregatedBytes: Int,
+    val maxBufferTime: FiniteDuration,
+    val shardRefreshInterval: FiniteDuration) {
+
+  require(
+    maxAggregatedBytes >= 1 && maxAggregatedBytes <= KinesisAggregationSettings.MAX_RECORD_BYTES,
+    "Limit must be between 1 and 1048576. See: https://docs.aws.amazon.com/kinesis/latest/APIReference/API_PutRecords.html")
+
+  def withMaxAggregatedBytes(value: Int): KinesisAggregationSettings = copy(maxAggregatedBytes = value)
+
+  /** Scala API */
+  def withMaxBufferTime(value: FiniteDuration): KinesisAggregationSettings = copy(maxBufferTime = value)
+
+  /** Java API */
+  def withMaxBufferTime(value: java.time.Duration): KinesisAggregationSettings = copy(maxBufferTime = value.asScala)
+
+  /** Scala API */
+  def withShardRefreshInterval(value: FiniteDuration): KinesisAggregationSettings =
+    copy(shardRefreshInterval = value)
+
+  /** Java API */
+  def withShardRefreshInterval(value: java.time.Duration): KinesisAggregationSettings =
+    copy(shardRefreshInterval = value.asScala)
+
+  private def copy(
+      maxAggregatedBytes: Int = maxAggregatedBytes,
+      maxBufferTime: FiniteDuration = maxBufferTime,
+      shardRefreshInterval: FiniteDuration = shardRefreshInterval): KinesisAggregationSettings =
+    new KinesisAggregationSettings(
+      maxAggregatedBytes = maxAggregatedBytes,
+      maxBufferTime = maxBufferTime,
+      shardRefreshInterval = shardRefreshInterval)
+
+  override def toString =
+    "KinesisAggregationSettings(" +
+    s"maxAggregatedBytes=$maxAggregatedBytes," +
+    s"maxBufferTime=$maxBufferTime," +
+    s"shardRefreshInterval=$shardRefreshInterval" +
+    ")"
+}
+
+object KinesisAggregationSettings {
+  private val MAX_RECORD_BYTES = 1024 * 1024
+  // the default of the Kinesis Producer Library
+  private val DEFAULT_MAX_AGGREGATED_BYTES = 51200
+
+  val Defaults: KinesisAggregationSettings =
+    new KinesisAggregationSettings(
+      maxAggregatedBytes = DEFAULT_MAX_AGGREGATED_BYTES,
+      maxBufferTime = 100.millis,
+      shardRefreshInterval = 1.minute)
+
+  def apply(): KinesisAggregationSettings = Defaults
+
+  /** Java API */
+  def create(): KinesisAggregationSettings = Defaults
+
+}
@@ -26,9 +26,21 @@ object KinesisErrors {
       extends RuntimeException(s"Failed to fetch records from Kinesis for shard [$shardId]. Reason : ${e.getMessage}",
         e)
       with KinesisSourceError
+  class ListShardsError(val streamName: String, e: Throwable)
+      extends RuntimeException(s"Failed to list the shards of stream [$streamName]. Reason : ${e.getMessage}", e)
+      with KinesisSourceError
+  class RegisterConsumerError(val consumerName: String, e: Throwable)
+      extends RuntimeException(s"Failed to register the stream consumer [$consumerName]. Reason : ${e.getMessage}", e)
+      with KinesisSourceError
+  class SubscribeToShardError(val shardId: String, e: Throwable)
+      extends RuntimeException(s"Failed to subscribe to shard [$shardId]. Reason : ${e.getMessage}", e)
+      with KinesisSourceError
 
   sealed trait KinesisFlowErrors extends NoStackTrace
   case class FailurePublishingRecords(e: Throwable)
       extends RuntimeException(s"Failure publishing records to Kinesis. Reason : ${e.getMessage}", e)
       with KinesisFlowErrors
+  case class FailureListingShards(e: Throwable)
+      extends RuntimeException(s"Failure listing the shards of the Kinesis stream. Reason : ${e.getMessage}", e)
+      with KinesisFlowErrors
 }
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis
+
+import org.apache.pekko.util.JavaDurationConverters._
+
+import java.util.concurrent.ThreadLocalRandom
+import scala.concurrent.duration._
+
+/**
+ * Settings for retrying the entries of a PutRecords batch which Kinesis did not write, e.g. because the shard's
+ * throughput was exceeded, and for renewing failed enhanced fan-out subscriptions.
+ *
+ * Failed entries and subscriptions are retried up to `maxRetries` times. The backoff before a retry doubles with every
+ * attempt, starting at `minBackoff` and capped at `maxBackoff`, also when that is shorter, and is stretched by a random
+ * jitter of up to `randomFactor`.
+ */
+final class KinesisRetrySettings private (val maxRetries: Int,
+    val minBackoff: FiniteDuration,
+    val maxBackoff: FiniteDuration,
+    val randomFactor: Double) {
+
+  require(maxRetries >= 0, "maxRetries must not be negative")
+  require(minBackoff > Duration.Zero, "minBackoff must be positive")
+  require(maxBackoff > Duration.Zero, "maxBackoff must be positive")
+  require(randomFactor >= 0.0, "randomFactor must not be negative")
+
+  def withMaxRetries(value: Int): KinesisRetrySettings = copy(maxRetries = value)
+
+  /** Scala API */
+  def withMinBackoff(value: FiniteDuration): KinesisRetrySettings = copy(minBackoff = value)
+
+  /** Java API */
+  def withMinBackoff(value: java.time.Duration): KinesisRetrySettings = copy(minBackoff = value.asScala)
+
+  /** Scala API */
+  def withMaxBackoff(value: FiniteDuration): KinesisRetrySettings = copy(maxBackoff = value)
+
+  /** Java API */
+  def withMaxBackoff(value: java.time.Duration): KinesisRetrySettings = copy(maxBackoff = value.asScala)
+
+  def withRandomFactor(value: Double): KinesisRetrySettings = copy(randomFactor = value)
+
+  /**
+   * The backoff before the given retry, counting from 1.
+   */
+  def backoff(retry: Int): FiniteDuration = {
+    val exponential = minBackoff * math.pow(2, math.min(retry - 1, 30)).toLong
+    val capped = if (exponential > maxBackoff || exponential <= Duration.Zero) maxBackoff else exponential
+    val jitter = 1.0 + ThreadLocalRandom.current().nextDouble() * randomFactor
+    (capped * jitter) match {
+      case f: FiniteDuration => f
+      case _                 => maxBackoff
+    }
+  }
+
+  private def copy(
+      maxRetries: Int = maxRetries,
+      minBackoff: FiniteDuration = minBackoff,
+      maxBackoff: FiniteDuration = maxBackoff,
+      randomFactor: Double = randomFactor): KinesisRetrySettings =
+    new KinesisRetrySettings(
+      maxRetries = maxRetries,
+      minBackoff = minBackoff,
+      maxBackoff = maxBackoff,
+      randomFactor = randomFactor)
+
+  override def toString =
+    "KinesisRetrySettings(" +
+    s"maxRetries=$maxRetries," +
+    s"minBackoff=$minBackoff," +
+    s"maxBackoff=$maxBackoff," +
+    s"randomFactor=$randomFactor" +
+    ")"
+}
+
+object KinesisRetrySettings {
+
+  val Defaults: KinesisRetrySettings =
+    new KinesisRetrySettings(maxRetries = 5, minBackoff = 100.millis, maxBackoff = 10.seconds, randomFactor = 0.2)
+
+  def apply(): KinesisRetrySettings = Defaults
+
+  /** Java API */
+  def create(): KinesisRetrySettings = Defaults
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis
+
+import org.apache.pekko.util.JavaDurationConverters._
+
+import scala.concurrent.duration._
+
+/**
+ * Settings for shaping the records written to Kinesis per shard rather than for the whole stream.
+ *
+ * Every record is mapped to the shard it goes to from the hash key ranges of the open shards, which are listed every
+ * `shardRefreshInterval`. The records for every shard are limited to `maxRecordsPerSecond` records and
+ * `maxBytesPerSecond` bytes of partition keys and data per second, the write limits of a shard by default. Up to
+ * `maxBufferedRecords` records are buffered for every shard while it is held back, so that records for other shards
+ * keep flowing; once the buffer of a shard is full, records for all shards wait for it.
+ */
+final class KinesisShardShapingSettings private (val maxRecordsPerSecond: Int,
+    val maxBytesPerSecond: Int,
+    val maxBufferedRecords: Int,
+    val shardRefreshInterval: FiniteDuration) {
+
+  require(maxRecordsPerSecond >= 1, "maxRecordsPerSecond must be at least 1")
+  require(maxBytesPerSecond >= 1, "maxBytesPerSecond must be at least 1")
+  require(maxBufferedRecords >= 1, "maxBufferedRecords must be at least 1")
+
+  def withMaxRecordsPerSecond(value: Int): KinesisShardShapingSettings = copy(maxRecordsPerSecond = value)
+  def withMaxBytesPerSecond(value: Int): KinesisShardShapingSettings = copy(maxBytesPerSecond = value)
+  def withMaxBufferedRecords(value: Int): KinesisShardShapingSettings = copy(maxBufferedRecords = value)
+
+  /** Scala API */
+  def withShardRefreshInterval(value: FiniteDuration): KinesisShardShapingSettings =
+    copy(shardRefreshInterval = value)
+
+  /** Java API */
+  def withShardRefreshInterval(value: java.time.Duration): KinesisShardShapingSettings =
+    copy(shardRefreshInterval = value.asScala)
+
+  private def copy(
+      maxRecordsPerSecond: Int = maxRecordsPerSecond,
+      maxBytesPerSecond: Int = maxBytesPerSecond,
+      maxBufferedRecords: Int = maxBufferedRecords,
+      shardRefreshInterval: FiniteDuration = shardRefreshInterval): KinesisShardShapingSettings =
+    new KinesisShardShapingSettings(
+      maxRecordsPerSecond = maxRecordsPerSecond,
+      maxBytesPerSecond = maxBytesPerSecond,
+      maxBufferedRecords = maxBufferedRecords,
+      shardRefreshInterval = shardRefreshInterval)
+
+  override def toString =
+    "KinesisShardShapingSettings(" +
+    s"maxRecordsPerSecond=$maxRecordsPerSecond," +
+    s"maxBytesPerSecond=$maxBytesPerSecond," +
+    s"maxBufferedRecords=$maxBufferedRecords," +
+    s"shardRefreshInterval=$shardRefreshInterval" +
+    ")"
+}
+
+object KinesisShardShapingSettings {
+  // https://docs.aws.amazon.com/streams/latest/dev/service-sizes-and-limits.html
+  private val MAX_RECORDS_PER_SHARD_PER_SECOND = 1000
+  private val MAX_BYTES_PER_SHARD_PER_SECOND = 1024 * 1024
+
+  val Defaults: KinesisShardShapingSettings =
+    new KinesisShardShapingSettings(
+      maxRecordsPerSecond = MAX_RECORDS_PER_SHARD_PER_SECOND,
+      maxBytesPerSecond = MAX_BYTES_PER_SHARD_PER_SECOND,
+      maxBufferedRecords = MAX_RECORDS_PER_SHARD_PER_SECOND,
+      shardRefreshInterval = 1.minute)
+
+  def apply(): KinesisShardShapingSettings = Defaults
+
+  /** Java API */
+  def create(): KinesisShardShapingSettings = Defaults
+
+}
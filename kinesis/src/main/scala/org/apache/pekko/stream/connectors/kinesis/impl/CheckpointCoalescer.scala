@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis.impl
+
+import org.apache.pekko
+import pekko.Done
+import pekko.annotation.InternalApi
+import pekko.stream.{ ActorAttributes, Attributes, Inlet, SinkShape }
+import pekko.stream.connectors.kinesis.{ CommittableRecord, KinesisSchedulerCheckpointSettings }
+import pekko.stream.connectors.kinesis.CommittableRecord.ShardProcessorData
+import pekko.stream.stage._
+import software.amazon.kinesis.lifecycle.ShutdownReason
+
+import scala.collection.mutable
+import scala.concurrent.{ Future, Promise }
+import scala.util.control.NonFatal
+
+/**
+ * Internal API
+ *
+ * Checkpoints the highest contiguous processed record of every shard processor, rather than every record.
+ *
+ * Records may arrive out of order, e.g. after `mapAsyncUnordered`; a record is only checkpointed once all records
+ * handed to its shard processor before it have arrived as well, which keeps at-least-once delivery. A checkpoint is
+ * written after `maxBatchSize` contiguous records of a shard, every `maxBatchWait`, right away for the last record
+ * of an ended shard and when a shutdown was requested, and for all shards when the stream completes. Records of a
+ * shard whose lease was lost are dropped, including those still in flight when the loss is noticed, as they can no
+ * longer be checkpointed.
+ */
+@InternalApi
+private[kinesis] final class CheckpointCoalescer(settings: KinesisSchedulerCheckpointSettings)
+    extends GraphStageWithMaterializedValue[SinkShape[CommittableRecord], Future[Done]] {
+
+  private val in = Inlet[CommittableRecord]("CheckpointCoalescer.in")
+
+  override val shape: SinkShape[CommittableRecord] = SinkShape(in)
+
+  override protected def initialAttributes: Attributes = Attributes(ActorAttributes.IODispatcher)
+
+  override def createLogicAndMaterializedValue(inheritedAttributes: Attributes): (GraphStageLogic, Future[Done]) = {
+    val done = Promise[Done]()
+    val logic = new TimerGraphStageLogic(shape) with StageLogging with InHandler {
+
+      // shard processor data identifies the processor of a lease, records of every processor are counted from 0
+      private val shards = mutable.Map.empty[ShardProcessorData, ShardCheckpoints]
+      // processors whose lease was lost, their later records would otherwise be tracked again from offset 0
+      private val lost = mutable.Set.empty[ShardProcessorData]
+
+      override def preStart(): Unit = {
+        scheduleWithFixedDelay(CheckpointCoalescer.FlushTimer, settings.maxBatchWait, settings.maxBatchWait)
+        pull(in)
+      }
+
+      override def onPush(): Unit = {
+        val record = grab(in)
+        if (!record.canBeCheckpointed) leaseLost(record.processorData)
+        else if (!lost.contains(record.processorData)) {
+          val checkpoints = shards.getOrElseUpdate(record.processorData, new ShardCheckpoints)
+          checkpoints.processed(record)
+          val checkpointNow = checkpoints.latest.exists { r =>
+            r.isLastRecordOfShard || r.shutdownReason.contains(ShutdownReason.REQUESTED)
+          }
+          if (checkpoints.uncommitted >= settings.maxBatchSize || checkpointNow)
+            checkpoint(record.processorData, checkpoints)
+        }
+        pull(in)
+      }
+
+      override def onUpstreamFinish(): Unit = {
+        checkpointAll()
+        done.success(Done)
+        completeStage()
+      }
+
+      override def onUpstreamFailure(ex: Throwable): Unit = {
+        // the records that arrived were processed, so their checkpoints are still valid
+        checkpointAll()
+        done.failure(ex)
+        failStage(ex)
+      }
+
+      override def postStop(): Unit =
+        done.tryFailure(new IllegalStateException("Checkpoint coalescer stopped before its upstream completed"))
+
+      override protected def onTimer(timerKey: Any): Unit = checkpointAll()
+
+      private def checkpointAll(): Unit =
+        shards.toList.foreach { case (processor, checkpoints) => checkpoint(processor, checkpoints) }
+
+      private def checkpoint(processor: ShardProcessorData, checkpoints: ShardCheckpoints): Unit =
+        checkpoints.latest.foreach { record =>
+          if (record.canBeCheckpointed) {
+            try record.tryToCheckpoint()
+            catch {
+              case NonFatal(ex) =>
+                log.error(ex, "Failed to checkpoint shard [{}] at [{}]", processor.shardId, record.sequenceNumber)
+                throw ex
+            }
+            checkpoints.committed()
+          }
+          if (!record.canBeCheckpointed) leaseLost(processor)
+          else if (record.isLastRecordOfShard) shards.remove(processor)
+        }
+
+      private def leaseLost(processor: ShardProcessorData): Unit = {
+        shards.remove(processor)
+        lost += processor
+      }
+
+      setHandler(in, this)
+    }
+    (logic, done.future)
+  }
+
+  /**
+   * Processed records of a shard processor that were not checkpointed yet.
+   */
+  private final class ShardCheckpoints {
+    private var nextOffset = 0L
+    private val outOfOrder = mutable.TreeMap.empty[Long, CommittableRecord]
+
+    // the highest contiguous processed record not checkpointed yet
+    var latest: Option[CommittableRecord] = None
+    var uncommitted = 0
+
+    def processed(record: CommittableRecord): Unit =
+      if (record.offset < 0) {
+        // records of unknown position are checkpointed in arrival order
+        latest = Some(latest.fold(record)(CommittableRecord.orderBySequenceNumber.max(_, record)))
+        uncommitted += 1
+      } else {
+        outOfOrder.update(record.offset, record)
+        while (outOfOrder.headOption.exists(_._1 == nextOffset)) {
+          latest = outOfOrder.remove(nextOffset)
+          nextOffset += 1
+          uncommitted += 1
+        }
+      }
+
+    def committed(): Unit = {
+      latest = None
+      uncommitted = 0
+    }
+  }
+}
+
+/**
+ * Internal API
+ */
+@InternalApi
+private[kinesis] object CheckpointCoalescer {
+  private case object FlushTimer
+}
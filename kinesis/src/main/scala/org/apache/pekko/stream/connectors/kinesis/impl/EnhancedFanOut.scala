@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis.impl
+
+import java.io.IOException
+import java.util.concurrent.CompletionException
+import java.util.concurrent.atomic.{ AtomicBoolean, AtomicInteger, AtomicReference }
+
+import org.apache.pekko
+import pekko.NotUsed
+import pekko.actor.Scheduler
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts.parasitic
+import pekko.pattern.after
+import pekko.stream.Materializer
+import pekko.stream.connectors.kinesis.{ KinesisErrors => Errors, KinesisRetrySettings, ShardSettings }
+import pekko.stream.scaladsl.Source
+import software.amazon.awssdk.core.async.SdkPublisher
+import software.amazon.awssdk.core.exception.{ SdkClientException, SdkException }
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient
+import software.amazon.awssdk.services.kinesis.model._
+
+import scala.collection.JavaConverters._
+import scala.compat.java8.FutureConverters._
+import scala.concurrent.{ Future, Promise }
+import scala.concurrent.duration._
+import scala.util.control.NonFatal
+
+/**
+ * Internal API
+ *
+ * Reads shards through enhanced fan-out: records are pushed over HTTP/2 `SubscribeToShard` subscriptions of a
+ * registered stream consumer, which Kinesis completes after 5 minutes. Subscriptions are renewed from the continuation
+ * sequence number of the last event until the shard ends, and after a backoff when they failed with a recoverable
+ * error.
+ */
+@InternalApi
+private[kinesis] object EnhancedFanOut {
+
+  /**
+   * A shard can be subscribed to once per second, and Kinesis rejects a new subscription with
+   * `ResourceInUseException` for up to 5 seconds after the previous one, so the default backoff starts at a second.
+   */
+  val DefaultRetrySettings: KinesisRetrySettings =
+    KinesisRetrySettings().withMinBackoff(1.second).withMaxBackoff(30.seconds)
+
+  private val ConsumerStatusPollInterval = 1.second
+
+  /**
+   * Registers the stream consumer, or looks it up if it is registered already, and waits until it is active.
+   */
+  def consumerArn(streamArn: String, consumerName: String, kinesisClient: KinesisAsyncClient)(
+      implicit mat: Materializer): Future[String] = {
+    implicit val ec = mat.executionContext
+
+    def describe(request: DescribeStreamConsumerRequest): Future[ConsumerDescription] =
+      kinesisClient.describeStreamConsumer(request).toScala.map(_.consumerDescription)
+
+    def awaitActive(consumerArn: String, status: ConsumerStatus): Future[String] =
+      if (status == ConsumerStatus.ACTIVE) Future.successful(consumerArn)
+      else
+        after(ConsumerStatusPollInterval, mat.system.scheduler)(
+          describe(DescribeStreamConsumerRequest.builder().consumerARN(consumerArn).build()))
+          .flatMap(consumer => awaitActive(consumer.consumerARN, consumer.consumerStatus))
+
+    kinesisClient
+      .registerStreamConsumer(
+        RegisterStreamConsumerRequest.builder().streamARN(streamArn).consumerName(consumerName).build())
+      .toScala
+      .map(response => response.consumer.consumerARN -> response.consumer.consumerStatus)
+      .recoverWith {
+        case e if cause(e).isInstanceOf[ResourceInUseException] =>
+          describe(DescribeStreamConsumerRequest.builder().streamARN(streamArn).consumerName(consumerName).build())
+            .map(consumer => consumer.consumerARN -> consumer.consumerStatus)
+      }
+      .flatMap { case (consumerArn, status) => awaitActive(consumerArn, status) }
+      .recoverWith {
+        case NonFatal(e) => Future.failed(new Errors.RegisterConsumerError(consumerName, cause(e)))
+      }
+  }
+
+  /**
+   * Reads a shard through subscriptions, until the shard ends. A subscription which Kinesis completed, as it does
+   * after 5 minutes, is renewed right away from the last continuation. One which failed with a recoverable error is
+   * renewed from there after a backoff, unless `retrySettings.maxRetries` subscriptions in a row failed.
+   */
+  def shardSource(consumerArn: String,
+      shardSettings: ShardSettings,
+      retrySettings: KinesisRetrySettings,
+      kinesisClient: KinesisAsyncClient,
+      scheduler: Scheduler): Source[Record, NotUsed] =
+    Source
+      .lazySource { () =>
+        val position = new AtomicReference(startingPosition(shardSettings))
+        val shardEnded = new AtomicBoolean(false)
+        // subscriptions in a row which failed before delivering an event
+        val failures = new AtomicInteger(0)
+        Source
+          .repeat(NotUsed)
+          .takeWhile(_ => !shardEnded.get)
+          .flatMapConcat { _ =>
+            val retry = failures.get
+            val backoff =
+              if (retry == 0) Source.single(NotUsed)
+              else Source.future(after(retrySettings.backoff(retry), scheduler)(Future.successful(NotUsed))(parasitic))
+            backoff
+              .flatMapConcat(_ => subscription(consumerArn, shardSettings.shardId, position.get, kinesisClient))
+              .map { event =>
+                failures.set(0)
+                // a shard that has ended has no continuation
+                Option(event.continuationSequenceNumber) match {
+                  case Some(sequenceNumber) =>
+                    position.set(
+                      StartingPosition
+                        .builder()
+                        .`type`(ShardIteratorType.AFTER_SEQUENCE_NUMBER)
+                        .sequenceNumber(sequenceNumber)
+                        .build())
+                  case None => shardEnded.set(true)
+                }
+                event
+              }
+              .recoverWithRetries(1,
+                {
+                  // the guard may be evaluated more than once, so it only reads the failures
+                  case e: Errors.SubscribeToShardError
+                      if recoverable(e.getCause) && failures.get < retrySettings.maxRetries =>
+                    failures.incrementAndGet()
+                    Source.empty
+                })
+          }
+          .mapConcat(_.records.asScala.toList)
+      }
+      .mapMaterializedValue(_ => NotUsed)
+
+  /**
+   * Errors after which subscribing again may succeed: a subscription which is still active, throttling, failures
+   * within Kinesis and lost connections.
+   */
+  private def recoverable(e: Throwable): Boolean = e match {
+    case _: ResourceInUseException | _: LimitExceededException | _: InternalFailureException => true
+    case _: IOException | _: SdkClientException                                                => true
+    case sdk: SdkException                                                                      => sdk.retryable()
+    case _                                                                                      => false
+  }
+
+  private def subscription(consumerArn: String,
+      shardId: String,
+      position: StartingPosition,
+      kinesisClient: KinesisAsyncClient): Source[SubscribeToShardEvent, NotUsed] = {
+    val eventStream = Promise[SdkPublisher[SubscribeToShardEventStream]]()
+    val handler = SubscribeToShardResponseHandler
+      .builder()
+      .onEventStream(publisher => eventStream.trySuccess(publisher))
+      .onError(e => eventStream.tryFailure(e))
+      .build()
+    kinesisClient
+      .subscribeToShard(
+        SubscribeToShardRequest.builder().consumerARN(consumerArn).shardId(shardId).startingPosition(position).build(),
+        handler)
+      .toScala
+      .failed
+      .foreach(eventStream.tryFailure)(parasitic)
+
+    Source
+      .futureSource(eventStream.future.map { publisher =>
+        Source.fromPublisher(publisher).collect { case event: SubscribeToShardEvent => event }
+      }(parasitic))
+      .mapError { case NonFatal(e) => new Errors.SubscribeToShardError(shardId, cause(e)) }
+      .mapMaterializedValue(_ => NotUsed)
+  }
+
+  private def startingPosition(shardSettings: ShardSettings): StartingPosition = {
+    val builder = StartingPosition.builder().`type`(shardSettings.shardIteratorType)
+    shardSettings.startingSequenceNumber.foreach(builder.sequenceNumber)
+    shardSettings.atTimestamp.foreach(builder.timestamp)
+    builder.build()
+  }
+
+  private def cause(e: Throwable): Throwable = e match {
+    case c: CompletionException if c.getCause != null => c.getCause
+    case other                                        => other
+  }
+
+}
@@ -26,6 +26,7 @@ import software.amazon.awssdk.services.kinesis.model._
 
 import scala.collection.mutable
 import scala.collection.JavaConverters._
+import scala.concurrent.duration._
 import scala.util.{ Failure, Success, Try }
 
 import scala.compat.java8.FutureConverters._
@@ -48,6 +49,9 @@ private[kinesis] object KinesisSourceStage {
 
   private[kinesis] final case object GetRecords
 
+  // https://docs.aws.amazon.com/kinesis/latest/APIReference/API_GetRecords.html
+  private val MinGetRecordsInterval = 200.millis
+
 }
 
 /**
@@ -71,6 +75,8 @@ private[kinesis] class KinesisSourceStage(shardSettings: ShardSettings, amazonKi
       import shardSettings._
 
       private[this] var currentShardIterator: String = _
+      private[this] var caughtUp = false
+      private[this] var lastGetRecordsNanos = System.nanoTime() - MinGetRecordsInterval.toNanos
       private[this] val buffer = mutable.Queue.empty[Record]
       private[this] var self: StageActor = _
 
@@ -100,18 +106,20 @@ private[kinesis] class KinesisSourceStage(shardSettings: ShardSettings, amazonKi
       private def awaitingRecords(in: (ActorRef, Any)): Unit = in match {
         case (_, GetRecordsSuccess(result)) =>
           val records = result.records.asScala
+          caughtUp = Option(result.millisBehindLatest).forall(_ == 0L)
           if (result.nextShardIterator == null) {
             log.info("Shard {} returned a null iterator and will now complete.", shardId)
-            completeStage()
+            // the buffer is empty while awaiting records, so these are the last records of the shard
+            emitMultiple(out, records.iterator, () => completeStage())
           } else {
             currentShardIterator = result.nextShardIterator
-          }
-          if (records.nonEmpty) {
-            records.foreach(buffer.enqueue(_))
-            self.become(ready)
-            self.ref ! Pump
-          } else {
-            scheduleOnce(GetRecords, refreshInterval)
+            if (records.nonEmpty) {
+              records.foreach(buffer.enqueue(_))
+              self.become(ready)
+              self.ref ! Pump
+            } else {
+              scheduleGetRecords()
+            }
           }
 
         case (_, GetRecordsFailure(ex)) =>
@@ -132,7 +140,7 @@ private[kinesis] class KinesisSourceStage(shardSettings: ShardSettings, amazonKi
           }
           if (buffer.isEmpty) {
             self.become(awaitingRecords)
-            requestRecords()
+            scheduleGetRecords()
           }
 
         case (_, msg) =>
@@ -150,12 +158,25 @@ private[kinesis] class KinesisSourceStage(shardSettings: ShardSettings, amazonKi
         case Success(result)    => self.ref ! GetRecordsSuccess(result)
       }
 
-      private[this] def requestRecords(): Unit =
+      /**
+       * Polls right away while the shard is behind, within the GetRecords limit of 5 calls per second per shard,
+       * and waits for the refresh interval once it is caught up.
+       */
+      private[this] def scheduleGetRecords(): Unit = {
+        val sinceLast = (System.nanoTime() - lastGetRecordsNanos).nanos
+        val delay = if (caughtUp) refreshInterval else MinGetRecordsInterval - sinceLast
+        if (delay > Duration.Zero) scheduleOnce(GetRecords, delay)
+        else requestRecords()
+      }
+
+      private[this] def requestRecords(): Unit = {
+        lastGetRecordsNanos = System.nanoTime()
         amazonKinesisAsync
           .getRecords(
             GetRecordsRequest.builder().limit(limit).shardIterator(currentShardIterator).build())
           .toScala
           .onComplete(handleGetRecords)(parasitic)
+      }
 
       private[this] def requestShardIterator(): Unit = {
         val request = Function
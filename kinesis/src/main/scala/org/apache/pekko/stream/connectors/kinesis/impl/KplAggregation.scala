@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis.impl
+
+import org.apache.pekko.annotation.InternalApi
+import software.amazon.awssdk.core.SdkBytes
+import software.amazon.awssdk.services.kinesis.model.PutRecordsRequestEntry
+import software.amazon.kinesis.retrieval.kpl.Messages
+
+import scala.collection.{ immutable, mutable }
+
+/**
+ * INTERNAL API
+ *
+ * Packs user records into aggregated records in the format of the Kinesis Producer Library, which the Kinesis Client
+ * Library de-aggregates: the magic bytes, the protobuf encoded `AggregatedRecord` and the MD5 digest of the latter.
+ *
+ * @see https://github.com/awslabs/amazon-kinesis-producer/blob/master/aggregation-format.md
+ */
+@InternalApi
+private[kinesis] object KplAggregation {
+
+  val MagicBytes: Array[Byte] = Array(0xF3, 0x89, 0x9A, 0xC2).map(_.toByte)
+
+  private val DigestBytes = 16
+
+  // protobuf tags, lengths and table indexes of a user record, generously estimated
+  private val RecordOverhead = 32
+
+  /**
+   * The bytes a user record adds to an aggregated record, at most.
+   */
+  def recordSize(entry: PutRecordsRequestEntry): Long =
+    entry.data.asByteArrayUnsafe.length.toLong + entry.partitionKey.length +
+    Option(entry.explicitHashKey).fold(0)(_.length) + RecordOverhead
+
+  /**
+   * The bytes an aggregated record adds on top of its user records.
+   */
+  val AggregateOverhead: Int = MagicBytes.length + DigestBytes
+
+  /**
+   * Packs the user records into a single aggregated record, which Kinesis routes by the hash key of the first user
+   * record. A single user record is returned as it is.
+   */
+  def aggregate(entries: immutable.Seq[PutRecordsRequestEntry]): PutRecordsRequestEntry =
+    if (entries.size == 1) entries.head
+    else {
+      val partitionKeys = mutable.LinkedHashMap.empty[String, Int]
+      val explicitHashKeys = mutable.LinkedHashMap.empty[String, Int]
+      val aggregated = Messages.AggregatedRecord.newBuilder()
+      entries.foreach { entry =>
+        val record = Messages.Record
+          .newBuilder()
+          .setPartitionKeyIndex(partitionKeys.getOrElseUpdate(entry.partitionKey, partitionKeys.size).toLong)
+          .setData(com.google.protobuf.ByteString.copyFrom(entry.data.asByteArrayUnsafe))
+        Option(entry.explicitHashKey).foreach { explicitHashKey =>
+          val index = explicitHashKeys.getOrElseUpdate(explicitHashKey, explicitHashKeys.size)
+          record.setExplicitHashKeyIndex(index.toLong)
+        }
+        aggregated.addRecords(record)
+      }
+      partitionKeys.keys.foreach(aggregated.addPartitionKeyTable)
+      explicitHashKeys.keys.foreach(aggregated.addExplicitHashKeyTable)
+
+      val protobuf = aggregated.build().toByteArray
+      val data = new Array[Byte](AggregateOverhead + protobuf.length)
+      System.arraycopy(MagicBytes, 0, data, 0, MagicBytes.length)
+      System.arraycopy(protobuf, 0, data, MagicBytes.length, protobuf.length)
+      System.arraycopy(ShardHashKeys.md5(protobuf), 0, data, MagicBytes.length + protobuf.length, DigestBytes)
+
+      val first = entries.head
+      PutRecordsRequestEntry
+        .builder()
+        .partitionKey(first.partitionKey)
+        .explicitHashKey(ShardHashKeys.hashKey(first).toString)
+        .data(SdkBytes.fromByteArrayUnsafe(data))
+        .build()
+    }
+
+}
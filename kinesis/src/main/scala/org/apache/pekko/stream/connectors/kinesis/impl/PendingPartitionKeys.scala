@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis.impl
+
+import org.apache.pekko
+import pekko.Done
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts
+
+import scala.concurrent.Future
+import scala.util.Success
+
+/**
+ * Internal API
+ *
+ * The partition keys with entries waiting to be written again, shared by all writes of a flow. Later entries of these
+ * keys are held back until the earlier ones were written, so that a retry does not let them overtake each other.
+ */
+@InternalApi
+private[kinesis] final class PendingPartitionKeys {
+
+  // guarded by `this`, completes when all entries of the key waiting to be written were written
+  private var pending = Map.empty[String, Future[Done]]
+
+  /**
+   * The keys of the given ones that have entries waiting to be written, with the completion of these writes.
+   */
+  def writesBefore(keys: Set[String]): Map[String, Future[Done]] = synchronized {
+    pending.filter { case (key, _) => keys.contains(key) }
+  }
+
+  /**
+   * Holds back later entries of the keys until `written` and the writes they already wait for complete, successfully
+   * or not.
+   */
+  def hold(keys: Iterable[String], written: Future[_]): Unit = {
+    val done = written.transform(_ => Success(Done))(ExecutionContexts.parasitic)
+    keys.foreach { key =>
+      val all = synchronized {
+        val all = pending.get(key).fold(done)(_.zipWith(done)((_, _) => Done)(ExecutionContexts.parasitic))
+        pending = pending.updated(key, all)
+        all
+      }
+      all.foreach(_ => synchronized(if (pending.get(key).exists(_ eq all)) pending -= key))(ExecutionContexts.parasitic)
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis.impl
+
+import org.apache.pekko
+import pekko.NotUsed
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts.parasitic
+import pekko.stream.connectors.kinesis.{ KinesisErrors => Errors, ShardIterator, ShardSettings }
+import pekko.stream.scaladsl.Source
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient
+import software.amazon.awssdk.services.kinesis.model.{ ListShardsRequest, Record, Shard, ShardIteratorType }
+
+import scala.collection.JavaConverters._
+import scala.collection.immutable
+import scala.compat.java8.FutureConverters._
+import scala.concurrent.Future
+import scala.concurrent.duration.{ Duration, FiniteDuration }
+import scala.util.control.NonFatal
+
+/**
+ * Internal API
+ *
+ * Reads all shards of a stream, discovering new shards with `ListShards` and following their lineage: a shard is
+ * read once its parent shards have been read to their end, so that records of a partition key stay in order across
+ * reshards.
+ */
+@InternalApi
+private[kinesis] object ShardDiscovery {
+
+  // https://docs.aws.amazon.com/streams/latest/dev/service-sizes-and-limits.html
+  private val MaxShards = 10000
+
+  private sealed trait Event
+  private final case class Listed(shards: immutable.Seq[Shard]) extends Event
+  private final case class Completed(shardId: String) extends Event
+
+  /**
+   * Lists all shards of a stream, following the pagination of `ListShards`.
+   */
+  def listShards(streamName: String, kinesisClient: KinesisAsyncClient): Future[immutable.Seq[Shard]] = {
+    def page(request: ListShardsRequest, shards: Vector[Shard]): Future[Vector[Shard]] =
+      kinesisClient
+        .listShards(request)
+        .toScala
+        .flatMap { response =>
+          val all = shards ++ response.shards.asScala
+          Option(response.nextToken) match {
+            case Some(token) => page(ListShardsRequest.builder().nextToken(token).build(), all)
+            case None        => Future.successful(all)
+          }
+        }(parasitic)
+
+    page(ListShardsRequest.builder().streamName(streamName).build(), Vector.empty)
+  }
+
+  def source(shardSettings: ShardSettings,
+      discoveryInterval: FiniteDuration,
+      kinesisClient: KinesisAsyncClient): Source[Record, NotUsed] =
+    Source
+      .fromMaterializer { (mat, _) =>
+        val (completions, completed) = Source.queue[String](MaxShards).preMaterialize()(mat)
+        Source
+          .tick(Duration.Zero, discoveryInterval, NotUsed)
+          .mapAsync(1) { _ =>
+            listShards(shardSettings.streamName, kinesisClient).recoverWith {
+              case NonFatal(e) => Future.failed(new Errors.ListShardsError(shardSettings.streamName, e))
+            }(parasitic)
+          }
+          .map[Event](Listed)
+          .merge(completed.map(Completed))
+          .statefulMapConcat { () =>
+            val lineage = new Lineage(shardSettings)
+
+            {
+              case Listed(shards)     => lineage.listed(shards)
+              case Completed(shardId) => lineage.shardCompleted(shardId)
+            }
+          }
+          .flatMapMerge(
+            MaxShards,
+            settings =>
+              Source
+                .fromGraph(new KinesisSourceStage(settings, kinesisClient))
+                .watchTermination() { (_, done) =>
+                  done.foreach(_ => completions.offer(settings.shardId))(parasitic)
+                  NotUsed
+                })
+      }
+      .mapMaterializedValue(_ => NotUsed)
+
+  /**
+   * Decides which shards to read, and where to start reading them.
+   *
+   * Shards found without a parent that is read start at the position of the shard settings. Children of shards that
+   * were read start at their trim horizon once all their parents completed. When starting at the latest position,
+   * shards that are closed when first listed are skipped, as they have nothing left to read.
+   */
+  final class Lineage(shardSettings: ShardSettings) {
+    private var known = Map.empty[String, Shard]
+    private var started = Set.empty[String]
+    private var completed = Set.empty[String]
+    private var firstListing = true
+
+    def listed(shards: immutable.Seq[Shard]): List[ShardSettings] = {
+      known ++= shards.map(shard => shard.shardId -> shard)
+      if (firstListing && shardSettings.shardIteratorType == ShardIteratorType.LATEST)
+        completed ++= shards.filter(isClosed).map(_.shardId)
+      firstListing = false
+      startable()
+    }
+
+    def shardCompleted(shardId: String): List[ShardSettings] = {
+      completed += shardId
+      startable()
+    }
+
+    private def startable(): List[ShardSettings] = {
+      val ready = known.values
+        .filter { shard =>
+          !started(shard.shardId) && !completed(shard.shardId) &&
+          parents(shard).forall(parent => completed(parent) || !known.contains(parent))
+        }
+        .toList
+        .sortBy(_.shardId)
+      started ++= ready.map(_.shardId)
+      ready.map { shard =>
+        val settings = shardSettings.withShardId(shard.shardId)
+        if (parents(shard).exists(started)) settings.withShardIterator(ShardIterator.TrimHorizon)
+        else settings
+      }
+    }
+
+    private def parents(shard: Shard): List[String] =
+      List(Option(shard.parentShardId), Option(shard.adjacentParentShardId)).flatten
+
+    private def isClosed(shard: Shard): Boolean =
+      shard.sequenceNumberRange != null && shard.sequenceNumberRange.endingSequenceNumber != null
+  }
+
+}
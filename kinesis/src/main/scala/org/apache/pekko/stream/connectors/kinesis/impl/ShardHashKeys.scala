@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis.impl
+
+import java.math.BigInteger
+import java.nio.charset.StandardCharsets
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicReference
+
+import org.apache.pekko
+import pekko.{ Done, NotUsed }
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts.parasitic
+import pekko.event.Logging
+import pekko.stream.{ KillSwitches, Materializer }
+import pekko.stream.connectors.kinesis.KinesisErrors.FailureListingShards
+import pekko.stream.scaladsl.{ Keep, Sink, Source }
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient
+import software.amazon.awssdk.services.kinesis.model.{ PutRecordsRequestEntry, Shard }
+
+import scala.concurrent.duration.{ Duration, FiniteDuration }
+import scala.concurrent.{ Future, Promise }
+import scala.util.control.NonFatal
+
+/**
+ * INTERNAL API
+ *
+ * The hash key ranges of the open shards of a stream, to predict which shard a record goes to.
+ */
+@InternalApi
+private[kinesis] final class ShardHashKeys private (startingHashKeys: Array[BigInteger], shardIds: Array[String]) {
+
+  def shardCount: Int = shardIds.length
+
+  /**
+   * The shard whose hash key range contains the given hash key.
+   */
+  def shardFor(hashKey: BigInteger): String = {
+    // the last range starting at or before the hash key
+    var low = 0
+    var high = startingHashKeys.length - 1
+    while (low < high) {
+      val mid = (low + high + 1) >>> 1
+      if (startingHashKeys(mid).compareTo(hashKey) <= 0) low = mid else high = mid - 1
+    }
+    shardIds(low)
+  }
+
+  def shardFor(entry: PutRecordsRequestEntry): String = shardFor(ShardHashKeys.hashKey(entry))
+
+  override def toString: String = s"ShardHashKeys(${shardIds.mkString(",")})"
+}
+
+/**
+ * INTERNAL API
+ */
+@InternalApi
+private[kinesis] object ShardHashKeys {
+
+  /**
+   * The hash key Kinesis maps a record to a shard with: the explicit hash key if set, the MD5 hash of the
+   * partition key otherwise.
+   */
+  def hashKey(entry: PutRecordsRequestEntry): BigInteger =
+    Option(entry.explicitHashKey) match {
+      case Some(explicitHashKey) => new BigInteger(explicitHashKey)
+      case None                  => new BigInteger(1, md5(entry.partitionKey.getBytes(StandardCharsets.UTF_8)))
+    }
+
+  def md5(bytes: Array[Byte]): Array[Byte] = MessageDigest.getInstance("MD5").digest(bytes)
+
+  def apply(shards: Seq[Shard]): ShardHashKeys = {
+    val open = shards
+      .filter(_.sequenceNumberRange.endingSequenceNumber == null)
+      .map(shard => new BigInteger(shard.hashKeyRange.startingHashKey) -> shard.shardId)
+      .sortBy(_._1)
+    require(open.nonEmpty, "the stream has no open shards")
+    new ShardHashKeys(open.map(_._1).toArray, open.map(_._2).toArray)
+  }
+
+  /**
+   * Lists the shards of a stream.
+   */
+  def list(streamName: String, kinesisClient: KinesisAsyncClient): Future[ShardHashKeys] =
+    ShardDiscovery
+      .listShards(streamName, kinesisClient)
+      .map(ShardHashKeys(_))(parasitic)
+      .recover { case NonFatal(e) => throw FailureListingShards(e) }(parasitic)
+
+  /**
+   * Keeps the hash key ranges of a stream up to date until shut down.
+   */
+  final class Refreshing(streamName: String, kinesisClient: KinesisAsyncClient, interval: FiniteDuration)(
+      implicit mat: Materializer) {
+
+    private val log = Logging(mat.system, classOf[Refreshing])
+    private val listed = Promise[Done]()
+    @volatile private var latest: ShardHashKeys = _
+    private val refreshing = new AtomicReference[Future[ShardHashKeys]]()
+
+    private val (killSwitch, done) = Source
+      .tick(Duration.Zero, interval, NotUsed)
+      .viaMat(KillSwitches.single)(Keep.right)
+      .mapAsync(1) { _ =>
+        list(streamName, kinesisClient)
+          .map(Some(_))(parasitic)
+          .recover {
+            case NonFatal(e) if listed.isCompleted =>
+              log.warning("Failed to refresh the shards of stream [{}]: {}", streamName, e.getMessage)
+              None
+          }(parasitic)
+      }
+      .toMat(Sink.foreach(_.foreach { shards =>
+        latest = shards
+        listed.trySuccess(Done)
+      }))(Keep.both)
+      .run()
+
+    // the stream only fails when the shards could not be listed for the first time
+    done.failed.foreach(listed.tryFailure)(parasitic)
+
+    /**
+     * Completes once the shards have been listed for the first time.
+     */
+    def ready: Future[Done] = listed.future
+
+    def current: ShardHashKeys = latest
+
+    /**
+     * Lists the shards right away, e.g. when a record went to another shard than predicted. Concurrent calls share
+     * one listing, the current shards are kept if it fails.
+     */
+    def refresh(): Future[ShardHashKeys] = {
+      val listing = Promise[ShardHashKeys]()
+      if (!refreshing.compareAndSet(null, listing.future)) Option(refreshing.get).getOrElse(refresh())
+      else {
+        listing.completeWith(
+          list(streamName, kinesisClient)
+            .map { shards =>
+              latest = shards
+              shards
+            }(parasitic)
+            .recover {
+              case NonFatal(e) =>
+                log.warning("Failed to refresh the shards of stream [{}]: {}", streamName, e.getMessage)
+                latest
+            }(parasitic))
+        listing.future.onComplete(_ => refreshing.set(null))(parasitic)
+        listing.future
+      }
+    }
+
+    def shutdown(): Unit = killSwitch.shutdown()
+  }
+}
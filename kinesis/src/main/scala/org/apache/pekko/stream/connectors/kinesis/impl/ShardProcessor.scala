@@ -51,6 +51,7 @@ private[kinesis] class ShardProcessor(
   private var shardData: ShardProcessorData = _
   private var checkpointer: RecordProcessorCheckpointer = _
   private var shutdown: Option[ShutdownReason] = None
+  private var nextOffset = 0L
 
   override def initialize(initializationInput: InitializationInput): Unit =
     shardData = new ShardProcessorData(initializationInput.shardId,
@@ -76,8 +77,10 @@ private[kinesis] class ShardProcessor(
           new InternalCommittableRecord(
             record,
             batchData,
-            lastRecord = processRecordsInput.isAtShardEnd && index + 1 == numberOfRecords))
+            lastRecord = processRecordsInput.isAtShardEnd && index + 1 == numberOfRecords,
+            offset = nextOffset + index))
     }
+    nextOffset += numberOfRecords
   }
 
   override def leaseLost(leaseLostInput: LeaseLostInput): Unit =
@@ -101,7 +104,10 @@ private[kinesis] class ShardProcessor(
     shutdown = Some(ShutdownReason.REQUESTED)
   }
 
-  final class InternalCommittableRecord(record: KinesisClientRecord, batchData: BatchData, lastRecord: Boolean)
+  final class InternalCommittableRecord(record: KinesisClientRecord,
+      batchData: BatchData,
+      lastRecord: Boolean,
+      override val offset: Long)
       extends CommittableRecord(record, batchData, shardData) {
     private def checkpoint(): Unit = {
       checkpointer.checkpoint(sequenceNumber, subSequenceNumber)
@@ -110,5 +116,6 @@ private[kinesis] class ShardProcessor(
     override def shutdownReason: Option[ShutdownReason] = shutdown
     override def forceCheckpoint(): Unit =
       checkpoint()
+    override def isLastRecordOfShard: Boolean = lastRecord
   }
 }
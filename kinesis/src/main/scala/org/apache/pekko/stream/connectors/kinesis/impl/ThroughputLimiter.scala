@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis.impl
+
+import org.apache.pekko
+import pekko.Done
+import pekko.actor.Scheduler
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts
+
+import scala.concurrent.Future
+import scala.concurrent.duration._
+
+/**
+ * Internal API
+ *
+ * Token buckets for records and bytes per second, shared by all writes of a flow including their retries. A write
+ * may take more tokens than are left; it is delayed until the bucket has refilled, and so are the writes after it.
+ * Like a shaping `throttle`, a full bucket allows a burst of one second worth of records and bytes.
+ */
+@InternalApi
+private[kinesis] final class ThroughputLimiter(
+    maxRecordsPerSecond: Int,
+    maxBytesPerSecond: Int,
+    scheduler: Scheduler) {
+
+  // guarded by `this`, tokens may go negative while writes wait for the buckets to refill
+  private var records = maxRecordsPerSecond.toDouble
+  private var bytes = maxBytesPerSecond.toDouble
+  private var refilledAt = System.nanoTime()
+
+  /**
+   * Completes when the given number of records and bytes may be written.
+   */
+  def acquire(recordCount: Int, byteCount: Long): Future[Done] = {
+    val delayNanos = synchronized {
+      val now = System.nanoTime()
+      val elapsedSeconds = (now - refilledAt) / 1e9
+      refilledAt = now
+      records = math.min(maxRecordsPerSecond.toDouble, records + elapsedSeconds * maxRecordsPerSecond) - recordCount
+      bytes = math.min(maxBytesPerSecond.toDouble, bytes + elapsedSeconds * maxBytesPerSecond) - byteCount
+      (math.max(-records / maxRecordsPerSecond, -bytes / maxBytesPerSecond) * 1e9).toLong
+    }
+    if (delayNanos <= 0) Future.successful(Done)
+    else pekko.pattern.after(delayNanos.nanos, scheduler)(Future.successful(Done))(ExecutionContexts.parasitic)
+  }
+
+}
@@ -15,7 +15,13 @@ package org.apache.pekko.stream.connectors.kinesis.javadsl
 
 import org.apache.pekko
 import pekko.NotUsed
-import pekko.stream.connectors.kinesis.{ scaladsl, KinesisFlowSettings }
+import pekko.stream.connectors.kinesis.{
+  scaladsl,
+  KinesisAggregationSettings,
+  KinesisFlowSettings,
+  KinesisRetrySettings,
+  KinesisShardShapingSettings
+}
 import pekko.stream.javadsl.Flow
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient
 import software.amazon.awssdk.services.kinesis.model.{ PutRecordsRequestEntry, PutRecordsResultEntry }
@@ -49,4 +55,49 @@ object KinesisFlow {
       .FlowWithContext[PutRecordsRequestEntry, T]
       .via(scaladsl.KinesisFlow.withContext[T](streamName, settings)(kinesisClient))
       .asJava
+
+  /**
+   * Retries the entries Kinesis did not write with backoff, and emits every element once with its final result.
+   */
+  def createWithRetries[T](
+      streamName: String,
+      settings: KinesisFlowSettings,
+      retrySettings: KinesisRetrySettings,
+      kinesisClient: KinesisAsyncClient)
+      : FlowWithContext[PutRecordsRequestEntry, T, PutRecordsResultEntry, T, NotUsed] =
+    pekko.stream.scaladsl
+      .FlowWithContext[PutRecordsRequestEntry, T]
+      .via(scaladsl.KinesisFlow.withRetries[T](streamName, settings, retrySettings)(kinesisClient))
+      .asJava
+
+  /**
+   * Limits the records written to every shard rather than to the whole stream.
+   */
+  def createWithShardShaping[T](
+      streamName: String,
+      settings: KinesisFlowSettings,
+      shapingSettings: KinesisShardShapingSettings,
+      kinesisClient: KinesisAsyncClient)
+      : FlowWithContext[PutRecordsRequestEntry, T, PutRecordsResultEntry, T, NotUsed] =
+    pekko.stream.scaladsl
+      .FlowWithContext[PutRecordsRequestEntry, T]
+      .via(scaladsl.KinesisFlow.withShardShaping[T](streamName, settings, shapingSettings)(kinesisClient))
+      .asJava
+
+  /**
+   * Packs the user records into aggregated records in the format of the Kinesis Producer Library, and emits every
+   * user record with the `PutRecordsResultEntry` of its aggregated record. De-aggregate them with
+   * `KinesisSource.deaggregatingFlow(shard)`, as the variant without the shard emits user records that were written
+   * again after a reshard twice.
+   */
+  def createWithAggregation[T](
+      streamName: String,
+      settings: KinesisFlowSettings,
+      aggregationSettings: KinesisAggregationSettings,
+      kinesisClient: KinesisAsyncClient)
+      : FlowWithContext[PutRecordsRequestEntry, T, PutRecordsResultEntry, T, NotUsed] =
+    pekko.stream.scaladsl
+      .FlowWithContext[PutRecordsRequestEntry, T]
+      .via(scaladsl.KinesisFlow.withAggregation[T](streamName, settings, aggregationSettings)(kinesisClient))
+      .asJava
 }
@@ -16,7 +16,7 @@ package org.apache.pekko.stream.connectors.kinesis.javadsl
 import java.util.concurrent.CompletionStage
 
 import org.apache.pekko
-import pekko.NotUsed
+import pekko.{ Done, NotUsed }
 import pekko.stream.connectors.kinesis.{ scaladsl, CommittableRecord, _ }
 import pekko.stream.javadsl.{ Flow, Sink, Source, SubSource }
 import software.amazon.kinesis.coordinator.Scheduler
@@ -59,4 +59,14 @@ object KinesisSchedulerSource {
       .checkpointRecordsSink(settings)
       .asJava
 
+  /**
+   * Sink that checkpoints the highest contiguous processed record of every shard, flushed on a count or interval.
+   */
+  def checkpointCoalescingSink(
+      settings: KinesisSchedulerCheckpointSettings): Sink[CommittableRecord, CompletionStage[Done]] =
+    scaladsl.KinesisSchedulerSource
+      .checkpointCoalescingSink(settings)
+      .mapMaterializedValue(_.toJava)
+      .asJava
+
 }
@@ -15,10 +15,12 @@ package org.apache.pekko.stream.connectors.kinesis.javadsl
 
 import org.apache.pekko
 import pekko.NotUsed
-import pekko.stream.connectors.kinesis.{ scaladsl, ShardSettings }
-import pekko.stream.javadsl.Source
+import pekko.stream.connectors.kinesis.{ scaladsl, KinesisRetrySettings, ShardSettings }
+import pekko.stream.javadsl.{ Flow, Source }
+import pekko.util.JavaDurationConverters._
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient
-import software.amazon.awssdk.services.kinesis.model.Record
+import software.amazon.awssdk.services.kinesis.model.{ Record, Shard }
+import software.amazon.kinesis.retrieval.KinesisClientRecord
 
 import scala.collection.JavaConverters._
 
@@ -37,4 +39,56 @@ object KinesisSource {
       amazonKinesisAsync: KinesisAsyncClient): Source[Record, NotUsed] =
     scaladsl.KinesisSource.basicMerge(shardSettings.asScala.toList, amazonKinesisAsync).asJava
 
+  /**
+   * Read from all shards of a stream into a single stream, discovering new shards as the stream is resharded and
+   * reading child shards once their parents are read to their end.
+   */
+  def basicMergeWithDiscovery(shardSettings: ShardSettings,
+      discoveryInterval: java.time.Duration,
+      amazonKinesisAsync: KinesisAsyncClient): Source[Record, NotUsed] =
+    scaladsl.KinesisSource.basicMergeWithDiscovery(shardSettings, discoveryInterval.asScala, amazonKinesisAsync).asJava
+
+  /**
+   * Read from multiple shards into a single stream through enhanced fan-out `SubscribeToShard` subscriptions of the
+   * stream consumer `consumerName`, which is registered unless it exists already.
+   */
+  def enhancedFanOut(streamArn: String,
+      consumerName: String,
+      shardSettings: java.util.List[ShardSettings],
+      amazonKinesisAsync: KinesisAsyncClient): Source[Record, NotUsed] =
+    scaladsl.KinesisSource
+      .enhancedFanOut(streamArn, consumerName, shardSettings.asScala.toList, amazonKinesisAsync)
+      .asJava
+
+  /**
+   * Read from multiple shards into a single stream through enhanced fan-out, renewing subscriptions which failed
+   * with a recoverable error with the backoff of the `retrySettings`.
+   */
+  def enhancedFanOut(streamArn: String,
+      consumerName: String,
+      shardSettings: java.util.List[ShardSettings],
+      retrySettings: KinesisRetrySettings,
+      amazonKinesisAsync: KinesisAsyncClient): Source[Record, NotUsed] =
+    scaladsl.KinesisSource
+      .enhancedFanOut(streamArn, consumerName, shardSettings.asScala.toList, retrySettings, amazonKinesisAsync)
+      .asJava
+
+  /**
+   * Splits records aggregated in the format of the Kinesis Producer Library into their user records.
+   *
+   * All user records are emitted, also those of aggregated records with user records outside the hash key range of
+   * the shard that was read. When an aggregated record went to another shard than predicted,
+   * `KinesisFlow.createWithAggregation` writes its user records again, so they are emitted twice; use the variant
+   * taking the shard to drop them.
+   */
+  def deaggregatingFlow(): Flow[Record, KinesisClientRecord, NotUsed] =
+    scaladsl.KinesisSource.deaggregatingFlow.asJava
+
+  /**
+   * Splits records of the given shard aggregated in the format of the Kinesis Producer Library into their user
+   * records, and drops aggregated records with user records outside the hash key range of the shard.
+   */
+  def deaggregatingFlow(shard: Shard): Flow[Record, KinesisClientRecord, NotUsed] =
+    scaladsl.KinesisSource.deaggregatingFlow(shard).asJava
+
 }
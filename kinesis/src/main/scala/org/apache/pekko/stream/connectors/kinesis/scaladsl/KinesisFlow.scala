@@ -14,14 +14,22 @@
 package org.apache.pekko.stream.connectors.kinesis.scaladsl
 
 import java.nio.ByteBuffer
+import java.util.concurrent.TimeoutException
 import org.apache.pekko
 import pekko.NotUsed
+import pekko.actor.Scheduler
 import pekko.annotation.InternalApi
 import pekko.dispatch.ExecutionContexts.parasitic
-import pekko.stream.ThrottleMode
-import pekko.stream.connectors.kinesis.KinesisFlowSettings
+import pekko.stream.{ OverflowStrategy, ThrottleMode }
+import pekko.stream.connectors.kinesis.{
+  KinesisAggregationSettings,
+  KinesisFlowSettings,
+  KinesisRetrySettings,
+  KinesisShardShapingSettings
+}
 import pekko.stream.connectors.kinesis.KinesisErrors.FailurePublishingRecords
-import pekko.stream.scaladsl.{ Flow, FlowWithContext }
+import pekko.stream.connectors.kinesis.impl.{ KplAggregation, PendingPartitionKeys, ShardHashKeys, ThroughputLimiter }
+import pekko.stream.scaladsl.{ Flow, FlowWithContext, Source }
 import pekko.util.ByteString
 import software.amazon.awssdk.core.SdkBytes
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient
@@ -33,7 +41,9 @@ import software.amazon.awssdk.services.kinesis.model.{
 }
 
 import scala.collection.JavaConverters._
+import scala.collection.immutable
 import scala.collection.immutable.Queue
+import scala.concurrent.{ ExecutionContext, Future }
 import scala.concurrent.duration._
 import scala.compat.java8.FutureConverters._
 import scala.util.{ Failure, Success, Try }
@@ -72,6 +82,314 @@ object KinesisFlow {
             },
             settings: KinesisFlowSettings)))
 
+  /**
+   * Creates a `KinesisFlow` that retries the entries Kinesis did not write, e.g. because a shard's throughput was
+   * exceeded, instead of emitting their failed `PutRecordsResultEntry`.
+   *
+   * Only the failed entries of a batch are written again, in their original order, after a backoff according to the
+   * `KinesisRetrySettings`. Every element is emitted once with its final result, in the order the elements came in;
+   * the result still carries the error code if the entry failed on its last attempt.
+   *
+   * Records with the same partition key keep their order as far as possible: entries of later batches whose partition
+   * key has entries waiting to be written again are held back until these were written. Kinesis still writes the
+   * entries following a failed entry in the same request, so these, and entries of batches written in parallel before
+   * the failure was known, may be written before it.
+   *
+   * Retries count against `maxRecordsPerSecond` and `maxBytesPerSecond` of the `KinesisFlowSettings` like first
+   * attempts, so that retrying does not exceed the limits.
+   *
+   * A failing PutRecords request fails the flow, as with @see [[KinesisFlow.withContext]].
+   */
+  def withRetries[T](
+      streamName: String,
+      settings: KinesisFlowSettings = KinesisFlowSettings.Defaults,
+      retrySettings: KinesisRetrySettings = KinesisRetrySettings.Defaults)(
+      implicit kinesisClient: KinesisAsyncClient)
+      : FlowWithContext[PutRecordsRequestEntry, T, PutRecordsResultEntry, T, NotUsed] = {
+    checkClient(kinesisClient)
+    FlowWithContext.fromTuples(
+      Flow
+        .fromMaterializer { (mat, _) =>
+          val limiter =
+            new ThroughputLimiter(settings.maxRecordsPerSecond, settings.maxBytesPerSecond, mat.system.scheduler)
+          val pending = new PendingPartitionKeys
+          Flow[(PutRecordsRequestEntry, T)]
+            .batch(settings.maxBatchSize, Queue(_))(_ :+ _)
+            .mapAsync(settings.parallelism)(batch =>
+              putRecordsInKeyOrder(streamName, batch.toVector, pending, limiter, retrySettings)(kinesisClient,
+                mat.system.scheduler,
+                mat.executionContext))
+            .mapConcat(identity)
+        }
+        .mapMaterializedValue(_ => NotUsed))
+  }
+
+  /**
+   * Writes the entries of a batch whose partition key has no entries waiting to be written again right away, and the
+   * others once those were written.
+   */
+  private def putRecordsInKeyOrder[T](
+      streamName: String,
+      entries: Vector[(PutRecordsRequestEntry, T)],
+      pending: PendingPartitionKeys,
+      limiter: ThroughputLimiter,
+      retrySettings: KinesisRetrySettings)(
+      implicit kinesisClient: KinesisAsyncClient,
+      scheduler: Scheduler,
+      ec: ExecutionContext): Future[Vector[(PutRecordsResultEntry, T)]] = {
+    val earlier = pending.writesBefore(entries.map(_._1.partitionKey).toSet)
+    val (held, free) = entries.indices.toVector.partition(i => earlier.contains(entries(i)._1.partitionKey))
+    if (held.isEmpty) putRecordsWithRetries(streamName, entries, pending, limiter, retrySettings, retry = 0)
+    else {
+      val heldKeys = held.map(entries(_)._1.partitionKey).distinct
+      val heldWritten = Future
+        .sequence(heldKeys.map(earlier))
+        .flatMap(_ => putRecordsWithRetries(streamName, held.map(entries), pending, limiter, retrySettings, retry = 0))
+      pending.hold(heldKeys, heldWritten)
+      val freeWritten =
+        if (free.isEmpty) Future.successful(Vector.empty)
+        else putRecordsWithRetries(streamName, free.map(entries), pending, limiter, retrySettings, retry = 0)
+      freeWritten.zip(heldWritten).map {
+        case (freeResults, heldResults) =>
+          (free.zip(freeResults) ++ held.zip(heldResults)).sortBy(_._1).map(_._2)
+      }
+    }
+  }
+
+  private def putRecordsWithRetries[T](
+      streamName: String,
+      entries: Vector[(PutRecordsRequestEntry, T)],
+      pending: PendingPartitionKeys,
+      limiter: ThroughputLimiter,
+      retrySettings: KinesisRetrySettings,
+      retry: Int)(
+      implicit kinesisClient: KinesisAsyncClient,
+      scheduler: Scheduler,
+      ec: ExecutionContext): Future[Vector[(PutRecordsResultEntry, T)]] =
+    limiter
+      .acquire(entries.size, entries.map(getPayloadByteSize(_).toLong).sum)
+      .flatMap(_ => putRecords(streamName, entries))
+      .flatMap { written =>
+        val results = written.toVector
+        val failed = results.indices.filter(i => results(i)._1.errorCode != null).toVector
+        if (failed.isEmpty || retry >= retrySettings.maxRetries) Future.successful(results)
+        else {
+          val retried = pekko.pattern.after(retrySettings.backoff(retry + 1), scheduler)(
+            putRecordsWithRetries(streamName, failed.map(entries), pending, limiter, retrySettings, retry + 1))
+          pending.hold(failed.map(entries(_)._1.partitionKey).distinct, retried)
+          retried.map { retriedResults =>
+            failed.zip(retriedResults).foldLeft(results) { case (acc, (index, result)) => acc.updated(index, result) }
+          }
+        }
+      }
+
+  private def putRecords[T](streamName: String, entries: immutable.Seq[(PutRecordsRequestEntry, T)])(
+      implicit kinesisClient: KinesisAsyncClient): Future[List[(PutRecordsResultEntry, T)]] =
+    kinesisClient
+      .putRecords(
+        PutRecordsRequest.builder().streamName(streamName).records(entries.map(_._1).asJavaCollection).build)
+      .toScala
+      .transform {
+        case Success(response)  => Success(handlePutRecordsSuccess(entries)(response))
+        case Failure(throwable) => Failure(FailurePublishingRecords(throwable))
+      }(parasitic)
+
+  /**
+   * Creates a `KinesisFlow` that packs the user records it takes in into aggregated records in the format of the
+   * Kinesis Producer Library before batching and writing them, see @see [[KinesisFlow.aggregatingFlow]].
+   * Every user record is emitted with the `PutRecordsResultEntry` of its aggregated record.
+   *
+   * When an aggregated record went to another shard than predicted, e.g. after the stream was resharded, the shards
+   * are listed again, as the Kinesis Producer Library does. De-aggregating consumers drop an aggregated record with
+   * user records outside the hash key range of the shard they read, so all its user records are then written again on
+   * their own and emitted with the result of that write.
+   *
+   * Consumers need to de-aggregate the records, which the Kinesis Client Library and so `KinesisSchedulerSource`
+   * do automatically. Records read with `KinesisSource` can be de-aggregated with
+   * `KinesisSource.deaggregatingFlow(shard)`, which drops such records as well. `KinesisSource.deaggregatingFlow`
+   * without the shard does not, so it emits the user records written again twice.
+   */
+  def withAggregation[T](
+      streamName: String,
+      settings: KinesisFlowSettings = KinesisFlowSettings.Defaults,
+      aggregationSettings: KinesisAggregationSettings = KinesisAggregationSettings.Defaults)(
+      implicit kinesisClient: KinesisAsyncClient)
+      : FlowWithContext[PutRecordsRequestEntry, T, PutRecordsResultEntry, T, NotUsed] =
+    FlowWithContext.fromTuples(
+      byShard[(PutRecordsRequestEntry, T), (PutRecordsResultEntry, T)](streamName,
+        aggregationSettings.shardRefreshInterval) { shards =>
+        aggregateByShard[T](shards, aggregationSettings)
+          .map(aggregated => aggregated.entry -> aggregated)
+          .via(batchingFlow[Aggregated[T]](settings))
+          .via(
+            batchWritingFlow[PutRecordsResultEntry, Aggregated[T]](
+              streamName,
+              batch => {
+                case Success(putRecordsResponse) => Success(handlePutRecordsSuccess(batch)(putRecordsResponse))
+                case Failure(throwable)          => Failure(FailurePublishingRecords(throwable))
+              },
+              settings))
+          .mapAsync(settings.parallelism) {
+            case (result, aggregated) => verifyShard(streamName, shards, result, aggregated)
+          }
+          .mapConcat(identity)
+      })
+
+  /**
+   * Writes the user records of an aggregated record again if it went to another shard than predicted and they are
+   * outside the hash key range of that shard.
+   */
+  private def verifyShard[T](
+      streamName: String,
+      shards: ShardHashKeys.Refreshing,
+      result: PutRecordsResultEntry,
+      aggregated: Aggregated[T])(
+      implicit kinesisClient: KinesisAsyncClient): Future[immutable.Seq[(PutRecordsResultEntry, T)]] =
+    if (result.errorCode != null || result.shardId == null || result.shardId == aggregated.shardId ||
+      aggregated.records.size == 1)
+      Future.successful(aggregated.records.map(result -> _._2))
+    else
+      shards
+        .refresh()
+        .flatMap { current =>
+          val records = aggregated.records
+          // de-aggregating consumers drop the whole aggregated record if any user record is outside their shard
+          if (records.forall(record => current.shardFor(record._1) == result.shardId))
+            Future.successful(records.map(result -> _._2))
+          else putRecords(streamName, records)
+        }(parasitic)
+
+  /**
+   * Packs user records into aggregated records in the format of the Kinesis Producer Library, emitting every
+   * aggregated record with the contexts of its user records.
+   *
+   * The shard a user record goes to is predicted from the hash key ranges of the open shards, which are listed when
+   * the flow starts and every `shardRefreshInterval`. User records for the same shard are packed together until the
+   * aggregated record reaches `maxAggregatedBytes`, or `maxBufferTime` after its first user record arrived.
+   * Aggregated records carry the explicit hash key of their first user record, so they go to the predicted shard.
+   */
+  def aggregatingFlow[T](
+      streamName: String,
+      aggregationSettings: KinesisAggregationSettings = KinesisAggregationSettings.Defaults)(
+      implicit kinesisClient: KinesisAsyncClient)
+      : Flow[(PutRecordsRequestEntry, T), (PutRecordsRequestEntry, immutable.Seq[T]), NotUsed] = {
+    checkClient(kinesisClient)
+    byShard[(PutRecordsRequestEntry, T), (PutRecordsRequestEntry, immutable.Seq[T])](streamName,
+      aggregationSettings.shardRefreshInterval) { shards =>
+      aggregateByShard[T](shards, aggregationSettings).map(aggregated =>
+        aggregated.entry -> aggregated.records.map(_._2))
+    }
+  }
+
+  /**
+   * Packs the user records predicted to go to the same shard. The substream of a shard completes when it did not
+   * receive records for `shardRefreshInterval`, so that the substreams of closed shards do not linger.
+   */
+  private def aggregateByShard[T](
+      shards: ShardHashKeys.Refreshing,
+      aggregationSettings: KinesisAggregationSettings): Flow[(PutRecordsRequestEntry, T), Aggregated[T], NotUsed] = {
+    val maxUserRecordBytes = aggregationSettings.maxAggregatedBytes - KplAggregation.AggregateOverhead
+    Flow[(PutRecordsRequestEntry, T)]
+      .map(record => shards.current.shardFor(record._1) -> record)
+      .groupBy(MAX_KINESIS_SHARDS, _._1, allowClosedSubstreamRecreation = true)
+      .via(completeWhenIdle(aggregationSettings.shardRefreshInterval))
+      .groupedWeightedWithin(maxUserRecordBytes.toLong, aggregationSettings.maxBufferTime)(record =>
+        KplAggregation.recordSize(record._2._1))
+      .map { records =>
+        val userRecords = records.map(_._2)
+        Aggregated(KplAggregation.aggregate(userRecords.map(_._1)), records.head._1, userRecords)
+      }
+      .mergeSubstreams
+  }
+
+  private def completeWhenIdle[A](timeout: FiniteDuration): Flow[A, A, NotUsed] =
+    Flow[A].idleTimeout(timeout).recoverWithRetries(1, { case _: TimeoutException => Source.empty })
+
+  /**
+   * An aggregated record with the shard it is predicted to go to and the user records it holds.
+   */
+  private final case class Aggregated[T](
+      entry: PutRecordsRequestEntry,
+      shardId: String,
+      records: immutable.Seq[(PutRecordsRequestEntry, T)])
+
+  /**
+   * Creates a `KinesisFlow` that limits the records written to every shard instead of the records written to the whole
+   * stream, see @see [[KinesisFlow.shardShapingFlow]]. The global limits of the `KinesisFlowSettings` are not applied.
+   */
+  def withShardShaping[T](
+      streamName: String,
+      settings: KinesisFlowSettings = KinesisFlowSettings.Defaults,
+      shapingSettings: KinesisShardShapingSettings = KinesisShardShapingSettings.Defaults)(
+      implicit kinesisClient: KinesisAsyncClient)
+      : FlowWithContext[PutRecordsRequestEntry, T, PutRecordsResultEntry, T, NotUsed] =
+    FlowWithContext.fromTuples(
+      shardShapingFlow[T](streamName, settings, shapingSettings)
+        .via(
+          batchWritingFlow[PutRecordsResultEntry, T](
+            streamName,
+            batch => {
+              case Success(putRecordsResponse) => Success(handlePutRecordsSuccess(batch)(putRecordsResponse))
+              case Failure(throwable)          => Failure(FailurePublishingRecords(throwable))
+            },
+            settings)))
+
+  /**
+   * Batches records like @see [[KinesisFlow.batchingFlow]], but limits the records per shard rather than for the
+   * whole stream, so that a hot shard is slowed down while records for other shards keep flowing.
+   *
+   * Every record is mapped to its shard from the hash key ranges of the open shards, which are listed when the flow
+   * starts and every `shardRefreshInterval`. The records of every shard are shaped to `maxRecordsPerSecond` and
+   * `maxBytesPerSecond` of the `KinesisShardShapingSettings`, and batches are packed from the records of the shards
+   * with budget left. Up to `maxBufferedRecords` records are buffered for a shard that is held back; once its buffer
+   * is full, the records for the other shards wait as well.
+   */
+  def shardShapingFlow[T](
+      streamName: String,
+      settings: KinesisFlowSettings,
+      shapingSettings: KinesisShardShapingSettings)(
+      implicit kinesisClient: KinesisAsyncClient)
+      : Flow[(PutRecordsRequestEntry, T), Iterable[(PutRecordsRequestEntry, T)], NotUsed] = {
+    checkClient(kinesisClient)
+    byShard[(PutRecordsRequestEntry, T), (PutRecordsRequestEntry, T)](streamName,
+      shapingSettings.shardRefreshInterval) { shards =>
+      Flow[(PutRecordsRequestEntry, T)]
+        .groupBy(MAX_KINESIS_SHARDS,
+          record => shards.current.shardFor(record._1),
+          allowClosedSubstreamRecreation = true)
+        .via(completeWhenIdle(shapingSettings.shardRefreshInterval))
+        .buffer(shapingSettings.maxBufferedRecords, OverflowStrategy.backpressure)
+        .throttle(shapingSettings.maxRecordsPerSecond,
+          1.second,
+          shapingSettings.maxRecordsPerSecond,
+          ThrottleMode.Shaping)
+        .throttle(shapingSettings.maxBytesPerSecond,
+          1.second,
+          shapingSettings.maxBytesPerSecond,
+          getPayloadByteSize,
+          ThrottleMode.Shaping)
+        .mergeSubstreams
+    }.batch(settings.maxBatchSize, Queue(_))(_ :+ _)
+  }
+
+  /**
+   * Runs the flow created by `f` once the shards of the stream are listed, and keeps them up to date while it runs.
+   */
+  private def byShard[In, Out](streamName: String, shardRefreshInterval: FiniteDuration)(
+      f: ShardHashKeys.Refreshing => Flow[In, Out, NotUsed])(
+      implicit kinesisClient: KinesisAsyncClient): Flow[In, Out, NotUsed] =
+    Flow
+      .fromMaterializer { (mat, _) =>
+        val shards = new ShardHashKeys.Refreshing(streamName, kinesisClient, shardRefreshInterval)(mat)
+        Flow
+          .futureFlow(shards.ready.map(_ => f(shards))(parasitic))
+          .watchTermination() { (_, done) =>
+            done.onComplete(_ => shards.shutdown())(parasitic)
+            NotUsed
+          }
+      }
+      .mapMaterializedValue(_ => NotUsed)
+
   def batchingFlow[T](
       settings: KinesisFlowSettings)
       : Flow[(PutRecordsRequestEntry, T), Iterable[(PutRecordsRequestEntry, T)], NotUsed] =
@@ -134,6 +452,9 @@ object KinesisFlow {
       }
       .via(byPartitionAndData(streamName, settings))
 
+  // https://docs.aws.amazon.com/streams/latest/dev/service-sizes-and-limits.html
+  private val MAX_KINESIS_SHARDS = 10000
+
   @InternalApi
   private[scaladsl] def checkClient(kinesisClient: KinesisAsyncClient): Unit =
     require(kinesisClient != null, "The `KinesisAsyncClient` passed in may not be null.")
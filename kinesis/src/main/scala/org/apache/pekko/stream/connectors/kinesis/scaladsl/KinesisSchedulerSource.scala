@@ -14,10 +14,10 @@
 package org.apache.pekko.stream.connectors.kinesis.scaladsl
 
 import org.apache.pekko
-import pekko.NotUsed
+import pekko.{ Done, NotUsed }
 import pekko.dispatch.ExecutionContexts
 import pekko.stream._
-import pekko.stream.connectors.kinesis.impl.KinesisSchedulerSourceStage
+import pekko.stream.connectors.kinesis.impl.{ CheckpointCoalescer, KinesisSchedulerSourceStage }
 import pekko.stream.connectors.kinesis.{
   CommittableRecord,
   KinesisSchedulerCheckpointSettings,
@@ -83,6 +83,22 @@ object KinesisSchedulerSource {
       settings: KinesisSchedulerCheckpointSettings): Sink[CommittableRecord, NotUsed] =
     checkpointRecordsFlow(settings).to(Sink.ignore)
 
+  /**
+   * Sink that checkpoints the highest contiguous processed record of every shard instead of every batch, which cuts
+   * down the writes to the lease table.
+   *
+   * Records may arrive out of order, a record is only checkpointed once all records of its shard before it have
+   * arrived. For this every record emitted by the source must eventually reach the sink. Checkpoints are written
+   * after `maxBatchSize` contiguous records of a shard, every `maxBatchWait`, right away at the end of a shard or when
+   * a shutdown was requested, and for all shards when the stream completes. Records of a shard whose lease was lost are
+   * not checkpointed, as the lease table can no longer be written for it.
+   *
+   * The materialized future completes after the final checkpoints were written.
+   */
+  def checkpointCoalescingSink(
+      settings: KinesisSchedulerCheckpointSettings): Sink[CommittableRecord, Future[Done]] =
+    Sink.fromGraph(new CheckpointCoalescer(settings))
+
   // http://docs.aws.amazon.com/streams/latest/dev/service-sizes-and-limits.html
   private val MAX_KINESIS_SHARDS = 500
 
@@ -16,11 +16,15 @@ package org.apache.pekko.stream.connectors.kinesis.scaladsl
 import org.apache.pekko
 import pekko.NotUsed
 import pekko.stream.connectors.kinesis.KinesisErrors.NoShardsError
-import pekko.stream.connectors.kinesis.ShardSettings
-import pekko.stream.connectors.kinesis.impl.KinesisSourceStage
-import pekko.stream.scaladsl.{ Merge, Source }
+import pekko.stream.connectors.kinesis.{ KinesisRetrySettings, ShardSettings }
+import pekko.stream.connectors.kinesis.impl.{ EnhancedFanOut, KinesisSourceStage, ShardDiscovery }
+import pekko.stream.scaladsl.{ Flow, Merge, Source }
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient
-import software.amazon.awssdk.services.kinesis.model.Record
+import software.amazon.awssdk.services.kinesis.model.{ Record, Shard, ShardIteratorType }
+import software.amazon.kinesis.retrieval.{ AggregatorUtil, KinesisClientRecord }
+
+import scala.collection.JavaConverters._
+import scala.concurrent.duration.FiniteDuration
 
 object KinesisSource {
 
@@ -48,4 +52,106 @@ object KinesisSource {
     }
   }
 
+  /**
+   * Read from all shards of a stream into a single stream, discovering new shards as the stream is resharded.
+   *
+   * The shards are listed with `ListShards` when the source starts and every `discoveryInterval`. A shard is read
+   * once all its parent shards have been read to their end, starting at its trim horizon, so that records of a
+   * partition key stay in order across reshards. Shards without a parent that is read start at the shard iterator of
+   * the shard settings, whose shard id is ignored.
+   */
+  def basicMergeWithDiscovery(shardSettings: ShardSettings,
+      discoveryInterval: FiniteDuration,
+      amazonKinesisAsync: KinesisAsyncClient): Source[Record, NotUsed] = {
+    require(
+      shardSettings.shardIteratorType != ShardIteratorType.AT_SEQUENCE_NUMBER &&
+      shardSettings.shardIteratorType != ShardIteratorType.AFTER_SEQUENCE_NUMBER,
+      "sequence numbers are specific to a shard, start at the trim horizon, the latest record or a timestamp instead")
+    KinesisFlow.checkClient(amazonKinesisAsync)
+    ShardDiscovery.source(shardSettings, discoveryInterval, amazonKinesisAsync)
+  }
+
+  /**
+   * Read from multiple shards into a single stream through enhanced fan-out.
+   *
+   * Registers the stream consumer `consumerName`, unless it is registered already, and subscribes to the shards with
+   * `SubscribeToShard`, so that records are pushed over HTTP/2 with throughput dedicated to the consumer instead of
+   * being polled. Kinesis completes a subscription after 5 minutes, and it is renewed from the last sequence number
+   * read until the shard ends. Subscriptions failing with a recoverable error, such as a lost connection or a
+   * `ResourceInUseException`, are renewed after a backoff starting at one second, up to 5 times in a row.
+   *
+   * The stream name, refresh interval and limit of the shard settings are not used, the shard iterator sets the
+   * starting position of the first subscription.
+   */
+  def enhancedFanOut(streamArn: String,
+      consumerName: String,
+      shardSettings: List[ShardSettings],
+      amazonKinesisAsync: KinesisAsyncClient): Source[Record, NotUsed] =
+    enhancedFanOut(streamArn, consumerName, shardSettings, EnhancedFanOut.DefaultRetrySettings, amazonKinesisAsync)
+
+  /**
+   * Read from multiple shards into a single stream through enhanced fan-out, renewing subscriptions which failed
+   * with a recoverable error with the backoff of the `retrySettings`. A shard fails the stream once `maxRetries`
+   * subscriptions to it failed in a row.
+   */
+  def enhancedFanOut(streamArn: String,
+      consumerName: String,
+      shardSettings: List[ShardSettings],
+      retrySettings: KinesisRetrySettings,
+      amazonKinesisAsync: KinesisAsyncClient): Source[Record, NotUsed] = {
+    require(shardSettings.nonEmpty, "shard settings need to be specified")
+    KinesisFlow.checkClient(amazonKinesisAsync)
+    Source
+      .fromMaterializer { (mat, _) =>
+        Source
+          .future(EnhancedFanOut.consumerArn(streamArn, consumerName, amazonKinesisAsync)(mat))
+          .flatMapConcat { consumerArn =>
+            Source(shardSettings).flatMapMerge(shardSettings.size,
+              EnhancedFanOut.shardSource(consumerArn, _, retrySettings, amazonKinesisAsync, mat.system.scheduler))
+          }
+      }
+      .mapMaterializedValue(_ => NotUsed)
+  }
+
+  /**
+   * Splits records aggregated in the format of the Kinesis Producer Library, e.g. by
+   * @see [[KinesisFlow.withAggregation]], into their user records. Records which are not aggregated are emitted as
+   * they are.
+   *
+   * All user records are emitted, also those of aggregated records with user records outside the hash key range of
+   * the shard that was read. When an aggregated record went to another shard than predicted,
+   * `KinesisFlow.withAggregation` writes its user records again, so they are emitted twice; use the variant taking the
+   * shard to drop them.
+   */
+  def deaggregatingFlow: Flow[Record, KinesisClientRecord, NotUsed] = {
+    val aggregatorUtil = new AggregatorUtil()
+    Flow[Record]
+      .mapConcat { record =>
+        aggregatorUtil
+          .deaggregate(java.util.Collections.singletonList(KinesisClientRecord.fromRecord(record)))
+          .asScala
+          .toList
+      }
+  }
+
+  /**
+   * Splits records of the given shard aggregated in the format of the Kinesis Producer Library, e.g. by
+   * @see [[KinesisFlow.withAggregation]], into their user records. As the Kinesis Client Library does, an aggregated
+   * record is dropped when any of its user records is outside the hash key range of the shard, as its user records
+   * were written again to the right shards. Records which are not aggregated are emitted as they are.
+   */
+  def deaggregatingFlow(shard: Shard): Flow[Record, KinesisClientRecord, NotUsed] = {
+    val aggregatorUtil = new AggregatorUtil()
+    val hashKeyRange = shard.hashKeyRange
+    Flow[Record]
+      .mapConcat { record =>
+        aggregatorUtil
+          .deaggregate(java.util.Collections.singletonList(KinesisClientRecord.fromRecord(record)),
+            hashKeyRange.startingHashKey,
+            hashKeyRange.endingHashKey)
+          .asScala
+          .toList
+      }
+  }
+
 }
@@ -89,4 +89,11 @@ class KclSnippets {
     .to(KinesisSchedulerSource.checkpointRecordsSink(checkpointSettings))
   // #checkpoint
 
+  // #checkpoint-coalescing
+  val coalescingSettings = KinesisSchedulerCheckpointSettings(10000, 1.minute)
+
+  source
+    .to(KinesisSchedulerSource.checkpointCoalescingSink(coalescingSettings))
+  // #checkpoint-coalescing
+
 }
@@ -19,7 +19,12 @@ import org.apache.pekko
 import pekko.NotUsed
 import pekko.actor.ActorSystem
 import pekko.stream.connectors.kinesis.scaladsl.{ KinesisFlow, KinesisSink, KinesisSource }
-import pekko.stream.connectors.kinesis.{ KinesisFlowSettings, ShardIterator, ShardSettings }
+import pekko.stream.connectors.kinesis.{
+  KinesisAggregationSettings,
+  KinesisFlowSettings,
+  ShardIterator,
+  ShardSettings
+}
 import pekko.stream.scaladsl.{ Flow, FlowWithContext, Sink, Source }
 import pekko.util.ByteString
 import software.amazon.awssdk.services.kinesis.model.{ PutRecordsRequestEntry, PutRecordsResultEntry, Record }
@@ -67,6 +72,20 @@ object KinesisSnippets {
   val mergedSource: Source[Record, NotUsed] = KinesisSource.basicMerge(mergeSettings, amazonKinesisAsync)
   // #source-list
 
+  // #source-discovery
+  val discoveringSource: Source[Record, NotUsed] =
+    KinesisSource.basicMergeWithDiscovery(settings, 1.minute, amazonKinesisAsync)
+  // #source-discovery
+
+  // #source-enhanced-fan-out
+  val enhancedFanOutSource: Source[Record, NotUsed] =
+    KinesisSource.enhancedFanOut(
+      "arn:aws:kinesis:us-east-1:123456789012:stream/myStreamName",
+      "myConsumerName",
+      mergeSettings,
+      amazonKinesisAsync)
+  // #source-enhanced-fan-out
+
   // #flow-settings
   val flowSettings = KinesisFlowSettings
     .create()
@@ -114,4 +133,19 @@ object KinesisSnippets {
     }
   // #error-handling
 
+  // #aggregation
+  val aggregationSettings = KinesisAggregationSettings()
+    .withMaxAggregatedBytes(51200)
+    .withMaxBufferTime(100.millis)
+    .withShardRefreshInterval(1.minute)
+
+  val aggregatingFlow: FlowWithContext[PutRecordsRequestEntry, Long, PutRecordsResultEntry, Long, NotUsed] =
+    KinesisFlow.withAggregation[Long]("myStreamName", flowSettings, aggregationSettings)
+
+  val deaggregated =
+    KinesisSource
+      .basic(ShardSettings("myStreamName", "shard-id"), amazonKinesisAsync)
+      .via(KinesisSource.deaggregatingFlow)
+  // #aggregation
+
 }
@@ -13,6 +13,7 @@
 
 package org.apache.pekko.stream.connectors.kinesis
 
+import java.math.BigInteger
 import java.util.concurrent.CompletableFuture
 
 import org.apache.pekko
@@ -27,14 +28,16 @@ import org.mockito.ArgumentMatchers.any
 import org.mockito.Mockito.when
 import org.mockito.invocation.InvocationOnMock
 import org.mockito.stubbing.Answer
+import org.scalatest.concurrent.Eventually
 import org.scalatest.wordspec.AnyWordSpec
 import org.scalatest.matchers.should.Matchers
 import software.amazon.awssdk.core.SdkBytes
 import software.amazon.awssdk.services.kinesis.model._
 
 import scala.collection.JavaConverters._
+import scala.concurrent.duration._
 
-class KinesisFlowSpec extends AnyWordSpec with Matchers with KinesisMock with LogCapturing {
+class KinesisFlowSpec extends AnyWordSpec with Matchers with Eventually with KinesisMock with LogCapturing {
 
   "KinesisFlow" must {
 
@@ -81,6 +84,277 @@ class KinesisFlowSpec extends AnyWordSpec with Matchers with KinesisMock with Lo
     }
   }
 
+  "KinesisFlowWithRetries" must {
+    "retry only the failed entries and emit every element once" in assertAllStagesStopped {
+      new Settings with WithPutRecordsPartialFailure {
+        val records = (1 to 4).map(i => record(i) -> i)
+
+        val (sourceProbe, sinkProbe) =
+          TestSource
+            .probe[(PutRecordsRequestEntry, Int)]
+            .via(KinesisFlow.withRetries[Int](streamName, settings, retrySettings))
+            .toMat(TestSink.probe)(Keep.both)
+            .run()
+
+        sinkProbe.request(4)
+        records.foreach(sourceProbe.sendNext)
+        val results = sinkProbe.expectNextN(4)
+        results.map(_._2) shouldBe (1 to 4)
+        results.map(_._1.errorCode) shouldBe Seq.fill(4)(null)
+        retriedData should contain theSameElementsAs Seq(ByteString(2), ByteString(4))
+
+        sourceProbe.sendComplete()
+        sinkProbe.expectComplete()
+      }
+    }
+
+    "emit the failed result once retries are exhausted" in assertAllStagesStopped {
+      new Settings with WithPutRecordsPartialFailure {
+        override val failures = Int.MaxValue
+
+        val (sourceProbe, sinkProbe) =
+          TestSource
+            .probe[(PutRecordsRequestEntry, Int)]
+            .via(KinesisFlow.withRetries[Int](streamName, settings, retrySettings.withMaxRetries(2)))
+            .toMat(TestSink.probe)(Keep.both)
+            .run()
+
+        sourceProbe.sendNext(record(2) -> 2)
+        sinkProbe.requestNext()._1.errorCode shouldBe "ProvisionedThroughputExceededException"
+        retriedData shouldBe Seq(ByteString(2), ByteString(2))
+
+        sourceProbe.sendComplete()
+        sinkProbe.expectComplete()
+      }
+    }
+
+    "count retried entries against the throughput limits" in assertAllStagesStopped {
+      new Settings with WithPutRecordsPartialFailure {
+        override val settings = KinesisFlowSettings.Defaults.withMaxRecordsPerSecond(2)
+
+        val (sourceProbe, sinkProbe) =
+          TestSource
+            .probe[(PutRecordsRequestEntry, Int)]
+            .via(KinesisFlow.withRetries[Int](streamName, settings, retrySettings))
+            .toMat(TestSink.probe)(Keep.both)
+            .run()
+
+        val start = System.nanoTime()
+        sinkProbe.request(2)
+        sourceProbe.sendNext(record(1) -> 1)
+        sourceProbe.sendNext(record(2) -> 2)
+        sinkProbe.expectNextN(2).map(_._2) shouldBe Seq(1, 2)
+        // the first attempts used up the records of the first second, the retry waited for the next record
+        (System.nanoTime() - start).nanos should be >= 400.millis
+        retriedData shouldBe Seq(ByteString(2))
+
+        sourceProbe.sendComplete()
+        sinkProbe.expectComplete()
+      }
+    }
+
+    "hold back later entries of a partition key until its failed entries were written" in assertAllStagesStopped {
+      new Settings with WithPutRecordsPartialFailure {
+        val (sourceProbe, sinkProbe) =
+          TestSource
+            .probe[(PutRecordsRequestEntry, Int)]
+            .via(KinesisFlow.withRetries[Int](streamName, settings,
+              retrySettings.withMinBackoff(300.millis).withMaxBackoff(300.millis)))
+            .toMat(TestSink.probe)(Keep.both)
+            .run()
+
+        sinkProbe.request(2)
+        sourceProbe.sendNext(record(2) -> 2)
+        eventually(requestedData shouldBe Seq(Seq(ByteString(2))))
+        // written in parallel to the first batch, but only after its failed entry was written again
+        sourceProbe.sendNext(record(3) -> 3)
+        sinkProbe.expectNextN(2).map(_._2) shouldBe Seq(2, 3)
+        requestedData shouldBe Seq(Seq(ByteString(2)), Seq(ByteString(2)), Seq(ByteString(3)))
+
+        sourceProbe.sendComplete()
+        sinkProbe.expectComplete()
+      }
+    }
+  }
+
+  "KinesisFlowWithAggregation" must {
+    "write the user records again if any is outside the shard an aggregated record went to" in assertAllStagesStopped {
+      new Settings {
+        val streamName = "stream-name"
+        val maxHashKey = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE)
+        val middle = BigInteger.ONE.shiftLeft(127)
+
+        def shard(shardId: String, from: BigInteger, to: BigInteger, closed: Boolean = false) =
+          Shard
+            .builder()
+            .shardId(shardId)
+            .hashKeyRange(HashKeyRange.builder().startingHashKey(from.toString).endingHashKey(to.toString).build())
+            .sequenceNumberRange(
+              SequenceNumberRange
+                .builder()
+                .startingSequenceNumber("1")
+                .endingSequenceNumber(if (closed) "2" else null)
+                .build())
+            .build()
+
+        // the stream is split after the shards were listed for the first time
+        when(amazonKinesisAsync.listShards(any[ListShardsRequest])).thenReturn(
+          CompletableFuture.completedFuture(
+            ListShardsResponse.builder().shards(shard("shard-0", BigInteger.ZERO, maxHashKey)).build()),
+          CompletableFuture.completedFuture(
+            ListShardsResponse
+              .builder()
+              .shards(
+                shard("shard-0", BigInteger.ZERO, maxHashKey, closed = true),
+                shard("shard-1", BigInteger.ZERO, middle.subtract(BigInteger.ONE)),
+                shard("shard-2", middle, maxHashKey))
+              .build()))
+
+        private val lock = new Object
+        private var requests = Vector.empty[PutRecordsRequest]
+        def writtenRequests: Vector[PutRecordsRequest] = lock.synchronized(requests)
+
+        when(amazonKinesisAsync.putRecords(any[PutRecordsRequest])).thenAnswer(new Answer[AnyRef] {
+          override def answer(invocation: InvocationOnMock) = {
+            val request = invocation.getArgument[PutRecordsRequest](0)
+            lock.synchronized(requests :+= request)
+            val results = request.records.asScala.map { entry =>
+              val shardId = if (new BigInteger(entry.explicitHashKey).compareTo(middle) < 0) "shard-1" else "shard-2"
+              PutRecordsResultEntry.builder().shardId(shardId).sequenceNumber("1").build()
+            }
+            CompletableFuture.completedFuture(PutRecordsResponse.builder().records(results.asJava).build())
+          }
+        })
+
+        def record(hashKey: BigInteger) =
+          PutRecordsRequestEntry
+            .builder()
+            .partitionKey("partition-key")
+            .explicitHashKey(hashKey.toString)
+            .data(SdkBytes.fromByteBuffer(ByteString(hashKey.toString).asByteBuffer))
+            .build()
+
+        val aggregationSettings = KinesisAggregationSettings().withMaxBufferTime(200.millis)
+        val (source, sink) =
+          TestSource
+            .probe[(PutRecordsRequestEntry, Int)]
+            .via(KinesisFlow.withAggregation[Int](streamName, settings, aggregationSettings))
+            .toMat(TestSink.probe)(Keep.both)
+            .run()
+
+        sink.request(2)
+        source.sendNext(record(BigInteger.ONE) -> 1)
+        source.sendNext(record(middle.add(BigInteger.ONE)) -> 2)
+
+        sink.expectNextN(2).map { case (result, context) => result.shardId -> context } shouldBe Seq(
+          "shard-1" -> 1,
+          "shard-2" -> 2)
+        writtenRequests.map(_.records.asScala.map(_.explicitHashKey).toList) shouldBe Vector(
+          List(BigInteger.ONE.toString),
+          List(BigInteger.ONE.toString, middle.add(BigInteger.ONE).toString))
+
+        source.sendComplete()
+        sink.expectComplete()
+      }
+    }
+  }
+
+  "KinesisFlowWithShardShaping" must {
+    "limit the records written to every shard" in assertAllStagesStopped {
+      new Settings with WithPutRecordsSuccess {
+        val streamName = "stream-name"
+        when(amazonKinesisAsync.listShards(any[ListShardsRequest])).thenReturn(
+          CompletableFuture.completedFuture(
+            ListShardsResponse
+              .builder()
+              .shards(
+                Shard
+                  .builder()
+                  .shardId("shard-1")
+                  .hashKeyRange(HashKeyRange.builder().startingHashKey("0").endingHashKey("1").build())
+                  .sequenceNumberRange(SequenceNumberRange.builder().startingSequenceNumber("1").build())
+                  .build())
+              .build()))
+
+        val shapingSettings = KinesisShardShapingSettings().withMaxRecordsPerSecond(2)
+        val (shapedSource, shapedSink) =
+          TestSource
+            .probe[(PutRecordsRequestEntry, Int)]
+            .via(KinesisFlow.withShardShaping[Int](streamName, settings, shapingSettings))
+            .toMat(TestSink.probe)(Keep.both)
+            .run()
+
+        shapedSink.request(4)
+        (1 to 4).foreach { i =>
+          shapedSource.sendNext(
+            PutRecordsRequestEntry
+              .builder()
+              .partitionKey("partition-key")
+              .data(SdkBytes.fromByteBuffer(ByteString(i).asByteBuffer))
+              .build() -> i)
+        }
+        shapedSink.expectNextN(2).map(_._2) shouldBe Seq(1, 2)
+        shapedSink.expectNoMessage(200.millis)
+        shapedSink.expectNextN(2).map(_._2) shouldBe Seq(3, 4)
+
+        shapedSource.sendComplete()
+        shapedSink.expectComplete()
+      }
+    }
+
+    "keep writing the records of other shards while a shard is saturated" in assertAllStagesStopped {
+      new Settings with WithPutRecordsSuccess {
+        val streamName = "stream-name"
+        val maxHashKey = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE)
+        val middle = BigInteger.ONE.shiftLeft(127)
+
+        def shard(shardId: String, from: BigInteger, to: BigInteger) =
+          Shard
+            .builder()
+            .shardId(shardId)
+            .hashKeyRange(HashKeyRange.builder().startingHashKey(from.toString).endingHashKey(to.toString).build())
+            .sequenceNumberRange(SequenceNumberRange.builder().startingSequenceNumber("1").build())
+            .build()
+
+        when(amazonKinesisAsync.listShards(any[ListShardsRequest])).thenReturn(
+          CompletableFuture.completedFuture(
+            ListShardsResponse
+              .builder()
+              .shards(shard("shard-1", BigInteger.ZERO, middle.subtract(BigInteger.ONE)),
+                shard("shard-2", middle, maxHashKey))
+              .build()))
+
+        def record(hashKey: BigInteger, i: Int) =
+          PutRecordsRequestEntry
+            .builder()
+            .partitionKey("partition-key")
+            .explicitHashKey(hashKey.toString)
+            .data(SdkBytes.fromByteBuffer(ByteString(i).asByteBuffer))
+            .build() -> i
+
+        val shapingSettings = KinesisShardShapingSettings().withMaxRecordsPerSecond(2)
+        val (shapedSource, shapedSink) =
+          TestSource
+            .probe[(PutRecordsRequestEntry, Int)]
+            .via(KinesisFlow.withShardShaping[Int](streamName, settings, shapingSettings))
+            .toMat(TestSink.probe)(Keep.both)
+            .run()
+
+        shapedSink.request(7)
+        // shard-1 is saturated by its first two records
+        (1 to 6).foreach(i => shapedSource.sendNext(record(BigInteger.ONE, i)))
+        shapedSource.sendNext(record(middle, 7))
+
+        shapedSink.expectNextN(3).map(_._2) should contain theSameElementsAs Seq(1, 2, 7)
+        shapedSink.expectNoMessage(200.millis)
+        shapedSink.within(5.seconds)(shapedSink.expectNextN(4)).map(_._2) shouldBe Seq(3, 4, 5, 6)
+
+        shapedSource.sendComplete()
+        shapedSink.expectComplete()
+      }
+    }
+  }
+
   sealed trait Settings {
     val settings: KinesisFlowSettings = KinesisFlowSettings.Defaults
   }
@@ -141,6 +415,46 @@ class KinesisFlowSpec extends AnyWordSpec with Matchers with KinesisMock with Lo
     })
   }
 
+  trait WithPutRecordsPartialFailure { self: Settings =>
+    val streamName = "stream-name"
+    val retrySettings = KinesisRetrySettings().withMinBackoff(10.millis).withMaxBackoff(10.millis)
+    // entries with even data fail this many times
+    def failures = 1
+
+    def record(i: Int) =
+      PutRecordsRequestEntry
+        .builder()
+        .partitionKey("partition-key")
+        .data(SdkBytes.fromByteBuffer(ByteString(i).asByteBuffer))
+        .build()
+
+    private val lock = new Object
+    private var attempts = Map.empty[ByteString, Int]
+    private var retried = Vector.empty[ByteString]
+    private var requested = Vector.empty[Seq[ByteString]]
+    def retriedData: Seq[ByteString] = lock.synchronized(retried)
+    def requestedData: Seq[Seq[ByteString]] = lock.synchronized(requested)
+
+    when(amazonKinesisAsync.putRecords(any[PutRecordsRequest])).thenAnswer(new Answer[AnyRef] {
+      override def answer(invocation: InvocationOnMock) = {
+        val request = invocation.getArgument[PutRecordsRequest](0)
+        lock.synchronized(requested :+= request.records.asScala.map(e => ByteString(e.data.asByteArray)).toList)
+        val results = request.records.asScala.map { entry =>
+          val data = ByteString(entry.data.asByteArray)
+          val attempt = lock.synchronized {
+            attempts = attempts.updated(data, attempts.getOrElse(data, 0) + 1)
+            if (attempts(data) > 1) retried :+= data
+            attempts(data)
+          }
+          if (data.head % 2 == 0 && attempt <= failures)
+            PutRecordsResultEntry.builder().errorCode("ProvisionedThroughputExceededException").build()
+          else PutRecordsResultEntry.builder().build()
+        }
+        CompletableFuture.completedFuture(PutRecordsResponse.builder().records(results.asJava).build())
+      }
+    })
+  }
+
   trait WithPutRecordsFailure { self: Settings =>
     val requestError = new RuntimeException("kinesis-error")
     when(amazonKinesisAsync.putRecords(any[PutRecordsRequest])).thenReturn {
@@ -15,7 +15,7 @@ package org.apache.pekko.stream.connectors.kinesis
 
 import java.nio.ByteBuffer
 import java.time.Instant
-import java.util.concurrent.Semaphore
+import java.util.concurrent.{ LinkedBlockingQueue, Semaphore }
 
 import org.apache.pekko
 import pekko.stream.KillSwitches
@@ -28,6 +28,7 @@ import pekko.stream.connectors.testkit.scaladsl.Repeated
 import pekko.stream.scaladsl.Keep
 import pekko.stream.testkit.scaladsl.StreamTestKit.assertAllStagesStopped
 import pekko.stream.testkit.scaladsl.{ TestSink, TestSource }
+import org.mockito.ArgumentMatchers.{ anyLong, anyString }
 import org.mockito.Mockito._
 import org.mockito.invocation.InvocationOnMock
 import org.mockito.stubbing.Answer
@@ -38,7 +39,12 @@ import software.amazon.awssdk.core.SdkBytes
 import software.amazon.awssdk.services.kinesis.model.Record
 import software.amazon.kinesis.coordinator.Scheduler
 import software.amazon.kinesis.lifecycle.ShutdownReason
-import software.amazon.kinesis.lifecycle.events.{ InitializationInput, ProcessRecordsInput, ShardEndedInput }
+import software.amazon.kinesis.lifecycle.events.{
+  InitializationInput,
+  LeaseLostInput,
+  ProcessRecordsInput,
+  ShardEndedInput
+}
 import software.amazon.kinesis.processor.{
   RecordProcessorCheckpointer,
   ShardRecordProcessor,
@@ -48,7 +54,7 @@ import software.amazon.kinesis.retrieval.KinesisClientRecord
 import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber
 
 import scala.collection.JavaConverters._
-import scala.concurrent.Future
+import scala.concurrent.{ Await, Future }
 import scala.concurrent.duration._
 import scala.util.Random
 
@@ -447,6 +453,66 @@ class KinesisSchedulerSourceSpec
     }
   }
 
+  "KinesisSchedulerSource checkpoint coalescing Sink" must {
+
+    "checkpoint the highest contiguous record once all records before it arrived" in assertAllStagesStopped(
+      new KinesisSchedulerCoalescingContext(isShardEnd = false) {
+        sourceProbe.sendNext(committableRecords(1))
+        sourceProbe.sendNext(committableRecords(3))
+        sourceProbe.sendNext(committableRecords(0))
+        sourceProbe.sendComplete()
+        Await.result(done, 3.seconds)
+
+        verify(checkpointer).checkpoint("2", 0L)
+        verify(checkpointer, times(1)).checkpoint(anyString, anyLong)
+      })
+
+    "checkpoint right away at the end of a shard" in assertAllStagesStopped(
+      new KinesisSchedulerCoalescingContext(isShardEnd = true) {
+        committableRecords.reverse.foreach(sourceProbe.sendNext)
+
+        eventually {
+          verify(checkpointer).checkpoint("4", 0L)
+        }
+        verify(checkpointer, times(1)).checkpoint(anyString, anyLong)
+        sourceProbe.sendComplete()
+        Await.result(done, 3.seconds)
+      })
+
+    "drop the records that arrive after the lease was lost" in assertAllStagesStopped(
+      new KinesisSchedulerCoalescingContext(isShardEnd = false) {
+        sourceProbe.sendNext(committableRecords(1))
+        processor.leaseLost(LeaseLostInput.builder().build())
+        sourceProbe.sendNext(committableRecords(3))
+        sourceProbe.sendNext(committableRecords(0))
+        sourceProbe.sendNext(committableRecords(2))
+        sourceProbe.sendComplete()
+        Await.result(done, 3.seconds)
+
+        verify(checkpointer, never()).checkpoint(anyString, anyLong)
+      })
+  }
+
+  private abstract class KinesisSchedulerCoalescingContext(isShardEnd: Boolean) extends TestData {
+    private val processed = new LinkedBlockingQueue[CommittableRecord]()
+    protected val processor = new ShardProcessor(processed.add(_))
+    processor.initialize(randomInitializationInput())
+    processor.processRecords(sampleRecordsInput((1 to 4).map { i =>
+        val record = org.mockito.Mockito.mock(classOf[KinesisClientRecord])
+        when(record.sequenceNumber).thenReturn(i.toString)
+        record
+      }, isShardEnd))
+    val committableRecords: List[CommittableRecord] = List.fill(4)(processed.take())
+
+    val (sourceProbe, done) =
+      TestSource
+        .probe[CommittableRecord]
+        .toMat(
+          KinesisSchedulerSource.checkpointCoalescingSink(
+            KinesisSchedulerCheckpointSettings(maxBatchSize = 100, maxBatchWait = 1.minute)))(Keep.both)
+        .run()
+  }
+
   private trait KinesisSchedulerCheckpointContext {
     val (sourceProbe, sinkProbe) =
       TestSource
@@ -13,13 +13,16 @@
 
 package org.apache.pekko.stream.connectors.kinesis
 
+import java.math.BigInteger
 import java.util
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.atomic.AtomicReference
 
 import org.apache.pekko
+import pekko.stream.connectors.kinesis.impl.KplAggregation
 import pekko.stream.connectors.kinesis.scaladsl.KinesisSource
 import pekko.stream.connectors.testkit.scaladsl.LogCapturing
+import pekko.stream.scaladsl.{ Sink, Source }
 import pekko.stream.testkit.scaladsl.TestSink
 import pekko.stream.testkit.scaladsl.StreamTestKit.assertAllStagesStopped
 import pekko.util.ByteString
@@ -30,8 +33,10 @@ import org.mockito.stubbing.Answer
 import org.scalatest.wordspec.AnyWordSpec
 import org.scalatest.matchers.should.Matchers
 import software.amazon.awssdk.core.SdkBytes
+import software.amazon.awssdk.core.async.SdkPublisher
 import software.amazon.awssdk.services.kinesis.model._
 
+import scala.concurrent.Await
 import scala.concurrent.duration._
 
 class KinesisSourceSpec extends AnyWordSpec with Matchers with KinesisMock with LogCapturing {
@@ -158,6 +163,167 @@ class KinesisSourceSpec extends AnyWordSpec with Matchers with KinesisMock with
     }
   }
 
+  "KinesisSource.deaggregatingFlow" must {
+
+    "drop aggregated records with user records outside the hash key range of the shard" in assertAllStagesStopped {
+      val half = BigInteger.ONE.shiftLeft(127)
+      def entry(data: String, hashKey: BigInteger) =
+        PutRecordsRequestEntry
+          .builder()
+          .partitionKey(data)
+          .explicitHashKey(hashKey.toString)
+          .data(SdkBytes.fromUtf8String(data))
+          .build()
+      def record(entries: PutRecordsRequestEntry*) = {
+        val aggregated = KplAggregation.aggregate(entries.toList)
+        Record.builder().partitionKey(aggregated.partitionKey).data(aggregated.data).sequenceNumber("1").build()
+      }
+      val inside = record(entry("inside-1", BigInteger.ZERO), entry("inside-2", BigInteger.ONE))
+      val misplaced = record(entry("inside-3", BigInteger.ONE), entry("outside", half))
+      val shard = Shard
+        .builder()
+        .shardId("shard-id")
+        .hashKeyRange(
+          HashKeyRange.builder().startingHashKey("0").endingHashKey(half.subtract(BigInteger.ONE).toString).build())
+        .build()
+
+      val inShard = Source(List(inside, misplaced)).via(KinesisSource.deaggregatingFlow(shard)).runWith(Sink.seq)
+      Await.result(inShard, 3.seconds).map(_.partitionKey) shouldBe Seq("inside-1", "inside-2")
+
+      val all = Source(List(inside, misplaced)).via(KinesisSource.deaggregatingFlow).runWith(Sink.seq)
+      Await.result(all, 3.seconds).map(_.partitionKey) shouldBe Seq("inside-1", "inside-2", "inside-3", "outside")
+    }
+  }
+
+  "KinesisSource.enhancedFanOut" must {
+
+    val streamArn = "arn:aws:kinesis:us-east-1:123456789012:stream/stream_name"
+    val consumerArn = s"$streamArn/consumer/consumer_name:1"
+
+    def withActiveConsumer(): Unit =
+      when(amazonKinesisAsync.registerStreamConsumer(any[RegisterStreamConsumerRequest]))
+        .thenReturn(
+          CompletableFuture.completedFuture(
+            RegisterStreamConsumerResponse
+              .builder()
+              .consumer(Consumer.builder().consumerARN(consumerArn).consumerStatus(ConsumerStatus.ACTIVE).build())
+              .build()))
+
+    def event(data: String, continuation: String) =
+      SubscribeToShardEvent
+        .builder()
+        .records(Record.builder().data(SdkBytes.fromByteBuffer(ByteString(data).toByteBuffer)).build())
+        .continuationSequenceNumber(continuation)
+        .build()
+
+    // every subscription takes the next outcome, an event to complete with or an error to fail with
+    def withSubscriptions(outcomes: Either[Throwable, SubscribeToShardEvent]*)
+        : util.concurrent.BlockingQueue[SubscribeToShardRequest] = {
+      val subscriptions = new util.concurrent.LinkedBlockingQueue[SubscribeToShardRequest]()
+      val remaining = new util.concurrent.LinkedBlockingQueue(util.Arrays.asList(outcomes: _*))
+      when(amazonKinesisAsync.subscribeToShard(any[SubscribeToShardRequest], any[SubscribeToShardResponseHandler]))
+        .thenAnswer(new Answer[AnyRef] {
+          override def answer(invocation: InvocationOnMock) = {
+            subscriptions.add(invocation.getArgument[SubscribeToShardRequest](0))
+            val handler = invocation.getArgument[SubscribeToShardResponseHandler](1)
+            remaining.take() match {
+              case Right(event) =>
+                val publisher = Source.single[SubscribeToShardEventStream](event).runWith(Sink.asPublisher(false))
+                handler.onEventStream(SdkPublisher.adapt(publisher))
+              case Left(error) =>
+                handler.exceptionOccurred(error)
+            }
+            CompletableFuture.completedFuture(null)
+          }
+        })
+      subscriptions
+    }
+
+    val retrySettings = KinesisRetrySettings().withMinBackoff(10.millis).withMaxBackoff(10.millis).withMaxRetries(2)
+
+    "renew subscriptions from the last continuation until the shard ends" in assertAllStagesStopped {
+      withActiveConsumer()
+      val subscriptions = withSubscriptions(Right(event("1", "seq-1")), Right(event("2", null)))
+
+      val probe = KinesisSource
+        .enhancedFanOut(streamArn, "consumer_name", List(ShardSettings("stream_name", "shard-id")), amazonKinesisAsync)
+        .runWith(TestSink.probe)
+
+      probe.request(3)
+      probe.expectNext().utf8String shouldEqual "1"
+      probe.expectNext().utf8String shouldEqual "2"
+      probe.expectComplete()
+
+      subscriptions.take().startingPosition.`type` shouldBe ShardIteratorType.LATEST
+      val renewed = subscriptions.take()
+      renewed.consumerARN shouldBe consumerArn
+      renewed.startingPosition.`type` shouldBe ShardIteratorType.AFTER_SEQUENCE_NUMBER
+      renewed.startingPosition.sequenceNumber shouldBe "seq-1"
+    }
+
+    "renew subscriptions which failed with a recoverable error from the same position" in assertAllStagesStopped {
+      withActiveConsumer()
+      val subscriptions = withSubscriptions(
+        Right(event("1", "seq-1")),
+        Left(ResourceInUseException.builder().message("subscription still active").build()),
+        Left(new java.io.IOException("Connection reset")),
+        Right(event("2", null)))
+
+      val probe = KinesisSource
+        .enhancedFanOut(streamArn,
+          "consumer_name",
+          List(ShardSettings("stream_name", "shard-id")),
+          retrySettings,
+          amazonKinesisAsync)
+        .runWith(TestSink.probe)
+
+      probe.request(3)
+      probe.expectNext().utf8String shouldEqual "1"
+      probe.expectNext().utf8String shouldEqual "2"
+      probe.expectComplete()
+
+      subscriptions.take().startingPosition.`type` shouldBe ShardIteratorType.LATEST
+      (1 to 3).foreach(_ => subscriptions.take().startingPosition.sequenceNumber shouldBe "seq-1")
+    }
+
+    "fail when subscribing fails with an error which is not recoverable" in assertAllStagesStopped {
+      withActiveConsumer()
+      val subscriptions = withSubscriptions(
+        Left(ResourceNotFoundException.builder().message("no such consumer").build()),
+        Right(event("1", null)))
+
+      val probe = KinesisSource
+        .enhancedFanOut(streamArn,
+          "consumer_name",
+          List(ShardSettings("stream_name", "shard-id")),
+          retrySettings,
+          amazonKinesisAsync)
+        .runWith(TestSink.probe)
+
+      probe.request(1)
+      probe.expectError() shouldBe a[KinesisErrors.SubscribeToShardError]
+      subscriptions.size shouldBe 1
+    }
+
+    "fail once the retries of a shard are used up" in assertAllStagesStopped {
+      withActiveConsumer()
+      val subscriptions = withSubscriptions(
+        (1 to 3).map(_ => Left(LimitExceededException.builder().message("throttled").build())): _*)
+
+      val probe = KinesisSource
+        .enhancedFanOut(streamArn,
+          "consumer_name",
+          List(ShardSettings("stream_name", "shard-id")),
+          retrySettings,
+          amazonKinesisAsync)
+        .runWith(TestSink.probe)
+
+      probe.request(1)
+      probe.expectError().getCause shouldBe a[LimitExceededException]
+      subscriptions.size shouldBe 3
+    }
+  }
+
   trait KinesisSpecContext {
     def shards: util.List[Shard] = util.Arrays.asList(Shard.builder().shardId("id").build())
 
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis
+
+import java.math.BigInteger
+import java.nio.charset.StandardCharsets
+
+import org.apache.pekko.stream.connectors.kinesis.impl.{ KplAggregation, ShardHashKeys }
+import org.apache.pekko.stream.connectors.testkit.scaladsl.LogCapturing
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+import software.amazon.awssdk.core.SdkBytes
+import software.amazon.awssdk.services.kinesis.model._
+import software.amazon.kinesis.retrieval.{ AggregatorUtil, KinesisClientRecord }
+
+import scala.collection.JavaConverters._
+
+class KplAggregationSpec extends AnyWordSpec with Matchers with LogCapturing {
+
+  private def entry(partitionKey: String, data: String) =
+    PutRecordsRequestEntry
+      .builder()
+      .partitionKey(partitionKey)
+      .data(SdkBytes.fromString(data, StandardCharsets.UTF_8))
+      .build()
+
+  private def deaggregate(entry: PutRecordsRequestEntry): List[KinesisClientRecord] = {
+    val record = Record
+      .builder()
+      .partitionKey(entry.partitionKey)
+      .data(entry.data)
+      .sequenceNumber("1")
+      .build()
+    new AggregatorUtil().deaggregate(java.util.Collections.singletonList(KinesisClientRecord.fromRecord(record)))
+      .asScala
+      .toList
+  }
+
+  private def shard(shardId: String, startingHashKey: BigInteger, endingSequenceNumber: String = null) =
+    Shard
+      .builder()
+      .shardId(shardId)
+      .hashKeyRange(HashKeyRange.builder().startingHashKey(startingHashKey.toString).endingHashKey("0").build())
+      .sequenceNumberRange(
+        SequenceNumberRange.builder().startingSequenceNumber("1").endingSequenceNumber(endingSequenceNumber).build())
+      .build()
+
+  "KplAggregation" must {
+    "pack user records so that the Kinesis Client Library de-aggregates them" in {
+      val entries = List(entry("a", "one"), entry("b", "two"), entry("a", "three"))
+      val aggregated = KplAggregation.aggregate(entries)
+
+      aggregated.partitionKey mustBe "a"
+      aggregated.explicitHashKey mustBe ShardHashKeys.hashKey(entries.head).toString
+
+      val records = deaggregate(aggregated)
+      records.map(_.partitionKey) mustBe List("a", "b", "a")
+      records.map(r => StandardCharsets.UTF_8.decode(r.data).toString) mustBe List("one", "two", "three")
+      records.foreach(_.aggregated mustBe true)
+    }
+
+    "leave a single user record as it is" in {
+      val single = entry("a", "one")
+      KplAggregation.aggregate(List(single)) must be theSameInstanceAs(single)
+      deaggregate(single).map(_.aggregated) mustBe List(false)
+    }
+
+    "estimate no less than the bytes a user record adds" in {
+      val entries = List.tabulate(100)(i => entry(s"key-$i", "x" * i))
+      val aggregated = KplAggregation.aggregate(entries)
+      aggregated.data.asByteArrayUnsafe.length.toLong must be <=
+      (entries.map(KplAggregation.recordSize).sum + KplAggregation.AggregateOverhead)
+    }
+  }
+
+  "ShardHashKeys" must {
+    "map hash keys to the open shard whose range contains them" in {
+      val half = BigInteger.ONE.shiftLeft(127)
+      val shards = ShardHashKeys(
+        List(
+          shard("shard-2", half),
+          shard("shard-1", BigInteger.ZERO),
+          shard("shard-0", BigInteger.ZERO, endingSequenceNumber = "2")))
+
+      shards.shardCount mustBe 2
+      shards.shardFor(BigInteger.ZERO) mustBe "shard-1"
+      shards.shardFor(half.subtract(BigInteger.ONE)) mustBe "shard-1"
+      shards.shardFor(half) mustBe "shard-2"
+      shards.shardFor(entry("any", "data").toBuilder.explicitHashKey(half.toString).build()) mustBe "shard-2"
+    }
+  }
+}
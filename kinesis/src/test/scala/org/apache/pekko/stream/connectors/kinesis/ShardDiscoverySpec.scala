@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.kinesis
+
+import org.apache.pekko.stream.connectors.kinesis.impl.ShardDiscovery.Lineage
+import org.apache.pekko.stream.connectors.testkit.scaladsl.LogCapturing
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+import software.amazon.awssdk.services.kinesis.model.{ SequenceNumberRange, Shard, ShardIteratorType }
+
+class ShardDiscoverySpec extends AnyWordSpec with Matchers with LogCapturing {
+
+  private def shard(shardId: String, parents: String*)(closed: Boolean = false) =
+    Shard
+      .builder()
+      .shardId(shardId)
+      .parentShardId(parents.headOption.orNull)
+      .adjacentParentShardId(parents.drop(1).headOption.orNull)
+      .sequenceNumberRange(
+        SequenceNumberRange.builder().startingSequenceNumber("1").endingSequenceNumber(if (closed) "2" else null).build())
+      .build()
+
+  private def started(settings: List[ShardSettings]) = settings.map(s => s.shardId -> s.shardIteratorType)
+
+  "ShardDiscovery.Lineage" must {
+    "read child shards from their trim horizon once all parents completed" in {
+      val lineage = new Lineage(ShardSettings("stream", "ignored").withShardIterator(ShardIterator.TrimHorizon))
+      val parents = List(shard("a")(closed = true), shard("b")(closed = true))
+
+      started(lineage.listed(parents)) mustBe List(
+        "a" -> ShardIteratorType.TRIM_HORIZON,
+        "b" -> ShardIteratorType.TRIM_HORIZON)
+
+      lineage.listed(parents :+ shard("c", "a", "b")()) mustBe empty
+      lineage.shardCompleted("a") mustBe empty
+      started(lineage.shardCompleted("b")) mustBe List("c" -> ShardIteratorType.TRIM_HORIZON)
+      lineage.listed(parents :+ shard("c", "a", "b")()) mustBe empty
+    }
+
+    "start shards whose parents are not listed at the position of the settings" in {
+      val lineage = new Lineage(ShardSettings("stream", "ignored").withShardIterator(ShardIterator.Latest))
+
+      started(lineage.listed(List(shard("a", "expired")()))) mustBe List("a" -> ShardIteratorType.LATEST)
+    }
+
+    "skip shards that are closed when first listed at the latest position" in {
+      val lineage = new Lineage(ShardSettings("stream", "ignored").withShardIterator(ShardIterator.Latest))
+
+      started(lineage.listed(List(shard("a")(closed = true), shard("b", "a")()))) mustBe List(
+        "b" -> ShardIteratorType.LATEST)
+    }
+  }
+}
@@ -136,7 +136,7 @@ object Dependencies {
         ExclusionRule("software.amazon.awssdk", "apache-client"),
         ExclusionRule("software.amazon.awssdk", "netty-nio-client")),
       "org.apache.pekko" %% "pekko-http" % PekkoHttpVersion // ApacheV2
-    ))
+    ) ++ Mockito)
 
   val Elasticsearch = Seq(
     libraryDependencies ++= Seq(
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sns
+
+import java.util.Optional
+
+import org.apache.pekko.annotation.InternalApi
+import software.amazon.awssdk.services.sns.model.{ BatchResultErrorEntry, PublishBatchResultEntry, PublishRequest }
+
+import scala.compat.java8.OptionConverters._
+
+/**
+ * The outcome of publishing a message in a PublishBatch request: either the `Successful` entry SNS returned for it,
+ * or the `Failed` entry of its last attempt.
+ */
+final class SnsPublishBatchResult @InternalApi private[sns] (
+    val request: PublishRequest,
+    val result: Option[PublishBatchResultEntry],
+    val error: Option[BatchResultErrorEntry]) {
+
+  def isSuccess: Boolean = result.isDefined
+
+  /** Java API */
+  def getRequest: PublishRequest = request
+
+  /** Java API */
+  def getResult: Optional[PublishBatchResultEntry] = result.asJava
+
+  /** Java API */
+  def getError: Optional[BatchResultErrorEntry] = error.asJava
+
+  override def toString: String =
+    s"SnsPublishBatchResult(request=$request,result=$result,error=$error)"
+}
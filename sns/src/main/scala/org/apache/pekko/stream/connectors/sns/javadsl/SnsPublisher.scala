@@ -16,7 +16,7 @@ package org.apache.pekko.stream.connectors.sns.javadsl
 import java.util.concurrent.CompletionStage
 
 import org.apache.pekko
-import pekko.stream.connectors.sns.SnsPublishSettings
+import pekko.stream.connectors.sns.{ SnsPublishBatchResult, SnsPublishBatchSettings, SnsPublishSettings }
 import pekko.stream.javadsl.{ Flow, Keep, Sink }
 import pekko.{ Done, NotUsed }
 import software.amazon.awssdk.services.sns.SnsAsyncClient
@@ -70,6 +70,17 @@ object SnsPublisher {
   def createPublishFlow(snsClient: SnsAsyncClient): Flow[PublishRequest, PublishResponse, NotUsed] =
     pekko.stream.connectors.sns.scaladsl.SnsPublisher.publishFlow(SnsPublishSettings())(snsClient).asJava
 
+  /**
+   * creates a [[pekko.stream.javadsl.Flow Flow]] to publish messages to a SNS topic in PublishBatch requests using an [[software.amazon.awssdk.services.sns.SnsAsyncClient SnsAsyncClient]]
+   *
+   * Every message is emitted with the `Successful` or `Failed` entry SNS returned for it, in the order the messages
+   * came in, see [[SnsPublishBatchSettings]] for how messages are grouped and retried.
+   */
+  def createBatchPublishFlow(topicArn: String,
+      settings: SnsPublishBatchSettings,
+      snsClient: SnsAsyncClient): Flow[PublishRequest, SnsPublishBatchResult, NotUsed] =
+    pekko.stream.connectors.sns.scaladsl.SnsPublisher.batchPublishFlow(topicArn, settings)(snsClient).asJava
+
   /**
    * creates a [[pekko.stream.javadsl.Sink Sink]] to publish messages to a SNS topic using an [[software.amazon.awssdk.services.sns.SnsAsyncClient SnsAsyncClient]]
    */
@@ -13,14 +13,23 @@
 
 package org.apache.pekko.stream.connectors.sns.scaladsl
 
+import java.nio.charset.StandardCharsets
+
 import org.apache.pekko
-import pekko.stream.connectors.sns.SnsPublishSettings
+import pekko.actor.Scheduler
+import pekko.stream.connectors.sns.{ SnsPublishBatchResult, SnsPublishBatchSettings, SnsPublishSettings }
 import pekko.stream.scaladsl.{ Flow, Keep, Sink }
 import pekko.{ Done, NotUsed }
 import software.amazon.awssdk.services.sns.SnsAsyncClient
-import software.amazon.awssdk.services.sns.model.{ PublishRequest, PublishResponse }
+import software.amazon.awssdk.services.sns.model.{
+  PublishBatchRequest,
+  PublishBatchRequestEntry,
+  PublishRequest,
+  PublishResponse
+}
 
-import scala.concurrent.Future
+import scala.collection.JavaConverters._
+import scala.concurrent.{ ExecutionContext, Future }
 
 import scala.compat.java8.FutureConverters._
 
@@ -65,6 +74,86 @@ object SnsPublisher {
   def publishFlow()(implicit snsClient: SnsAsyncClient): Flow[PublishRequest, PublishResponse, NotUsed] =
     publishFlow(SnsPublishSettings())
 
+  /**
+   * creates a [[pekko.stream.scaladsl.Flow Flow]] to publish messages to a SNS topic in PublishBatch requests using an [[software.amazon.awssdk.services.sns.SnsAsyncClient SnsAsyncClient]]
+   *
+   * Messages are grouped by count, by their total size counting message bodies, subjects and attributes, and by time,
+   * see [[SnsPublishBatchSettings]]. Every message is emitted with the `Successful` or `Failed` entry SNS returned for
+   * it, in the order the messages came in. A failing PublishBatch request fails the flow.
+   */
+  def batchPublishFlow(topicArn: String, settings: SnsPublishBatchSettings = SnsPublishBatchSettings())(
+      implicit snsClient: SnsAsyncClient): Flow[PublishRequest, SnsPublishBatchResult, NotUsed] = {
+    require(snsClient != null, "The `SnsAsyncClient` passed in may not be null.")
+    Flow
+      .fromMaterializer { (mat, _) =>
+        Flow[PublishRequest]
+          .groupedWeightedWithin(settings.maxBatchBytes, settings.maxBatchSize, settings.maxBatchWait)(messageSize)
+          .mapAsync(settings.concurrency)(batch =>
+            publishBatchWithRetries(topicArn, batch.toVector, settings, retry = 0)(snsClient,
+              mat.system.scheduler,
+              mat.executionContext))
+          .mapConcat(identity)
+      }
+      .mapMaterializedValue(_ => NotUsed)
+  }
+
+  private def publishBatchWithRetries(
+      topicArn: String,
+      requests: Vector[PublishRequest],
+      settings: SnsPublishBatchSettings,
+      retry: Int)(
+      implicit snsClient: SnsAsyncClient,
+      scheduler: Scheduler,
+      ec: ExecutionContext): Future[Vector[SnsPublishBatchResult]] = {
+    val entries = requests.zipWithIndex.map {
+      case (request, i) =>
+        PublishBatchRequestEntry
+          .builder()
+          .id(i.toString)
+          .message(request.message)
+          .subject(request.subject)
+          .messageStructure(request.messageStructure)
+          .messageAttributes(request.messageAttributes)
+          .messageDeduplicationId(request.messageDeduplicationId)
+          .messageGroupId(request.messageGroupId)
+          .build()
+    }
+    snsClient
+      .publishBatch(PublishBatchRequest.builder().topicArn(topicArn).publishBatchRequestEntries(entries.asJava).build())
+      .toScala
+      .flatMap { response =>
+        val successful = response.successful.asScala.map(entry => entry.id.toInt -> entry).toMap
+        val failed = response.failed.asScala.map(entry => entry.id.toInt -> entry).toMap
+        val results = requests.zipWithIndex.map {
+          case (request, i) => new SnsPublishBatchResult(request, successful.get(i), failed.get(i))
+        }
+        // entries failed through the sender's fault will fail again
+        val retryable = failed.collect {
+          case (i, entry) if entry.senderFault != java.lang.Boolean.TRUE => i
+        }.toVector.sorted
+        if (retryable.isEmpty || retry >= settings.maxRetries) Future.successful(results)
+        else
+          pekko.pattern
+            .after(settings.backoff(retry + 1), scheduler)(
+              publishBatchWithRetries(topicArn, retryable.map(requests), settings, retry + 1))
+            .map { retried =>
+              retryable.zip(retried).foldLeft(results) { case (acc, (index, result)) => acc.updated(index, result) }
+            }
+      }
+  }
+
+  // the message, subject and attributes count against the PublishBatch size limit
+  private def messageSize(request: PublishRequest): Long =
+    utf8Length(request.message) +
+    utf8Length(request.subject) +
+    request.messageAttributes.asScala.iterator.map {
+      case (name, value) =>
+        utf8Length(name) + utf8Length(value.dataType) + utf8Length(value.stringValue) +
+        Option(value.binaryValue).fold(0L)(_.asByteBuffer.remaining.toLong)
+    }.sum
+
+  private def utf8Length(s: String): Long = if (s == null) 0L else s.getBytes(StandardCharsets.UTF_8).length.toLong
+
   /**
    * creates a [[pekko.stream.scaladsl.Sink Sink]] to publish messages to a SNS topic using an [[software.amazon.awssdk.services.sns.SnsAsyncClient SnsAsyncClient]]
    */
@@ -15,7 +15,7 @@ package docs.scaladsl
 
 import org.apache.pekko
 import pekko.Done
-import pekko.stream.connectors.sns.IntegrationTestContext
+import pekko.stream.connectors.sns.{ IntegrationTestContext, SnsPublishBatchSettings }
 import pekko.stream.connectors.sns.scaladsl.SnsPublisher
 import pekko.stream.connectors.testkit.scaladsl.LogCapturing
 import pekko.stream.scaladsl.{ Sink, Source }
@@ -104,4 +104,21 @@ class SnsPublisherSpec
     published.futureValue should be(Done)
   }
 
+  "SNS Publisher batch flow" should "publish messages in batches" in {
+    val published =
+      // #use-batch-flow
+      Source(1 to 25)
+        .map(i => PublishRequest.builder().message(s"message $i").build())
+        .via(
+          SnsPublisher.batchPublishFlow(
+            topicArn,
+            SnsPublishBatchSettings()
+              .withMaxBatchWait(100.millis)
+              .withMaxRetries(3)))
+        .runWith(Sink.seq)
+    // #use-batch-flow
+    published.futureValue should have size 25
+    published.futureValue.forall(_.isSuccess) shouldBe true
+  }
+
 }
@@ -18,14 +18,25 @@ import java.util.concurrent.CompletableFuture
 import org.apache.pekko
 import pekko.stream.connectors.sns.scaladsl.SnsPublisher
 import pekko.stream.connectors.testkit.scaladsl.LogCapturing
-import pekko.stream.scaladsl.{ Keep, Sink }
+import pekko.stream.scaladsl.{ Keep, Sink, Source }
 import pekko.stream.testkit.scaladsl.TestSource
+import org.mockito.ArgumentCaptor
 import org.mockito.ArgumentMatchers.{ any, eq => meq }
 import org.mockito.Mockito._
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
 import org.scalatest.flatspec.AnyFlatSpec
 import org.scalatest.matchers.must.Matchers
-import software.amazon.awssdk.services.sns.model.{ PublishRequest, PublishResponse }
+import software.amazon.awssdk.services.sns.model.{
+  BatchResultErrorEntry,
+  PublishBatchRequest,
+  PublishBatchResponse,
+  PublishBatchResultEntry,
+  PublishRequest,
+  PublishResponse
+}
 
+import scala.collection.JavaConverters._
 import scala.concurrent.Await
 import scala.concurrent.duration._
 
@@ -163,4 +174,60 @@ class SnsPublishMockingSpec extends AnyFlatSpec with DefaultTestContext with Mat
     verify(snsClient, never()).publish(any[PublishRequest]())
   }
 
+  it should "publish PublishRequest messages in PublishBatch requests" in {
+    val publishAll = new Answer[CompletableFuture[PublishBatchResponse]] {
+      override def answer(invocation: InvocationOnMock): CompletableFuture[PublishBatchResponse] = {
+        val request = invocation.getArgument[PublishBatchRequest](0)
+        val successful = request.publishBatchRequestEntries.asScala.map { entry =>
+          PublishBatchResultEntry.builder().id(entry.id).messageId(s"id-${entry.message}").build()
+        }
+        CompletableFuture.completedFuture(PublishBatchResponse.builder().successful(successful.asJava).build())
+      }
+    }
+    when(snsClient.publishBatch(any[PublishBatchRequest]())).thenAnswer(publishAll)
+
+    val messages = (1 to 12).map(i => PublishRequest.builder().message(s"sns-message-$i").build())
+    val future = Source(messages).via(SnsPublisher.batchPublishFlow("topic-arn")).runWith(Sink.seq)
+
+    val results = Await.result(future, 1.second)
+    results.map(_.request) mustBe messages
+    results.flatMap(_.result).map(_.messageId) mustBe messages.map(m => s"id-${m.message}")
+
+    val requests = ArgumentCaptor.forClass(classOf[PublishBatchRequest])
+    verify(snsClient, times(2)).publishBatch(requests.capture())
+    requests.getAllValues.asScala.map(_.publishBatchRequestEntries.size) mustBe Seq(10, 2)
+    requests.getAllValues.asScala.map(_.topicArn).distinct mustBe Seq("topic-arn")
+  }
+
+  it should "retry the entries of a PublishBatch request failed by SNS" in {
+    val failure = BatchResultErrorEntry.builder().id("1").code("InternalError").senderFault(false).build()
+    val invalid = BatchResultErrorEntry.builder().id("2").code("InvalidParameter").senderFault(true).build()
+    when(snsClient.publishBatch(any[PublishBatchRequest]()))
+      .thenReturn(
+        CompletableFuture.completedFuture(
+          PublishBatchResponse
+            .builder()
+            .successful(PublishBatchResultEntry.builder().id("0").messageId("id-0").build())
+            .failed(failure, invalid)
+            .build()))
+      .thenReturn(
+        CompletableFuture.completedFuture(
+          PublishBatchResponse
+            .builder()
+            .successful(PublishBatchResultEntry.builder().id("0").messageId("id-1").build())
+            .build()))
+
+    val messages = (0 to 2).map(i => PublishRequest.builder().message(s"sns-message-$i").build())
+    val settings = SnsPublishBatchSettings().withMaxRetries(1).withMinBackoff(10.millis)
+    val future = Source(messages).via(SnsPublisher.batchPublishFlow("topic-arn", settings)).runWith(Sink.seq)
+
+    val results = Await.result(future, 1.second)
+    results.map(_.result.map(_.messageId)) mustBe Seq(Some("id-0"), Some("id-1"), None)
+    results(2).error mustBe Some(invalid)
+
+    val requests = ArgumentCaptor.forClass(classOf[PublishBatchRequest])
+    verify(snsClient, times(2)).publishBatch(requests.capture())
+    requests.getAllValues.get(1).publishBatchRequestEntries.asScala.map(_.message) mustBe Seq("sns-message-1")
+  }
+
 }
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs
+
+final class SqsFifoProcessingSettings private (val maxActiveGroups: Int, val maxBufferedMessages: Int) {
+
+  require(maxActiveGroups > 0, s"Invalid value for maxActiveGroups: $maxActiveGroups. It should be positive.")
+  require(
+    maxBufferedMessages > 0,
+    s"Invalid value for maxBufferedMessages: $maxBufferedMessages. It should be positive.")
+
+  /**
+   * The maximum number of message groups processed concurrently, which is also limited by `maxBufferedMessages`.
+   */
+  def withMaxActiveGroups(value: Int): SqsFifoProcessingSettings = copy(maxActiveGroups = value)
+
+  /** The maximum number of messages received from upstream which are not processed yet. */
+  def withMaxBufferedMessages(value: Int): SqsFifoProcessingSettings = copy(maxBufferedMessages = value)
+
+  private def copy(maxActiveGroups: Int = maxActiveGroups,
+      maxBufferedMessages: Int = maxBufferedMessages): SqsFifoProcessingSettings =
+    new SqsFifoProcessingSettings(maxActiveGroups = maxActiveGroups, maxBufferedMessages = maxBufferedMessages)
+
+  override def toString =
+    s"""SqsFifoProcessingSettings(maxActiveGroups=$maxActiveGroups,maxBufferedMessages=$maxBufferedMessages)"""
+
+}
+
+object SqsFifoProcessingSettings {
+  val Defaults = new SqsFifoProcessingSettings(
+    maxActiveGroups = 10,
+    maxBufferedMessages = 100)
+
+  /** Scala API */
+  def apply(): SqsFifoProcessingSettings = Defaults
+
+  /** Java API */
+  def create(): SqsFifoProcessingSettings = Defaults
+}
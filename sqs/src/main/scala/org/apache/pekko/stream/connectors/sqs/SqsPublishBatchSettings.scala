@@ -13,22 +13,39 @@
 
 package org.apache.pekko.stream.connectors.sqs
 
-final class SqsPublishBatchSettings private (val concurrentRequests: Int) {
+final class SqsPublishBatchSettings private (val concurrentRequests: Int, val maxBatchBytes: Long) {
+
+  require(
+    maxBatchBytes > 0 && maxBatchBytes <= SqsPublishBatchSettings.MaxBatchBytes,
+    s"Invalid value for maxBatchBytes: $maxBatchBytes. It should be 0 < maxBatchBytes <= 262144, due to the Amazon SQS requirements.")
 
   def withConcurrentRequests(value: Int): SqsPublishBatchSettings = copy(concurrentRequests = value)
 
-  private def copy(concurrentRequests: Int): SqsPublishBatchSettings =
-    new SqsPublishBatchSettings(concurrentRequests = concurrentRequests)
+  /**
+   * Batches whose messages add up to more than this many bytes, counting message bodies and attributes the way SQS
+   * does, are sent in several requests.
+   */
+  def withMaxBatchBytes(value: Long): SqsPublishBatchSettings = copy(maxBatchBytes = value)
+
+  private def copy(concurrentRequests: Int = concurrentRequests,
+      maxBatchBytes: Long = maxBatchBytes): SqsPublishBatchSettings =
+    new SqsPublishBatchSettings(concurrentRequests = concurrentRequests, maxBatchBytes = maxBatchBytes)
 
   override def toString =
-    s"""SqsPublishBatchSettings(concurrentRequests=$concurrentRequests)"""
+    s"""SqsPublishBatchSettings(concurrentRequests=$concurrentRequests,maxBatchBytes=$maxBatchBytes)"""
 
 }
 
 object SqsPublishBatchSettings {
 
+  /**
+   * The maximum size of a message and of all messages in a batch request accepted by SQS, 256 KiB.
+   */
+  val MaxBatchBytes: Long = 256 * 1024
+
   val Defaults = new SqsPublishBatchSettings(
-    concurrentRequests = 1)
+    concurrentRequests = 1,
+    maxBatchBytes = MaxBatchBytes)
 
   /** Scala API */
   def apply(): SqsPublishBatchSettings = Defaults
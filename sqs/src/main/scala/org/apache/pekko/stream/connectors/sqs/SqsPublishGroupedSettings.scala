@@ -17,11 +17,15 @@ import scala.concurrent.duration._
 
 final class SqsPublishGroupedSettings private (val maxBatchSize: Int,
     val maxBatchWait: scala.concurrent.duration.FiniteDuration,
-    val concurrentRequests: Int) {
+    val concurrentRequests: Int,
+    val maxBatchBytes: Long) {
 
   require(
     maxBatchSize > 0 && maxBatchSize <= 10,
     s"Invalid value for maxBatchSize: $maxBatchSize. It should be 0 < maxBatchSize < 10, due to the Amazon SQS requirements.")
+  require(
+    maxBatchBytes > 0 && maxBatchBytes <= SqsPublishBatchSettings.MaxBatchBytes,
+    s"Invalid value for maxBatchBytes: $maxBatchBytes. It should be 0 < maxBatchBytes <= 262144, due to the Amazon SQS requirements.")
 
   def withMaxBatchSize(value: Int): SqsPublishGroupedSettings = copy(maxBatchSize = value)
 
@@ -36,18 +40,26 @@ final class SqsPublishGroupedSettings private (val maxBatchSize: Int,
 
   def withConcurrentRequests(value: Int): SqsPublishGroupedSettings = copy(concurrentRequests = value)
 
+  /**
+   * The maximum total size of the messages in a batch, counting message bodies and attributes the way SQS does.
+   */
+  def withMaxBatchBytes(value: Long): SqsPublishGroupedSettings = copy(maxBatchBytes = value)
+
   private def copy(maxBatchSize: Int = maxBatchSize,
       maxBatchWait: scala.concurrent.duration.FiniteDuration = maxBatchWait,
-      concurrentRequests: Int = concurrentRequests): SqsPublishGroupedSettings =
+      concurrentRequests: Int = concurrentRequests,
+      maxBatchBytes: Long = maxBatchBytes): SqsPublishGroupedSettings =
     new SqsPublishGroupedSettings(maxBatchSize = maxBatchSize,
       maxBatchWait = maxBatchWait,
-      concurrentRequests = concurrentRequests)
+      concurrentRequests = concurrentRequests,
+      maxBatchBytes = maxBatchBytes)
 
   override def toString =
     "SqsPublishGroupedSettings(" +
     s"maxBatchSize=$maxBatchSize," +
     s"maxBatchWait=$maxBatchWait," +
-    s"concurrentRequests=$concurrentRequests" +
+    s"concurrentRequests=$concurrentRequests," +
+    s"maxBatchBytes=$maxBatchBytes" +
     ")"
 
 }
@@ -57,7 +69,8 @@ object SqsPublishGroupedSettings {
   val Defaults = new SqsPublishGroupedSettings(
     maxBatchSize = 10,
     maxBatchWait = 500.millis,
-    concurrentRequests = 1)
+    concurrentRequests = 1,
+    maxBatchBytes = SqsPublishBatchSettings.MaxBatchBytes)
 
   /** Scala API */
   def apply(): SqsPublishGroupedSettings = Defaults
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs
+
+import org.apache.pekko.util.JavaDurationConverters._
+
+import scala.concurrent.duration._
+
+/**
+ * Settings for extending the visibility timeout of in-flight messages.
+ *
+ * Every in-flight message is made invisible for another `visibilityTimeout` once its current timeout expires within
+ * `extensionMargin`, until it has been in flight for `maxExtension`. Extensions are sent in
+ * ChangeMessageVisibilityBatch requests of up to `maxBatchSize` messages, at most `concurrentRequests` at a time.
+ * `extensionMargin` must be shorter than `visibilityTimeout`, which is checked when the heartbeat is started.
+ */
+final class SqsVisibilityHeartbeatSettings private (val visibilityTimeout: FiniteDuration,
+    val extensionMargin: FiniteDuration,
+    val maxExtension: FiniteDuration,
+    val maxBatchSize: Int,
+    val concurrentRequests: Int) {
+
+  require(
+    visibilityTimeout >= 1.second && visibilityTimeout <= 12.hours,
+    s"Invalid value ($visibilityTimeout) for visibilityTimeout. Requirement: 1 second <= visibilityTimeout <= 12 hours")
+  require(extensionMargin > Duration.Zero, "extensionMargin must be positive")
+  require(maxExtension > Duration.Zero, "maxExtension must be positive")
+  require(
+    maxBatchSize > 0 && maxBatchSize <= 10,
+    s"Invalid value for maxBatchSize: $maxBatchSize. It should be 0 < maxBatchSize < 10, due to the Amazon SQS requirements.")
+  require(concurrentRequests > 0, s"Invalid value for concurrentRequests: $concurrentRequests. It should be positive.")
+
+  /**
+   * Scala API: The visibility timeout the heartbeat's source receives messages with, and every extension sets. It
+   * replaces the visibility timeout of the source settings.
+   */
+  def withVisibilityTimeout(value: FiniteDuration): SqsVisibilityHeartbeatSettings = copy(visibilityTimeout = value)
+
+  /**
+   * Java API: The visibility timeout the heartbeat's source receives messages with, and every extension sets. It
+   * replaces the visibility timeout of the source settings.
+   */
+  def withVisibilityTimeout(value: java.time.Duration): SqsVisibilityHeartbeatSettings =
+    copy(visibilityTimeout = value.asScala)
+
+  /** Scala API: Messages are extended this long before their visibility timeout expires. */
+  def withExtensionMargin(value: FiniteDuration): SqsVisibilityHeartbeatSettings = copy(extensionMargin = value)
+
+  /** Java API: Messages are extended this long before their visibility timeout expires. */
+  def withExtensionMargin(value: java.time.Duration): SqsVisibilityHeartbeatSettings =
+    copy(extensionMargin = value.asScala)
+
+  /** Scala API: Messages are no longer extended once they have been in flight this long. */
+  def withMaxExtension(value: FiniteDuration): SqsVisibilityHeartbeatSettings = copy(maxExtension = value)
+
+  /** Java API: Messages are no longer extended once they have been in flight this long. */
+  def withMaxExtension(value: java.time.Duration): SqsVisibilityHeartbeatSettings =
+    copy(maxExtension = value.asScala)
+
+  def withMaxBatchSize(value: Int): SqsVisibilityHeartbeatSettings = copy(maxBatchSize = value)
+
+  def withConcurrentRequests(value: Int): SqsVisibilityHeartbeatSettings = copy(concurrentRequests = value)
+
+  private def copy(visibilityTimeout: FiniteDuration = visibilityTimeout,
+      extensionMargin: FiniteDuration = extensionMargin,
+      maxExtension: FiniteDuration = maxExtension,
+      maxBatchSize: Int = maxBatchSize,
+      concurrentRequests: Int = concurrentRequests): SqsVisibilityHeartbeatSettings =
+    new SqsVisibilityHeartbeatSettings(visibilityTimeout = visibilityTimeout,
+      extensionMargin = extensionMargin,
+      maxExtension = maxExtension,
+      maxBatchSize = maxBatchSize,
+      concurrentRequests = concurrentRequests)
+
+  override def toString =
+    "SqsVisibilityHeartbeatSettings(" +
+    s"visibilityTimeout=$visibilityTimeout," +
+    s"extensionMargin=$extensionMargin," +
+    s"maxExtension=$maxExtension," +
+    s"maxBatchSize=$maxBatchSize," +
+    s"concurrentRequests=$concurrentRequests" +
+    ")"
+}
+
+object SqsVisibilityHeartbeatSettings {
+  val Defaults = new SqsVisibilityHeartbeatSettings(
+    visibilityTimeout = 30.seconds,
+    extensionMargin = 10.seconds,
+    maxExtension = 12.hours,
+    maxBatchSize = 10,
+    concurrentRequests = 1)
+
+  /** Scala API */
+  def apply(): SqsVisibilityHeartbeatSettings = Defaults
+
+  /** Java API */
+  def create(): SqsVisibilityHeartbeatSettings = Defaults
+}
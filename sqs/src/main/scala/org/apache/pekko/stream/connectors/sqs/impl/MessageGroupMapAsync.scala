@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs.impl
+
+import org.apache.pekko
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts.parasitic
+import pekko.stream.Attributes.name
+import pekko.stream._
+import pekko.stream.stage.{ GraphStage, GraphStageLogic, InHandler, OutHandler }
+
+import scala.collection.mutable
+import scala.concurrent.Future
+import scala.util.control.NonFatal
+import scala.util.{ Failure, Success, Try }
+
+/**
+ * Internal API.
+ *
+ * Like `mapAsyncUnordered`, but elements with the same group key are processed one after the other in the order
+ * they arrived, while up to `maxActiveGroups` groups are processed concurrently. Groups waiting for a free slot take
+ * turns, so a busy group does not starve the others. At most `maxBufferedElements` elements are taken from upstream
+ * and not yet emitted, so fewer groups are active when it is lower than `maxActiveGroups`.
+ *
+ * A failed element fails the stage whatever the supervision strategy, as dropping it and letting the next element of
+ * its group go ahead would break the order of the group.
+ */
+@InternalApi private[sqs] final case class MessageGroupMapAsync[In, Out](
+    maxActiveGroups: Int,
+    maxBufferedElements: Int,
+    groupKey: In => String,
+    f: In => Future[Out]) extends GraphStage[FlowShape[In, Out]] {
+
+  private val in = Inlet[In]("MessageGroupMapAsync.in")
+  private val out = Outlet[Out]("MessageGroupMapAsync.out")
+
+  override def initialAttributes = name("MessageGroupMapAsync")
+
+  override val shape = FlowShape(in, out)
+
+  override def createLogic(inheritedAttributes: Attributes): GraphStageLogic =
+    new GraphStageLogic(shape) with InHandler with OutHandler {
+
+      // elements waiting for their group to become active or for the previous element of their group
+      private val pending = mutable.Map.empty[String, mutable.Queue[In]]
+      // groups with an element being processed
+      private val active = mutable.Set.empty[String]
+      // inactive groups with pending elements, in the order they will be activated
+      private val waiting = mutable.Queue.empty[String]
+      private val results = mutable.Queue.empty[Out]
+      // elements taken from upstream and not yet emitted or dropped
+      private var buffered = 0
+
+      private val futureCB = getAsyncCallback[(String, Try[Out])] {
+        case (_, Failure(ex)) =>
+          failStage(ex)
+        case (key, Success(elem)) =>
+          active -= key
+          results.enqueue(elem)
+          if (pending.contains(key)) waiting.enqueue(key)
+          activateWaiting()
+          pushNextIfPossible()
+      }
+
+      override def onPush(): Unit = {
+        val elem = grab(in)
+        val key = groupKey(elem)
+        buffered += 1
+        if (!active(key) && !pending.contains(key) && active.size < maxActiveGroups) process(key, elem)
+        else {
+          pending.get(key) match {
+            case Some(queue) => queue.enqueue(elem)
+            case None =>
+              pending.update(key, mutable.Queue(elem))
+              if (!active(key)) waiting.enqueue(key)
+          }
+        }
+        pullIfNeeded()
+      }
+
+      override def onPull(): Unit = pushNextIfPossible()
+
+      override def onUpstreamFinish(): Unit = if (buffered == 0) completeStage()
+
+      private def process(key: String, elem: In): Unit = {
+        active += key
+        val future =
+          try f(elem)
+          catch {
+            // treat a throwing function like a failed future
+            case NonFatal(ex) => Future.failed(ex)
+          }
+        future.onComplete(result => futureCB.invoke(key -> result))(parasitic)
+      }
+
+      private def activateWaiting(): Unit =
+        while (active.size < maxActiveGroups && waiting.nonEmpty) {
+          val key = waiting.dequeue()
+          val queue = pending(key)
+          val elem = queue.dequeue()
+          if (queue.isEmpty) pending.remove(key)
+          process(key, elem)
+        }
+
+      private def pushNextIfPossible(): Unit = {
+        if (results.nonEmpty && isAvailable(out)) {
+          push(out, results.dequeue())
+          buffered -= 1
+        }
+        if (buffered == 0 && isClosed(in)) completeStage()
+        else pullIfNeeded()
+      }
+
+      private def pullIfNeeded(): Unit =
+        if (buffered < maxBufferedElements && !isClosed(in) && !hasBeenPulled(in)) pull(in)
+
+      setHandlers(in, out, this)
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs.impl
+
+import java.nio.charset.StandardCharsets
+
+import org.apache.pekko.annotation.InternalApi
+import software.amazon.awssdk.core.SdkBytes
+import software.amazon.awssdk.services.sqs.model.{
+  MessageAttributeValue,
+  MessageSystemAttributeValue,
+  SendMessageRequest
+}
+
+import scala.collection.JavaConverters._
+import scala.collection.immutable
+
+/**
+ * Internal API
+ *
+ * The size of a message as counted against the SQS message and batch size limits: the body plus, for every message
+ * attribute, its name, data type and value.
+ */
+@InternalApi
+private[sqs] object MessageSize {
+
+  def apply(request: SendMessageRequest): Long =
+    utf8(request.messageBody) +
+    request.messageAttributes.asScala.iterator.map {
+      case (name, value) => utf8(name) + attribute(value)
+    }.sum +
+    request.messageSystemAttributesAsStrings.asScala.iterator.map {
+      case (name, value) => utf8(name) + systemAttribute(value)
+    }.sum
+
+  /**
+   * Splits messages into consecutive groups of at most `maxBytes` each. A message larger than `maxBytes` makes up a
+   * group of its own.
+   */
+  def split(requests: immutable.Seq[SendMessageRequest], maxBytes: Long): List[immutable.Seq[SendMessageRequest]] =
+    requests
+      .foldLeft(List.empty[(Long, Vector[SendMessageRequest])]) { (groups, request) =>
+        val size = MessageSize(request)
+        groups match {
+          case (bytes, group) :: rest if bytes + size <= maxBytes => (bytes + size, group :+ request) :: rest
+          case _                                                  => (size, Vector(request)) :: groups
+        }
+      }
+      .reverse
+      .map(_._2)
+
+  private def attribute(value: MessageAttributeValue): Long =
+    utf8(value.dataType) + utf8(value.stringValue) + bytes(value.binaryValue)
+
+  private def systemAttribute(value: MessageSystemAttributeValue): Long =
+    utf8(value.dataType) + utf8(value.stringValue) + bytes(value.binaryValue)
+
+  private def utf8(s: String): Long = if (s == null) 0L else s.getBytes(StandardCharsets.UTF_8).length.toLong
+
+  private def bytes(b: SdkBytes): Long = if (b == null) 0L else b.asByteBuffer.remaining.toLong
+}
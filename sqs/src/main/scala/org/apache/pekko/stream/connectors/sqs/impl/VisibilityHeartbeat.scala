@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs.impl
+
+import java.util.concurrent.ConcurrentHashMap
+
+import org.apache.pekko
+import pekko.{ Done, NotUsed }
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts.parasitic
+import pekko.event.Logging
+import pekko.stream.{ KillSwitches, Materializer }
+import pekko.stream.connectors.sqs.SqsVisibilityHeartbeatSettings
+import pekko.stream.scaladsl.{ Sink, Source }
+import software.amazon.awssdk.services.sqs.SqsAsyncClient
+import software.amazon.awssdk.services.sqs.model.{
+  ChangeMessageVisibilityBatchRequest,
+  ChangeMessageVisibilityBatchRequestEntry,
+  Message
+}
+
+import scala.collection.JavaConverters._
+import scala.collection.immutable
+import scala.compat.java8.FutureConverters._
+import scala.concurrent.Future
+import scala.util.control.NonFatal
+
+/**
+ * Internal API
+ *
+ * Tracks in-flight messages by receipt handle and extends their visibility timeout shortly before it expires, in
+ * batched ChangeMessageVisibilityBatch requests, until they are released or shut down.
+ */
+@InternalApi
+private[sqs] final class VisibilityHeartbeat(queueUrl: String, settings: SqsVisibilityHeartbeatSettings)(
+    implicit sqsClient: SqsAsyncClient,
+    mat: Materializer) {
+  import VisibilityHeartbeat._
+
+  require(settings.extensionMargin < settings.visibilityTimeout,
+    s"extensionMargin (${settings.extensionMargin}) must be shorter than " +
+    s"visibilityTimeout (${settings.visibilityTimeout})")
+
+  private val log = Logging(mat.system, classOf[VisibilityHeartbeat])
+
+  private val inFlight = new ConcurrentHashMap[String, InFlight]()
+
+  private val killSwitch = KillSwitches.shared("sqs-visibility-heartbeat")
+
+  private val visibilityTimeoutNanos = settings.visibilityTimeout.toNanos
+  private val checkInterval = settings.extensionMargin / 2
+
+  Source
+    .tick(checkInterval, checkInterval, NotUsed)
+    .via(killSwitch.flow)
+    .mapConcat(_ => due().grouped(settings.maxBatchSize).toList)
+    .mapAsync(settings.concurrentRequests)(extend)
+    .runWith(Sink.ignore)
+
+  /**
+   * Starts extending the visibility timeout of a message, to be called as soon as it was received with the
+   * heartbeat's visibility timeout.
+   */
+  def track(message: Message): Unit = {
+    val now = System.nanoTime()
+    inFlight.put(message.receiptHandle, InFlight(now, now + visibilityTimeoutNanos))
+  }
+
+  /**
+   * Stops extending the visibility timeout of a message, to be called once it was deleted or its visibility changed.
+   */
+  def release(message: Message): Unit = inFlight.remove(message.receiptHandle)
+
+  def inFlightCount: Int = inFlight.size
+
+  def shutdown(): Unit = {
+    killSwitch.shutdown()
+    inFlight.clear()
+  }
+
+  private def due(): immutable.Seq[String] = {
+    val now = System.nanoTime()
+    val marginNanos = settings.extensionMargin.toNanos
+    val maxExtensionNanos = settings.maxExtension.toNanos
+    val receiptHandles = List.newBuilder[String]
+    inFlight.entrySet().iterator().asScala.foreach { entry =>
+      val message = entry.getValue
+      if (now - message.receivedNanos >= maxExtensionNanos) inFlight.remove(entry.getKey, message)
+      else if (message.expiresNanos - now <= marginNanos) {
+        // only extend the message if it was not released in the meantime
+        if (inFlight.replace(entry.getKey, message, message.copy(expiresNanos = now + visibilityTimeoutNanos)))
+          receiptHandles += entry.getKey
+      }
+    }
+    receiptHandles.result()
+  }
+
+  private def extend(receiptHandles: immutable.Seq[String]): Future[Done] = {
+    val entries = receiptHandles.zipWithIndex.map {
+      case (receiptHandle, i) =>
+        ChangeMessageVisibilityBatchRequestEntry
+          .builder()
+          .id(i.toString)
+          .receiptHandle(receiptHandle)
+          .visibilityTimeout(settings.visibilityTimeout.toSeconds.toInt)
+          .build()
+    }
+    val request = ChangeMessageVisibilityBatchRequest.builder().queueUrl(queueUrl).entries(entries.asJava).build()
+    sqsClient
+      .changeMessageVisibilityBatch(request)
+      .toScala
+      .map { response =>
+        response.failed.asScala.foreach { failed =>
+          // e.g. the message was deleted or its receipt handle expired, there is nothing left to extend
+          val receiptHandle = receiptHandles(failed.id.toInt)
+          inFlight.remove(receiptHandle)
+          log.warning("Failed to extend the visibility timeout of a message: {} {}", failed.code, failed.message)
+        }
+        Done
+      }(parasitic)
+      .recover {
+        case NonFatal(ex) =>
+          log.warning("Failed to extend the visibility timeout of {} messages: {}", receiptHandles.size, ex.getMessage)
+          Done
+      }(parasitic)
+  }
+}
+
+/**
+ * Internal API
+ */
+@InternalApi
+private[sqs] object VisibilityHeartbeat {
+  private final case class InFlight(receivedNanos: Long, expiresNanos: Long)
+}
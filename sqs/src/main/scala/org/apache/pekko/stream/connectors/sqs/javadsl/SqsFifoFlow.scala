@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs.javadsl
+
+import java.util.concurrent.CompletionStage
+
+import org.apache.pekko
+import pekko.NotUsed
+import pekko.annotation.ApiMayChange
+import pekko.stream.connectors.sqs.{ MessageAction, SqsFifoProcessingSettings }
+import pekko.stream.javadsl.Flow
+import software.amazon.awssdk.services.sqs.model.Message
+
+import scala.compat.java8.FutureConverters._
+
+/**
+ * Java API to process messages from SQS FIFO queues.
+ */
+@ApiMayChange
+object SqsFifoFlow {
+
+  /**
+   * creates a [[pekko.stream.javadsl.Flow Flow]] that processes messages of different message groups concurrently,
+   * and the messages of each group one after the other in the order they were received.
+   *
+   * The message group is read from the `MessageGroupId` attribute, which the `SqsSource` must be asked for with
+   * `SqsSourceSettings.withAttribute(MessageGroupId)`. Messages without it are processed as a single group. A failed
+   * message fails the flow whatever the supervision strategy, so that no later message of its group overtakes it.
+   *
+   * The emitted actions, in the order processing completes, can be passed to `SqsAckFlow.grouped` to acknowledge
+   * them in batches.
+   */
+  def processByMessageGroup(settings: SqsFifoProcessingSettings,
+      process: pekko.japi.Function[Message, CompletionStage[MessageAction]]): Flow[Message, MessageAction, NotUsed] =
+    pekko.stream.connectors.sqs.scaladsl.SqsFifoFlow
+      .processByMessageGroup(settings)(message => process.apply(message).toScala)
+      .asJava
+}
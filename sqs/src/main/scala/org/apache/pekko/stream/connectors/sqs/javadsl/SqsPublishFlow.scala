@@ -23,7 +23,7 @@ import pekko.stream.connectors.sqs.{
   SqsPublishResultEntry,
   SqsPublishSettings
 }
-import pekko.stream.javadsl.Flow
+import pekko.stream.javadsl.{ Flow, Sink }
 import pekko.stream.scaladsl.{ Flow => SFlow }
 import software.amazon.awssdk.services.sqs.SqsAsyncClient
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest
@@ -63,6 +63,23 @@ object SqsPublishFlow {
       .grouped(queueUrl, settings)(sqsClient)
       .asJava
 
+  /**
+   * creates a [[pekko.stream.javadsl.Flow Flow]] that groups messages and publish them in batches to a SQS queue using an [[software.amazon.awssdk.services.sqs.SqsAsyncClient AmazonSQSAsync]]
+   *
+   * Messages larger than SQS accepts, counting message bodies and attributes, are sent to `oversized` instead of
+   * failing the batch they would be published in.
+   *
+   * @see https://doc.akka.io/docs/akka/current/stream/operators/Source-or-Flow/groupedWithin.html#groupedwithin
+   */
+  def grouped(
+      queueUrl: String,
+      settings: SqsPublishGroupedSettings,
+      oversized: Sink[SendMessageRequest, NotUsed],
+      sqsClient: SqsAsyncClient): Flow[SendMessageRequest, SqsPublishResultEntry, NotUsed] =
+    pekko.stream.connectors.sqs.scaladsl.SqsPublishFlow
+      .grouped(queueUrl, settings, oversized.asScala)(sqsClient)
+      .asJava
+
   /**
    * creates a [[pekko.stream.javadsl.Flow Flow]] to publish messages in batches to a SQS queue using an [[software.amazon.awssdk.services.sqs.SqsAsyncClient AmazonSQSAsync]]
    */
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs.javadsl
+
+import org.apache.pekko
+import pekko.NotUsed
+import pekko.actor.ClassicActorSystemProvider
+import pekko.stream.connectors.sqs.{
+  scaladsl,
+  SqsAckResult,
+  SqsAckResultEntry,
+  SqsSourceSettings,
+  SqsVisibilityHeartbeatSettings
+}
+import pekko.stream.javadsl.{ Flow, Source }
+import software.amazon.awssdk.services.sqs.SqsAsyncClient
+import software.amazon.awssdk.services.sqs.model.Message
+
+/**
+ * Java API: Extends the visibility timeout of messages while they are processed.
+ *
+ * Messages received by its [[source]] are extended shortly before their visibility timeout expires, until their
+ * acknowledgement result passes through [[release]] or [[releaseGrouped]], placed after the `SqsAckFlow`.
+ */
+final class SqsVisibilityHeartbeat private (heartbeat: scaladsl.SqsVisibilityHeartbeat) {
+
+  /**
+   * An `SqsSource` receiving messages with the heartbeat's visibility timeout, which replaces the one of the
+   * `sourceSettings`, and extending the visibility timeout of every message from when it was received.
+   */
+  def source(sourceSettings: SqsSourceSettings): Source[Message, NotUsed] = heartbeat.source(sourceSettings).asJava
+
+  /**
+   * Stops extending the visibility timeout of the messages whose results of `SqsAckFlow` pass through.
+   */
+  def release(): Flow[SqsAckResult, SqsAckResult, NotUsed] = heartbeat.release.asJava
+
+  /**
+   * Stops extending the visibility timeout of the messages whose results of `SqsAckFlow.grouped` pass through.
+   */
+  def releaseGrouped(): Flow[SqsAckResultEntry, SqsAckResultEntry, NotUsed] = heartbeat.releaseGrouped.asJava
+
+  /**
+   * The number of messages whose visibility timeout is being extended.
+   */
+  def getInFlight: Int = heartbeat.inFlight
+
+  /**
+   * Stops extending the visibility timeout of all messages.
+   */
+  def shutdown(): Unit = heartbeat.shutdown()
+}
+
+object SqsVisibilityHeartbeat {
+
+  /**
+   * Starts a heartbeat extending the visibility timeout of messages received from the queue.
+   */
+  def create(queueUrl: String,
+      settings: SqsVisibilityHeartbeatSettings,
+      sqsClient: SqsAsyncClient,
+      system: ClassicActorSystemProvider): SqsVisibilityHeartbeat =
+    new SqsVisibilityHeartbeat(scaladsl.SqsVisibilityHeartbeat(queueUrl, settings)(sqsClient, system))
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs.scaladsl
+
+import org.apache.pekko
+import pekko.NotUsed
+import pekko.annotation.ApiMayChange
+import pekko.stream.connectors.sqs.{ MessageAction, SqsFifoProcessingSettings }
+import pekko.stream.connectors.sqs.impl.MessageGroupMapAsync
+import pekko.stream.scaladsl.Flow
+import software.amazon.awssdk.services.sqs.model.{ Message, MessageSystemAttributeName }
+
+import scala.concurrent.Future
+
+/**
+ * Scala API to process messages from SQS FIFO queues.
+ */
+@ApiMayChange
+object SqsFifoFlow {
+
+  /**
+   * creates a [[pekko.stream.scaladsl.Flow Flow]] that processes messages of different message groups concurrently,
+   * and the messages of each group one after the other in the order they were received.
+   *
+   * The message group is read from the `MessageGroupId` attribute, which the `SqsSource` must be asked for with
+   * `SqsSourceSettings.withAttribute(MessageGroupId)`. Messages without it are processed as a single group. A failed
+   * message fails the flow whatever the supervision strategy, so that no later message of its group overtakes it.
+   *
+   * The emitted actions, in the order processing completes, can be passed to `SqsAckFlow.grouped` to acknowledge
+   * them in batches.
+   */
+  def processByMessageGroup(settings: SqsFifoProcessingSettings = SqsFifoProcessingSettings.Defaults)(
+      process: Message => Future[MessageAction]): Flow[Message, MessageAction, NotUsed] =
+    Flow[Message].via(
+      MessageGroupMapAsync(settings.maxActiveGroups, settings.maxBufferedMessages, messageGroupId, process))
+
+  private def messageGroupId(message: Message): String =
+    Option(message.attributes.get(MessageSystemAttributeName.MESSAGE_GROUP_ID)).getOrElse("")
+}
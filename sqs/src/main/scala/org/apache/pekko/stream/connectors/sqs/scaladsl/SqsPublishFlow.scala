@@ -20,12 +20,15 @@ import pekko.NotUsed
 import pekko.annotation.ApiMayChange
 import pekko.dispatch.ExecutionContexts.parasitic
 import pekko.stream.connectors.sqs._
-import pekko.stream.scaladsl.{ Flow, Source }
+import pekko.stream.connectors.sqs.impl.MessageSize
+import pekko.stream.scaladsl.{ Flow, Sink, Source }
 import software.amazon.awssdk.services.sqs.SqsAsyncClient
 import software.amazon.awssdk.services.sqs.model._
 
 import scala.collection.JavaConverters._
+import scala.collection.immutable
 import scala.compat.java8.FutureConverters._
+import scala.concurrent.{ ExecutionContext, Future }
 
 /**
  * Scala API to create publishing SQS flows.
@@ -68,62 +71,54 @@ object SqsPublishFlow {
   /**
    * creates a [[pekko.stream.scaladsl.Flow Flow]] that groups messages and publishes them in batches to a SQS queue using an [[software.amazon.awssdk.services.sqs.SqsAsyncClient SqsAsyncClient]]
    *
+   * Batches hold at most `maxBatchSize` messages adding up to at most `maxBatchBytes`, counting message bodies and
+   * attributes. A message larger than `maxBatchBytes` is published in a batch of its own.
+   *
    * @see https://doc.akka.io/docs/akka/current/stream/operators/Source-or-Flow/groupedWithin.html#groupedwithin
    */
   def grouped(queueUrl: String, settings: SqsPublishGroupedSettings = SqsPublishGroupedSettings.Defaults)(
-      implicit sqsClient: SqsAsyncClient): Flow[SendMessageRequest, SqsPublishResultEntry, NotUsed] =
+      implicit sqsClient: SqsAsyncClient): Flow[SendMessageRequest, SqsPublishResultEntry, NotUsed] = {
     Flow[SendMessageRequest]
-      .groupedWithin(settings.maxBatchSize, settings.maxBatchWait)
-      .via(batch(queueUrl, SqsPublishBatchSettings.create().withConcurrentRequests(settings.concurrentRequests)))
+      .groupedWeightedWithin(settings.maxBatchBytes, settings.maxBatchSize, settings.maxBatchWait)(MessageSize(_))
+      .via(
+        batch(queueUrl,
+          SqsPublishBatchSettings
+            .create()
+            .withConcurrentRequests(settings.concurrentRequests)
+            .withMaxBatchBytes(settings.maxBatchBytes)))
       .mapConcat(identity)
+  }
+
+  /**
+   * creates a [[pekko.stream.scaladsl.Flow Flow]] that groups messages and publishes them in batches to a SQS queue using an [[software.amazon.awssdk.services.sqs.SqsAsyncClient SqsAsyncClient]]
+   *
+   * Messages larger than SQS accepts, counting message bodies and attributes, are sent to `oversized` instead of
+   * failing the batch they would be published in.
+   *
+   * @see https://doc.akka.io/docs/akka/current/stream/operators/Source-or-Flow/groupedWithin.html#groupedwithin
+   */
+  def grouped(queueUrl: String, settings: SqsPublishGroupedSettings, oversized: Sink[SendMessageRequest, NotUsed])(
+      implicit sqsClient: SqsAsyncClient): Flow[SendMessageRequest, SqsPublishResultEntry, NotUsed] =
+    Flow[SendMessageRequest]
+      .divertTo(oversized, MessageSize(_) > SqsPublishBatchSettings.MaxBatchBytes)
+      .via(grouped(queueUrl, settings))
 
   /**
    * creates a [[pekko.stream.scaladsl.Flow Flow]] to publish messages in batches to a SQS queue using an [[software.amazon.awssdk.services.sqs.SqsAsyncClient SqsAsyncClient]]
+   *
+   * A batch whose messages add up to more than `maxBatchBytes`, counting message bodies and attributes, is sent in
+   * several requests one after the other, its results are emitted together.
    */
   def batch(queueUrl: String, settings: SqsPublishBatchSettings = SqsPublishBatchSettings.Defaults)(
       implicit sqsClient: SqsAsyncClient): Flow[Iterable[SendMessageRequest], List[SqsPublishResultEntry], NotUsed] = {
     SqsAckFlow.checkClient(sqsClient)
     Flow[Iterable[SendMessageRequest]]
-      .map { requests =>
-        val entries = requests.zipWithIndex.map {
-          case (r, i) =>
-            SendMessageBatchRequestEntry
-              .builder()
-              .id(i.toString)
-              .messageBody(r.messageBody())
-              .messageAttributes(r.messageAttributes())
-              .messageGroupId(r.messageGroupId())
-              .messageDeduplicationId(r.messageDeduplicationId())
-              .build()
+      .map(requests => MessageSize.split(requests.toList, settings.maxBatchBytes))
+      .mapAsync(settings.concurrentRequests) { batches =>
+        implicit val ec: ExecutionContext = parasitic
+        batches.foldLeft(Future.successful(List.empty[SqsPublishResultEntry])) { (sent, requests) =>
+          sent.flatMap(results => sendBatch(queueUrl, requests).map(results ++ _))
         }
-
-        requests -> SendMessageBatchRequest
-          .builder()
-          .queueUrl(queueUrl)
-          .entries(entries.toList.asJava)
-          .build()
-      }
-      .mapAsync(settings.concurrentRequests) {
-        case (requests, batchRequest) =>
-          sqsClient
-            .sendMessageBatch(batchRequest)
-            .toScala
-            .map {
-              case response if response.failed().isEmpty =>
-                val responseMetadata = response.responseMetadata()
-                val resultEntries = response.successful().asScala.map(e => e.id.toInt -> e).toMap
-                requests.zipWithIndex.map {
-                  case (r, i) =>
-                    val result = resultEntries(i)
-                    new SqsPublishResultEntry(r, result, responseMetadata)
-                }.toList
-              case response =>
-                val numberOfMessages = batchRequest.entries().size()
-                val nrOfFailedMessages = response.failed().size()
-                throw new SqsBatchException(
-                  numberOfMessages,
-                  s"Some messages are failed to send. $nrOfFailedMessages of $numberOfMessages messages are failed")
-            }(parasitic)
       }
       .recoverWithRetries(1,
         {
@@ -135,4 +130,45 @@ object SqsPublishFlow {
             Source.failed(e)
         })
   }
+
+  private def sendBatch(queueUrl: String, requests: immutable.Seq[SendMessageRequest])(
+      implicit sqsClient: SqsAsyncClient): Future[List[SqsPublishResultEntry]] = {
+    val entries = requests.zipWithIndex.map {
+      case (r, i) =>
+        SendMessageBatchRequestEntry
+          .builder()
+          .id(i.toString)
+          .messageBody(r.messageBody())
+          .messageAttributes(r.messageAttributes())
+          .messageGroupId(r.messageGroupId())
+          .messageDeduplicationId(r.messageDeduplicationId())
+          .build()
+    }
+
+    val batchRequest = SendMessageBatchRequest
+      .builder()
+      .queueUrl(queueUrl)
+      .entries(entries.toList.asJava)
+      .build()
+
+    sqsClient
+      .sendMessageBatch(batchRequest)
+      .toScala
+      .map {
+        case response if response.failed().isEmpty =>
+          val responseMetadata = response.responseMetadata()
+          val resultEntries = response.successful().asScala.map(e => e.id.toInt -> e).toMap
+          requests.zipWithIndex.map {
+            case (r, i) =>
+              val result = resultEntries(i)
+              new SqsPublishResultEntry(r, result, responseMetadata)
+          }.toList
+        case response =>
+          val numberOfMessages = batchRequest.entries().size()
+          val nrOfFailedMessages = response.failed().size()
+          throw new SqsBatchException(
+            numberOfMessages,
+            s"Some messages are failed to send. $nrOfFailedMessages of $numberOfMessages messages are failed")
+      }(parasitic)
+  }
 }
@@ -15,6 +15,8 @@ package org.apache.pekko.stream.connectors.sqs.scaladsl
 
 import org.apache.pekko
 import pekko._
+import pekko.annotation.InternalApi
+import pekko.dispatch.ExecutionContexts.parasitic
 import pekko.stream._
 import pekko.stream.connectors.sqs.SqsSourceSettings
 import pekko.stream.connectors.sqs.impl.BalancingMapAsync
@@ -24,6 +26,7 @@ import software.amazon.awssdk.services.sqs.model._
 
 import scala.collection.JavaConverters._
 import scala.compat.java8.FutureConverters._
+import scala.concurrent.Future
 
 /**
  * Scala API to create SQS sources.
@@ -38,6 +41,25 @@ object SqsSource {
       settings: SqsSourceSettings = SqsSourceSettings.Defaults)(
       implicit sqsClient: SqsAsyncClient): Source[Message, NotUsed] = {
     SqsAckFlow.checkClient(sqsClient)
+    receive(queueUrl, settings, _ => ())
+  }
+
+  /**
+   * Internal API: The source, calling `received` with every message as soon as its response arrives, before the
+   * message waits in any buffer.
+   */
+  @InternalApi
+  private[sqs] def receive(queueUrl: String, settings: SqsSourceSettings, received: Message => Unit)(
+      implicit sqsClient: SqsAsyncClient): Source[Message, NotUsed] = {
+    def receiveMessage(request: ReceiveMessageRequest): Future[ReceiveMessageResponse] =
+      sqsClient
+        .receiveMessage(request)
+        .toScala
+        .map { response =>
+          response.messages().asScala.foreach(received)
+          response
+        }(parasitic)
+
     Source
       .repeat {
         val requestBuilder =
@@ -54,20 +76,21 @@ object SqsSource {
           case Some(t) => requestBuilder.visibilityTimeout(t.toSeconds.toInt).build()
         }
       }
-      .via(resolveHandler(settings.parallelRequests))
+      .via(resolveHandler(settings.parallelRequests, receiveMessage))
       .map(_.messages().asScala.toList)
       .takeWhile(messages => !settings.closeOnEmptyReceive || messages.nonEmpty)
       .mapConcat(identity)
       .buffer(settings.maxBufferSize, OverflowStrategy.backpressure)
   }
 
-  private def resolveHandler(parallelism: Int)(implicit sqsClient: SqsAsyncClient) =
+  private def resolveHandler(parallelism: Int,
+      receiveMessage: ReceiveMessageRequest => Future[ReceiveMessageResponse]) =
     if (parallelism == 1) {
-      Flow[ReceiveMessageRequest].mapAsyncUnordered(parallelism)(sqsClient.receiveMessage(_).toScala)
+      Flow[ReceiveMessageRequest].mapAsyncUnordered(parallelism)(receiveMessage)
     } else {
       BalancingMapAsync[ReceiveMessageRequest, ReceiveMessageResponse](
         parallelism,
-        sqsClient.receiveMessage(_).toScala,
+        receiveMessage,
         (response, _) => if (response.messages().isEmpty) 1 else parallelism)
     }
 }
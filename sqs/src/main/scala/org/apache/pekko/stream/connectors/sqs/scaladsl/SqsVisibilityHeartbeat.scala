@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs.scaladsl
+
+import org.apache.pekko
+import pekko.NotUsed
+import pekko.actor.ClassicActorSystemProvider
+import pekko.stream.SystemMaterializer
+import pekko.stream.connectors.sqs.{
+  SqsAckResult,
+  SqsAckResultEntry,
+  SqsSourceSettings,
+  SqsVisibilityHeartbeatSettings
+}
+import pekko.stream.connectors.sqs.impl.VisibilityHeartbeat
+import pekko.stream.scaladsl.{ Flow, Source }
+import software.amazon.awssdk.services.sqs.SqsAsyncClient
+import software.amazon.awssdk.services.sqs.model.Message
+
+/**
+ * Scala API: Extends the visibility timeout of messages while they are processed, so that slow messages are not
+ * redelivered while a short visibility timeout still lets SQS redeliver the messages of a crashed consumer quickly.
+ *
+ * Messages received by its [[source]] are extended shortly before their visibility timeout expires, counting from
+ * when they were received, so that the time they wait in the source's buffer is taken into account. Messages whose
+ * acknowledgement result passes through [[release]] or [[releaseGrouped]], placed after the `SqsAckFlow`, are no
+ * longer extended once SQS deleted them or changed their visibility. Extensions are sent in
+ * ChangeMessageVisibilityBatch requests of up to 10 messages until [[shutdown]] is called.
+ */
+final class SqsVisibilityHeartbeat private (queueUrl: String,
+    settings: SqsVisibilityHeartbeatSettings,
+    heartbeat: VisibilityHeartbeat)(implicit sqsClient: SqsAsyncClient) {
+
+  /**
+   * An `SqsSource` receiving messages with the heartbeat's visibility timeout, which replaces the one of the
+   * `sourceSettings`, and extending the visibility timeout of every message from when it was received.
+   */
+  def source(sourceSettings: SqsSourceSettings = SqsSourceSettings.Defaults): Source[Message, NotUsed] =
+    SqsSource.receive(queueUrl,
+      sourceSettings.withVisibilityTimeout(settings.visibilityTimeout),
+      heartbeat.track)
+
+  /**
+   * Stops extending the visibility timeout of the messages whose results of `SqsAckFlow` pass through.
+   */
+  def release: Flow[SqsAckResult, SqsAckResult, NotUsed] =
+    Flow[SqsAckResult].map { result =>
+      heartbeat.release(result.messageAction.message)
+      result
+    }
+
+  /**
+   * Stops extending the visibility timeout of the messages whose results of `SqsAckFlow.grouped` pass through.
+   */
+  def releaseGrouped: Flow[SqsAckResultEntry, SqsAckResultEntry, NotUsed] =
+    Flow[SqsAckResultEntry].map { result =>
+      heartbeat.release(result.messageAction.message)
+      result
+    }
+
+  /**
+   * The number of messages whose visibility timeout is being extended.
+   */
+  def inFlight: Int = heartbeat.inFlightCount
+
+  /**
+   * Stops extending the visibility timeout of all messages.
+   */
+  def shutdown(): Unit = heartbeat.shutdown()
+}
+
+object SqsVisibilityHeartbeat {
+
+  /**
+   * Starts a heartbeat extending the visibility timeout of messages received from the queue.
+   */
+  def apply(queueUrl: String, settings: SqsVisibilityHeartbeatSettings = SqsVisibilityHeartbeatSettings.Defaults)(
+      implicit sqsClient: SqsAsyncClient,
+      system: ClassicActorSystemProvider): SqsVisibilityHeartbeat = {
+    SqsAckFlow.checkClient(sqsClient)
+    new SqsVisibilityHeartbeat(queueUrl, settings,
+      new VisibilityHeartbeat(queueUrl, settings)(sqsClient, SystemMaterializer(system).materializer))
+  }
+}
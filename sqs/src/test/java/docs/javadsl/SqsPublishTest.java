@@ -43,7 +43,7 @@ public class SqsPublishTest extends BaseSqsTest {
   public void constructBatchSettings() {
     // #SqsPublishBatchSettings
     SqsPublishBatchSettings batchSettings =
-        SqsPublishBatchSettings.create().withConcurrentRequests(1);
+        SqsPublishBatchSettings.create().withConcurrentRequests(1).withMaxBatchBytes(256 * 1024);
     // #SqsPublishBatchSettings
     assertEquals(1, batchSettings.concurrentRequests());
   }
@@ -55,7 +55,8 @@ public class SqsPublishTest extends BaseSqsTest {
         SqsPublishGroupedSettings.create()
             .withMaxBatchSize(10)
             .withMaxBatchWait(Duration.ofMillis(500))
-            .withConcurrentRequests(1);
+            .withConcurrentRequests(1)
+            .withMaxBatchBytes(256 * 1024);
     // #SqsPublishGroupedSettings
     assertEquals(1, batchSettings.concurrentRequests());
   }
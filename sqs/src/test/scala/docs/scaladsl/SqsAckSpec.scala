@@ -33,6 +33,7 @@ import software.amazon.awssdk.services.sqs.SqsAsyncClient
 import software.amazon.awssdk.services.sqs.model._
 
 import scala.collection.JavaConverters._
+import scala.concurrent.Future
 import scala.concurrent.duration._
 
 class SqsAckSpec extends AnyFlatSpec with Matchers with DefaultTestContext with LogCapturing {
@@ -226,6 +227,56 @@ class SqsAckSpec extends AnyFlatSpec with Matchers with DefaultTestContext with
     }
   }
 
+  "SqsVisibilityHeartbeat" should "extend the visibility timeout until messages are deleted" taggedAs Integration in {
+    new IntegrationFixture {
+      val messages = for (i <- 0 until 10) yield s"Message - $i"
+      sendMessages(messages)
+
+      // #visibility-heartbeat
+      val heartbeat = SqsVisibilityHeartbeat(
+        queueUrl,
+        SqsVisibilityHeartbeatSettings()
+          .withVisibilityTimeout(30.seconds)
+          .withExtensionMargin(10.seconds))
+
+      val future = heartbeat
+        .source(sqsSourceSettings)
+        .take(10)
+        .map(MessageAction.Delete(_))
+        .via(SqsAckFlow.grouped(queueUrl, SqsAckGroupedSettings.Defaults))
+        .via(heartbeat.releaseGrouped)
+        .runWith(Sink.seq)
+      // #visibility-heartbeat
+
+      future.futureValue should have size 10
+      heartbeat.inFlight shouldBe 0
+      heartbeat.shutdown()
+    }
+  }
+
+  "SqsFifoFlow" should "process message groups concurrently and acknowledge in batches" taggedAs Integration in {
+    new IntegrationFixture {
+      val messages = for (i <- 0 until 10) yield s"Message - $i"
+      sendMessages(messages)
+
+      def process(message: Message): Future[Done] = Future.successful(Done)
+
+      val future =
+        // #fifo-processing
+        SqsSource(queueUrl, sqsSourceSettings.withAttribute(MessageGroupId))
+          .take(10)
+          .via(
+            SqsFifoFlow.processByMessageGroup(SqsFifoProcessingSettings().withMaxActiveGroups(4)) { message =>
+              process(message).map(_ => MessageAction.Delete(message))(system.dispatcher)
+            })
+          .via(SqsAckFlow.grouped(queueUrl, SqsAckGroupedSettings.Defaults))
+          .runWith(Sink.seq)
+      // #fifo-processing
+
+      future.futureValue should have size 10
+    }
+  }
+
   it should "delete all messages in batches of given size" taggedAs Integration in new IntegrationFixture {
     val messages = for (i <- 0 until 10) yield s"Message - $i"
     sendMessages(messages)
@@ -82,6 +82,7 @@ class SqsPublishSpec extends AnyFlatSpec with Matchers with DefaultTestContext w
     val batchSettings =
       SqsPublishBatchSettings()
         .withConcurrentRequests(1)
+        .withMaxBatchBytes(256 * 1024)
     // #SqsPublishBatchSettings
     batchSettings.concurrentRequests shouldBe 1
   }
@@ -93,6 +94,7 @@ class SqsPublishSpec extends AnyFlatSpec with Matchers with DefaultTestContext w
         .withMaxBatchSize(10)
         .withMaxBatchWait(500.millis)
         .withConcurrentRequests(1)
+        .withMaxBatchBytes(256 * 1024)
     // #SqsPublishGroupedSettings
     batchSettings.concurrentRequests shouldBe 1
   }
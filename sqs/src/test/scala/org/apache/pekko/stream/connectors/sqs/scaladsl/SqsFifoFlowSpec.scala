@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs.scaladsl
+
+import java.util.concurrent.ConcurrentHashMap
+
+import org.apache.pekko
+import pekko.stream.{ ActorAttributes, Supervision }
+import pekko.stream.connectors.sqs.{ MessageAction, SqsFifoProcessingSettings }
+import pekko.stream.connectors.testkit.scaladsl.LogCapturing
+import pekko.stream.scaladsl.{ Sink, Source }
+import org.scalatest.concurrent.Eventually
+import org.scalatest.flatspec.AnyFlatSpec
+import org.scalatest.matchers.should.Matchers
+import software.amazon.awssdk.services.sqs.SqsAsyncClient
+import software.amazon.awssdk.services.sqs.model.{ Message, MessageSystemAttributeName }
+
+import scala.collection.JavaConverters._
+import scala.concurrent.{ Future, Promise }
+
+class SqsFifoFlowSpec extends AnyFlatSpec with Matchers with DefaultTestContext with Eventually with LogCapturing {
+
+  override def createAsyncClient(sqsEndpoint: String): SqsAsyncClient = ???
+  override def closeSqsClient(): Unit = ()
+
+  private def message(groupId: String, body: String) =
+    Message
+      .builder()
+      .body(body)
+      .receiptHandle(body)
+      .attributes(Map(MessageSystemAttributeName.MESSAGE_GROUP_ID -> groupId).asJava)
+      .build()
+
+  private class Processing {
+    val started = new ConcurrentHashMap[String, Promise[MessageAction]]()
+
+    def process(message: Message): Future[MessageAction] = {
+      val promise = Promise[MessageAction]()
+      started.put(message.body, promise)
+      promise.future
+    }
+
+    def complete(body: String): Unit = started.get(body).success(MessageAction.Delete(message("", body)))
+
+    def startedBodies: Set[String] = started.keySet.asScala.toSet
+  }
+
+  "SqsFifoFlow" should "process message groups concurrently and each group in order" in {
+    val processing = new Processing
+    val result = Source(List(message("a", "a1"), message("a", "a2"), message("b", "b1")))
+      .via(SqsFifoFlow.processByMessageGroup()(processing.process))
+      .map(_.message.body)
+      .runWith(Sink.seq)
+
+    eventually(processing.startedBodies shouldBe Set("a1", "b1"))
+    processing.complete("b1")
+    processing.complete("a1")
+    eventually(processing.startedBodies shouldBe Set("a1", "a2", "b1"))
+    processing.complete("a2")
+
+    result.futureValue shouldBe Seq("b1", "a1", "a2")
+  }
+
+  it should "limit the number of concurrently processed groups" in {
+    val processing = new Processing
+    val settings = SqsFifoProcessingSettings().withMaxActiveGroups(2)
+    val result = Source(List(message("a", "a1"), message("b", "b1"), message("c", "c1"), message("a", "a2")))
+      .via(SqsFifoFlow.processByMessageGroup(settings)(processing.process))
+      .map(_.message.body)
+      .runWith(Sink.seq)
+
+    eventually(processing.startedBodies shouldBe Set("a1", "b1"))
+    processing.complete("a1")
+    // the waiting group c goes ahead of the next message of group a
+    eventually(processing.startedBodies shouldBe Set("a1", "b1", "c1"))
+    processing.complete("c1")
+    eventually(processing.startedBodies shouldBe Set("a1", "b1", "c1", "a2"))
+    processing.complete("a2")
+    processing.complete("b1")
+
+    result.futureValue should contain theSameElementsInOrderAs Seq("a1", "c1", "a2", "b1")
+  }
+
+  it should "fail when a message fails, even when resuming" in {
+    val processing = new Processing
+    val failure = new RuntimeException("processing failed")
+    val result = Source(List(message("a", "a1"), message("a", "a2")))
+      .via(SqsFifoFlow.processByMessageGroup()(processing.process))
+      .withAttributes(ActorAttributes.supervisionStrategy(Supervision.resumingDecider))
+      .runWith(Sink.seq)
+
+    eventually(processing.startedBodies shouldBe Set("a1"))
+    processing.started.get("a1").failure(failure)
+
+    result.failed.futureValue shouldBe failure
+    processing.startedBodies shouldBe Set("a1")
+  }
+
+  it should "accept more active groups than the default buffer" in {
+    val processing = new Processing
+    val settings = SqsFifoProcessingSettings().withMaxActiveGroups(200)
+    val messages = (1 to 150).map(i => message(s"group-$i", s"m$i"))
+    val result = Source(messages)
+      .via(SqsFifoFlow.processByMessageGroup(settings)(processing.process))
+      .runWith(Sink.seq)
+
+    // the buffer of 100 messages limits the groups processed concurrently
+    eventually(processing.startedBodies.size shouldBe 100)
+    messages.take(100).foreach(m => processing.complete(m.body))
+    eventually(processing.startedBodies.size shouldBe 150)
+    messages.drop(100).foreach(m => processing.complete(m.body))
+
+    result.futureValue should have size 150
+  }
+}
@@ -21,16 +21,20 @@ import org.apache.pekko
 import pekko.Done
 import pekko.stream.connectors.sqs._
 import pekko.stream.connectors.testkit.scaladsl.LogCapturing
-import pekko.stream.scaladsl.Keep
+import pekko.stream.scaladsl.{ Keep, Sink, Source }
 import pekko.stream.testkit.scaladsl.TestSource
+import org.mockito.{ ArgumentCaptor, Mockito }
 import org.mockito.ArgumentMatchers._
 import org.mockito.Mockito._
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
 import org.scalatest.flatspec.AnyFlatSpec
 import org.scalatest.matchers.should.Matchers
 import org.scalatestplus.mockito.MockitoSugar.mock
 import software.amazon.awssdk.services.sqs.SqsAsyncClient
 import software.amazon.awssdk.services.sqs.model._
 
+import scala.collection.JavaConverters._
 import scala.concurrent.Await
 import scala.concurrent.duration._
 
@@ -184,6 +188,106 @@ class SqsPublishSinkSpec extends AnyFlatSpec with Matchers with DefaultTestConte
       any[SendMessageBatchRequest]())
   }
 
+  it should "send messages in batches within the request size limit" in {
+    implicit val sqsClient: SqsAsyncClient = mock[SqsAsyncClient]
+    when(sqsClient.sendMessageBatch(any[SendMessageBatchRequest])).thenAnswer(successfulBatch)
+
+    val body = "x" * (100 * 1024)
+    val (probe, future) = TestSource.probe[String].toMat(SqsPublishSink.grouped("notused"))(Keep.both).run()
+    (1 to 6).foreach(i => probe.sendNext(s"$i$body"))
+    probe.sendComplete()
+    Await.result(future, 1.second) shouldBe Done
+
+    val requests = ArgumentCaptor.forClass(classOf[SendMessageBatchRequest])
+    verify(sqsClient, times(3)).sendMessageBatch(requests.capture())
+    requests.getAllValues.asScala.map(_.entries.size) shouldBe Seq(2, 2, 2)
+  }
+
+  it should "divert messages larger than the request size limit" in {
+    implicit val sqsClient: SqsAsyncClient = mock[SqsAsyncClient]
+    when(sqsClient.sendMessageBatch(any[SendMessageBatchRequest])).thenAnswer(successfulBatch)
+
+    val oversized = SendMessageRequest
+      .builder()
+      .messageBody("x" * (200 * 1024))
+      .messageAttributes(
+        Map(
+          "attribute" -> MessageAttributeValue
+            .builder()
+            .dataType("String")
+            .stringValue("x" * (100 * 1024))
+            .build()).asJava)
+      .build()
+    val small = SendMessageRequest.builder().messageBody("small").build()
+
+    val (divertedFuture, diverted) = Sink.seq[SendMessageRequest].preMaterialize()
+    val results = Source(List(small, oversized, small))
+      .via(SqsPublishFlow.grouped("notused", SqsPublishGroupedSettings.Defaults, diverted))
+      .runWith(Sink.seq)
+      .futureValue
+
+    results.map(_.request) shouldBe Seq(small, small)
+    divertedFuture.futureValue shouldBe Seq(oversized)
+    verify(sqsClient, times(1)).sendMessageBatch(any[SendMessageBatchRequest]())
+  }
+
+  it should "split batches exceeding the request size limit" in {
+    implicit val sqsClient: SqsAsyncClient = mock[SqsAsyncClient]
+    when(sqsClient.sendMessageBatch(any[SendMessageBatchRequest])).thenAnswer(successfulBatch)
+
+    val messages = (1 to 4).map(i => SendMessageRequest.builder().messageBody(s"$i" + "x" * (100 * 1024)).build())
+    val results = Source
+      .single(messages)
+      .via(SqsPublishFlow.batch("notused"))
+      .runWith(Sink.head)
+      .futureValue
+
+    results.map(_.request) shouldBe messages
+    verify(sqsClient, times(2)).sendMessageBatch(any[SendMessageBatchRequest]())
+  }
+
+  it should "send the requests of a split batch one after the other" in {
+    implicit val sqsClient: SqsAsyncClient = mock[SqsAsyncClient]
+    val firstResponse = new CompletableFuture[SendMessageBatchResponse]()
+    when(sqsClient.sendMessageBatch(any[SendMessageBatchRequest]))
+      .thenAnswer(new Answer[CompletableFuture[SendMessageBatchResponse]] {
+        private var calls = 0
+        override def answer(invocation: InvocationOnMock): CompletableFuture[SendMessageBatchResponse] = {
+          calls += 1
+          if (calls == 1) firstResponse.thenCompose(_ => successfulBatch.answer(invocation))
+          else successfulBatch.answer(invocation)
+        }
+      })
+
+    val messages = (1 to 4).map(i => SendMessageRequest.builder().messageBody(s"$i" + "x" * (100 * 1024)).build())
+    val results = Source
+      .single(messages)
+      .via(SqsPublishFlow.batch("notused"))
+      .runWith(Sink.head)
+
+    verify(sqsClient, Mockito.after(200).times(1)).sendMessageBatch(any[SendMessageBatchRequest]())
+    firstResponse.complete(SendMessageBatchResponse.builder().build())
+    results.futureValue.map(_.request) shouldBe messages
+    verify(sqsClient, times(2)).sendMessageBatch(any[SendMessageBatchRequest]())
+  }
+
+  it should "bound grouped batches by the number of messages" in {
+    implicit val sqsClient: SqsAsyncClient = mock[SqsAsyncClient]
+    when(sqsClient.sendMessageBatch(any[SendMessageBatchRequest])).thenAnswer(successfulBatch)
+
+    // small messages weigh less than maxBatchBytes / maxBatchSize each
+    val results = Source(1 to 25)
+      .map(i => SendMessageRequest.builder().messageBody(i.toString).build())
+      .via(SqsPublishFlow.grouped("notused", SqsPublishGroupedSettings.Defaults.withMaxBatchSize(10)))
+      .runWith(Sink.seq)
+      .futureValue
+
+    results should have size 25
+    val requests = ArgumentCaptor.forClass(classOf[SendMessageBatchRequest])
+    verify(sqsClient, times(3)).sendMessageBatch(requests.capture())
+    requests.getAllValues.asScala.map(_.entries.size).sorted shouldBe Seq(5, 10, 10)
+  }
+
   it should "fail if any of the messages in batch failed" in {
     implicit val sqsClient: SqsAsyncClient = mock[SqsAsyncClient]
 
@@ -278,4 +382,14 @@ class SqsPublishSinkSpec extends AnyFlatSpec with Matchers with DefaultTestConte
     verify(sqsClient, times(2)).sendMessageBatch(
       any[SendMessageBatchRequest]())
   }
+
+  private val successfulBatch = new Answer[CompletableFuture[SendMessageBatchResponse]] {
+    override def answer(invocation: InvocationOnMock): CompletableFuture[SendMessageBatchResponse] = {
+      val request = invocation.getArgument[SendMessageBatchRequest](0)
+      val entries = request.entries.asScala.map { entry =>
+        SendMessageBatchResultEntry.builder().id(entry.id).messageId(UUID.randomUUID().toString).build()
+      }
+      CompletableFuture.completedFuture(SendMessageBatchResponse.builder().successful(entries.asJava).build())
+    }
+  }
 }
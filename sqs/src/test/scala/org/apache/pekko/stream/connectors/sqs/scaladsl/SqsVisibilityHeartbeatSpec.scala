@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * license agreements; and to You under the Apache License, version 2.0:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * This file is part of the Apache Pekko project, derived from Akka.
+ */
+
+package org.apache.pekko.stream.connectors.sqs.scaladsl
+
+import java.util.concurrent.CompletableFuture
+
+import org.apache.pekko
+import pekko.stream.connectors.sqs.{ MessageAction, SqsSourceSettings, SqsVisibilityHeartbeatSettings }
+import pekko.stream.connectors.testkit.scaladsl.LogCapturing
+import pekko.stream.scaladsl.Sink
+import pekko.stream.testkit.scaladsl.TestSink
+import org.mockito.{ ArgumentCaptor, Mockito }
+import org.mockito.ArgumentMatchers._
+import org.mockito.Mockito._
+import org.scalatest.flatspec.AnyFlatSpec
+import org.scalatest.matchers.should.Matchers
+import org.scalatestplus.mockito.MockitoSugar.mock
+import software.amazon.awssdk.services.sqs.SqsAsyncClient
+import software.amazon.awssdk.services.sqs.model.{
+  ChangeMessageVisibilityBatchRequest,
+  ChangeMessageVisibilityBatchResponse,
+  DeleteMessageRequest,
+  DeleteMessageResponse,
+  Message,
+  ReceiveMessageRequest,
+  ReceiveMessageResponse
+}
+
+import scala.collection.JavaConverters._
+import scala.concurrent.duration._
+
+class SqsVisibilityHeartbeatSpec extends AnyFlatSpec with Matchers with DefaultTestContext with LogCapturing {
+
+  override def createAsyncClient(sqsEndpoint: String): SqsAsyncClient = ???
+  override def closeSqsClient(): Unit = ()
+
+  private val settings = SqsVisibilityHeartbeatSettings()
+    .withVisibilityTimeout(1.second)
+    .withExtensionMargin(400.millis)
+
+  private val sourceSettings = SqsSourceSettings().withWaitTimeSeconds(0).withCloseOnEmptyReceive(true)
+
+  private val messages =
+    (1 to 12).map(i => Message.builder().receiptHandle(s"handle-$i").body(s"message $i").build())
+
+  // receives all messages at once, then nothing
+  private def mockClient(): SqsAsyncClient = {
+    val sqsClient = mock[SqsAsyncClient]
+    when(sqsClient.receiveMessage(any[ReceiveMessageRequest]))
+      .thenReturn(
+        CompletableFuture.completedFuture(ReceiveMessageResponse.builder().messages(messages.asJava).build()),
+        CompletableFuture.completedFuture(ReceiveMessageResponse.builder().build()))
+    when(sqsClient.changeMessageVisibilityBatch(any[ChangeMessageVisibilityBatchRequest]))
+      .thenReturn(CompletableFuture.completedFuture(ChangeMessageVisibilityBatchResponse.builder().build()))
+    sqsClient
+  }
+
+  "SqsVisibilityHeartbeat" should "extend messages from when they were received while they wait in the buffer" in {
+    implicit val sqsClient: SqsAsyncClient = mockClient()
+    val heartbeat = SqsVisibilityHeartbeat("url", settings)
+
+    val probe = heartbeat.source(sourceSettings).runWith(TestSink.probe)
+    probe.request(1)
+    probe.expectNext() shouldBe messages.head
+    heartbeat.inFlight shouldBe 12
+
+    val receives = ArgumentCaptor.forClass(classOf[ReceiveMessageRequest])
+    verify(sqsClient, atLeastOnce()).receiveMessage(receives.capture())
+    receives.getValue.visibilityTimeout.toInt shouldBe 1
+
+    val requests = ArgumentCaptor.forClass(classOf[ChangeMessageVisibilityBatchRequest])
+    verify(sqsClient, Mockito.timeout(2000).times(2)).changeMessageVisibilityBatch(requests.capture())
+    val entries = requests.getAllValues.asScala.flatMap(_.entries.asScala)
+    entries.map(_.receiptHandle) should contain theSameElementsAs messages.map(_.receiptHandle)
+    entries.map(_.visibilityTimeout.toInt).distinct shouldBe Seq(1)
+    requests.getAllValues.asScala.map(_.entries.size).max shouldBe 10
+
+    probe.cancel()
+    heartbeat.shutdown()
+  }
+
+  it should "extend messages until their deletion completed" in {
+    implicit val sqsClient: SqsAsyncClient = mockClient()
+    val deleted = new CompletableFuture[DeleteMessageResponse]()
+    when(sqsClient.deleteMessage(any[DeleteMessageRequest])).thenReturn(deleted)
+    val heartbeat = SqsVisibilityHeartbeat("url", settings)
+
+    val done = heartbeat
+      .source(sourceSettings)
+      .map(MessageAction.Delete(_))
+      .via(SqsAckFlow("url"))
+      .via(heartbeat.release)
+      .runWith(Sink.ignore)
+
+    verify(sqsClient, Mockito.timeout(2000).atLeastOnce()).deleteMessage(any[DeleteMessageRequest])
+    heartbeat.inFlight shouldBe 12
+    verify(sqsClient, Mockito.timeout(2000).atLeastOnce())
+      .changeMessageVisibilityBatch(any[ChangeMessageVisibilityBatchRequest])
+
+    deleted.complete(DeleteMessageResponse.builder().build())
+    done.futureValue
+    heartbeat.inFlight shouldBe 0
+    clearInvocations(sqsClient)
+    verify(sqsClient, Mockito.after(1500).never())
+      .changeMessageVisibilityBatch(any[ChangeMessageVisibilityBatchRequest])
+
+    heartbeat.shutdown()
+  }
+
+  it should "accept its settings in any order and check the extension margin when it starts" in {
+    implicit val sqsClient: SqsAsyncClient = mockClient()
+    val shortTimeout = SqsVisibilityHeartbeatSettings().withVisibilityTimeout(2.seconds)
+    shortTimeout.withExtensionMargin(1.second).extensionMargin shouldBe 1.second
+
+    an[IllegalArgumentException] should be thrownBy SqsVisibilityHeartbeat("url", shortTimeout)
+    verify(sqsClient, never()).changeMessageVisibilityBatch(any[ChangeMessageVisibilityBatchRequest])
+  }
+}